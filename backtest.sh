@@ -0,0 +1,21 @@
+#!/bin/sh
+
+# Run a back test without the UI e.g.
+# ./backtest.sh -start 03/03/2014 -end 03/07/2014 -symbols IBM,AAPL -out results
+# see org.trade.backtest.BackTestRunner for all the options.
+
+PATH="$JAVA_HOME/bin:$PATH"
+
+# tools.jar is needed for the javac compiler
+LOCALCLASSPATH="$JAVA_HOME/jre/lib/rt.jar:$JAVA_HOME/lib/tools.jar:lib/*:dist/*"
+
+if ! [ -f config.properties ];
+then
+cp config/config.properties .
+echo "Using default config.properties from /config dir."
+fi
+
+# set the timezone to be your markets zone so NYSE=America/New_York London=GMT
+TIMEZONE=America/New_York
+
+java  -Xmn128M -Xms768M -Xmx768M -Djava.awt.headless=true -classpath "$LOCALCLASSPATH" -Duser.timezone=$TIMEZONE -Dlog4j.configuration=file:"config.properties" org.trade.backtest.BackTestRunner "$@"
@@ -40,6 +40,7 @@ import java.util.Set;
 
 import javax.ejb.Stateless;
 import javax.persistence.EntityManager;
+import javax.persistence.Table;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
@@ -49,10 +50,27 @@ import javax.validation.Path;
 import javax.validation.Path.Node;
 
 /**
+ * Each call uses the EntityManager of the calling thread so calls are not
+ * serialized. Conflicting writes are caught by the version of the Aspect,
+ * only a persist that overrides the version locks the entity.
  */
 @Stateless
 public class AspectHome {
 
+	/*
+	 * Striped locks for persists that override the version. Two threads
+	 * reading then merging the same version of a row would otherwise fail the
+	 * optimistic lock check.
+	 */
+	private static final int LOCK_STRIPES = 64;
+	private static final Object[] _entityLocks = new Object[LOCK_STRIPES];
+
+	static {
+		for (int i = 0; i < LOCK_STRIPES; i++) {
+			_entityLocks[i] = new Object();
+		}
+	}
+
 	public AspectHome() {
 
 	}
@@ -65,7 +83,7 @@ public class AspectHome {
 	 * @return Aspect
 	 * @throws Exception
 	 */
-	public synchronized <T extends Aspect> T persist(T transientInstance)
+	public <T extends Aspect> T persist(T transientInstance)
 			throws Exception {
 		return persist(transientInstance, false);
 	}
@@ -81,7 +99,28 @@ public class AspectHome {
 	 * @throws Exception
 	 */
 
-	public synchronized <T extends Aspect> T persist(T transientInstance,
+	public <T extends Aspect> T persist(T transientInstance,
+			boolean overrideVersion) throws Exception {
+
+		if (overrideVersion && null != transientInstance.getId()) {
+			synchronized (getEntityLock(transientInstance)) {
+				return doPersist(transientInstance, overrideVersion);
+			}
+		}
+		return doPersist(transientInstance, overrideVersion);
+	}
+
+	/**
+	 * Method doPersist.
+	 * 
+	 * @param transientInstance
+	 *            Aspect
+	 * @param overrideVersion
+	 *            boolean
+	 * @return Aspect
+	 * @throws Exception
+	 */
+	private <T extends Aspect> T doPersist(T transientInstance,
 			boolean overrideVersion) throws Exception {
 
 		try {
@@ -123,7 +162,7 @@ public class AspectHome {
 	 * @param transientInstance
 	 *            Aspect
 	 */
-	public synchronized void remove(Aspect transientInstance) {
+	public void remove(Aspect transientInstance) {
 
 		try {
 			if (null != transientInstance.getId()) {
@@ -147,6 +186,39 @@ public class AspectHome {
 		}
 	}
 
+	/**
+	 * Method getEntityLock. The lock is keyed on the table and id so entities
+	 * mapped to the same row e.g. Tradestrategy and TradestrategyLite share a
+	 * lock.
+	 * 
+	 * @param aspect
+	 *            Aspect
+	 * @return Object the lock for the table and id of the aspect.
+	 */
+	private static Object getEntityLock(Aspect aspect) {
+		int hash = getTableName(aspect.getClass()).hashCode() * 31
+				+ aspect.getId().hashCode();
+		return _entityLocks[(hash & 0x7fffffff) % LOCK_STRIPES];
+	}
+
+	/**
+	 * Method getTableName. The superclasses are searched as the aspect may be
+	 * a proxy of the entity.
+	 * 
+	 * @param aspectClass
+	 *            Class<?>
+	 * @return String the table name or the class name if there is no table.
+	 */
+	private static String getTableName(Class<?> aspectClass) {
+		for (Class<?> item = aspectClass; null != item; item = item
+				.getSuperclass()) {
+			Table table = item.getAnnotation(Table.class);
+			if (null != table && table.name().length() > 0)
+				return table.name().toLowerCase();
+		}
+		return aspectClass.getName();
+	}
+
 	/**
 	 * Method findByClassName.
 	 * 
@@ -0,0 +1,247 @@
+/* ===========================================================
+ * TradeManager : An application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.core.dao;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.trade.core.metrics.Gauge;
+import org.trade.core.metrics.MetricRegistry;
+import org.trade.core.properties.ConfigProperties;
+
+/**
+ * Runs database work on a fixed set of threads, each thread has its own
+ * EntityManager from the EntityManagerHelper. The number of threads is kept
+ * below the size of the connection pool so the callers i.e. the EDT, the TWS
+ * reader and the strategy workers never wait for a connection or hold one
+ * while they wait, they get a Future.
+ * 
+ * Waiting tasks are run highest priority first, candle writes then queries
+ * then reports. Tasks of the same priority are run in the order they were
+ * submitted. Order writes are not submitted here, the broker callbacks use
+ * the saved order straight away so they save on their own thread.
+ * 
+ * Only the number of threads is bounded, the queue of waiting tasks is not.
+ * Callers that submit continuously must limit what they have waiting e.g.
+ * the realtime candle saves keep one task per contract.
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+public class DataAccessExecutor {
+
+	public static final int CANDLE_WRITE = 1;
+	public static final int QUERY = 2;
+	public static final int REPORT = 3;
+
+	private static final int DEFAULT_THREADS = 10;
+
+	private static DataAccessExecutor _instance = null;
+
+	private final ThreadPoolExecutor executor;
+	private final AtomicLong sequence = new AtomicLong(0);
+
+	/**
+	 * Constructor for DataAccessExecutor.
+	 * 
+	 * @param threads
+	 *            int the number of threads i.e. connections used.
+	 */
+	public DataAccessExecutor(int threads) {
+		final AtomicInteger threadCount = new AtomicInteger(0);
+		this.executor = new ThreadPoolExecutor(threads, threads, 0L,
+				TimeUnit.MILLISECONDS, new PriorityBlockingQueue<Runnable>(),
+				new ThreadFactory() {
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable, "DataAccess-"
+								+ threadCount.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+	}
+
+	/**
+	 * Method getInstance.
+	 * 
+	 * @return DataAccessExecutor the executor shared by the application. The
+	 *         number of threads is set by trade.dataaccess.threads.
+	 */
+	public static synchronized DataAccessExecutor getInstance() {
+		if (null == _instance) {
+			int threads = DEFAULT_THREADS;
+			try {
+				threads = ConfigProperties
+						.getPropAsInt("trade.dataaccess.threads");
+			} catch (Exception ex) {
+				// Do nothing use the default.
+			}
+			_instance = new DataAccessExecutor(Math.max(1, threads));
+			MetricRegistry.gauge("dataaccess.queue", new Gauge() {
+				public long getValue() {
+					return _instance.getQueueSize();
+				}
+			});
+		}
+		return _instance;
+	}
+
+	/**
+	 * Method submit.
+	 * 
+	 * @param priority
+	 *            int one of CANDLE_WRITE, QUERY or REPORT.
+	 * @param task
+	 *            Callable<T>
+	 * @return Future<T>
+	 */
+	public <T> Future<T> submit(int priority, Callable<T> task) {
+		if (null == task)
+			throw new IllegalArgumentException("Task cannot be null.");
+		DataAccessTask<T> future = new DataAccessTask<T>(task, priority,
+				this.sequence.getAndIncrement());
+		this.executor.execute(future);
+		return future;
+	}
+
+	/**
+	 * Method getQueueSize.
+	 * 
+	 * @return int the number of tasks waiting for a thread.
+	 */
+	public int getQueueSize() {
+		return this.executor.getQueue().size();
+	}
+
+	/**
+	 * Method getThreads.
+	 * 
+	 * @return int
+	 */
+	public int getThreads() {
+		return this.executor.getCorePoolSize();
+	}
+
+	/**
+	 * Method shutdown. Waiting tasks are still run.
+	 */
+	public void shutdown() {
+		this.executor.shutdown();
+	}
+
+	/**
+	 * Method awaitTermination.
+	 * 
+	 * @param timeout
+	 *            long
+	 * @param unit
+	 *            TimeUnit
+	 * @return boolean
+	 * @throws InterruptedException
+	 */
+	public boolean awaitTermination(long timeout, TimeUnit unit)
+			throws InterruptedException {
+		return this.executor.awaitTermination(timeout, unit);
+	}
+
+	/**
+	 * Method afterTask. Called on the worker thread after each task. Closes
+	 * the threads EntityManager so no connection is held between tasks.
+	 */
+	protected void afterTask() {
+		EntityManagerHelper.close();
+	}
+
+	/**
+	 * A submitted task ordered on priority then submit order.
+	 */
+	private class DataAccessTask<T> extends FutureTask<T> implements
+			Comparable<DataAccessTask<?>> {
+
+		private final int priority;
+		private final long sequence;
+
+		/**
+		 * Constructor for DataAccessTask.
+		 * 
+		 * @param task
+		 *            Callable<T>
+		 * @param priority
+		 *            int
+		 * @param sequence
+		 *            long
+		 */
+		DataAccessTask(Callable<T> task, int priority, long sequence) {
+			super(task);
+			this.priority = priority;
+			this.sequence = sequence;
+		}
+
+		/**
+		 * Method run.
+		 * 
+		 * @see java.lang.Runnable#run()
+		 */
+		public void run() {
+			try {
+				super.run();
+			} finally {
+				afterTask();
+			}
+		}
+
+		/**
+		 * Method compareTo.
+		 * 
+		 * @param other
+		 *            DataAccessTask<?>
+		 * @return int
+		 */
+		public int compareTo(DataAccessTask<?> other) {
+			if (this.priority != other.priority)
+				return (this.priority < other.priority ? -1 : 1);
+			return (this.sequence < other.sequence ? -1
+					: (this.sequence == other.sequence ? 0 : 1));
+		}
+	}
+}
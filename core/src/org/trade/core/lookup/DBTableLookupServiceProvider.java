@@ -38,7 +38,6 @@ package org.trade.core.lookup;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Enumeration;
-import java.util.Hashtable;
 import java.util.List;
 import java.util.Vector;
 
@@ -61,10 +60,10 @@ import org.trade.core.valuetype.Decode;
  */
 public class DBTableLookupServiceProvider implements LookupServiceProvider {
 	/*
-	 * This will be a hashtable of hashtables of Lookup objects. The first key
-	 * is the lookup name and the second key is the LookupQualifier.
+	 * The DecodeTables keyed on lookup name, LookupQualifier and optional.
+	 * Each Lookup returned is a new cursor on the shared immutable table.
 	 */
-	private static Hashtable<String, Hashtable<String, Lookup>> _lookups = new Hashtable<String, Hashtable<String, Lookup>>();
+	private static final LookupCache _lookups = new LookupCache();
 
 	/**
 	 * Default Constructor
@@ -72,10 +71,25 @@ public class DBTableLookupServiceProvider implements LookupServiceProvider {
 	public DBTableLookupServiceProvider() {
 	}
 
+	/**
+	 * Method clearLookup. The cache is replaced in one step so readers see
+	 * either all the old tables or none.
+	 */
 	public static void clearLookup() {
 		_lookups.clear();
 	}
 
+	/**
+	 * Method getGeneration. This changes each time the lookups are cleared
+	 * i.e. when the tables they are read from change, so values built from a
+	 * lookup can tell when they need to be rebuilt.
+	 * 
+	 * @return int
+	 */
+	public static int getGeneration() {
+		return _lookups.getGeneration();
+	}
+
 	/**
 	 * Method getLookup.
 	 * 
@@ -91,11 +105,41 @@ public class DBTableLookupServiceProvider implements LookupServiceProvider {
 	 * @see org.trade.core.lookup.LookupServiceProvider#getLookup(String,
 	 *      LookupQualifier)
 	 */
-	public synchronized Lookup getLookup(String lookupName,
-			LookupQualifier qualifier, boolean optional) throws LookupException {
-		Lookup lookup = getCachedLookup(lookupName, qualifier);
+	public Lookup getLookup(String lookupName, LookupQualifier qualifier,
+			boolean optional) throws LookupException {
+		String key = LookupCache.getKey(lookupName, qualifier, optional);
+		DecodeTable table = _lookups.get(key);
 
-		if (null == lookup) {
+		if (null == table) {
+			table = loadLookup(key, lookupName, qualifier, optional);
+		}
+		if (null == table) {
+			return null;
+		}
+		return new PropertiesLookup(table);
+	}
+
+	/**
+	 * Method loadLookup. Build the DecodeTable from the DB and add it to the
+	 * cache. Only one table is loaded at a time across all the providers as
+	 * the cache is static.
+	 * 
+	 * @param key
+	 *            String
+	 * @param lookupName
+	 *            String
+	 * @param qualifier
+	 *            LookupQualifier
+	 * @param optional
+	 *            boolean
+	 * @return DecodeTable null if the lookup cannot be provided.
+	 */
+	private static synchronized DecodeTable loadLookup(String key,
+			String lookupName, LookupQualifier qualifier, boolean optional) {
+		DecodeTable table = _lookups.get(key);
+
+		if (null == table) {
+			int generation = _lookups.getGeneration();
 			try {
 				Vector<Vector<Object>> rows = new Vector<Vector<Object>>();
 				Vector<String> colNames = new Vector<String>();
@@ -226,79 +270,29 @@ public class DBTableLookupServiceProvider implements LookupServiceProvider {
 
 				// If rows where found then I managed to provide the lookup
 				if (rows.size() > 0) {
-					lookup = new PropertiesLookup(colNames, rows);
+					table = new DecodeTable(colNames, rows);
 				}
 			} catch (Throwable t) {
 				// If this occurs means this provider is unable to provide
 				// the lookup ignore the exception.
 			}
-			if (null != lookup) {
-				addLookupToCache(lookupName, qualifier, lookup);
+			if (null != table) {
+				_lookups.put(key, table, generation);
 			}
 		}
 
-		return lookup;
-	}
-
-	/**
-	 * Returns null if the lookup is not in the cache.
-	 * 
-	 * @param lookupName
-	 *            String
-	 * @param qualifier
-	 *            LookupQualifier
-	 * @return Lookup
-	 */
-	private Lookup getCachedLookup(String lookupName, LookupQualifier qualifier) {
-		Lookup lookup = null;
-		Hashtable<?, ?> lookupsByQualifier = _lookups.get(lookupName);
-
-		if (null != lookupsByQualifier) {
-			lookup = (Lookup) lookupsByQualifier.get(qualifier.toString());
-		}
-
-		/*
-		 * Need to clone the object otherwise changes in position in the object
-		 * returned would effect everyone using the object.
-		 */
-		if (null != lookup) {
-			lookup = (Lookup) lookup.clone();
-		}
-
-		return (lookup);
-	}
-
-	/**
-	 * Method addLookupToCache.
-	 * 
-	 * @param lookupName
-	 *            String
-	 * @param qualifier
-	 *            LookupQualifier
-	 * @param lookup
-	 *            Lookup
-	 */
-	private synchronized void addLookupToCache(String lookupName,
-			LookupQualifier qualifier, Lookup lookup) {
-		Hashtable<String, Lookup> lookupsByQualifier = _lookups.get(lookupName);
-
-		if (null == lookupsByQualifier) {
-			lookupsByQualifier = new Hashtable<String, Lookup>();
-			_lookups.put(lookupName, lookupsByQualifier);
-		}
-
-		lookupsByQualifier.put(qualifier.toString(), lookup);
+		return table;
 	}
 
 	/**
-	 * Method getCodes.
+	 * Method getCodes. Only called by loadLookup().
 	 * 
 	 * @param className
 	 *            String
 	 * @return List<?>
 	 * @throws ClassNotFoundException
 	 */
-	private synchronized List<?> getCodes(String className)
+	private static List<?> getCodes(String className)
 			throws ClassNotFoundException {
 
 		try {
@@ -0,0 +1,215 @@
+/* ===========================================================
+ * TradeManager : An application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.core.lookup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Vector;
+
+import org.trade.core.dao.Aspect;
+
+/**
+ * An immutable table of lookup values e.g. the codes, display names and
+ * objects for a Decode type. The rows are indexed by the value in each column
+ * when the table is built so finding a row is a hash lookup rather than a scan
+ * of the table. The table is shared by every Lookup on it, only the cursor
+ * (current row) belongs to the Lookup.
+ * 
+ * @author Simon Allen
+ */
+public class DecodeTable implements java.io.Serializable {
+
+	private static final long serialVersionUID = -2468911436095476125L;
+
+	public static final DecodeTable EMPTY = new DecodeTable(null, null);
+
+	private final Object[] m_columnNames;
+	private final Object[][] m_rows;
+	private final HashMap<Object, Integer> m_columnIndex;
+	private final List<HashMap<Object, Integer>> m_rowIndex;
+	/*
+	 * Aspect equality is on class and id so they are indexed on their id.
+	 */
+	private final List<HashMap<Object, Integer>> m_aspectIndex;
+
+	/**
+	 * Constructor for DecodeTable. The values are copied so later changes to
+	 * the Vectors do not change the table.
+	 * 
+	 * @param columnNames
+	 *            Vector<?>
+	 * @param data
+	 *            Vector<?> a Vector of row Vectors.
+	 */
+	public DecodeTable(Vector<?> columnNames, Vector<?> data) {
+
+		if (null == columnNames) {
+			columnNames = new Vector<Object>();
+		}
+		if (null == data) {
+			data = new Vector<Object>();
+		}
+		m_columnNames = columnNames.toArray();
+		m_rows = new Object[data.size()][];
+		for (int i = 0; i < data.size(); i++) {
+			m_rows[i] = ((Vector<?>) data.elementAt(i)).toArray();
+		}
+
+		m_columnIndex = new HashMap<Object, Integer>();
+		for (int i = 0; i < m_columnNames.length; i++) {
+			if (!m_columnIndex.containsKey(m_columnNames[i]))
+				m_columnIndex.put(m_columnNames[i], i);
+		}
+
+		m_rowIndex = new ArrayList<HashMap<Object, Integer>>(
+				m_columnNames.length);
+		m_aspectIndex = new ArrayList<HashMap<Object, Integer>>(
+				m_columnNames.length);
+		for (int col = 0; col < m_columnNames.length; col++) {
+			HashMap<Object, Integer> rowIndex = new HashMap<Object, Integer>();
+			HashMap<Object, Integer> aspectIndex = new HashMap<Object, Integer>();
+			m_rowIndex.add(rowIndex);
+			m_aspectIndex.add(aspectIndex);
+			for (int row = 0; row < m_rows.length; row++) {
+				if (col >= m_rows[row].length || null == m_rows[row][col])
+					continue;
+				Object value = m_rows[row][col];
+				if (value instanceof Aspect) {
+					Object id = ((Aspect) value).getId();
+					if (null != id && !aspectIndex.containsKey(id))
+						aspectIndex.put(id, row);
+				} else if (!rowIndex.containsKey(value)) {
+					// The first row wins as it would for a scan.
+					rowIndex.put(value, row);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Method getColumnCount.
+	 * 
+	 * @return int
+	 */
+	public int getColumnCount() {
+		return m_columnNames.length;
+	}
+
+	/**
+	 * Method getRowCount.
+	 * 
+	 * @return int
+	 */
+	public int getRowCount() {
+		return m_rows.length;
+	}
+
+	/**
+	 * Method getColumnName.
+	 * 
+	 * @param colPos
+	 *            int
+	 * @return Object
+	 */
+	public Object getColumnName(int colPos) {
+		return m_columnNames[colPos];
+	}
+
+	/**
+	 * Method getColumnPos.
+	 * 
+	 * @param colName
+	 *            String
+	 * @return int -1 if there is no column of that name.
+	 */
+	public int getColumnPos(String colName) {
+		Integer pos = m_columnIndex.get(colName);
+		return (null == pos ? -1 : pos);
+	}
+
+	/**
+	 * Method getValueAt.
+	 * 
+	 * @param row
+	 *            int
+	 * @param col
+	 *            int
+	 * @return Object
+	 */
+	public Object getValueAt(int row, int col) {
+		return m_rows[row][col];
+	}
+
+	/**
+	 * Method getRowPos. Find the first row where the value in the column
+	 * equals the value.
+	 * 
+	 * @param colValue
+	 *            Object
+	 * @param col
+	 *            int
+	 * @return int -1 if there is no row.
+	 */
+	public int getRowPos(Object colValue, int col) {
+		if (null == colValue || col < 0 || col >= m_columnNames.length)
+			return -1;
+
+		Integer pos = null;
+		if (colValue instanceof Aspect) {
+			Object id = ((Aspect) colValue).getId();
+			if (null != id)
+				pos = m_aspectIndex.get(col).get(id);
+			if (null != pos
+					&& m_rows[pos][col].getClass().equals(colValue.getClass()))
+				return pos;
+		} else {
+			pos = m_rowIndex.get(col).get(colValue);
+			if (null != pos)
+				return pos;
+		}
+		/*
+		 * Not indexed e.g. a value whose hashCode does not agree with its
+		 * equals, check the table as before.
+		 */
+		for (int i = 0; i < m_rows.length; i++) {
+			if (col < m_rows[i].length && null != m_rows[i][col]
+					&& m_rows[i][col].equals(colValue))
+				return i;
+		}
+		return -1;
+	}
+}
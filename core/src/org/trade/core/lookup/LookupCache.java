@@ -0,0 +1,118 @@
+/* ===========================================================
+ * TradeManager : An application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.core.lookup;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The cache of DecodeTables for a LookupServiceProvider. The tables are held
+ * in an immutable map that is published via a volatile field, reads do not
+ * lock and adding a table or clearing the cache replaces the whole map.
+ * 
+ * @author Simon Allen
+ */
+class LookupCache {
+
+	private volatile Map<String, DecodeTable> m_tables = Collections
+			.emptyMap();
+	private volatile int m_generation = 0;
+
+	/**
+	 * Method getKey.
+	 * 
+	 * @param lookupName
+	 *            String
+	 * @param qualifier
+	 *            LookupQualifier
+	 * @param optional
+	 *            boolean
+	 * @return String
+	 */
+	static String getKey(String lookupName, LookupQualifier qualifier,
+			boolean optional) {
+		return lookupName + "|" + qualifier + "|" + optional;
+	}
+
+	/**
+	 * Method get.
+	 * 
+	 * @param key
+	 *            String
+	 * @return DecodeTable null if the table is not in the cache.
+	 */
+	DecodeTable get(String key) {
+		return m_tables.get(key);
+	}
+
+	/**
+	 * Method getGeneration. Read before loading a table and pass to put so a
+	 * table loaded before a clear() is not added after it.
+	 * 
+	 * @return int
+	 */
+	int getGeneration() {
+		return m_generation;
+	}
+
+	/**
+	 * Method put.
+	 * 
+	 * @param key
+	 *            String
+	 * @param table
+	 *            DecodeTable
+	 * @param generation
+	 *            int the generation when the table was loaded.
+	 */
+	synchronized void put(String key, DecodeTable table, int generation) {
+		if (generation != m_generation)
+			return;
+		HashMap<String, DecodeTable> tables = new HashMap<String, DecodeTable>(
+				m_tables);
+		tables.put(key, table);
+		m_tables = Collections.unmodifiableMap(tables);
+	}
+
+	/**
+	 * Method clear.
+	 */
+	synchronized void clear() {
+		m_generation++;
+		m_tables = Collections.emptyMap();
+	}
+}
@@ -39,7 +39,9 @@ import java.util.Vector;
 
 /**
  * Implementation of the Lookup interface that uses data from the
- * ConfigProperties object for providing its Lookup information.
+ * ConfigProperties object for providing its Lookup information. The values
+ * are held in an immutable DecodeTable that is shared by all clones, each
+ * clone has its own current row position.
  * 
  * @author Simon Allen
  */
@@ -53,9 +55,7 @@ public class PropertiesLookup implements Lookup, Cloneable,
 	//
 	// Private Attributes
 	//
-	private Vector<?> m_data = null;
-
-	private Vector<?> m_columnNames = null;
+	private final DecodeTable m_table;
 
 	private int m_currentRowPos = -1;
 
@@ -70,18 +70,32 @@ public class PropertiesLookup implements Lookup, Cloneable,
 	 *            Vector<?>
 	 */
 	public PropertiesLookup(Vector<?> columnNames, Vector<?> data) {
-		m_columnNames = columnNames;
-		m_data = data;
-
 		// A precaustion to make sure that calls to my API won't throw
 		// nulls
-		if (null == m_columnNames) {
-			m_columnNames = new Vector<Object>();
+		if (null == columnNames && null == data) {
+			m_table = DecodeTable.EMPTY;
+		} else {
+			m_table = new DecodeTable(columnNames, data);
 		}
+	}
 
-		if (null == m_data) {
-			m_data = new Vector<Object>();
-		}
+	/**
+	 * Constructor
+	 * 
+	 * @param table
+	 *            DecodeTable
+	 */
+	public PropertiesLookup(DecodeTable table) {
+		m_table = table;
+	}
+
+	/**
+	 * Method getTable.
+	 * 
+	 * @return DecodeTable
+	 */
+	public DecodeTable getTable() {
+		return (m_table);
 	}
 
 	/**
@@ -92,7 +106,7 @@ public class PropertiesLookup implements Lookup, Cloneable,
 	 * @see org.trade.core.lookup.Lookup#getColumnCount()
 	 */
 	public int getColumnCount() throws LookupException {
-		return (m_columnNames.size());
+		return (m_table.getColumnCount());
 	}
 
 	/**
@@ -103,7 +117,7 @@ public class PropertiesLookup implements Lookup, Cloneable,
 	 * @see org.trade.core.lookup.Lookup#getRowCount()
 	 */
 	public int getRowCount() throws LookupException {
-		return (m_data.size());
+		return (m_table.getRowCount());
 	}
 
 	/**
@@ -160,7 +174,7 @@ public class PropertiesLookup implements Lookup, Cloneable,
 		String colName = null;
 
 		try {
-			colName = "" + m_columnNames.elementAt(colPos);
+			colName = "" + m_table.getColumnName(colPos);
 		} catch (Throwable t) {
 			throw new LookupException(t, "Not a valid column position");
 		}
@@ -214,13 +228,13 @@ public class PropertiesLookup implements Lookup, Cloneable,
 	}
 
 	/**
-	 * Method clone.
+	 * Method clone. The table is immutable so it is shared.
 	 * 
 	 * @return Object
 	 * @see org.trade.core.lookup.Lookup#clone()
 	 */
 	public Object clone() {
-		return (new PropertiesLookup(m_columnNames, m_data));
+		return (new PropertiesLookup(m_table));
 	}
 
 	//
@@ -235,16 +249,7 @@ public class PropertiesLookup implements Lookup, Cloneable,
 	 * @throws LookupException
 	 */
 	private int doGetColPos(String colName) throws LookupException {
-		int pos = -1;
-		int columnNamesSize = m_columnNames.size();
-
-		for (int i = 0; i < columnNamesSize; i++) {
-			if (m_columnNames.elementAt(i).equals(colName)) {
-				// Have found the position
-				pos = i;
-				break;
-			}
-		}
+		int pos = m_table.getColumnPos(colName);
 
 		if (-1 == pos) {
 			throw new LookupException("Invalid Column Name");
@@ -269,8 +274,7 @@ public class PropertiesLookup implements Lookup, Cloneable,
 		if (rowPos != -1) // i.e a setPos was not performed.
 		{
 			try {
-				Vector<?> row = (Vector<?>) m_data.elementAt(rowPos);
-				rVal = row.elementAt(colPos);
+				rVal = m_table.getValueAt(rowPos, colPos);
 			} catch (Throwable t) {
 				throw new LookupException(t, "Out of bounds");
 			}
@@ -288,22 +292,7 @@ public class PropertiesLookup implements Lookup, Cloneable,
 	 * @return boolean
 	 */
 	private boolean doSetPos(Object colValue, int col) {
-		boolean rVal = false;
-
-		m_currentRowPos = -1;
-
-		int dataSize = m_data.size();
-
-		for (int i = 0; i < dataSize; i++) {
-			Vector<?> row = (Vector<?>) m_data.elementAt(i);
-
-			if (row.elementAt(col).equals(colValue)) {
-				m_currentRowPos = i;
-				rVal = true;
-
-				break;
-			}
-		}
-		return (rVal);
+		m_currentRowPos = m_table.getRowPos(colValue, col);
+		return (m_currentRowPos != -1);
 	}
 }
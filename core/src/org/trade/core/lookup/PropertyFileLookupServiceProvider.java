@@ -36,7 +36,6 @@
 package org.trade.core.lookup;
 
 import java.util.Enumeration;
-import java.util.Hashtable;
 import java.util.Vector;
 
 import org.trade.core.properties.ConfigProperties;
@@ -50,11 +49,12 @@ import org.trade.core.valuetype.Decode;
  */
 public class PropertyFileLookupServiceProvider implements LookupServiceProvider {
 	/*
-	 * This will be a hashtable of hashtables of Lookup objects. The first key
-	 * is the lookup name and the second key is the LookupQualifier.
+	 * The DecodeTables keyed on lookup name, LookupQualifier and optional.
+	 * Each Lookup returned is a new cursor on the shared immutable table. The
+	 * properties do not change so lookups this provider cannot supply are
+	 * cached as an empty table.
 	 */
-
-	private static Hashtable<String, Hashtable<String, Lookup>> _lookups = new Hashtable<String, Hashtable<String, Lookup>>();
+	private static final LookupCache _lookups = new LookupCache();
 
 	/**
 	 * Default Constructor
@@ -78,9 +78,39 @@ public class PropertyFileLookupServiceProvider implements LookupServiceProvider
 	 */
 	public Lookup getLookup(String lookupName, LookupQualifier qualifier,
 			boolean optional) throws LookupException {
-		Lookup lookup = getCachedLookup(lookupName, qualifier);
+		String key = LookupCache.getKey(lookupName, qualifier, optional);
+		DecodeTable table = _lookups.get(key);
+
+		if (null == table) {
+			table = loadLookup(key, lookupName, qualifier, optional);
+		}
+		if (table.getRowCount() == 0) {
+			return null;
+		}
+		return new PropertiesLookup(table);
+	}
 
-		if (null == lookup) {
+	/**
+	 * Method loadLookup. Build the DecodeTable from the properties and add it
+	 * to the cache. Synchronized on the class as the cache is static.
+	 * 
+	 * @param key
+	 *            String
+	 * @param lookupName
+	 *            String
+	 * @param qualifier
+	 *            LookupQualifier
+	 * @param optional
+	 *            boolean
+	 * @return DecodeTable an empty table if the lookup cannot be provided.
+	 */
+	private static synchronized DecodeTable loadLookup(String key,
+			String lookupName, LookupQualifier qualifier, boolean optional) {
+		DecodeTable table = _lookups.get(key);
+
+		if (null == table) {
+			int generation = _lookups.getGeneration();
+			table = DecodeTable.EMPTY;
 			try {
 
 				Vector<String> colNames = new Vector<String>();
@@ -166,66 +196,15 @@ public class PropertyFileLookupServiceProvider implements LookupServiceProvider
 
 				// If rows where found then I managed to provide the lookup
 				if (rows.size() > 0) {
-					lookup = new PropertiesLookup(colNames, rows);
+					table = new DecodeTable(colNames, rows);
 				}
 			} catch (Throwable t) {
 				// If this occurs means this provider is unable to provide
 				// the lookup ignore the exception.
 			}
-
-			if (null != lookup) {
-				addLookupToCache(lookupName, qualifier, lookup);
-			}
-		}
-
-		return lookup;
-	}
-
-	/**
-	 * Returns null if the lookup is not in the cache.
-	 * 
-	 * @param lookupName
-	 *            String
-	 * @param qualifier
-	 *            LookupQualifier
-	 * @return Lookup
-	 */
-	private Lookup getCachedLookup(String lookupName, LookupQualifier qualifier) {
-		Lookup lookup = null;
-		Hashtable<?, ?> lookupsByQualifier = _lookups.get(lookupName);
-
-		if (null != lookupsByQualifier) {
-			lookup = (Lookup) lookupsByQualifier.get(qualifier.toString());
-		}
-
-		// Need to clone the object otherwise changes in position in
-		// the object returned would effect everyone using the object
-		if (null != lookup) {
-			lookup = (Lookup) lookup.clone();
-		}
-
-		return (lookup);
-	}
-
-	/**
-	 * Method addLookupToCache.
-	 * 
-	 * @param lookupName
-	 *            String
-	 * @param qualifier
-	 *            LookupQualifier
-	 * @param lookup
-	 *            Lookup
-	 */
-	private synchronized void addLookupToCache(String lookupName,
-			LookupQualifier qualifier, Lookup lookup) {
-		Hashtable<String, Lookup> lookupsByQualifier = _lookups.get(lookupName);
-
-		if (null == lookupsByQualifier) {
-			lookupsByQualifier = new Hashtable<String, Lookup>();
-			_lookups.put(lookupName, lookupsByQualifier);
+			_lookups.put(key, table, generation);
 		}
 
-		lookupsByQualifier.put(qualifier.toString(), lookup);
+		return table;
 	}
 }
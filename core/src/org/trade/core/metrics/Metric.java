@@ -0,0 +1,80 @@
+/* ===========================================================
+ * TradeManager : An application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.core.metrics;
+
+/**
+ * The base class for the metrics held in the {@link MetricRegistry}.
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+public abstract class Metric {
+
+	private String name = null;
+
+	/**
+	 * Method getName.
+	 * 
+	 * @return String
+	 */
+	public String getName() {
+		return this.name;
+	}
+
+	/**
+	 * Method setName. Set by the registry when the metric is registered.
+	 * 
+	 * @param name
+	 *            String
+	 */
+	void setName(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Method getType.
+	 * 
+	 * @return String the JMX type i.e. Counter, Gauge or Timer.
+	 */
+	public abstract String getType();
+
+	/**
+	 * Method getMBeanInterface.
+	 * 
+	 * @return Class<?> the interface published via JMX.
+	 */
+	abstract Class<?> getMBeanInterface();
+}
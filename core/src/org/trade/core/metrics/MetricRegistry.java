@@ -0,0 +1,246 @@
+/* ===========================================================
+ * TradeManager : An application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.core.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The registry of the applications counters, gauges and timers. Each metric is
+ * published as an MBean on the platform MBeanServer under the domain
+ * org.trade i.e. org.trade:type=Timer,name=persistence.persistCandle so the
+ * values can be watched from jconsole or VisualVM while the application runs.
+ * 
+ * Metrics are held statically and looked up by name, callers should keep a
+ * reference to the metric rather than looking it up for every update.
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+public class MetricRegistry {
+
+	private final static Logger _log = LoggerFactory
+			.getLogger(MetricRegistry.class);
+
+	public static final String DOMAIN = "org.trade";
+
+	private static final ConcurrentHashMap<String, Metric> m_metrics = new ConcurrentHashMap<String, Metric>();
+
+	private MetricRegistry() {
+	}
+
+	/**
+	 * Method counter. Get or create a counter.
+	 * 
+	 * @param name
+	 *            String
+	 * @return Counter
+	 */
+	public static Counter counter(String name) {
+		Metric metric = m_metrics.get(name);
+		if (null == metric)
+			metric = register(name, new Counter(), false);
+		return (Counter) cast(name, metric, Counter.class);
+	}
+
+	/**
+	 * Method timer. Get or create a timer.
+	 * 
+	 * @param name
+	 *            String
+	 * @return Timer
+	 */
+	public static Timer timer(String name) {
+		Metric metric = m_metrics.get(name);
+		if (null == metric)
+			metric = register(name, new Timer(), false);
+		return (Timer) cast(name, metric, Timer.class);
+	}
+
+	/**
+	 * Method gauge. Register a gauge, any gauge already registered with the
+	 * name is replaced.
+	 * 
+	 * @param name
+	 *            String
+	 * @param gauge
+	 *            Gauge
+	 * @return Gauge
+	 */
+	public static Gauge gauge(String name, Gauge gauge) {
+		return (Gauge) register(name, gauge, true);
+	}
+
+	/**
+	 * Method getMetric.
+	 * 
+	 * @param name
+	 *            String
+	 * @return Metric null if not registered.
+	 */
+	public static Metric getMetric(String name) {
+		return m_metrics.get(name);
+	}
+
+	/**
+	 * Method getMetrics.
+	 * 
+	 * @return SortedMap<String,Metric> the metrics ordered by name.
+	 */
+	public static SortedMap<String, Metric> getMetrics() {
+		return new TreeMap<String, Metric>(m_metrics);
+	}
+
+	/**
+	 * Method remove. Remove the metric and its MBean.
+	 * 
+	 * @param name
+	 *            String
+	 */
+	public static synchronized void remove(String name) {
+		Metric metric = m_metrics.remove(name);
+		if (null != metric)
+			unregisterMBean(metric);
+	}
+
+	/**
+	 * Method register.
+	 * 
+	 * @param name
+	 *            String
+	 * @param metric
+	 *            Metric
+	 * @param replace
+	 *            boolean true to replace a metric with the same name.
+	 * @return Metric the registered metric.
+	 */
+	private static synchronized Metric register(String name, Metric metric,
+			boolean replace) {
+		Metric current = m_metrics.get(name);
+		if (null != current) {
+			if (!replace)
+				return current;
+			unregisterMBean(current);
+		}
+		metric.setName(name);
+		m_metrics.put(name, metric);
+		registerMBean(metric);
+		return metric;
+	}
+
+	/**
+	 * Method cast.
+	 * 
+	 * @param name
+	 *            String
+	 * @param metric
+	 *            Metric
+	 * @param type
+	 *            Class<?>
+	 * @return Metric
+	 */
+	private static Metric cast(String name, Metric metric, Class<?> type) {
+		if (!type.isInstance(metric))
+			throw new IllegalArgumentException("Metric: " + name
+					+ " is already registered as a " + metric.getType());
+		return metric;
+	}
+
+	/**
+	 * Method getObjectName.
+	 * 
+	 * @param metric
+	 *            Metric
+	 * @return ObjectName
+	 * @throws Exception
+	 */
+	static ObjectName getObjectName(Metric metric) throws Exception {
+		String name = metric.getName();
+		if (!name.matches("[A-Za-z0-9_.\\-]+"))
+			name = ObjectName.quote(name);
+		return new ObjectName(DOMAIN + ":type=" + metric.getType() + ",name="
+				+ name);
+	}
+
+	/**
+	 * Method registerMBean. A failure to register is logged the metric is
+	 * still usable.
+	 * 
+	 * @param metric
+	 *            Metric
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static void registerMBean(Metric metric) {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName objectName = getObjectName(metric);
+			if (server.isRegistered(objectName))
+				server.unregisterMBean(objectName);
+			server.registerMBean(new StandardMBean(metric,
+					(Class) metric.getMBeanInterface()), objectName);
+		} catch (Exception ex) {
+			_log.warn("Could not register MBean for metric: "
+					+ metric.getName() + " Msg: " + ex.getMessage());
+		}
+	}
+
+	/**
+	 * Method unregisterMBean.
+	 * 
+	 * @param metric
+	 *            Metric
+	 */
+	private static void unregisterMBean(Metric metric) {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName objectName = getObjectName(metric);
+			if (server.isRegistered(objectName))
+				server.unregisterMBean(objectName);
+		} catch (Exception ex) {
+			_log.warn("Could not unregister MBean for metric: "
+					+ metric.getName() + " Msg: " + ex.getMessage());
+		}
+	}
+}
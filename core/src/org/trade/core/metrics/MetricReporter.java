@@ -0,0 +1,221 @@
+/* ===========================================================
+ * TradeManager : An application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.core.metrics;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reports every metric in the {@link MetricRegistry} on a fixed period. Each
+ * report is written to the log at INFO and, if a file is given, appended to a
+ * CSV file. Counters and timers also report the rate per second since the
+ * last report.
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+public class MetricReporter implements Runnable {
+
+	private final static Logger _log = LoggerFactory
+			.getLogger(MetricReporter.class);
+
+	public static final String CSV_HEADER = "Time,Name,Type,Count,Value,Rate/s,Mean(ms),99%(ms),Max(ms)";
+
+	private static MetricReporter m_reporter = null;
+	private static ScheduledExecutorService m_scheduler = null;
+
+	private final int periodSeconds;
+	private final File csvFile;
+	private final Map<String, Long> lastCounts = new HashMap<String, Long>();
+	private long lastReport = System.nanoTime();
+
+	/**
+	 * Constructor for MetricReporter.
+	 * 
+	 * @param periodSeconds
+	 *            int
+	 * @param csvFileName
+	 *            String null or empty to only log.
+	 */
+	public MetricReporter(int periodSeconds, String csvFileName) {
+		this.periodSeconds = periodSeconds;
+		this.csvFile = (null == csvFileName || csvFileName.trim().length() == 0) ? null
+				: new File(csvFileName.trim());
+	}
+
+	/**
+	 * Method start. Start the reporter, any running reporter is stopped.
+	 * 
+	 * @param periodSeconds
+	 *            int the seconds between reports, zero or less does not
+	 *            start a reporter.
+	 * @param csvFileName
+	 *            String null or empty to only log.
+	 */
+	public static synchronized void start(int periodSeconds, String csvFileName) {
+		stop();
+		if (periodSeconds <= 0)
+			return;
+		m_reporter = new MetricReporter(periodSeconds, csvFileName);
+		m_scheduler = Executors
+				.newSingleThreadScheduledExecutor(new ThreadFactory() {
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable, "MetricReporter");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		m_scheduler.scheduleAtFixedRate(m_reporter, periodSeconds,
+				periodSeconds, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Method stop. Stop the running reporter after a final report.
+	 */
+	public static synchronized void stop() {
+		if (null != m_scheduler) {
+			m_scheduler.shutdownNow();
+			m_scheduler = null;
+			m_reporter.run();
+			m_reporter = null;
+		}
+	}
+
+	/**
+	 * Method isRunning.
+	 * 
+	 * @return boolean
+	 */
+	public static synchronized boolean isRunning() {
+		return null != m_scheduler;
+	}
+
+	/**
+	 * Method run. Report all the metrics.
+	 * 
+	 * @see java.lang.Runnable#run()
+	 */
+	public synchronized void run() {
+		try {
+			report();
+		} catch (Exception ex) {
+			_log.error("Could not report metrics Msg: " + ex.getMessage(), ex);
+		}
+	}
+
+	/**
+	 * Method report.
+	 * 
+	 * @return String the CSV lines reported.
+	 * @throws IOException
+	 */
+	String report() throws IOException {
+		long now = System.nanoTime();
+		double seconds = Math.max((now - this.lastReport) / 1e9d, 0.001d);
+		this.lastReport = now;
+		String time = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss")
+				.format(new Date());
+
+		StringBuffer csv = new StringBuffer();
+		StringBuffer log = new StringBuffer("Metrics period: "
+				+ this.periodSeconds + "s");
+		for (Metric metric : MetricRegistry.getMetrics().values()) {
+			String count = "";
+			String value = "";
+			String rate = "";
+			String mean = "";
+			String p99 = "";
+			String max = "";
+			log.append("\n ").append(metric.getName()).append(" ");
+			if (metric instanceof Gauge) {
+				value = String.valueOf(((Gauge) metric).getValue());
+				log.append("value=").append(value);
+			} else {
+				long total = (metric instanceof Counter) ? ((Counter) metric)
+						.getCount() : ((Timer) metric).getCount();
+				Long last = this.lastCounts.put(metric.getName(),
+						Long.valueOf(total));
+				count = String.valueOf(total);
+				rate = String.valueOf(Math
+						.round(((total - (null == last ? 0 : last.longValue())) / seconds) * 100d) / 100d);
+				log.append("count=").append(count).append(" rate/s=")
+						.append(rate);
+				if (metric instanceof Timer) {
+					Timer timer = (Timer) metric;
+					mean = String.valueOf(timer.getMeanMillis());
+					p99 = String.valueOf(timer.get99thPercentileMillis());
+					max = String.valueOf(timer.getMaxMillis());
+					log.append(" meanMs=").append(mean).append(" p99Ms=")
+							.append(p99).append(" maxMs=").append(max);
+				}
+			}
+			csv.append(time).append(',').append(metric.getName()).append(',')
+					.append(metric.getType()).append(',').append(count)
+					.append(',').append(value).append(',').append(rate)
+					.append(',').append(mean).append(',').append(p99)
+					.append(',').append(max)
+					.append(System.getProperty("line.separator"));
+		}
+		_log.info(log.toString());
+
+		if (null != this.csvFile) {
+			boolean newFile = !this.csvFile.exists();
+			FileWriter writer = new FileWriter(this.csvFile, true);
+			try {
+				if (newFile) {
+					writer.write(CSV_HEADER);
+					writer.write(System.getProperty("line.separator"));
+				}
+				writer.write(csv.toString());
+			} finally {
+				writer.close();
+			}
+		}
+		return csv.toString();
+	}
+}
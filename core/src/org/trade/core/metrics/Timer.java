@@ -0,0 +1,168 @@
+/* ===========================================================
+ * TradeManager : An application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.core.metrics;
+
+import org.trade.core.util.LatencyHistogram;
+
+/**
+ * The number and duration of calls e.g. to the database. The durations are
+ * held in a {@link LatencyHistogram} so updating a timer does not lock or
+ * allocate.
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+public class Timer extends Metric implements TimerMBean {
+
+	private final LatencyHistogram histogram = new LatencyHistogram();
+
+	/**
+	 * Method start.
+	 * 
+	 * @return long the start time to pass to stop.
+	 */
+	public long start() {
+		return System.nanoTime();
+	}
+
+	/**
+	 * Method stop. Record the time since start.
+	 * 
+	 * @param start
+	 *            long the value returned from start.
+	 */
+	public void stop(long start) {
+		update(System.nanoTime() - start);
+	}
+
+	/**
+	 * Method update.
+	 * 
+	 * @param nanos
+	 *            long
+	 */
+	public void update(long nanos) {
+		this.histogram.record(nanos);
+	}
+
+	/**
+	 * Method getCount.
+	 * 
+	 * @return long
+	 * @see org.trade.core.metrics.TimerMBean#getCount()
+	 */
+	public long getCount() {
+		return this.histogram.getCount();
+	}
+
+	/**
+	 * Method getMeanMillis.
+	 * 
+	 * @return double
+	 * @see org.trade.core.metrics.TimerMBean#getMeanMillis()
+	 */
+	public double getMeanMillis() {
+		return toMillis(this.histogram.getMean());
+	}
+
+	/**
+	 * Method getMedianMillis.
+	 * 
+	 * @return double
+	 * @see org.trade.core.metrics.TimerMBean#getMedianMillis()
+	 */
+	public double getMedianMillis() {
+		return toMillis(this.histogram.getValueAtPercentile(50));
+	}
+
+	/**
+	 * Method get99thPercentileMillis.
+	 * 
+	 * @return double
+	 * @see org.trade.core.metrics.TimerMBean#get99thPercentileMillis()
+	 */
+	public double get99thPercentileMillis() {
+		return toMillis(this.histogram.getValueAtPercentile(99));
+	}
+
+	/**
+	 * Method getMaxMillis.
+	 * 
+	 * @return double
+	 * @see org.trade.core.metrics.TimerMBean#getMaxMillis()
+	 */
+	public double getMaxMillis() {
+		return toMillis(this.histogram.getMax());
+	}
+
+	/**
+	 * Method reset.
+	 * 
+	 * @see org.trade.core.metrics.TimerMBean#reset()
+	 */
+	public void reset() {
+		this.histogram.reset();
+	}
+
+	/**
+	 * Method getType.
+	 * 
+	 * @return String
+	 */
+	public String getType() {
+		return "Timer";
+	}
+
+	/**
+	 * Method getMBeanInterface.
+	 * 
+	 * @return Class<?>
+	 */
+	Class<?> getMBeanInterface() {
+		return TimerMBean.class;
+	}
+
+	/**
+	 * Method toMillis.
+	 * 
+	 * @param nanos
+	 *            double
+	 * @return double rounded to 0.001ms
+	 */
+	private static double toMillis(double nanos) {
+		return Math.round(nanos / 1000d) / 1000d;
+	}
+}
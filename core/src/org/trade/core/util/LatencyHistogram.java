@@ -0,0 +1,219 @@
+/* ===========================================================
+ * TradeManager : An application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.core.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed size histogram of latencies in nanoseconds. Values are counted in
+ * log-linear buckets i.e. each power of two range is split into 64 buckets so
+ * any recorded value is accurate to within 1.6%. Values below 128ns are
+ * counted exactly and values above the highest trackable value (about 18min)
+ * are counted in the last bucket.
+ * 
+ * Recording a value does not allocate or lock so it can be called from the
+ * threads that process market data. The statistics are read while values are
+ * being recorded so they may be out by the values recorded during the read.
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 7;
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	private static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT / 2;
+	public static final long HIGHEST_TRACKABLE_VALUE = (1L << 40) - 1;
+	private static final int BUCKET_COUNT = getBucketIndex(HIGHEST_TRACKABLE_VALUE) + 1;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+	private final AtomicLong totalCount = new AtomicLong(0);
+	private final AtomicLong totalValue = new AtomicLong(0);
+	private final AtomicLong minValue = new AtomicLong(Long.MAX_VALUE);
+	private final AtomicLong maxValue = new AtomicLong(0);
+
+	/**
+	 * Method record. Add a latency to the histogram. Negative values are
+	 * ignored.
+	 * 
+	 * @param nanos
+	 *            long
+	 */
+	public void record(long nanos) {
+		if (nanos < 0)
+			return;
+		if (nanos > HIGHEST_TRACKABLE_VALUE)
+			nanos = HIGHEST_TRACKABLE_VALUE;
+
+		this.counts.incrementAndGet(getBucketIndex(nanos));
+		this.totalCount.incrementAndGet();
+		this.totalValue.addAndGet(nanos);
+
+		long current = this.minValue.get();
+		while (nanos < current && !this.minValue.compareAndSet(current, nanos)) {
+			current = this.minValue.get();
+		}
+		current = this.maxValue.get();
+		while (nanos > current && !this.maxValue.compareAndSet(current, nanos)) {
+			current = this.maxValue.get();
+		}
+	}
+
+	/**
+	 * Method getCount.
+	 * 
+	 * @return long the number of values recorded.
+	 */
+	public long getCount() {
+		return this.totalCount.get();
+	}
+
+	/**
+	 * Method getMin.
+	 * 
+	 * @return long the lowest value recorded or zero if none.
+	 */
+	public long getMin() {
+		long min = this.minValue.get();
+		return (min == Long.MAX_VALUE ? 0 : min);
+	}
+
+	/**
+	 * Method getMax.
+	 * 
+	 * @return long the highest value recorded.
+	 */
+	public long getMax() {
+		return this.maxValue.get();
+	}
+
+	/**
+	 * Method getMean.
+	 * 
+	 * @return double the mean of the values recorded or zero if none.
+	 */
+	public double getMean() {
+		long count = this.totalCount.get();
+		if (count == 0)
+			return 0;
+		return (double) this.totalValue.get() / count;
+	}
+
+	/**
+	 * Method getValueAtPercentile.
+	 * 
+	 * @param percentile
+	 *            double between 0 and 100.
+	 * @return long the value that the given percentage of the recorded values
+	 *         are less than or equal to. This is the highest value in the
+	 *         bucket and is no higher than the max value recorded.
+	 */
+	public long getValueAtPercentile(double percentile) {
+		long count = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			count = count + this.counts.get(i);
+		}
+		if (count == 0)
+			return 0;
+
+		percentile = Math.min(Math.max(percentile, 0d), 100d);
+		long target = Math.max(1, (long) Math.ceil((percentile / 100d) * count));
+		long cumulative = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			cumulative = cumulative + this.counts.get(i);
+			if (cumulative >= target) {
+				return Math.min(getHighestEquivalentValue(i), getMax());
+			}
+		}
+		return getMax();
+	}
+
+	/**
+	 * Method reset. Clear all the recorded values.
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			this.counts.set(i, 0);
+		}
+		this.totalCount.set(0);
+		this.totalValue.set(0);
+		this.minValue.set(Long.MAX_VALUE);
+		this.maxValue.set(0);
+	}
+
+	/**
+	 * Method getBucketIndex.
+	 * 
+	 * @param value
+	 *            long a positive value no higher than the highest trackable
+	 *            value.
+	 * @return int
+	 */
+	static int getBucketIndex(long value) {
+		if (value < SUB_BUCKET_COUNT)
+			return (int) value;
+		int shift = (63 - Long.numberOfLeadingZeros(value))
+				- (SUB_BUCKET_BITS - 1);
+		return (shift * SUB_BUCKET_HALF) + (int) (value >>> shift);
+	}
+
+	/**
+	 * Method getLowestEquivalentValue.
+	 * 
+	 * @param index
+	 *            int
+	 * @return long the lowest value counted in the bucket.
+	 */
+	static long getLowestEquivalentValue(int index) {
+		if (index < SUB_BUCKET_COUNT)
+			return index;
+		int shift = (index / SUB_BUCKET_HALF) - 1;
+		long subBucket = index - (shift * SUB_BUCKET_HALF);
+		return subBucket << shift;
+	}
+
+	/**
+	 * Method getHighestEquivalentValue.
+	 * 
+	 * @param index
+	 *            int
+	 * @return long the highest value counted in the bucket.
+	 */
+	static long getHighestEquivalentValue(int index) {
+		return getLowestEquivalentValue(index + 1) - 1;
+	}
+}
@@ -0,0 +1,247 @@
+/* ===========================================================
+ * TradeManager : An application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.core.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import org.trade.core.properties.ConfigProperties;
+
+/**
+ * Prices as a long number of ticks at a fixed scale i.e. at the default scale
+ * of 5 the price 10.25 is 1025000 ticks. Prices in ticks are added,
+ * subtracted and compared as longs so the price calculations done for every
+ * candle and order do not create BigDecimal or Money objects and are exact.
+ * Prices are converted to BigDecimal only when they are set on the persistent
+ * objects or sent to the broker.
+ * 
+ * The scale is read from the config property trade.price.scale default 5.
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+public final class PriceTicks {
+
+	public static final int SCALE;
+	public static final long TICKS_PER_UNIT;
+
+	static {
+		int scale = 5;
+		try {
+			scale = ConfigProperties.getPropAsInt("trade.price.scale");
+		} catch (Exception ex) {
+			// Do nothing use the default.
+		}
+		long ticks = 1;
+		for (int i = 0; i < scale; i++) {
+			ticks = ticks * 10;
+		}
+		SCALE = scale;
+		TICKS_PER_UNIT = ticks;
+	}
+
+	private PriceTicks() {
+	}
+
+	/**
+	 * Method valueOf.
+	 * 
+	 * @param price
+	 *            double
+	 * @return long the price in ticks rounded half even.
+	 */
+	public static long valueOf(double price) {
+		return (long) Math.rint(price * TICKS_PER_UNIT);
+	}
+
+	/**
+	 * Method valueOf. The price is converted from its unscaled value and
+	 * scale so the ticks are exact. A price with a scale of zero is not
+	 * copied, any other price creates one BigDecimal to read its unscaled
+	 * value. Prices used for every candle should be converted once and kept
+	 * in ticks.
+	 * 
+	 * @param price
+	 *            BigDecimal
+	 * @return long the price in ticks rounded half even.
+	 */
+	public static long valueOf(BigDecimal price) {
+		int scale = price.scale();
+		if (scale == 0)
+			return price.longValueExact() * TICKS_PER_UNIT;
+		if (scale > SCALE) {
+			return price.setScale(SCALE, RoundingMode.HALF_EVEN)
+					.movePointRight(SCALE).longValueExact();
+		}
+		long unscaled = price.movePointRight(scale).longValueExact();
+		if (scale < 0) {
+			for (int i = scale; i < 0; i++) {
+				unscaled = unscaled * 10;
+			}
+			return unscaled * TICKS_PER_UNIT;
+		}
+		for (int i = scale; i < SCALE; i++) {
+			unscaled = unscaled * 10;
+		}
+		return unscaled;
+	}
+
+	/**
+	 * Method toBigDecimal.
+	 * 
+	 * @param ticks
+	 *            long
+	 * @return BigDecimal the price at SCALE.
+	 */
+	public static BigDecimal toBigDecimal(long ticks) {
+		return BigDecimal.valueOf(ticks, SCALE);
+	}
+
+	/**
+	 * Method toDouble.
+	 * 
+	 * @param ticks
+	 *            long
+	 * @return double
+	 */
+	public static double toDouble(long ticks) {
+		return (double) ticks / TICKS_PER_UNIT;
+	}
+
+	/**
+	 * Method round. Round the price to a multiple of the increment i.e. to
+	 * the nearest cent use an increment of valueOf(0.01).
+	 * 
+	 * @param ticks
+	 *            long
+	 * @param increment
+	 *            long the ticks to round to.
+	 * @param roundingMode
+	 *            RoundingMode FLOOR, CEILING, HALF_UP or HALF_EVEN.
+	 * @return long
+	 */
+	public static long round(long ticks, long increment,
+			RoundingMode roundingMode) {
+		if (increment <= 0)
+			throw new IllegalArgumentException("Increment must be positive: "
+					+ increment);
+		long floor = ticks - floorMod(ticks, increment);
+		long remainder = ticks - floor;
+		if (remainder == 0)
+			return ticks;
+		switch (roundingMode) {
+		case FLOOR:
+			return floor;
+		case CEILING:
+			return floor + increment;
+		case HALF_UP:
+			return (remainder * 2 >= increment) ? floor + increment : floor;
+		case HALF_EVEN: {
+			long twice = remainder * 2;
+			if (twice > increment
+					|| (twice == increment && floorMod(floor / increment, 2) != 0))
+				return floor + increment;
+			return floor;
+		}
+		default:
+			throw new IllegalArgumentException("Rounding mode not supported: "
+					+ roundingMode);
+		}
+	}
+
+	/**
+	 * Method isBetween. Is c between a and b inclusive in either order.
+	 * 
+	 * @param a
+	 *            long
+	 * @param b
+	 *            long
+	 * @param c
+	 *            long
+	 * @return boolean
+	 */
+	public static boolean isBetween(long a, long b, long c) {
+		return b > a ? c >= a && c <= b : c >= b && c <= a;
+	}
+
+	/**
+	 * Method format.
+	 * 
+	 * @param ticks
+	 *            long
+	 * @param decimals
+	 *            int the number of decimal places no more than SCALE, the
+	 *            price is rounded half even.
+	 * @return String
+	 */
+	public static String format(long ticks, int decimals) {
+		long increment = 1;
+		for (int i = decimals; i < SCALE; i++) {
+			increment = increment * 10;
+		}
+		long units = round(ticks, increment, RoundingMode.HALF_EVEN)
+				/ increment;
+		StringBuilder value = new StringBuilder(20);
+		if (units < 0) {
+			value.append('-');
+			units = -units;
+		}
+		long divisor = TICKS_PER_UNIT / increment;
+		value.append(units / divisor);
+		if (decimals > 0) {
+			value.append('.');
+			String fraction = Long.toString(divisor + (units % divisor));
+			value.append(fraction, 1, fraction.length());
+		}
+		return value.toString();
+	}
+
+	/**
+	 * Method floorMod.
+	 * 
+	 * @param x
+	 *            long
+	 * @param y
+	 *            long
+	 * @return long the remainder with the sign of y.
+	 */
+	private static long floorMod(long x, long y) {
+		long mod = x % y;
+		if (mod != 0 && ((mod ^ y) < 0))
+			mod = mod + y;
+		return mod;
+	}
+}
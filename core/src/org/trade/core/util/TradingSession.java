@@ -0,0 +1,179 @@
+/* ===========================================================
+ * TradeManager : An application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.core.util;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * The market hours of a tradingday as epoch millis. The open and close for
+ * the day of the last time checked are cached so bars that arrive in time
+ * order are checked without allocating or locking the shared calendar. The
+ * result is the same as TradingCalendar.isMarketHours(open, close, date).
+ * 
+ * Each session has its own calendar so it must only be used by one thread.
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+public class TradingSession {
+
+	private final GregorianCalendar calendar = new GregorianCalendar(
+			TimeZone.getDefault(), Locale.getDefault());
+	private final int openHour;
+	private final int openMinute;
+	private final int openSecond;
+	private final int closeHour;
+	private final int closeMinute;
+	private final int closeSecond;
+	private final int diffDays;
+
+	/*
+	 * The day that was last checked [dayStart, dayEnd).
+	 */
+	private long dayStart = Long.MAX_VALUE;
+	private long dayEnd = Long.MIN_VALUE;
+	private long open;
+	private long close;
+	private boolean tradingDay;
+
+	/**
+	 * Constructor for TradingSession.
+	 * 
+	 * @param openDate
+	 *            Date the tradingday open.
+	 * @param closeDate
+	 *            Date the tradingday close.
+	 */
+	public TradingSession(Date openDate, Date closeDate) {
+		calendar.setTime(openDate);
+		this.openHour = calendar.get(Calendar.HOUR_OF_DAY);
+		this.openMinute = calendar.get(Calendar.MINUTE);
+		this.openSecond = calendar.get(Calendar.SECOND);
+		calendar.setTime(closeDate);
+		this.closeHour = calendar.get(Calendar.HOUR_OF_DAY);
+		this.closeMinute = calendar.get(Calendar.MINUTE);
+		this.closeSecond = calendar.get(Calendar.SECOND);
+		this.diffDays = TradingCalendar.daysDiff(openDate, closeDate);
+	}
+
+	/**
+	 * Method isMarketHours.
+	 * 
+	 * @param millis
+	 *            long the time to check.
+	 * @return boolean true if the time is on a trading day between the open
+	 *         and the close.
+	 */
+	public boolean isMarketHours(long millis) {
+		setDay(millis);
+		return this.tradingDay && millis >= this.open && millis < this.close;
+	}
+
+	/**
+	 * Method getOpenTime.
+	 * 
+	 * @param millis
+	 *            long
+	 * @return long the open time on the day of millis.
+	 */
+	public long getOpenTime(long millis) {
+		setDay(millis);
+		return this.open;
+	}
+
+	/**
+	 * Method getDayStart.
+	 * 
+	 * @param year
+	 *            int
+	 * @param month
+	 *            int 1-12
+	 * @param dayOfMonth
+	 *            int
+	 * @return long the start of the day.
+	 */
+	public long getDayStart(int year, int month, int dayOfMonth) {
+		calendar.clear();
+		calendar.set(year, month - 1, dayOfMonth);
+		return calendar.getTimeInMillis();
+	}
+
+	/**
+	 * Method setDay. Set the open and close for the day of millis unless they
+	 * are already set.
+	 * 
+	 * @param millis
+	 *            long
+	 */
+	private void setDay(long millis) {
+		if (millis >= this.dayStart && millis < this.dayEnd)
+			return;
+		calendar.setTimeInMillis(millis);
+		setTime(0, 0, 0);
+		this.dayStart = calendar.getTimeInMillis();
+		setTime(this.openHour, this.openMinute, this.openSecond);
+		this.open = calendar.getTimeInMillis();
+		setTime(this.closeHour, this.closeMinute, this.closeSecond);
+		Date closeDate = TradingCalendar.addBusinessDays(
+				new Date(calendar.getTimeInMillis()), this.diffDays);
+		this.close = closeDate.getTime();
+		calendar.setTimeInMillis(this.dayStart);
+		calendar.add(Calendar.DAY_OF_MONTH, 1);
+		this.dayEnd = calendar.getTimeInMillis();
+		this.tradingDay = TradingCalendar.isTradingDay(new Date(this.dayStart));
+	}
+
+	/**
+	 * Method setTime.
+	 * 
+	 * @param hour
+	 *            int
+	 * @param minute
+	 *            int
+	 * @param second
+	 *            int
+	 */
+	private void setTime(int hour, int minute, int second) {
+		calendar.set(Calendar.HOUR_OF_DAY, hour);
+		calendar.set(Calendar.MINUTE, minute);
+		calendar.set(Calendar.SECOND, second);
+		calendar.set(Calendar.MILLISECOND, 0);
+	}
+}
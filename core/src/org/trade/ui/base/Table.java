@@ -61,6 +61,7 @@ import javax.swing.JPopupMenu;
 import javax.swing.JTable;
 import javax.swing.SwingConstants;
 import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 import javax.swing.table.JTableHeader;
 import javax.swing.table.TableColumn;
 
@@ -110,9 +111,11 @@ public class Table extends JTable implements MouseListener, ActionListener {
 	private static final long serialVersionUID = -6753202830151175785L;
 
 	private static final String DATEFORMAT = "MM/dd/yyyy";
+	private static final int REFRESH_MILLIS = 5000;
 	private JPopupMenu popup = null;
 	private boolean popupMenu = true;
 	private String m_pngDefaultDir = null;
+	private Timer m_refreshTimer = null;
 
 	/**
 	 * Constructor for Table.
@@ -181,6 +184,71 @@ public class Table extends JTable implements MouseListener, ActionListener {
 		this.setColumnSelectionAllowed(false);
 
 		this.addMouseListener(this);
+
+		/*
+		 * Values in the models refresh columns change in place so repaint
+		 * them every 5sec. Only the rows in view are repainted so the cost
+		 * does not grow with the number of rows.
+		 */
+		m_refreshTimer = new Timer(REFRESH_MILLIS, new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				repaintRefreshColumns();
+			}
+		});
+	}
+
+	/**
+	 * Method addNotify. Start the refresh timer when the table is shown.
+	 * 
+	 * @see javax.swing.JComponent#addNotify()
+	 */
+	public void addNotify() {
+		super.addNotify();
+		if (((TableModel) this.getModel()).getRefreshColumns().length > 0) {
+			m_refreshTimer.start();
+		}
+	}
+
+	/**
+	 * Method removeNotify. Stop the refresh timer when the table is removed.
+	 * 
+	 * @see javax.swing.JComponent#removeNotify()
+	 */
+	public void removeNotify() {
+		m_refreshTimer.stop();
+		super.removeNotify();
+	}
+
+	/**
+	 * Method repaintRefreshColumns. Repaint the models refresh columns for
+	 * the rows that are currently visible.
+	 */
+	public void repaintRefreshColumns() {
+		if (this.getRowCount() == 0) {
+			return;
+		}
+		Rectangle visible = this.getVisibleRect();
+		if (visible.isEmpty()) {
+			return;
+		}
+		int firstRow = this.rowAtPoint(visible.getLocation());
+		if (firstRow == -1) {
+			return;
+		}
+		int lastRow = this.rowAtPoint(new Point(visible.x, visible.y
+				+ visible.height - 1));
+		if (lastRow == -1) {
+			lastRow = this.getRowCount() - 1;
+		}
+		for (int modelColumn : ((TableModel) this.getModel())
+				.getRefreshColumns()) {
+			int column = this.convertColumnIndexToView(modelColumn);
+			if (column > -1) {
+				Rectangle dirty = this.getCellRect(firstRow, column, true);
+				dirty.add(this.getCellRect(lastRow, column, true));
+				this.repaint(dirty);
+			}
+		}
 	}
 
 	/**
@@ -87,6 +87,52 @@ public abstract class TableModel extends AbstractTableModel {
 		}
 	}
 
+	/**
+	 * Method replaceRows. Swap in a newly built set of rows and tell the
+	 * listeners only about the rows that changed. Rows are compared by
+	 * position; runs of changed rows are sent as one update event and any
+	 * difference in length as one insert or delete event at the end. This
+	 * must be called on the event dispatch thread.
+	 * 
+	 * @param newRows
+	 *            ArrayList<Vector<Object>>
+	 */
+	protected void replaceRows(ArrayList<Vector<Object>> newRows) {
+		ArrayList<Vector<Object>> oldRows = rows;
+		rows = newRows;
+		int common = Math.min(oldRows.size(), newRows.size());
+		int firstChanged = -1;
+		for (int i = 0; i < common; i++) {
+			if (oldRows.get(i).equals(newRows.get(i))) {
+				if (firstChanged > -1) {
+					this.fireTableRowsUpdated(firstChanged, i - 1);
+					firstChanged = -1;
+				}
+			} else if (firstChanged == -1) {
+				firstChanged = i;
+			}
+		}
+		if (firstChanged > -1) {
+			this.fireTableRowsUpdated(firstChanged, common - 1);
+		}
+		if (newRows.size() > common) {
+			this.fireTableRowsInserted(common, newRows.size() - 1);
+		} else if (oldRows.size() > common) {
+			this.fireTableRowsDeleted(common, oldRows.size() - 1);
+		}
+	}
+
+	/**
+	 * Method getRefreshColumns. The columns whose values change in place
+	 * (e.g. prices or status held by the row objects) and so need to be
+	 * repainted periodically. See Table.
+	 * 
+	 * @return int[] model column indexes, empty if none.
+	 */
+	public int[] getRefreshColumns() {
+		return new int[0];
+	}
+
 	/**
 	 * Method getColumnHeaderToolTip.
 	 * 
@@ -0,0 +1,211 @@
+/* ===========================================================
+ * TradeManager : An application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.core.dao;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Some tests for the {@link DataAccessExecutor} class. The tasks do not use
+ * the database.
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+public class DataAccessExecutorTest {
+
+	private DataAccessExecutor executor = null;
+
+	/**
+	 * Method tearDown.
+	 * 
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception {
+		if (null != executor) {
+			executor.shutdown();
+			executor.awaitTermination(5, TimeUnit.SECONDS);
+		}
+	}
+
+	@Test
+	public void testPriorityOrder() throws Exception {
+		executor = createExecutor(1);
+		final CountDownLatch blocked = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		executor.submit(DataAccessExecutor.QUERY, new Callable<Void>() {
+			public Void call() throws Exception {
+				blocked.countDown();
+				release.await();
+				return null;
+			}
+		});
+		assertTrue(blocked.await(5, TimeUnit.SECONDS));
+
+		final List<String> ran = Collections
+				.synchronizedList(new ArrayList<String>());
+		List<Future<String>> futures = new ArrayList<Future<String>>();
+		futures.add(executor.submit(DataAccessExecutor.REPORT,
+				createTask("report", ran)));
+		futures.add(executor.submit(DataAccessExecutor.QUERY,
+				createTask("query", ran)));
+		futures.add(executor.submit(DataAccessExecutor.CANDLE_WRITE,
+				createTask("candle1", ran)));
+		futures.add(executor.submit(DataAccessExecutor.REPORT,
+				createTask("report2", ran)));
+		futures.add(executor.submit(DataAccessExecutor.CANDLE_WRITE,
+				createTask("candle2", ran)));
+		assertEquals(5, executor.getQueueSize());
+		release.countDown();
+
+		assertEquals("report", futures.get(0).get(5, TimeUnit.SECONDS));
+		for (Future<String> future : futures) {
+			future.get(5, TimeUnit.SECONDS);
+		}
+		String[] expected = { "candle1", "candle2", "query", "report",
+				"report2" };
+		assertEquals(expected.length, ran.size());
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i], ran.get(i));
+		}
+	}
+
+	@Test
+	public void testBoundedConcurrency() throws Exception {
+		executor = createExecutor(2);
+		final AtomicInteger running = new AtomicInteger(0);
+		final AtomicInteger maxRunning = new AtomicInteger(0);
+		List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+		for (int i = 0; i < 20; i++) {
+			futures.add(executor.submit(DataAccessExecutor.QUERY,
+					new Callable<Integer>() {
+						public Integer call() throws Exception {
+							int now = running.incrementAndGet();
+							synchronized (maxRunning) {
+								if (now > maxRunning.get())
+									maxRunning.set(now);
+							}
+							Thread.sleep(5);
+							running.decrementAndGet();
+							return now;
+						}
+					}));
+		}
+		for (Future<Integer> future : futures) {
+			assertTrue(future.get(5, TimeUnit.SECONDS) <= 2);
+		}
+		assertTrue(maxRunning.get() <= 2);
+		assertEquals(2, executor.getThreads());
+	}
+
+	@Test
+	public void testTaskException() throws Exception {
+		final AtomicInteger afterTask = new AtomicInteger(0);
+		executor = new DataAccessExecutor(1) {
+			protected void afterTask() {
+				afterTask.incrementAndGet();
+			}
+		};
+		Future<Void> future = executor.submit(DataAccessExecutor.CANDLE_WRITE,
+				new Callable<Void>() {
+					public Void call() throws Exception {
+						throw new IllegalStateException("Optimistic lock");
+					}
+				});
+		try {
+			future.get(5, TimeUnit.SECONDS);
+			fail("The task exception should be returned by the future.");
+		} catch (ExecutionException ex) {
+			assertTrue(ex.getCause() instanceof IllegalStateException);
+		}
+		assertEquals("ok",
+				executor.submit(DataAccessExecutor.QUERY, new Callable<String>() {
+					public String call() throws Exception {
+						return "ok";
+					}
+				}).get(5, TimeUnit.SECONDS));
+		executor.shutdown();
+		executor.awaitTermination(5, TimeUnit.SECONDS);
+		assertEquals(2, afterTask.get());
+	}
+
+	/**
+	 * Method createExecutor. The EntityManager is not closed after each task
+	 * as these tests do not use the database.
+	 * 
+	 * @param threads
+	 *            int
+	 * @return DataAccessExecutor
+	 */
+	private DataAccessExecutor createExecutor(int threads) {
+		return new DataAccessExecutor(threads) {
+			protected void afterTask() {
+			}
+		};
+	}
+
+	/**
+	 * Method createTask.
+	 * 
+	 * @param name
+	 *            String
+	 * @param ran
+	 *            List<String>
+	 * @return Callable<String>
+	 */
+	private Callable<String> createTask(final String name,
+			final List<String> ran) {
+		return new Callable<String>() {
+			public String call() throws Exception {
+				ran.add(name);
+				return name;
+			}
+		};
+	}
+}
@@ -0,0 +1,183 @@
+/* ===========================================================
+ * TradeManager : An application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.core.lookup;
+
+import static org.junit.Assert.*;
+
+import java.util.Vector;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.trade.core.dao.Aspect;
+
+/**
+ * Some tests for the {@link DecodeTable} and {@link PropertiesLookup} classes.
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+public class DecodeTableTest {
+
+	private Vector<String> columnNames = null;
+	private Vector<Vector<Object>> rows = null;
+
+	/**
+	 * Method setUp.
+	 * 
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		columnNames = new Vector<String>();
+		columnNames.add("CODE_DECODE_TYPE");
+		columnNames.add("CODE_DECODE_CODE");
+		columnNames.add("CODE_DECODE_DISPLAY_NAME");
+		rows = new Vector<Vector<Object>>();
+		addRow("BarSize", "60", "1 min");
+		addRow("BarSize", "300", "5 min");
+		addRow("BarSize", "3600", "1 hour");
+		addRow("BarSize", "300", "Duplicate");
+	}
+
+	@Test
+	public void testRowPos() {
+		DecodeTable table = new DecodeTable(columnNames, rows);
+		assertEquals(4, table.getRowCount());
+		assertEquals(1, table.getColumnPos("CODE_DECODE_CODE"));
+		assertEquals(-1, table.getColumnPos("CODE_DECODE_NONE"));
+		assertEquals(2, table.getRowPos("3600", 1));
+		assertEquals(0, table.getRowPos("1 min", 2));
+		// The first row wins as it would for a scan.
+		assertEquals(1, table.getRowPos("300", 1));
+		assertEquals(-1, table.getRowPos("15", 1));
+		assertEquals(-1, table.getRowPos(null, 1));
+
+		// Changes to the Vectors do not change the table.
+		rows.clear();
+		assertEquals("5 min", table.getValueAt(1, 2));
+	}
+
+	@Test
+	public void testAspectRowPos() {
+		Vector<Vector<Object>> aspectRows = new Vector<Vector<Object>>();
+		for (int i = 1; i < 4; i++) {
+			Vector<Object> row = new Vector<Object>();
+			row.add("Strategy");
+			row.add(new TestAspect(i, i));
+			row.add("Strategy " + i);
+			aspectRows.add(row);
+		}
+		DecodeTable table = new DecodeTable(columnNames, aspectRows);
+		// Aspects are equal on id whatever the version.
+		assertEquals(1, table.getRowPos(new TestAspect(2, 10), 1));
+		assertEquals(-1, table.getRowPos(new TestAspect(5, 1), 1));
+		assertEquals(-1, table.getRowPos(new TestAspect(null, 1), 1));
+	}
+
+	@Test
+	public void testLookupCursors() throws Exception {
+		PropertiesLookup lookup = new PropertiesLookup(columnNames, rows);
+		PropertiesLookup clone = (PropertiesLookup) lookup.clone();
+		assertSame(lookup.getTable(), clone.getTable());
+
+		assertTrue(lookup.setPos("60", "CODE_DECODE_CODE"));
+		assertTrue(clone.setPos("1 hour", "CODE_DECODE_DISPLAY_NAME"));
+		assertEquals("1 min", lookup.getValueAt("CODE_DECODE_DISPLAY_NAME"));
+		assertEquals("3600", clone.getValueAt("CODE_DECODE_CODE"));
+
+		assertFalse(lookup.setPos("15", "CODE_DECODE_CODE"));
+		assertNull(lookup.getValueAt("CODE_DECODE_DISPLAY_NAME"));
+		try {
+			lookup.setPos("60", "CODE_DECODE_NONE");
+			fail("Should have thrown LookupException");
+		} catch (LookupException ex) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testLookupCache() {
+		LookupCache cache = new LookupCache();
+		DecodeTable table = new DecodeTable(columnNames, rows);
+		int generation = cache.getGeneration();
+		cache.put("BarSize", table, generation);
+		assertSame(table, cache.get("BarSize"));
+
+		cache.clear();
+		assertNull(cache.get("BarSize"));
+		// A table loaded before the clear is not added.
+		cache.put("BarSize", table, generation);
+		assertNull(cache.get("BarSize"));
+	}
+
+	/**
+	 * Method addRow.
+	 * 
+	 * @param type
+	 *            String
+	 * @param code
+	 *            String
+	 * @param displayName
+	 *            String
+	 */
+	private void addRow(String type, String code, String displayName) {
+		Vector<Object> row = new Vector<Object>();
+		row.add(type);
+		row.add(code);
+		row.add(displayName);
+		rows.add(row);
+	}
+
+	/**
+	 */
+	private static class TestAspect extends Aspect {
+
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Constructor for TestAspect.
+		 * 
+		 * @param id
+		 *            Integer
+		 * @param version
+		 *            Integer
+		 */
+		TestAspect(Integer id, Integer version) {
+			this.setId(id);
+			this.setVersion(version);
+		}
+	}
+}
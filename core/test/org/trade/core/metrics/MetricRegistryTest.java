@@ -0,0 +1,168 @@
+/* ===========================================================
+ * TradeManager : An application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.core.metrics;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.LineNumberReader;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.MBeanServer;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Some tests for the {@link MetricRegistry} and {@link MetricReporter}
+ * classes.
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+public class MetricRegistryTest {
+
+	/**
+	 * Method tearDown.
+	 * 
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception {
+		MetricRegistry.remove("test.counter");
+		MetricRegistry.remove("test.timer");
+		MetricRegistry.remove("test.gauge");
+	}
+
+	@Test
+	public void testCounter() throws Exception {
+		Counter counter = MetricRegistry.counter("test.counter");
+		assertSame(counter, MetricRegistry.counter("test.counter"));
+		counter.inc();
+		counter.inc(5);
+		counter.dec();
+		assertEquals(5, counter.getCount());
+
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		assertEquals(new Long(5), server.getAttribute(
+				MetricRegistry.getObjectName(counter), "Count"));
+		try {
+			MetricRegistry.timer("test.counter");
+			fail("Counter registered as a timer");
+		} catch (IllegalArgumentException ex) {
+			// Expected
+		}
+	}
+
+	@Test
+	public void testTimerAndGauge() throws Exception {
+		Timer timer = MetricRegistry.timer("test.timer");
+		timer.update(2000000);
+		timer.update(4000000);
+		assertEquals(2, timer.getCount());
+		assertEquals(3.0, timer.getMeanMillis(), 0.001);
+		assertEquals(4.0, timer.getMaxMillis(), 0.001);
+
+		final AtomicLong size = new AtomicLong(3);
+		MetricRegistry.gauge("test.gauge", new Gauge() {
+			public long getValue() {
+				return size.get();
+			}
+		});
+		size.set(7);
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		assertEquals(
+				new Long(7),
+				server.getAttribute(MetricRegistry.getObjectName(MetricRegistry
+						.getMetric("test.gauge")), "Value"));
+		assertEquals(
+				new Double(4.0),
+				server.getAttribute(MetricRegistry.getObjectName(timer),
+						"MaxMillis"));
+
+		/*
+		 * Replacing a gauge replaces its MBean.
+		 */
+		MetricRegistry.gauge("test.gauge", new Gauge() {
+			public long getValue() {
+				return 11;
+			}
+		});
+		assertEquals(
+				new Long(11),
+				server.getAttribute(MetricRegistry.getObjectName(MetricRegistry
+						.getMetric("test.gauge")), "Value"));
+
+		MetricRegistry.remove("test.gauge");
+		assertNull(MetricRegistry.getMetric("test.gauge"));
+	}
+
+	@Test
+	public void testReporter() throws Exception {
+		MetricRegistry.counter("test.counter").inc(10);
+		MetricRegistry.timer("test.timer").update(1000000);
+
+		File csvFile = File.createTempFile("metrics", ".csv");
+		csvFile.delete();
+		try {
+			MetricReporter reporter = new MetricReporter(60,
+					csvFile.getAbsolutePath());
+			String report = reporter.report();
+			assertTrue(report.indexOf(",test.counter,Counter,10,,") > -1);
+			assertTrue(report.indexOf(",test.timer,Timer,1,,") > -1);
+			reporter.report();
+
+			LineNumberReader reader = new LineNumberReader(new FileReader(
+					csvFile));
+			try {
+				assertEquals(MetricReporter.CSV_HEADER, reader.readLine());
+				int headers = 1;
+				String line = null;
+				while ((line = reader.readLine()) != null) {
+					if (line.equals(MetricReporter.CSV_HEADER))
+						headers++;
+				}
+				assertEquals(1, headers);
+			} finally {
+				reader.close();
+			}
+		} finally {
+			csvFile.delete();
+		}
+	}
+}
@@ -0,0 +1,116 @@
+/* ===========================================================
+ * TradeManager : An application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.core.util;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import org.junit.Test;
+
+/**
+ * Some tests for the {@link LatencyHistogram} class.
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+public class LatencyHistogramTest {
+
+	@Test
+	public void testBuckets() {
+		for (long value = 0; value < 1000000; value = value + 7) {
+			int index = LatencyHistogram.getBucketIndex(value);
+			assertTrue(LatencyHistogram.getLowestEquivalentValue(index) <= value);
+			assertTrue(LatencyHistogram.getHighestEquivalentValue(index) >= value);
+			long width = LatencyHistogram.getHighestEquivalentValue(index)
+					- LatencyHistogram.getLowestEquivalentValue(index) + 1;
+			assertTrue(width == 1 || ((double) width / value) < 0.016);
+		}
+		assertEquals(127, LatencyHistogram.getBucketIndex(127));
+		assertEquals(128, LatencyHistogram.getBucketIndex(128));
+		assertEquals(128, LatencyHistogram.getBucketIndex(129));
+	}
+
+	@Test
+	public void testPercentiles() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.getValueAtPercentile(99));
+		for (long value = 1; value <= 10000; value++) {
+			histogram.record(value * 1000);
+		}
+		histogram.record(-1);
+		assertEquals(10000, histogram.getCount());
+		assertEquals(1000, histogram.getMin());
+		assertEquals(10000000, histogram.getMax());
+		assertEquals(5000500, histogram.getMean(), 0.1);
+		assertEquals(5000000, histogram.getValueAtPercentile(50), 5000000 * 0.016);
+		assertEquals(9900000, histogram.getValueAtPercentile(99), 9900000 * 0.016);
+		assertEquals(10000000, histogram.getValueAtPercentile(100));
+
+		histogram.record(Long.MAX_VALUE);
+		assertEquals(LatencyHistogram.HIGHEST_TRACKABLE_VALUE,
+				histogram.getMax());
+
+		histogram.reset();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getMin());
+		assertEquals(0, histogram.getMax());
+	}
+
+	@Test
+	public void testRecordDoesNotAllocate() {
+		ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+		if (!(threadBean instanceof com.sun.management.ThreadMXBean))
+			return;
+		com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+		if (!allocationBean.isThreadAllocatedMemoryEnabled())
+			return;
+
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 0; i < 100000; i++) {
+			histogram.record(i * 31);
+		}
+		long threadId = Thread.currentThread().getId();
+		long before = allocationBean.getThreadAllocatedBytes(threadId);
+		for (int i = 0; i < 100000; i++) {
+			histogram.record(i * 31);
+		}
+		long after = allocationBean.getThreadAllocatedBytes(threadId);
+		assertTrue("Allocated: " + (after - before), (after - before) < 1024);
+		assertEquals(200000, histogram.getCount());
+	}
+}
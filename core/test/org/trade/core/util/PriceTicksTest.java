@@ -0,0 +1,175 @@
+/* ===========================================================
+ * TradeManager : An application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.core.util;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import org.junit.Test;
+
+/**
+ * Some tests for the {@link PriceTicks} class.
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+public class PriceTicksTest {
+
+	private static final long CENT = PriceTicks.TICKS_PER_UNIT / 100;
+
+	@Test
+	public void testConversion() {
+		assertEquals(1049 * CENT, PriceTicks.valueOf(10.49));
+		assertEquals(1049 * CENT, PriceTicks.valueOf(new BigDecimal("10.49")));
+		assertEquals(-1 * CENT, PriceTicks.valueOf(-0.01));
+		assertEquals(0, new BigDecimal("10.49").compareTo(PriceTicks
+				.toBigDecimal(PriceTicks.valueOf(10.49))));
+		assertEquals(10.49, PriceTicks.toDouble(PriceTicks.valueOf(10.49)), 0);
+		assertEquals(
+				PriceTicks.valueOf(10.5),
+				PriceTicks.valueOf(10.49) + PriceTicks.valueOf(0.01));
+	}
+
+	@Test
+	public void testBigDecimalConversion() {
+		assertEquals(10 * PriceTicks.TICKS_PER_UNIT,
+				PriceTicks.valueOf(new BigDecimal("10")));
+		assertEquals(1000 * PriceTicks.TICKS_PER_UNIT,
+				PriceTicks.valueOf(new BigDecimal("1E+3")));
+		assertEquals(-1049 * CENT,
+				PriceTicks.valueOf(new BigDecimal("-10.49")));
+		assertEquals(PriceTicks.valueOf(10.49),
+				PriceTicks.valueOf(new BigDecimal("10.490")));
+		assertEquals(1234567, PriceTicks.valueOf(BigDecimal.valueOf(1234567,
+				PriceTicks.SCALE)));
+		/*
+		 * More decimals than the scale are rounded half even.
+		 */
+		BigDecimal half = BigDecimal.valueOf(5, PriceTicks.SCALE + 1);
+		assertEquals(0, PriceTicks.valueOf(half));
+		assertEquals(2, PriceTicks.valueOf(half.add(BigDecimal.valueOf(1,
+				PriceTicks.SCALE))));
+		assertEquals(1, PriceTicks.valueOf(BigDecimal.valueOf(51,
+				PriceTicks.SCALE + 2)));
+	}
+
+	@Test
+	public void testRound() {
+		long unit = PriceTicks.TICKS_PER_UNIT;
+		assertEquals(10 * unit, PriceTicks.round(PriceTicks.valueOf(10.5),
+				unit, RoundingMode.HALF_EVEN));
+		assertEquals(12 * unit, PriceTicks.round(PriceTicks.valueOf(11.5),
+				unit, RoundingMode.HALF_EVEN));
+		assertEquals(11 * unit, PriceTicks.round(PriceTicks.valueOf(10.5),
+				unit, RoundingMode.HALF_UP));
+		assertEquals(10 * unit, PriceTicks.round(PriceTicks.valueOf(10.99),
+				unit, RoundingMode.FLOOR));
+		assertEquals(11 * unit, PriceTicks.round(PriceTicks.valueOf(10.01),
+				unit, RoundingMode.CEILING));
+		assertEquals(-11 * unit, PriceTicks.round(PriceTicks.valueOf(-10.01),
+				unit, RoundingMode.FLOOR));
+		assertEquals(-10 * unit, PriceTicks.round(PriceTicks.valueOf(-10.5),
+				unit, RoundingMode.HALF_EVEN));
+		assertEquals(PriceTicks.valueOf(19.5), PriceTicks.round(
+				PriceTicks.valueOf(19.49), unit / 2, RoundingMode.HALF_EVEN));
+		assertEquals(PriceTicks.valueOf(10.49), PriceTicks.round(
+				PriceTicks.valueOf(10.49), CENT, RoundingMode.HALF_EVEN));
+	}
+
+	@Test
+	public void testIsBetween() {
+		assertTrue(PriceTicks.isBetween(PriceTicks.valueOf(10),
+				PriceTicks.valueOf(11), PriceTicks.valueOf(10)));
+		assertTrue(PriceTicks.isBetween(PriceTicks.valueOf(11),
+				PriceTicks.valueOf(10), PriceTicks.valueOf(10.5)));
+		assertFalse(PriceTicks.isBetween(PriceTicks.valueOf(11),
+				PriceTicks.valueOf(10), PriceTicks.valueOf(11.01)));
+	}
+
+	@Test
+	public void testFormat() {
+		assertEquals("10.50", PriceTicks.format(PriceTicks.valueOf(10.5), 2));
+		assertEquals("10.12", PriceTicks.format(PriceTicks.valueOf(10.125), 2));
+		assertEquals("0.05", PriceTicks.format(PriceTicks.valueOf(0.05), 2));
+		assertEquals("-1.01", PriceTicks.format(PriceTicks.valueOf(-1.01), 2));
+		assertEquals("10", PriceTicks.format(PriceTicks.valueOf(10.5), 0));
+		assertEquals("12", PriceTicks.format(PriceTicks.valueOf(11.5), 0));
+	}
+
+	@Test
+	public void testArithmeticDoesNotAllocate() {
+		ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+		if (!(threadBean instanceof com.sun.management.ThreadMXBean))
+			return;
+		com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+		if (!allocationBean.isThreadAllocatedMemoryEnabled())
+			return;
+
+		long price = PriceTicks.valueOf(new BigDecimal("63.22"));
+		long total = 0;
+		for (int i = 0; i < 100000; i++) {
+			total = total + roundTrip(price, i);
+		}
+		long threadId = Thread.currentThread().getId();
+		long before = allocationBean.getThreadAllocatedBytes(threadId);
+		for (int i = 0; i < 100000; i++) {
+			total = total + roundTrip(price, i);
+		}
+		long after = allocationBean.getThreadAllocatedBytes(threadId);
+		assertTrue("Allocated: " + (after - before), (after - before) < 1024);
+		assertTrue(total > 0);
+	}
+
+	/**
+	 * Method roundTrip.
+	 * 
+	 * @param price
+	 *            long
+	 * @param i
+	 *            int
+	 * @return long
+	 */
+	private long roundTrip(long price, int i) {
+		long ticks = price + (i % 100) * CENT;
+		long stop = PriceTicks.round(ticks - PriceTicks.valueOf(0.12), CENT,
+				RoundingMode.HALF_EVEN);
+		return PriceTicks.isBetween(stop, ticks, ticks - CENT) ? stop : ticks;
+	}
+}
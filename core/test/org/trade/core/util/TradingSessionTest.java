@@ -0,0 +1,129 @@
+/* ===========================================================
+ * TradeManager : An application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.core.util;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Date;
+
+import org.junit.Test;
+
+/**
+ * Some tests for the {@link TradingSession} class.
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+public class TradingSessionTest {
+
+	@Test
+	public void testIsMarketHours() {
+		Date day = TradingCalendar.getMostRecentTradingDay(new Date());
+		Date open = TradingCalendar.getSpecificTime(day, 9, 30);
+		Date close = TradingCalendar.getSpecificTime(day, 16, 0);
+		TradingSession session = new TradingSession(open, close);
+		long start = TradingCalendar.addDays(open, -10).getTime();
+		long end = TradingCalendar.addDays(open, 10).getTime();
+		for (long millis = start; millis < end; millis = millis + (5 * 60 * 1000)) {
+			assertEquals(new Date(millis).toString(),
+					TradingCalendar.isMarketHours(open, close, new Date(millis)),
+					session.isMarketHours(millis));
+		}
+		assertTrue(session.isMarketHours(open.getTime()));
+		assertFalse(session.isMarketHours(close.getTime()));
+		assertEquals(open.getTime(), session.getOpenTime(close.getTime()));
+	}
+
+	@Test
+	public void testOvernightSession() {
+		Date day = TradingCalendar.getMostRecentTradingDay(new Date());
+		Date open = TradingCalendar.getSpecificTime(day, 18, 0);
+		Date close = TradingCalendar.addDays(
+				TradingCalendar.getSpecificTime(day, 17, 0), 1);
+		TradingSession session = new TradingSession(open, close);
+		long start = TradingCalendar.addDays(open, -10).getTime();
+		long end = TradingCalendar.addDays(open, 10).getTime();
+		for (long millis = start; millis < end; millis = millis + (15 * 60 * 1000)) {
+			assertEquals(new Date(millis).toString(),
+					TradingCalendar.isMarketHours(open, close, new Date(millis)),
+					session.isMarketHours(millis));
+		}
+	}
+
+	@Test
+	public void testGetDayStart() {
+		Date day = TradingCalendar.getSpecificTime(
+				TradingCalendar.getMostRecentTradingDay(new Date()), 0, 0);
+		TradingSession session = new TradingSession(day, day);
+		assertEquals(day.getTime(), session.getDayStart(
+				TradingCalendar.getYear(day), TradingCalendar.getMonth(day) + 1,
+				TradingCalendar.getDayOfMonth(day)));
+	}
+
+	@Test
+	public void testIsMarketHoursDoesNotAllocate() {
+		ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+		if (!(threadBean instanceof com.sun.management.ThreadMXBean))
+			return;
+		com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+		if (!allocationBean.isThreadAllocatedMemoryEnabled())
+			return;
+
+		Date day = TradingCalendar.getMostRecentTradingDay(new Date());
+		Date open = TradingCalendar.getSpecificTime(day, 9, 30);
+		Date close = TradingCalendar.getSpecificTime(day, 16, 0);
+		TradingSession session = new TradingSession(open, close);
+		long start = TradingCalendar.getSpecificTime(day, 0, 0).getTime();
+		int count = 0;
+		for (int i = 0; i < 17280; i++) {
+			if (session.isMarketHours(start + (i * 5000L)))
+				count++;
+		}
+		long threadId = Thread.currentThread().getId();
+		long before = allocationBean.getThreadAllocatedBytes(threadId);
+		for (int j = 0; j < 10; j++) {
+			for (int i = 0; i < 17280; i++) {
+				session.isMarketHours(start + (i * 5000L));
+			}
+		}
+		long after = allocationBean.getThreadAllocatedBytes(threadId);
+		assertTrue("Allocated: " + (after - before), (after - before) < 1024);
+		assertEquals(
+				(close.getTime() - open.getTime()) / 5000, count);
+	}
+}
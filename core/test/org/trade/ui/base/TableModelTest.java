@@ -0,0 +1,174 @@
+/* ===========================================================
+ * TradeManager : An application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.ui.base;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Vector;
+
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Some tests for the {@link TableModel} class row diffing.
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+public class TableModelTest {
+
+	private TestTableModel model = null;
+	private List<TableModelEvent> events = null;
+
+	/**
+	 * Method setUp.
+	 * 
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		model = new TestTableModel();
+		events = new ArrayList<TableModelEvent>();
+		model.addTableModelListener(new TableModelListener() {
+			public void tableChanged(TableModelEvent e) {
+				events.add(e);
+			}
+		});
+	}
+
+	@Test
+	public void testLoadIntoEmpty() {
+		model.setData("A", "B", "C");
+		assertEquals(3, model.getRowCount());
+		assertEquals(1, events.size());
+		assertEvent(events.get(0), TableModelEvent.INSERT, 0, 2);
+	}
+
+	@Test
+	public void testUnchangedRowsFireNothing() {
+		model.setData("A", "B", "C");
+		events.clear();
+		model.setData("A", "B", "C");
+		assertTrue(events.isEmpty());
+	}
+
+	@Test
+	public void testChangedRowsAreCoalesced() {
+		model.setData("A", "B", "C", "D", "E");
+		events.clear();
+		model.setData("A", "X", "Y", "D", "Z");
+		assertEquals(2, events.size());
+		assertEvent(events.get(0), TableModelEvent.UPDATE, 1, 2);
+		assertEvent(events.get(1), TableModelEvent.UPDATE, 4, 4);
+		assertEquals("Y", model.getValueAt(2, 0));
+	}
+
+	@Test
+	public void testGrowAndShrink() {
+		model.setData("A", "B");
+		events.clear();
+		model.setData("A", "B", "C", "D");
+		assertEquals(1, events.size());
+		assertEvent(events.get(0), TableModelEvent.INSERT, 2, 3);
+
+		events.clear();
+		model.setData("A");
+		assertEquals(1, events.size());
+		assertEvent(events.get(0), TableModelEvent.DELETE, 1, 3);
+		assertEquals(1, model.getRowCount());
+	}
+
+	/**
+	 * Method assertEvent.
+	 * 
+	 * @param event
+	 *            TableModelEvent
+	 * @param type
+	 *            int
+	 * @param firstRow
+	 *            int
+	 * @param lastRow
+	 *            int
+	 */
+	private static void assertEvent(TableModelEvent event, int type,
+			int firstRow, int lastRow) {
+		assertEquals(type, event.getType());
+		assertEquals(firstRow, event.getFirstRow());
+		assertEquals(lastRow, event.getLastRow());
+	}
+
+	/**
+	 * A one column model of Strings.
+	 */
+	private static class TestTableModel extends TableModel {
+
+		private static final long serialVersionUID = 1L;
+
+		TestTableModel() {
+			columnNames = new String[] { "Value" };
+		}
+
+		/**
+		 * Method setData.
+		 * 
+		 * @param values
+		 *            String[]
+		 */
+		void setData(String... values) {
+			ArrayList<Vector<Object>> newRows = new ArrayList<Vector<Object>>();
+			for (String value : values) {
+				Vector<Object> newRow = new Vector<Object>();
+				newRow.addElement(value);
+				newRows.add(newRow);
+			}
+			this.replaceRows(newRows);
+		}
+
+		public void populateDAO(Object value, int row, int column) {
+		}
+
+		public void addRow() {
+		}
+
+		public void deleteRow(int selectedRow) {
+		}
+	}
+}
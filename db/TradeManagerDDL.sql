@@ -396,6 +396,41 @@ ENGINE = InnoDB;
  
 SHOW WARNINGS;
 
+-- -----------------------------------------------------
+-- Table TradelogPosition
+-- Closed position totals for the trade log summary. Maintained by
+-- TradelogHome.refreshTradelogPosition when a position closes or its
+-- fills change.
+-- -----------------------------------------------------
+DROP TABLE IF EXISTS tradelogposition ;
+
+SHOW WARNINGS;
+
+CREATE  TABLE IF NOT EXISTS tradelogposition (
+  idTradePosition INT NOT NULL ,
+  idPortfolio INT NOT NULL ,
+  idContract INT NOT NULL ,
+  positionCloseDate DATETIME NOT NULL ,
+  quantity INT NOT NULL ,
+  openQuantity INT NOT NULL ,
+  commission DECIMAL(10,2) NOT NULL ,
+  grossProfitLoss DECIMAL(13,3) NOT NULL ,
+  PRIMARY KEY (idTradePosition, idPortfolio) ,
+  INDEX tradelogPosition_Portfolio_idx (idPortfolio ASC, positionCloseDate ASC) ,
+  CONSTRAINT tradelogPosition_TradePosition_fk
+    FOREIGN KEY (idTradePosition )
+    REFERENCES tradeposition (idTradePosition )
+    ON DELETE CASCADE
+    ON UPDATE NO ACTION,
+  CONSTRAINT tradelogPosition_Portfolio_fk
+    FOREIGN KEY (idPortfolio )
+    REFERENCES portfolio (idPortfolio )
+    ON DELETE CASCADE
+    ON UPDATE NO ACTION)
+ENGINE = InnoDB;
+
+SHOW WARNINGS;
+
 -- -----------------------------------------------------
 -- Table Candle
 -- -----------------------------------------------------
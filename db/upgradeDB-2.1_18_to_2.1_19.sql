@@ -0,0 +1,51 @@
+-- For version 2.1_19 closed position totals for the trade log summary.
+
+USE ${sql.database};
+
+CREATE  TABLE IF NOT EXISTS tradelogposition (
+  idTradePosition INT NOT NULL ,
+  idPortfolio INT NOT NULL ,
+  idContract INT NOT NULL ,
+  positionCloseDate DATETIME NOT NULL ,
+  quantity INT NOT NULL ,
+  openQuantity INT NOT NULL ,
+  commission DECIMAL(10,2) NOT NULL ,
+  grossProfitLoss DECIMAL(13,3) NOT NULL ,
+  PRIMARY KEY (idTradePosition, idPortfolio) ,
+  INDEX tradelogPosition_Portfolio_idx (idPortfolio ASC, positionCloseDate ASC) ,
+  CONSTRAINT tradelogPosition_TradePosition_fk
+    FOREIGN KEY (idTradePosition )
+    REFERENCES tradeposition (idTradePosition )
+    ON DELETE CASCADE
+    ON UPDATE NO ACTION,
+  CONSTRAINT tradelogPosition_Portfolio_fk
+    FOREIGN KEY (idPortfolio )
+    REFERENCES portfolio (idPortfolio )
+    ON DELETE CASCADE
+    ON UPDATE NO ACTION)
+ENGINE = InnoDB;
+
+-- Load the totals for positions that are already closed.
+
+DELETE FROM tradelogposition;
+INSERT INTO tradelogposition (idTradePosition, idPortfolio, idContract, positionCloseDate, quantity, openQuantity, commission, grossProfitLoss)
+SELECT
+tradeposition.idTradePosition,
+tradestrategy.idPortfolio,
+tradeposition.idContract,
+tradeposition.positionCloseDate,
+sum(ifnull(tradeorder.quantity,0)),
+sum((if(tradeorder.action = 'BUY',  1 , -1)) * ifnull(tradeorder.quantity,0)),
+sum(ifnull(tradeorder.commission,0)),
+ifnull(sum((if(tradeorder.action = 'BUY',  -1 , 1)) * tradeorder.quantity * tradeorder.averageFilledPrice), 0)
+FROM tradeposition
+INNER JOIN tradeorder ON tradeposition.idTradePosition = tradeorder.idTradePosition
+INNER JOIN tradestrategy ON tradestrategy.idTradestrategy = tradeorder.idTradestrategy
+WHERE tradeposition.openQuantity = 0
+AND tradeposition.positionCloseDate IS NOT NULL
+AND tradeorder.isFilled = 1
+AND tradestrategy.trade = 1
+GROUP BY
+tradeposition.idTradePosition,
+tradestrategy.idPortfolio;
+COMMIT;
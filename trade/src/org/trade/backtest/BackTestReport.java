@@ -0,0 +1,494 @@
+/* ===========================================================
+ * TradeManager : a application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.backtest;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.trade.core.util.TradingCalendar;
+import org.trade.persistent.dao.TradelogDetail;
+import org.trade.persistent.dao.TradelogReport;
+import org.trade.persistent.dao.TradelogSummary;
+
+/**
+ * The results of a back test run. Holds a BackTestResult per tradestrategy, the
+ * TradelogSummary rows for the date range of the run and the run timing. The
+ * report can be written as JSON or as CSV (one file each for the
+ * tradestrategies, the summary and the per symbol timing).
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+public class BackTestReport {
+
+	public static final String TOTAL = "Total";
+	private static final String DATE_FORMAT = "yyyy-MM-dd HH:mm:ss";
+
+	private final Date start;
+	private final Date end;
+	private long runStartTime = 0;
+	private long runEndTime = 0;
+	private final ConcurrentHashMap<Integer, BackTestResult> results = new ConcurrentHashMap<Integer, BackTestResult>();
+	private final List<TradelogSummary> tradelogSummary = new ArrayList<TradelogSummary>();
+
+	/**
+	 * Constructor for BackTestReport.
+	 * 
+	 * @param start
+	 *            Date
+	 * @param end
+	 *            Date
+	 */
+	public BackTestReport(Date start, Date end) {
+		this.start = start;
+		this.end = end;
+	}
+
+	/**
+	 * Method getStart.
+	 * 
+	 * @return Date
+	 */
+	public Date getStart() {
+		return this.start;
+	}
+
+	/**
+	 * Method getEnd.
+	 * 
+	 * @return Date
+	 */
+	public Date getEnd() {
+		return this.end;
+	}
+
+	/**
+	 * Method runStarted.
+	 * 
+	 * @param time
+	 *            long
+	 */
+	public void runStarted(long time) {
+		this.runStartTime = time;
+	}
+
+	/**
+	 * Method runCompleted.
+	 * 
+	 * @param time
+	 *            long
+	 */
+	public void runCompleted(long time) {
+		this.runEndTime = time;
+	}
+
+	/**
+	 * Method getRunStartTime.
+	 * 
+	 * @return long
+	 */
+	public long getRunStartTime() {
+		return this.runStartTime;
+	}
+
+	/**
+	 * Method getRunEndTime.
+	 * 
+	 * @return long
+	 */
+	public long getRunEndTime() {
+		return this.runEndTime;
+	}
+
+	/**
+	 * Method getElapsedTime. The wall clock time in milliseconds for the run.
+	 * 
+	 * @return long
+	 */
+	public long getElapsedTime() {
+		if (this.runStartTime == 0 || this.runEndTime < this.runStartTime)
+			return 0;
+		return this.runEndTime - this.runStartTime;
+	}
+
+	/**
+	 * Method addResult.
+	 * 
+	 * @param result
+	 *            BackTestResult
+	 */
+	public void addResult(BackTestResult result) {
+		this.results.put(result.getIdTradestrategy(), result);
+	}
+
+	/**
+	 * Method getResult.
+	 * 
+	 * @param idTradestrategy
+	 *            Integer
+	 * @return BackTestResult
+	 */
+	public BackTestResult getResult(Integer idTradestrategy) {
+		return this.results.get(idTradestrategy);
+	}
+
+	/**
+	 * Method getResults. The results in tradingday then symbol order.
+	 * 
+	 * @return List<BackTestResult>
+	 */
+	public List<BackTestResult> getResults() {
+		List<BackTestResult> values = new ArrayList<BackTestResult>(
+				this.results.values());
+		Collections.sort(values, new Comparator<BackTestResult>() {
+			public int compare(BackTestResult o1, BackTestResult o2) {
+				int returnVal = o1.getTradingday().compareTo(
+						o2.getTradingday());
+				if (returnVal == 0)
+					returnVal = o1.getSymbol().compareTo(o2.getSymbol());
+				if (returnVal == 0)
+					returnVal = o1.getIdTradestrategy().compareTo(
+							o2.getIdTradestrategy());
+				return returnVal;
+			}
+		});
+		return values;
+	}
+
+	/**
+	 * Method getTradelogSummary.
+	 * 
+	 * @return List<TradelogSummary>
+	 */
+	public List<TradelogSummary> getTradelogSummary() {
+		return this.tradelogSummary;
+	}
+
+	/**
+	 * Method getTotalSummary. The summary row for the whole date range.
+	 * 
+	 * @return TradelogSummary null if the report has no summary.
+	 */
+	public TradelogSummary getTotalSummary() {
+		for (TradelogSummary summary : this.tradelogSummary) {
+			if (TOTAL.equals(summary.getPeriod()))
+				return summary;
+		}
+		return null;
+	}
+
+	/**
+	 * Method setTradelogReport. Add the trade log detail rows to the results
+	 * for their tradestrategy and keep the summary rows.
+	 * 
+	 * @param tradelogReport
+	 *            TradelogReport
+	 */
+	public void setTradelogReport(TradelogReport tradelogReport) {
+		this.tradelogSummary.clear();
+		this.tradelogSummary.addAll(tradelogReport.getTradelogSummary());
+		for (TradelogDetail detail : tradelogReport.getTradelogDetail()) {
+			BackTestResult result = this.results.get(detail
+					.getIdTradestrategy());
+			if (null != result)
+				result.addTradelogDetail(detail);
+		}
+	}
+
+	/**
+	 * Method getSymbolTiming. The count, total and max elapsed time in
+	 * milliseconds of the completed tradestrategies for each symbol.
+	 * 
+	 * @return Map<String,long[]>
+	 */
+	public Map<String, long[]> getSymbolTiming() {
+		Map<String, long[]> timing = new TreeMap<String, long[]>();
+		for (BackTestResult result : this.results.values()) {
+			if (!result.isComplete())
+				continue;
+			long[] values = timing.get(result.getSymbol());
+			if (null == values) {
+				values = new long[3];
+				timing.put(result.getSymbol(), values);
+			}
+			values[0]++;
+			values[1] = values[1] + result.getElapsedTime();
+			values[2] = Math.max(values[2], result.getElapsedTime());
+		}
+		return timing;
+	}
+
+	/**
+	 * Method writeJSON.
+	 * 
+	 * @param writer
+	 *            Writer
+	 * @throws IOException
+	 */
+	public void writeJSON(Writer writer) throws IOException {
+		writer.write("{\n");
+		writer.write("  \"start\": " + toJSON(this.start) + ",\n");
+		writer.write("  \"end\": " + toJSON(this.end) + ",\n");
+		writer.write("  \"elapsedMillis\": " + getElapsedTime() + ",\n");
+
+		writer.write("  \"tradestrategies\": [");
+		String sep = "\n";
+		for (BackTestResult result : getResults()) {
+			writer.write(sep);
+			writer.write("    {\"idTradestrategy\": "
+					+ result.getIdTradestrategy() + ", \"tradingday\": "
+					+ toJSON(result.getTradingday()) + ", \"symbol\": "
+					+ toJSON(result.getSymbol()) + ", \"strategy\": "
+					+ toJSON(result.getStrategy()) + ", \"status\": "
+					+ toJSON(result.getStatus()) + ", \"orders\": "
+					+ result.getOrderCount() + ", \"positions\": "
+					+ result.getPositionCount() + ", \"grossProfitLoss\": "
+					+ toJSON(result.getGrossProfitLoss())
+					+ ", \"commission\": " + toJSON(result.getCommission())
+					+ ", \"netProfitLoss\": "
+					+ toJSON(result.getNetProfitLoss())
+					+ ", \"elapsedMillis\": " + result.getElapsedTime()
+					+ ", \"error\": " + toJSON(result.getError()) + "}");
+			sep = ",\n";
+		}
+		writer.write("\n  ],\n");
+
+		writer.write("  \"summary\": [");
+		sep = "\n";
+		for (TradelogSummary summary : this.tradelogSummary) {
+			writer.write(sep);
+			writer.write("    {\"period\": " + toJSON(summary.getPeriod())
+					+ ", \"battingAverage\": "
+					+ toJSON(summary.getBattingAverage())
+					+ ", \"simpleSharpeRatio\": "
+					+ toJSON(summary.getSimpleSharpeRatio())
+					+ ", \"quantity\": " + toJSON(summary.getQuantity())
+					+ ", \"grossProfitLoss\": "
+					+ toJSON(summary.getGrossProfitLoss())
+					+ ", \"commission\": " + toJSON(summary.getCommission())
+					+ ", \"netProfitLoss\": "
+					+ toJSON(summary.getNetProfitLoss())
+					+ ", \"profitAmount\": "
+					+ toJSON(summary.getProfitAmount())
+					+ ", \"lossAmount\": " + toJSON(summary.getLossAmount())
+					+ ", \"winCount\": " + toJSON(summary.getWinCount())
+					+ ", \"lossCount\": " + toJSON(summary.getLossCount())
+					+ ", \"positionCount\": "
+					+ toJSON(summary.getPositionCount())
+					+ ", \"tradestrategyCount\": "
+					+ toJSON(summary.getTradestrategyCount()) + "}");
+			sep = ",\n";
+		}
+		writer.write("\n  ],\n");
+
+		writer.write("  \"symbolTiming\": [");
+		sep = "\n";
+		for (Map.Entry<String, long[]> entry : getSymbolTiming().entrySet()) {
+			writer.write(sep);
+			writer.write("    {\"symbol\": " + toJSON(entry.getKey())
+					+ ", \"count\": " + entry.getValue()[0]
+					+ ", \"totalMillis\": " + entry.getValue()[1]
+					+ ", \"maxMillis\": " + entry.getValue()[2] + "}");
+			sep = ",\n";
+		}
+		writer.write("\n  ]\n");
+		writer.write("}\n");
+		writer.flush();
+	}
+
+	/**
+	 * Method writeResultsCSV.
+	 * 
+	 * @param writer
+	 *            Writer
+	 * @throws IOException
+	 */
+	public void writeResultsCSV(Writer writer) throws IOException {
+		writer.write("idTradestrategy,tradingday,symbol,strategy,status,orders,positions,"
+				+ "grossProfitLoss,commission,netProfitLoss,elapsedMillis,error\n");
+		for (BackTestResult result : getResults()) {
+			writer.write(result.getIdTradestrategy() + ","
+					+ toCSV(result.getTradingday()) + ","
+					+ toCSV(result.getSymbol()) + ","
+					+ toCSV(result.getStrategy()) + ","
+					+ toCSV(result.getStatus()) + ","
+					+ result.getOrderCount() + ","
+					+ result.getPositionCount() + ","
+					+ toCSV(result.getGrossProfitLoss()) + ","
+					+ toCSV(result.getCommission()) + ","
+					+ toCSV(result.getNetProfitLoss()) + ","
+					+ result.getElapsedTime() + ","
+					+ toCSV(result.getError()) + "\n");
+		}
+		writer.flush();
+	}
+
+	/**
+	 * Method writeSummaryCSV.
+	 * 
+	 * @param writer
+	 *            Writer
+	 * @throws IOException
+	 */
+	public void writeSummaryCSV(Writer writer) throws IOException {
+		writer.write("period,battingAverage,simpleSharpeRatio,quantity,grossProfitLoss,"
+				+ "commission,netProfitLoss,profitAmount,lossAmount,winCount,"
+				+ "lossCount,positionCount,tradestrategyCount\n");
+		for (TradelogSummary summary : this.tradelogSummary) {
+			writer.write(toCSV(summary.getPeriod()) + ","
+					+ toCSV(summary.getBattingAverage()) + ","
+					+ toCSV(summary.getSimpleSharpeRatio()) + ","
+					+ toCSV(summary.getQuantity()) + ","
+					+ toCSV(summary.getGrossProfitLoss()) + ","
+					+ toCSV(summary.getCommission()) + ","
+					+ toCSV(summary.getNetProfitLoss()) + ","
+					+ toCSV(summary.getProfitAmount()) + ","
+					+ toCSV(summary.getLossAmount()) + ","
+					+ toCSV(summary.getWinCount()) + ","
+					+ toCSV(summary.getLossCount()) + ","
+					+ toCSV(summary.getPositionCount()) + ","
+					+ toCSV(summary.getTradestrategyCount()) + "\n");
+		}
+		writer.flush();
+	}
+
+	/**
+	 * Method writeTimingCSV.
+	 * 
+	 * @param writer
+	 *            Writer
+	 * @throws IOException
+	 */
+	public void writeTimingCSV(Writer writer) throws IOException {
+		writer.write("symbol,count,totalMillis,maxMillis\n");
+		long maxMillis = 0;
+		for (Map.Entry<String, long[]> entry : getSymbolTiming().entrySet()) {
+			writer.write(toCSV(entry.getKey()) + "," + entry.getValue()[0]
+					+ "," + entry.getValue()[1] + "," + entry.getValue()[2]
+					+ "\n");
+			maxMillis = Math.max(maxMillis, entry.getValue()[2]);
+		}
+		/*
+		 * The total is the wall clock time of the run, the max is the slowest
+		 * tradestrategy.
+		 */
+		writer.write(toCSV(TOTAL) + "," + this.results.size() + ","
+				+ getElapsedTime() + "," + maxMillis + "\n");
+		writer.flush();
+	}
+
+	/**
+	 * Method toJSON.
+	 * 
+	 * @param value
+	 *            Object
+	 * @return String the value as a JSON literal.
+	 */
+	protected static String toJSON(Object value) {
+		if (null == value)
+			return "null";
+		if (value instanceof BigDecimal)
+			return ((BigDecimal) value).toPlainString();
+		if (value instanceof Number || value instanceof Boolean)
+			return value.toString();
+		if (value instanceof Date)
+			value = TradingCalendar.getFormattedDate((Date) value,
+					DATE_FORMAT);
+		String string = value.toString();
+		StringBuilder sb = new StringBuilder(string.length() + 2);
+		sb.append('"');
+		for (int i = 0; i < string.length(); i++) {
+			char c = string.charAt(i);
+			switch (c) {
+			case '"':
+				sb.append("\\\"");
+				break;
+			case '\\':
+				sb.append("\\\\");
+				break;
+			case '\n':
+				sb.append("\\n");
+				break;
+			case '\r':
+				sb.append("\\r");
+				break;
+			case '\t':
+				sb.append("\\t");
+				break;
+			default:
+				if (c < 0x20) {
+					sb.append(String.format("\\u%04x", (int) c));
+				} else {
+					sb.append(c);
+				}
+			}
+		}
+		sb.append('"');
+		return sb.toString();
+	}
+
+	/**
+	 * Method toCSV.
+	 * 
+	 * @param value
+	 *            Object
+	 * @return String the value as a CSV field, quoted if it contains a comma,
+	 *         quote or new line.
+	 */
+	protected static String toCSV(Object value) {
+		if (null == value)
+			return "";
+		if (value instanceof BigDecimal)
+			return ((BigDecimal) value).toPlainString();
+		if (value instanceof Date)
+			return TradingCalendar.getFormattedDate((Date) value, DATE_FORMAT);
+		String string = value.toString();
+		if (string.indexOf(',') > -1 || string.indexOf('"') > -1
+				|| string.indexOf('\n') > -1 || string.indexOf('\r') > -1) {
+			return "\"" + string.replace("\"", "\"\"") + "\"";
+		}
+		return string;
+	}
+}
@@ -0,0 +1,287 @@
+/* ===========================================================
+ * TradeManager : a application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.backtest;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+import org.trade.persistent.dao.TradelogDetail;
+import org.trade.persistent.dao.Tradestrategy;
+
+/**
+ * The outcome of one tradestrategy in a back test run. Holds the time the
+ * strategy was started/completed and the totals of the trade log detail rows
+ * for the tradestrategy.
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+public class BackTestResult {
+
+	private static final String TOTAL = "Total";
+
+	private final Integer idTradestrategy;
+	private final String symbol;
+	private final String strategy;
+	private final Date tradingday;
+	private long startTime = 0;
+	private long completeTime = 0;
+	private String status = null;
+	private String error = null;
+	private int orderCount = 0;
+	private int positionCount = 0;
+	private BigDecimal commission = BigDecimal.ZERO;
+	private BigDecimal netProfitLoss = BigDecimal.ZERO;
+
+	/**
+	 * Constructor for BackTestResult.
+	 * 
+	 * @param tradestrategy
+	 *            Tradestrategy
+	 */
+	public BackTestResult(Tradestrategy tradestrategy) {
+		this(tradestrategy.getIdTradeStrategy(), tradestrategy.getContract()
+				.getSymbol(), tradestrategy.getStrategy().getName(),
+				tradestrategy.getTradingday().getOpen());
+	}
+
+	/**
+	 * Constructor for BackTestResult.
+	 * 
+	 * @param idTradestrategy
+	 *            Integer
+	 * @param symbol
+	 *            String
+	 * @param strategy
+	 *            String
+	 * @param tradingday
+	 *            Date the tradingday open.
+	 */
+	public BackTestResult(Integer idTradestrategy, String symbol,
+			String strategy, Date tradingday) {
+		this.idTradestrategy = idTradestrategy;
+		this.symbol = symbol;
+		this.strategy = strategy;
+		this.tradingday = tradingday;
+	}
+
+	/**
+	 * Method getIdTradestrategy.
+	 * 
+	 * @return Integer
+	 */
+	public Integer getIdTradestrategy() {
+		return this.idTradestrategy;
+	}
+
+	/**
+	 * Method getSymbol.
+	 * 
+	 * @return String
+	 */
+	public String getSymbol() {
+		return this.symbol;
+	}
+
+	/**
+	 * Method getStrategy.
+	 * 
+	 * @return String
+	 */
+	public String getStrategy() {
+		return this.strategy;
+	}
+
+	/**
+	 * Method getTradingday.
+	 * 
+	 * @return Date
+	 */
+	public Date getTradingday() {
+		return this.tradingday;
+	}
+
+	/**
+	 * Method started. Called when the historical data is complete and the
+	 * strategy has been started.
+	 * 
+	 * @param time
+	 *            long
+	 */
+	public synchronized void started(long time) {
+		this.startTime = time;
+	}
+
+	/**
+	 * Method completed. Called when the strategy has completed.
+	 * 
+	 * @param time
+	 *            long
+	 */
+	public synchronized void completed(long time) {
+		this.completeTime = time;
+	}
+
+	/**
+	 * Method isComplete.
+	 * 
+	 * @return boolean
+	 */
+	public synchronized boolean isComplete() {
+		return this.completeTime > 0;
+	}
+
+	/**
+	 * Method getElapsedTime. The time in milliseconds the strategy ran for or
+	 * zero if the strategy was never started or did not complete.
+	 * 
+	 * @return long
+	 */
+	public synchronized long getElapsedTime() {
+		if (this.startTime == 0 || this.completeTime < this.startTime)
+			return 0;
+		return this.completeTime - this.startTime;
+	}
+
+	/**
+	 * Method getStatus.
+	 * 
+	 * @return String
+	 */
+	public String getStatus() {
+		return this.status;
+	}
+
+	/**
+	 * Method setStatus.
+	 * 
+	 * @param status
+	 *            String
+	 */
+	public void setStatus(String status) {
+		this.status = status;
+	}
+
+	/**
+	 * Method getError.
+	 * 
+	 * @return String
+	 */
+	public String getError() {
+		return this.error;
+	}
+
+	/**
+	 * Method setError.
+	 * 
+	 * @param error
+	 *            String
+	 */
+	public void setError(String error) {
+		this.error = error;
+	}
+
+	/**
+	 * Method getOrderCount.
+	 * 
+	 * @return int
+	 */
+	public int getOrderCount() {
+		return this.orderCount;
+	}
+
+	/**
+	 * Method getPositionCount.
+	 * 
+	 * @return int
+	 */
+	public int getPositionCount() {
+		return this.positionCount;
+	}
+
+	/**
+	 * Method getCommission.
+	 * 
+	 * @return BigDecimal
+	 */
+	public BigDecimal getCommission() {
+		return this.commission;
+	}
+
+	/**
+	 * Method getGrossProfitLoss.
+	 * 
+	 * @return BigDecimal
+	 */
+	public BigDecimal getGrossProfitLoss() {
+		return this.netProfitLoss.add(this.commission);
+	}
+
+	/**
+	 * Method getNetProfitLoss.
+	 * 
+	 * @return BigDecimal
+	 */
+	public BigDecimal getNetProfitLoss() {
+		return this.netProfitLoss;
+	}
+
+	/**
+	 * Method addTradelogDetail. Add a trade log detail row for this
+	 * tradestrategy to the totals. The 'Total' rows carry the commission and
+	 * net profit/loss for each closed position, the remaining rows are the
+	 * filled orders.
+	 * 
+	 * @param detail
+	 *            TradelogDetail
+	 */
+	public void addTradelogDetail(TradelogDetail detail) {
+		if (TOTAL.equals(detail.getOpen())) {
+			this.positionCount++;
+			if (null != detail.getCommission())
+				this.commission = this.commission.add(detail.getCommission());
+			if (null != detail.getProfitLoss())
+				this.netProfitLoss = this.netProfitLoss.add(detail
+						.getProfitLoss());
+		} else {
+			if (null != detail.getStatus())
+				this.status = detail.getStatus();
+			if (null != detail.getOrderStatus()
+					&& detail.getOrderStatus().length() > 0)
+				this.orderCount++;
+		}
+	}
+}
@@ -0,0 +1,834 @@
+/* ===========================================================
+ * TradeManager : a application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.backtest;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.trade.broker.BrokerChangeListener;
+import org.trade.broker.BrokerModel;
+import org.trade.broker.BrokerModelException;
+import org.trade.broker.IndicatorRequests;
+import org.trade.broker.client.BackTestCandleCache;
+import org.trade.core.factory.ClassFactory;
+import org.trade.core.properties.ConfigProperties;
+import org.trade.core.util.DynamicCode;
+import org.trade.core.util.TradingCalendar;
+import org.trade.persistent.PersistentModel;
+import org.trade.persistent.dao.Contract;
+import org.trade.persistent.dao.TradeOrder;
+import org.trade.persistent.dao.TradePosition;
+import org.trade.persistent.dao.Tradestrategy;
+import org.trade.persistent.dao.Tradingday;
+import org.trade.persistent.dao.Tradingdays;
+import org.trade.strategy.StrategyChangeListener;
+import org.trade.strategy.StrategyRule;
+import org.trade.strategy.StrategyRuleException;
+import org.trade.ui.TradeAppLoadConfig;
+
+/**
+ * Runs a back test without the Swing UI. This does what the
+ * TradeMainControllerPanel does for a back test i.e. the BrokerTest broker
+ * model replays the candles via DBBroker and the strategies are started as the
+ * historical data completes for each tradestrategy. The data requests are made
+ * on a plain executor rather than the BrokerDataRequestMonitor SwingWorker as
+ * a back test has no pacing limits or progress bar. Up to one replay per
+ * available processor runs at a time and only one per contract. When all the
+ * strategies have completed the TradelogReport for the date range is written
+ * out with the per tradestrategy results and timing as JSON and/or CSV. The
+ * candles for each contract are read once for the date range via the
+ * BackTestCandleCache.
+ * 
+ * Usage: BackTestRunner -start MM/dd/yyyy -end MM/dd/yyyy [-file csvFile]
+ * [-strategy name] [-symbols AAPL,MSFT] [-out dir] [-format json|csv|both]
+ * [-timeout seconds] [-removeOrders]
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+public class BackTestRunner implements BrokerChangeListener,
+		StrategyChangeListener {
+
+	private final static Logger _log = LoggerFactory
+			.getLogger(BackTestRunner.class);
+
+	public static final String FORMAT_JSON = "json";
+	public static final String FORMAT_CSV = "csv";
+	public static final String FORMAT_BOTH = "both";
+
+	private PersistentModel tradePersistentModel = null;
+	private BrokerModel brokerModel = null;
+	private DynamicCode dynacode = null;
+	private BackTestReport report = null;
+	private final ConcurrentHashMap<String, StrategyRule> strategyWorkers = new ConcurrentHashMap<String, StrategyRule>();
+
+	/**
+	 * Constructor for BackTestRunner. The application properties must be
+	 * loaded before this is called.
+	 * 
+	 * @throws Exception
+	 */
+	public BackTestRunner() throws Exception {
+		this.tradePersistentModel = (PersistentModel) ClassFactory
+				.getServiceForInterface(PersistentModel._persistentModel,
+						this);
+		this.brokerModel = (BrokerModel) ClassFactory.getServiceForInterface(
+				BrokerModel._brokerTest, this);
+		this.brokerModel.addMessageListener(this);
+		this.dynacode = new DynamicCode();
+		this.dynacode.addSourceDir(new File(ConfigProperties
+				.getPropAsString("trade.strategy.default.dir")));
+	}
+
+	/**
+	 * Method getPersistentModel.
+	 * 
+	 * @return PersistentModel
+	 */
+	public PersistentModel getPersistentModel() {
+		return this.tradePersistentModel;
+	}
+
+	/**
+	 * Method loadTradingdays. Load the tradingdays for the date range. If a
+	 * file is specified the contracts in the file are added to the tradingdays
+	 * and saved first, lines in the file without a date are added to the end
+	 * date tradingday.
+	 * 
+	 * @param start
+	 *            Date
+	 * @param end
+	 *            Date
+	 * @param fileName
+	 *            String the CSV file to load or null.
+	 * @param strategyName
+	 *            String only run tradestrategies for this strategy or null for
+	 *            all.
+	 * @param symbols
+	 *            Set<String> only run tradestrategies for these symbols or
+	 *            null for all.
+	 * @return Tradingdays
+	 * @throws Exception
+	 */
+	public Tradingdays loadTradingdays(Date start, Date end, String fileName,
+			String strategyName, Set<String> symbols) throws Exception {
+
+		Tradingdays tradingdays = this.tradePersistentModel
+				.findTradingdaysByDateRange(start, end);
+
+		if (null != fileName) {
+			Tradingday tradingday = Tradingday.newInstance(end);
+			Tradingday currTradingday = tradingdays.getTradingday(
+					tradingday.getOpen(), tradingday.getClose());
+			if (null == currTradingday) {
+				tradingdays.add(tradingday);
+			} else {
+				tradingday = currTradingday;
+			}
+			tradingdays.populateDataFromFile(fileName, tradingday);
+			List<Tradingday> newTradingdays = new ArrayList<Tradingday>();
+			for (Tradingday item : tradingdays.getTradingdays()) {
+				if (item.isDirty()) {
+					if (null == item.getIdTradingDay()) {
+						newTradingdays.add(item);
+					} else {
+						this.tradePersistentModel.persistTradingday(item);
+					}
+				}
+			}
+			if (!newTradingdays.isEmpty())
+				this.tradePersistentModel.persistTradingdays(newTradingdays);
+			/*
+			 * Reload so all the tradestrategies have their ids and the
+			 * tradingdays are in the date range.
+			 */
+			tradingdays = this.tradePersistentModel
+					.findTradingdaysByDateRange(start, end);
+		}
+
+		for (Tradingday tradingday : tradingdays.getTradingdays()) {
+			for (Iterator<Tradestrategy> iter = tradingday
+					.getTradestrategies().iterator(); iter.hasNext();) {
+				Tradestrategy tradestrategy = iter.next();
+				if (!tradestrategy.getTrade()) {
+					iter.remove();
+				} else if (null != strategyName
+						&& !strategyName.equals(tradestrategy.getStrategy()
+								.getName())) {
+					iter.remove();
+				} else if (null != symbols
+						&& !symbols.contains(tradestrategy.getContract()
+								.getSymbol())) {
+					iter.remove();
+				}
+			}
+		}
+		return tradingdays;
+	}
+
+	/**
+	 * Method run. Run the strategies for the tradingdays and wait for them to
+	 * complete then add the TradelogReport for the default portfolio.
+	 * 
+	 * @param tradingdays
+	 *            Tradingdays
+	 * @param start
+	 *            Date
+	 * @param end
+	 *            Date
+	 * @param removeOrders
+	 *            boolean remove any orders from a previous run before the run
+	 *            starts.
+	 * @param timeout
+	 *            long the maximum time in milliseconds to wait for the
+	 *            strategies to complete once all the candle data has been
+	 *            replayed.
+	 * @return BackTestReport
+	 * @throws Exception
+	 */
+	public BackTestReport run(Tradingdays tradingdays, Date start, Date end,
+			boolean removeOrders, long timeout) throws Exception {
+
+		BackTestReport report = runStrategies(tradingdays, start, end,
+				removeOrders, timeout);
+		report.setTradelogReport(this.tradePersistentModel.findTradelogReport(
+				this.tradePersistentModel.findPortfolioDefault(), start, end,
+				false, null, BigDecimal.ZERO));
+		return report;
+	}
+
+	/**
+	 * Method runStrategies. Run the strategies for the tradingdays and wait for
+	 * them to complete. The results have the timing but not the trade log
+	 * totals.
+	 * 
+	 * @param tradingdays
+	 *            Tradingdays
+	 * @param start
+	 *            Date
+	 * @param end
+	 *            Date
+	 * @param removeOrders
+	 *            boolean remove any orders from a previous run before the run
+	 *            starts.
+	 * @param timeout
+	 *            long the maximum time in milliseconds to wait for the
+	 *            strategies to complete once all the candle data has been
+	 *            replayed.
+	 * @return BackTestReport
+	 * @throws Exception
+	 */
+	public BackTestReport runStrategies(Tradingdays tradingdays, Date start, Date end,
+			boolean removeOrders, long timeout) throws Exception {
+
+		this.report = new BackTestReport(start, end);
+		this.strategyWorkers.clear();
+		this.brokerModel.setBrokerDataOnly(false);
+
+		for (Tradingday tradingday : tradingdays.getTradingdays()) {
+			if (removeOrders && Tradingdays.hasTradeOrders(tradingday)) {
+				this.tradePersistentModel
+						.removeTradingdayTradeOrders(tradingday);
+			}
+			for (Tradestrategy tradestrategy : tradingday
+					.getTradestrategies()) {
+				this.report.addResult(new BackTestResult(tradestrategy));
+			}
+		}
+
+		this.report.runStarted(System.currentTimeMillis());
+		/*
+		 * Each contracts candles are read once for all the tradingdays.
+		 */
+		BackTestCandleCache.open(tradingdays);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			final Tradingdays requestTradingdays = tradingdays;
+			Future<Void> requests = executor.submit(new Callable<Void>() {
+				public Void call() throws Exception {
+					submitBrokerRequests(requestTradingdays);
+					return null;
+				}
+			});
+			requests.get();
+
+			/*
+			 * The candle data has all been replayed, wait for the strategies
+			 * to finish processing the last candles.
+			 */
+			long waitUntil = System.currentTimeMillis() + timeout;
+			synchronized (this.strategyWorkers) {
+				while (!this.strategyWorkers.isEmpty()) {
+					long wait = waitUntil - System.currentTimeMillis();
+					if (wait <= 0)
+						break;
+					this.strategyWorkers.wait(wait);
+				}
+			}
+		} finally {
+			executor.shutdown();
+			BackTestCandleCache.close();
+		}
+		for (String key : this.strategyWorkers.keySet()) {
+			StrategyRule strategy = this.strategyWorkers.remove(key);
+			if (null != strategy && !strategy.isDone()) {
+				_log.warn("Strategy did not complete and was cancelled: " + key);
+				strategy.cancel();
+			}
+		}
+		this.report.runCompleted(System.currentTimeMillis());
+		return this.report;
+	}
+
+	/**
+	 * Method submitBrokerRequests. Request the data for each tradestrategy and
+	 * wait for the requests to complete. Up to one request per available
+	 * processor runs at a time. Only one request per contract runs at a time
+	 * as the open TradePosition is held on the Contract, the requests for a
+	 * contract run in tradingday order but a contract that is waiting does not
+	 * hold up the requests for other contracts. The candle indicators are
+	 * shared as they are by the BrokerDataRequestMonitor.
+	 * 
+	 * @param tradingdays
+	 *            Tradingdays
+	 * @throws Exception
+	 */
+	private void submitBrokerRequests(Tradingdays tradingdays)
+			throws Exception {
+
+		IndicatorRequests indicatorRequests = new IndicatorRequests(
+				this.brokerModel, this.tradePersistentModel);
+		Collections.sort(tradingdays.getTradingdays(),
+				Tradingday.DATE_ORDER_ASC);
+		List<Tradestrategy> pending = new ArrayList<Tradestrategy>();
+		List<Tradingday> pendingTradingdays = new ArrayList<Tradingday>();
+		for (Tradingday tradingday : tradingdays.getTradingdays()) {
+			for (Tradestrategy tradestrategy : tradingday
+					.getTradestrategies()) {
+				pending.add(tradestrategy);
+				pendingTradingdays.add(tradingday);
+			}
+		}
+		int maxRequests = Math.max(1, Runtime.getRuntime()
+				.availableProcessors());
+		try {
+			while (!pending.isEmpty()) {
+				Tradestrategy tradestrategy = null;
+				Tradingday tradingday = null;
+				synchronized (this.brokerModel.getHistoricalData()) {
+					while (null == tradestrategy) {
+						int index = -1;
+						if (this.brokerModel.getHistoricalData().size() < maxRequests)
+							index = getNextRequest(pending, this.brokerModel);
+						if (index < 0) {
+							this.brokerModel.getHistoricalData().wait();
+						} else {
+							tradestrategy = pending.remove(index);
+							tradingday = pendingTradingdays.remove(index);
+						}
+					}
+				}
+				/*
+				 * Refresh the data set container as these may have changed.
+				 */
+				tradestrategy.setStrategyData(null);
+				indicatorRequests.addIndicatorTradestrategyToTradingday(
+						tradingday, tradestrategy);
+				this.brokerModel.onBrokerData(tradestrategy,
+						tradingday.getClose());
+			}
+			synchronized (this.brokerModel.getHistoricalData()) {
+				while (this.brokerModel.getHistoricalData().size() > 0) {
+					this.brokerModel.getHistoricalData().wait();
+				}
+			}
+		} finally {
+			indicatorRequests.clear();
+		}
+	}
+
+	/**
+	 * Method getNextRequest. Find the first pending tradestrategy whose
+	 * contract has no request running and no earlier pending tradestrategy.
+	 * 
+	 * @param pending
+	 *            List<Tradestrategy> in tradingday order.
+	 * @param brokerModel
+	 *            BrokerModel
+	 * @return int the index of the tradestrategy or -1 if none can run.
+	 */
+	static int getNextRequest(List<Tradestrategy> pending,
+			BrokerModel brokerModel) {
+		List<Contract> contracts = new ArrayList<Contract>();
+		for (int i = 0; i < pending.size(); i++) {
+			Contract contract = pending.get(i).getContract();
+			/*
+			 * An earlier tradingday for the contract is still waiting.
+			 */
+			if (contracts.contains(contract))
+				continue;
+			contracts.add(contract);
+			if (!brokerModel.isHistoricalDataRunning(contract))
+				return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Method close. Stop listening to the broker model.
+	 */
+	public void close() {
+		this.brokerModel.removeMessageListener(this);
+	}
+
+	/**
+	 * Method writeReport.
+	 * 
+	 * @param report
+	 *            BackTestReport
+	 * @param outDir
+	 *            File
+	 * @param format
+	 *            String json, csv or both.
+	 * @throws IOException
+	 */
+	public static void writeReport(BackTestReport report, File outDir,
+			String format) throws IOException {
+
+		if (!outDir.exists() && !outDir.mkdirs())
+			throw new IOException("Could not create directory: " + outDir);
+
+		String prefix = "backtest_"
+				+ TradingCalendar.getFormattedDate(new Date(),
+						"yyyyMMdd_HHmmss");
+		if (FORMAT_JSON.equals(format) || FORMAT_BOTH.equals(format)) {
+			Writer writer = new FileWriter(new File(outDir, prefix + ".json"));
+			try {
+				report.writeJSON(writer);
+			} finally {
+				writer.close();
+			}
+		}
+		if (FORMAT_CSV.equals(format) || FORMAT_BOTH.equals(format)) {
+			Writer writer = new FileWriter(new File(outDir, prefix
+					+ "_results.csv"));
+			try {
+				report.writeResultsCSV(writer);
+			} finally {
+				writer.close();
+			}
+			writer = new FileWriter(new File(outDir, prefix + "_summary.csv"));
+			try {
+				report.writeSummaryCSV(writer);
+			} finally {
+				writer.close();
+			}
+			writer = new FileWriter(new File(outDir, prefix + "_timing.csv"));
+			try {
+				report.writeTimingCSV(writer);
+			} finally {
+				writer.close();
+			}
+		}
+	}
+
+	/**
+	 * Method createStrategy. Same as the TradeMainControllerPanel but the
+	 * runner is the strategy listener.
+	 * 
+	 * @param strategyClassName
+	 *            String
+	 * @param tradestrategy
+	 *            Tradestrategy
+	 * @throws Exception
+	 */
+	private synchronized void createStrategy(String strategyClassName,
+			Tradestrategy tradestrategy) throws Exception {
+
+		String key = strategyClassName + tradestrategy.getIdTradeStrategy();
+
+		// Only allow one strategy worker per tradestrategy
+		if (this.strategyWorkers.containsKey(key)) {
+			throw new StrategyRuleException(1, 100,
+					"Strategy already running: " + strategyClassName
+							+ " Symbol: "
+							+ tradestrategy.getContract().getSymbol()
+							+ " Key: " + key);
+		}
+
+		Vector<Object> parm = new Vector<Object>(0);
+		parm.add(this.brokerModel);
+		parm.add(tradestrategy.getStrategyData());
+		parm.add(tradestrategy.getIdTradeStrategy());
+
+		StrategyRule strategy = (StrategyRule) dynacode.newProxyInstance(
+				StrategyRule.class, StrategyRule.PACKAGE + strategyClassName,
+				parm);
+
+		strategy.addMessageListener(this);
+		/*
+		 * The back tester listens to the strategy for orders being
+		 * created/completed.
+		 */
+		strategy.addMessageListener(this.brokerModel
+				.getBackTestBroker(tradestrategy));
+		this.strategyWorkers.put(key, strategy);
+		strategy.execute();
+	}
+
+	/**
+	 * Method historicalDataComplete.
+	 * 
+	 * @param tradestrategy
+	 *            Tradestrategy
+	 * @see org.trade.broker.BrokerChangeListener#historicalDataComplete(Tradestrategy)
+	 */
+	public void historicalDataComplete(Tradestrategy tradestrategy) {
+
+		BackTestResult result = this.report.getResult(tradestrategy
+				.getIdTradeStrategy());
+		/*
+		 * Indicator tradestrategies added by the BrokerDataRequestMonitor have
+		 * no result and do not run a strategy.
+		 */
+		if (null == result || !tradestrategy.getTrade())
+			return;
+		try {
+			result.started(System.currentTimeMillis());
+			createStrategy(tradestrategy.getStrategy().getClassName(),
+					tradestrategy);
+		} catch (Exception ex) {
+			result.setError(ex.getMessage());
+			_log.error("Could not start strategy: "
+					+ tradestrategy.getStrategy().getName() + " for Symbol: "
+					+ tradestrategy.getContract().getSymbol() + " Msg: "
+					+ ex.getMessage(), ex);
+		}
+	}
+
+	/**
+	 * Method strategyComplete.
+	 * 
+	 * @param strategyClassName
+	 *            String
+	 * @param tradestrategy
+	 *            Tradestrategy
+	 * @see org.trade.strategy.StrategyChangeListener#strategyComplete(String,
+	 *      Tradestrategy)
+	 */
+	public void strategyComplete(String strategyClassName,
+			Tradestrategy tradestrategy) {
+
+		BackTestResult result = this.report.getResult(tradestrategy
+				.getIdTradeStrategy());
+		if (null != result) {
+			result.completed(System.currentTimeMillis());
+			result.setStatus(tradestrategy.getStatus());
+		}
+		synchronized (this.strategyWorkers) {
+			this.strategyWorkers.remove(strategyClassName
+					+ tradestrategy.getIdTradeStrategy());
+			this.strategyWorkers.notifyAll();
+		}
+	}
+
+	/**
+	 * Method strategyStarted.
+	 * 
+	 * @param strategyClassName
+	 *            String
+	 * @param tradestrategy
+	 *            Tradestrategy
+	 * @see org.trade.strategy.StrategyChangeListener#strategyStarted(String,
+	 *      Tradestrategy)
+	 */
+	public void strategyStarted(String strategyClassName,
+			Tradestrategy tradestrategy) {
+	}
+
+	/**
+	 * Method ruleComplete.
+	 * 
+	 * @param tradestrategy
+	 *            Tradestrategy
+	 * @see org.trade.strategy.StrategyChangeListener#ruleComplete(Tradestrategy)
+	 */
+	public void ruleComplete(Tradestrategy tradestrategy) {
+	}
+
+	/**
+	 * Method strategyError.
+	 * 
+	 * @param ex
+	 *            StrategyRuleException
+	 * @see org.trade.strategy.StrategyChangeListener#strategyError(StrategyRuleException)
+	 */
+	public void strategyError(StrategyRuleException ex) {
+		if (ex.getErrorId() == 1) {
+			_log.error("Strategy error: " + ex.getErrorCode() + " Msg: "
+					+ ex.getMessage());
+		} else {
+			_log.warn("Strategy: " + ex.getMessage());
+		}
+	}
+
+	/**
+	 * Method brokerError.
+	 * 
+	 * @param ex
+	 *            BrokerModelException
+	 * @see org.trade.broker.BrokerChangeListener#brokerError(BrokerModelException)
+	 */
+	public void brokerError(BrokerModelException ex) {
+		if (ex.getErrorId() == 1) {
+			_log.error("Broker error: " + ex.getErrorCode() + " Msg: "
+					+ ex.getMessage());
+		} else {
+			_log.warn("Broker: " + ex.getMessage());
+		}
+	}
+
+	public void connectionOpened() {
+	}
+
+	/**
+	 * Method connectionClosed.
+	 * 
+	 * @param forced
+	 *            boolean
+	 */
+	public void connectionClosed(boolean forced) {
+	}
+
+	/**
+	 * Method executionDetailsEnd.
+	 * 
+	 * @param execDetails
+	 *            ConcurrentHashMap<Integer,TradeOrder>
+	 */
+	public void executionDetailsEnd(
+			ConcurrentHashMap<Integer, TradeOrder> execDetails) {
+	}
+
+	/**
+	 * Method managedAccountsUpdated.
+	 * 
+	 * @param accountNumber
+	 *            String
+	 */
+	public void managedAccountsUpdated(String accountNumber) {
+	}
+
+	public void fAAccountsCompleted() {
+	}
+
+	/**
+	 * Method updateAccountTime.
+	 * 
+	 * @param accountNumber
+	 *            String
+	 */
+	public void updateAccountTime(String accountNumber) {
+	}
+
+	/**
+	 * Method tradeOrderFilled.
+	 * 
+	 * @param tradeOrder
+	 *            TradeOrder
+	 */
+	public void tradeOrderFilled(TradeOrder tradeOrder) {
+	}
+
+	/**
+	 * Method tradeOrderCancelled.
+	 * 
+	 * @param tradeOrder
+	 *            TradeOrder
+	 */
+	public void tradeOrderCancelled(TradeOrder tradeOrder) {
+	}
+
+	/**
+	 * Method tradeOrderStatusChanged.
+	 * 
+	 * @param tradeOrder
+	 *            TradeOrder
+	 */
+	public void tradeOrderStatusChanged(TradeOrder tradeOrder) {
+	}
+
+	/**
+	 * Method positionClosed.
+	 * 
+	 * @param tradePosition
+	 *            TradePosition
+	 */
+	public void positionClosed(TradePosition tradePosition) {
+	}
+
+	/**
+	 * Method openOrderEnd.
+	 * 
+	 * @param openOrders
+	 *            ConcurrentHashMap<Integer,TradeOrder>
+	 */
+	public void openOrderEnd(ConcurrentHashMap<Integer, TradeOrder> openOrders) {
+	}
+
+	/**
+	 * Method main.
+	 * 
+	 * @param args
+	 *            String[]
+	 */
+	public static void main(String[] args) {
+
+		/*
+		 * Run without a display.
+		 */
+		System.setProperty("java.awt.headless", "true");
+		int exitCode = 0;
+		BackTestRunner runner = null;
+		try {
+			Date start = null;
+			Date end = null;
+			String fileName = null;
+			String strategyName = null;
+			Set<String> symbols = null;
+			String outDir = ".";
+			String format = FORMAT_BOTH;
+			long timeout = 600;
+			boolean removeOrders = false;
+
+			for (int i = 0; i < args.length; i++) {
+				String arg = args[i];
+				if ("-removeOrders".equals(arg)) {
+					removeOrders = true;
+					continue;
+				}
+				if (i + 1 >= args.length)
+					throw new IllegalArgumentException("Missing value for: "
+							+ arg);
+				String value = args[++i];
+				if ("-start".equals(arg)) {
+					start = TradingCalendar.getFormattedDate(value,
+							"MM/dd/yyyy");
+				} else if ("-end".equals(arg)) {
+					end = TradingCalendar.getFormattedDate(value, "MM/dd/yyyy");
+				} else if ("-file".equals(arg)) {
+					fileName = value;
+				} else if ("-strategy".equals(arg)) {
+					strategyName = value;
+				} else if ("-symbols".equals(arg)) {
+					symbols = new HashSet<String>();
+					for (String symbol : value.split(",")) {
+						if (symbol.trim().length() > 0)
+							symbols.add(symbol.trim().toUpperCase());
+					}
+				} else if ("-out".equals(arg)) {
+					outDir = value;
+				} else if ("-format".equals(arg)) {
+					format = value.toLowerCase();
+				} else if ("-timeout".equals(arg)) {
+					timeout = Long.parseLong(value);
+				} else {
+					throw new IllegalArgumentException("Unknown argument: "
+							+ arg);
+				}
+			}
+			if (null == start || null == end)
+				throw new IllegalArgumentException(
+						"-start and -end dates are required.");
+			start = TradingCalendar.getSpecificTime(start, 0, 0, 0);
+			end = TradingCalendar.getSpecificTime(end, 23, 59, 59);
+			if (!FORMAT_JSON.equals(format) && !FORMAT_CSV.equals(format)
+					&& !FORMAT_BOTH.equals(format))
+				throw new IllegalArgumentException("Unknown format: " + format);
+
+			TradeAppLoadConfig.loadAppProperties();
+			runner = new BackTestRunner();
+			Tradingdays tradingdays = runner.loadTradingdays(start, end,
+					fileName, strategyName, symbols);
+			if (!Tradingdays.hasTradestrategies(tradingdays)) {
+				_log.warn("No tradestrategies to run for: " + start + " to "
+						+ end);
+			}
+			BackTestReport report = runner.run(tradingdays, start, end,
+					removeOrders, timeout * 1000);
+			writeReport(report, new File(outDir), format);
+			_log.info("Back test complete tradestrategies: "
+					+ report.getResults().size() + " elapsed ms: "
+					+ report.getElapsedTime());
+
+		} catch (IllegalArgumentException ex) {
+			System.err.println(ex.getMessage());
+			System.err
+					.println("Usage: BackTestRunner -start MM/dd/yyyy -end MM/dd/yyyy [-file csvFile] "
+							+ "[-strategy name] [-symbols AAPL,MSFT] [-out dir] "
+							+ "[-format json|csv|both] [-timeout seconds] [-removeOrders]");
+			exitCode = 2;
+		} catch (Exception ex) {
+			_log.error("Back test failed Msg: " + ex.getMessage(), ex);
+			exitCode = 1;
+		} finally {
+			if (null != runner)
+				runner.close();
+		}
+		/*
+		 * The broker and persistence threads are not daemons.
+		 */
+		System.exit(exitCode);
+	}
+}
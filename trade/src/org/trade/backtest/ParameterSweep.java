@@ -0,0 +1,635 @@
+/* ===========================================================
+ * TradeManager : a application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.backtest;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.trade.broker.client.BackTestCandleCache;
+import org.trade.core.dao.DataAccessExecutor;
+import org.trade.core.util.TradingCalendar;
+import org.trade.persistent.PersistentModel;
+import org.trade.persistent.dao.CodeValue;
+import org.trade.persistent.dao.Portfolio;
+import org.trade.persistent.dao.Strategy;
+import org.trade.persistent.dao.TradelogReport;
+import org.trade.persistent.dao.TradelogSummary;
+import org.trade.persistent.dao.Tradestrategy;
+import org.trade.persistent.dao.Tradingday;
+import org.trade.persistent.dao.Tradingdays;
+import org.trade.strategy.data.IndicatorSeries;
+import org.trade.ui.TradeAppLoadConfig;
+
+/**
+ * Back tests a strategy for a grid or random sample of indicator CodeValues
+ * and ranks the results by the TradelogSummary batting average, simple Sharpe
+ * ratio or net P/L.
+ * 
+ * Each combination of values gets its own Portfolio (named sweepName-n) with a
+ * copy of the default portfolio tradestrategies for the date range. These are
+ * removed along with their orders once the results have been read. The
+ * Strategy and its IndicatorSeries are loaded per combination with the swept
+ * CodeValues replaced, the copies are only held in memory so the strategy in
+ * the database is not changed. All the combinations are run in one back
+ * test so the candles for each contract are read from the database once via
+ * the BackTestCandleCache. The BackTestRunner replays the contracts in
+ * parallel, the combinations for the same contract run one after another as
+ * the open TradePosition is held on the Contract.
+ * 
+ * Usage: ParameterSweep -start MM/dd/yyyy -end MM/dd/yyyy -strategy name
+ * -param SMA-20.Length=10,15,20 [-param Pivot.Bars=5:7:2 ...] [-random count]
+ * [-seed n] [-rank battingAverage|simpleSharpeRatio|netProfitLoss] [-symbols
+ * AAPL,MSFT] [-name Sweep] [-out dir] [-timeout seconds]
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+public class ParameterSweep {
+
+	private final static Logger _log = LoggerFactory
+			.getLogger(ParameterSweep.class);
+
+	private BackTestRunner runner = null;
+	private PersistentModel tradePersistentModel = null;
+
+	/**
+	 * Constructor for ParameterSweep.
+	 * 
+	 * @param runner
+	 *            BackTestRunner
+	 */
+	public ParameterSweep(BackTestRunner runner) {
+		this.runner = runner;
+		this.tradePersistentModel = runner.getPersistentModel();
+	}
+
+	/**
+	 * Method run. Run the back test for every combination and return them
+	 * ranked best first.
+	 * 
+	 * @param start
+	 *            Date
+	 * @param end
+	 *            Date
+	 * @param strategyName
+	 *            String
+	 * @param symbols
+	 *            Set<String> only run for these symbols or null for all.
+	 * @param combinations
+	 *            List<Map<String,String>> the parameter values for each
+	 *            combination.
+	 * @param sweepName
+	 *            String the prefix for the combination portfolio names.
+	 * @param rank
+	 *            String the metric to rank by.
+	 * @param timeout
+	 *            long
+	 * @return List<SweepCombination>
+	 * @throws Exception
+	 */
+	public List<SweepCombination> run(final Date start, final Date end,
+			String strategyName, Set<String> symbols,
+			List<Map<String, String>> combinations, String sweepName,
+			String rank, long timeout) throws Exception {
+
+		Portfolio defaultPortfolio = this.tradePersistentModel
+				.findPortfolioDefault();
+		Tradingdays baseTradingdays = this.runner.loadTradingdays(start, end,
+				null, strategyName, symbols);
+
+		List<Tradestrategy> baseTradestrategies = new ArrayList<Tradestrategy>();
+		for (Tradingday tradingday : baseTradingdays.getTradingdays()) {
+			for (Tradestrategy tradestrategy : tradingday.getTradestrategies()) {
+				if (defaultPortfolio.equals(tradestrategy.getPortfolio()))
+					baseTradestrategies.add(tradestrategy);
+			}
+		}
+		List<SweepCombination> results = new ArrayList<SweepCombination>();
+		if (baseTradestrategies.isEmpty()) {
+			_log.warn("No tradestrategies for strategy: " + strategyName
+					+ " in portfolio: " + defaultPortfolio.getName());
+			return results;
+		}
+		String baseStrategyName = baseTradestrategies.get(0).getStrategy()
+				.getName();
+
+		/*
+		 * Build one set of tradingdays that holds every combinations
+		 * tradestrategies.
+		 */
+		Tradingdays tradingdays = new Tradingdays();
+		for (Tradingday tradingday : baseTradingdays.getTradingdays()) {
+			tradingdays.add((Tradingday) tradingday.clone());
+		}
+		try {
+			for (int i = 0; i < combinations.size(); i++) {
+				SweepCombination combination = new SweepCombination(i + 1,
+						combinations.get(i));
+				Strategy strategy = createStrategy(baseStrategyName,
+						combination.getValues());
+				combination.setPortfolio(getPortfolio(sweepName + "-"
+						+ combination.getIndex(), combination.getValues()));
+				results.add(combination);
+
+				for (Tradestrategy baseTradestrategy : baseTradestrategies) {
+					Tradestrategy tradestrategy = getTradestrategy(
+							baseTradestrategy, combination.getPortfolio());
+					tradestrategy.setStrategy(strategy);
+					tradingdays.getTradingday(
+							baseTradestrategy.getTradingday().getOpen(),
+							baseTradestrategy.getTradingday().getClose())
+							.addTradestrategy(tradestrategy);
+				}
+			}
+
+			_log.info("Parameter sweep: " + sweepName + " combinations: "
+					+ results.size() + " tradestrategies: "
+					+ (results.size() * baseTradestrategies.size()));
+
+			BackTestReport report = null;
+			BackTestCandleCache.open();
+			try {
+				report = this.runner.runStrategies(tradingdays, start, end,
+						false, timeout);
+			} finally {
+				BackTestCandleCache.close();
+			}
+
+			/*
+			 * Read the tradelog reports on the data access threads, they run
+			 * after any order or candle writes that are waiting.
+			 */
+			List<Future<TradelogReport>> tradelogReports = new ArrayList<Future<TradelogReport>>();
+			for (final SweepCombination combination : results) {
+				tradelogReports.add(DataAccessExecutor.getInstance().submit(
+						DataAccessExecutor.REPORT,
+						new Callable<TradelogReport>() {
+							public TradelogReport call() throws Exception {
+								return ParameterSweep.this.tradePersistentModel
+										.findTradelogReport(
+												combination.getPortfolio(),
+												start, end, false, null,
+												BigDecimal.ZERO);
+							}
+						}));
+			}
+			for (int i = 0; i < results.size(); i++) {
+				SweepCombination combination = results.get(i);
+				BackTestReport combinationReport = new BackTestReport(start,
+						end);
+				combinationReport.runStarted(report.getRunStartTime());
+				combinationReport.runCompleted(report.getRunEndTime());
+				for (Tradingday tradingday : tradingdays.getTradingdays()) {
+					for (Tradestrategy tradestrategy : tradingday
+							.getTradestrategies()) {
+						if (combination.getPortfolio().equals(
+								tradestrategy.getPortfolio()))
+							combinationReport.addResult(report
+									.getResult(tradestrategy
+											.getIdTradeStrategy()));
+					}
+				}
+				combinationReport.setTradelogReport(tradelogReports.get(i)
+						.get());
+				combination.setReport(combinationReport);
+			}
+		} finally {
+			removeCombinations(results, tradingdays);
+		}
+		Collections.sort(results, SweepCombination.getComparator(rank));
+		return results;
+	}
+
+	/**
+	 * Method createStrategy. Load a copy of the strategy and its indicators
+	 * and replace the swept CodeValues. The indicators of a newly loaded
+	 * strategy have not read their CodeValues yet so they use the swept
+	 * values.
+	 * 
+	 * @param strategyName
+	 *            String
+	 * @param values
+	 *            Map<String,String> keyed by IndicatorName.AttributeName
+	 * @return Strategy
+	 * @throws Exception
+	 */
+	private Strategy createStrategy(String strategyName,
+			Map<String, String> values) throws Exception {
+
+		Set<String> applied = new HashSet<String>();
+		Strategy strategy = this.tradePersistentModel
+				.findStrategyByName(strategyName);
+		for (IndicatorSeries indicator : strategy.getIndicatorSeries()) {
+			for (CodeValue codeValue : indicator.getCodeValues()) {
+				String key = indicator.getName() + "."
+						+ codeValue.getCodeAttribute().getName();
+				if (values.containsKey(key)) {
+					codeValue.setCodeValue(values.get(key));
+					applied.add(key);
+				}
+			}
+		}
+		for (String key : values.keySet()) {
+			if (!applied.contains(key))
+				throw new IllegalArgumentException("Strategy: "
+						+ strategyName + " has no indicator CodeValue: " + key);
+		}
+		return strategy;
+	}
+
+	/**
+	 * Method removeCombinations. Remove the orders and tradestrategies of each
+	 * combination and its portfolio.
+	 * 
+	 * @param combinations
+	 *            List<SweepCombination>
+	 * @param tradingdays
+	 *            Tradingdays
+	 */
+	private void removeCombinations(List<SweepCombination> combinations,
+			Tradingdays tradingdays) {
+		for (SweepCombination combination : combinations) {
+			try {
+				for (Tradingday tradingday : tradingdays.getTradingdays()) {
+					for (Tradestrategy tradestrategy : tradingday
+							.getTradestrategies()) {
+						if (combination.getPortfolio().equals(
+								tradestrategy.getPortfolio())) {
+							this.tradePersistentModel
+									.removeTradestrategyTradeOrders(tradestrategy);
+							this.tradePersistentModel
+									.removeAspect(tradestrategy);
+						}
+					}
+				}
+				this.tradePersistentModel.removeAspect(combination
+						.getPortfolio());
+			} catch (Exception ex) {
+				_log.error("Could not remove sweep portfolio: "
+						+ combination.getPortfolio().getName() + " Msg: "
+						+ ex.getMessage(), ex);
+			}
+		}
+	}
+
+	/**
+	 * Method getPortfolio. Find or create the portfolio for a combination.
+	 * 
+	 * @param name
+	 *            String
+	 * @param values
+	 *            Map<String,String>
+	 * @return Portfolio
+	 * @throws Exception
+	 */
+	private Portfolio getPortfolio(String name, Map<String, String> values)
+			throws Exception {
+		String description = values.toString();
+		if (description.length() > 240)
+			description = description.substring(0, 240);
+		Portfolio portfolio = this.tradePersistentModel
+				.findPortfolioByName(name);
+		if (null == portfolio) {
+			portfolio = new Portfolio(name, description);
+			portfolio.setIsDefault(false);
+		} else {
+			portfolio.setDescription(description);
+		}
+		return this.tradePersistentModel.persistAspect(portfolio);
+	}
+
+	/**
+	 * Method getTradestrategy. Find or create the copy of the tradestrategy in
+	 * the combination portfolio. Orders from a previous sweep are removed.
+	 * 
+	 * @param baseTradestrategy
+	 *            Tradestrategy
+	 * @param portfolio
+	 *            Portfolio
+	 * @return Tradestrategy
+	 * @throws Exception
+	 */
+	private Tradestrategy getTradestrategy(Tradestrategy baseTradestrategy,
+			Portfolio portfolio) throws Exception {
+
+		Tradestrategy tradestrategy = this.tradePersistentModel
+				.findTradestrategyByUniqueKeys(baseTradestrategy
+						.getTradingday().getOpen(), baseTradestrategy
+						.getStrategy().getName(), baseTradestrategy
+						.getContract().getIdContract(), portfolio.getName());
+		if (null == tradestrategy) {
+			tradestrategy = this.tradePersistentModel
+					.persistAspect(new Tradestrategy(baseTradestrategy
+							.getContract(), baseTradestrategy.getTradingday(),
+							baseTradestrategy.getStrategy(), portfolio,
+							baseTradestrategy.getRiskAmount(),
+							baseTradestrategy.getSide(), baseTradestrategy
+									.getTier(), true, baseTradestrategy
+									.getChartDays(), baseTradestrategy
+									.getBarSize()));
+		} else {
+			this.tradePersistentModel
+					.removeTradestrategyTradeOrders(tradestrategy);
+		}
+		return this.tradePersistentModel.findTradestrategyById(tradestrategy
+				.getIdTradeStrategy());
+	}
+
+	/**
+	 * Method writeReport. Write the ranked combinations as CSV and JSON.
+	 * 
+	 * @param combinations
+	 *            List<SweepCombination>
+	 * @param outDir
+	 *            File
+	 * @param sweepName
+	 *            String
+	 * @throws IOException
+	 */
+	public static void writeReport(List<SweepCombination> combinations,
+			File outDir, String sweepName) throws IOException {
+
+		if (!outDir.exists() && !outDir.mkdirs())
+			throw new IOException("Could not create directory: " + outDir);
+		String prefix = sweepName
+				+ "_"
+				+ TradingCalendar.getFormattedDate(new Date(),
+						"yyyyMMdd_HHmmss");
+		Writer writer = new FileWriter(new File(outDir, prefix + ".csv"));
+		try {
+			writeCSV(combinations, writer);
+		} finally {
+			writer.close();
+		}
+		writer = new FileWriter(new File(outDir, prefix + ".json"));
+		try {
+			writeJSON(combinations, writer);
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Method writeCSV. One row per combination in rank order.
+	 * 
+	 * @param combinations
+	 *            List<SweepCombination>
+	 * @param writer
+	 *            Writer
+	 * @throws IOException
+	 */
+	public static void writeCSV(List<SweepCombination> combinations,
+			Writer writer) throws IOException {
+
+		List<String> keys = new ArrayList<String>();
+		if (!combinations.isEmpty())
+			keys.addAll(combinations.get(0).getValues().keySet());
+
+		StringBuilder header = new StringBuilder("rank,portfolio");
+		for (String key : keys) {
+			header.append(',').append(BackTestReport.toCSV(key));
+		}
+		header.append(",battingAverage,simpleSharpeRatio,netProfitLoss,"
+				+ "winCount,lossCount,positionCount,tradestrategyCount\n");
+		writer.write(header.toString());
+
+		int rank = 0;
+		for (SweepCombination combination : combinations) {
+			StringBuilder row = new StringBuilder();
+			row.append(++rank).append(',');
+			row.append(BackTestReport.toCSV(combination.getPortfolio()
+					.getName()));
+			for (String key : keys) {
+				row.append(',').append(
+						BackTestReport.toCSV(combination.getValues().get(key)));
+			}
+			TradelogSummary summary = combination.getReport()
+					.getTotalSummary();
+			if (null == summary) {
+				row.append(",,,,,,,");
+			} else {
+				row.append(',').append(
+						BackTestReport.toCSV(summary.getBattingAverage()));
+				row.append(',').append(
+						BackTestReport.toCSV(summary.getSimpleSharpeRatio()));
+				row.append(',').append(
+						BackTestReport.toCSV(summary.getNetProfitLoss()));
+				row.append(',').append(
+						BackTestReport.toCSV(summary.getWinCount()));
+				row.append(',').append(
+						BackTestReport.toCSV(summary.getLossCount()));
+				row.append(',').append(
+						BackTestReport.toCSV(summary.getPositionCount()));
+				row.append(',').append(
+						BackTestReport.toCSV(summary.getTradestrategyCount()));
+			}
+			row.append('\n');
+			writer.write(row.toString());
+		}
+		writer.flush();
+	}
+
+	/**
+	 * Method writeJSON. The combinations in rank order each with its values
+	 * and BackTestReport.
+	 * 
+	 * @param combinations
+	 *            List<SweepCombination>
+	 * @param writer
+	 *            Writer
+	 * @throws IOException
+	 */
+	public static void writeJSON(List<SweepCombination> combinations,
+			Writer writer) throws IOException {
+
+		writer.write("[");
+		String sep = "\n";
+		int rank = 0;
+		for (SweepCombination combination : combinations) {
+			writer.write(sep);
+			writer.write("{\"rank\": " + (++rank) + ", \"portfolio\": "
+					+ BackTestReport.toJSON(combination.getPortfolio()
+							.getName()) + ", \"values\": {");
+			String valueSep = "";
+			for (Map.Entry<String, String> entry : combination.getValues()
+					.entrySet()) {
+				writer.write(valueSep + BackTestReport.toJSON(entry.getKey())
+						+ ": " + BackTestReport.toJSON(entry.getValue()));
+				valueSep = ", ";
+			}
+			writer.write("},\n\"report\": ");
+			combination.getReport().writeJSON(writer);
+			writer.write("}");
+			sep = ",\n";
+		}
+		writer.write("\n]\n");
+		writer.flush();
+	}
+
+	/**
+	 * Method main.
+	 * 
+	 * @param args
+	 *            String[]
+	 */
+	public static void main(String[] args) {
+
+		System.setProperty("java.awt.headless", "true");
+		int exitCode = 0;
+		BackTestRunner runner = null;
+		try {
+			Date start = null;
+			Date end = null;
+			String strategyName = null;
+			Set<String> symbols = null;
+			List<SweepParameter> parameters = new ArrayList<SweepParameter>();
+			int randomCount = 0;
+			long seed = System.currentTimeMillis();
+			String rank = SweepCombination.NET_PROFIT_LOSS;
+			String sweepName = "Sweep";
+			String outDir = ".";
+			long timeout = 600;
+
+			for (int i = 0; i < args.length; i++) {
+				String arg = args[i];
+				if (i + 1 >= args.length)
+					throw new IllegalArgumentException("Missing value for: "
+							+ arg);
+				String value = args[++i];
+				if ("-start".equals(arg)) {
+					start = TradingCalendar.getFormattedDate(value,
+							"MM/dd/yyyy");
+				} else if ("-end".equals(arg)) {
+					end = TradingCalendar.getFormattedDate(value, "MM/dd/yyyy");
+				} else if ("-strategy".equals(arg)) {
+					strategyName = value;
+				} else if ("-symbols".equals(arg)) {
+					symbols = new HashSet<String>();
+					for (String symbol : value.split(",")) {
+						if (symbol.trim().length() > 0)
+							symbols.add(symbol.trim().toUpperCase());
+					}
+				} else if ("-param".equals(arg)) {
+					parameters.add(SweepParameter.parse(value));
+				} else if ("-random".equals(arg)) {
+					randomCount = Integer.parseInt(value);
+				} else if ("-seed".equals(arg)) {
+					seed = Long.parseLong(value);
+				} else if ("-rank".equals(arg)) {
+					rank = value;
+				} else if ("-name".equals(arg)) {
+					sweepName = value;
+				} else if ("-out".equals(arg)) {
+					outDir = value;
+				} else if ("-timeout".equals(arg)) {
+					timeout = Long.parseLong(value);
+				} else {
+					throw new IllegalArgumentException("Unknown argument: "
+							+ arg);
+				}
+			}
+			if (null == start || null == end || null == strategyName)
+				throw new IllegalArgumentException(
+						"-start, -end and -strategy are required.");
+			if (parameters.isEmpty())
+				throw new IllegalArgumentException(
+						"At least one -param is required.");
+			if (!SweepCombination.isMetric(rank))
+				throw new IllegalArgumentException("Unknown rank: " + rank);
+			start = TradingCalendar.getSpecificTime(start, 0, 0, 0);
+			end = TradingCalendar.getSpecificTime(end, 23, 59, 59);
+
+			List<Map<String, String>> combinations = null;
+			if (randomCount > 0) {
+				combinations = SweepParameter.createRandom(parameters,
+						randomCount, new Random(seed));
+			} else {
+				for (SweepParameter parameter : parameters) {
+					if (parameter.isRange())
+						throw new IllegalArgumentException(
+								"A range without a step needs -random: "
+										+ parameter.getKey());
+				}
+				combinations = SweepParameter.createGrid(parameters);
+			}
+
+			TradeAppLoadConfig.loadAppProperties();
+			runner = new BackTestRunner();
+			List<SweepCombination> results = new ParameterSweep(runner).run(
+					start, end, strategyName, symbols, combinations,
+					sweepName, rank, timeout * 1000);
+			writeReport(results, new File(outDir), sweepName);
+			if (!results.isEmpty()) {
+				_log.info("Parameter sweep complete best: "
+						+ results.get(0).getPortfolio().getName() + " "
+						+ results.get(0).getValues() + " " + rank + ": "
+						+ results.get(0).getMetric(rank));
+			}
+
+		} catch (IllegalArgumentException ex) {
+			System.err.println(ex.getMessage());
+			System.err
+					.println("Usage: ParameterSweep -start MM/dd/yyyy -end MM/dd/yyyy -strategy name "
+							+ "-param Indicator.Attribute=v1,v2|min:max[:step] [-param ...] "
+							+ "[-random count] [-seed n] "
+							+ "[-rank battingAverage|simpleSharpeRatio|netProfitLoss] "
+							+ "[-symbols AAPL,MSFT] [-name Sweep] [-out dir] [-timeout seconds]");
+			exitCode = 2;
+		} catch (Exception ex) {
+			_log.error("Parameter sweep failed Msg: " + ex.getMessage(), ex);
+			exitCode = 1;
+		} finally {
+			if (null != runner)
+				runner.close();
+		}
+		System.exit(exitCode);
+	}
+}
@@ -0,0 +1,211 @@
+/* ===========================================================
+ * TradeManager : a application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.backtest;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.trade.persistent.dao.Portfolio;
+import org.trade.persistent.dao.TradelogSummary;
+
+/**
+ * One set of parameter values in a parameter sweep. Each combination runs in
+ * its own Portfolio so the TradelogSummary for the portfolio holds just the
+ * results for these values.
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+public class SweepCombination {
+
+	public static final String BATTING_AVERAGE = "battingAverage";
+	public static final String SIMPLE_SHARPE_RATIO = "simpleSharpeRatio";
+	public static final String NET_PROFIT_LOSS = "netProfitLoss";
+
+	private final int index;
+	private final Map<String, String> values;
+	private Portfolio portfolio = null;
+	private BackTestReport report = null;
+
+	/**
+	 * Constructor for SweepCombination.
+	 * 
+	 * @param index
+	 *            int
+	 * @param values
+	 *            Map<String,String> the parameter values keyed by
+	 *            IndicatorName.AttributeName.
+	 */
+	public SweepCombination(int index, Map<String, String> values) {
+		this.index = index;
+		this.values = Collections
+				.unmodifiableMap(new LinkedHashMap<String, String>(values));
+	}
+
+	/**
+	 * Method getIndex.
+	 * 
+	 * @return int
+	 */
+	public int getIndex() {
+		return this.index;
+	}
+
+	/**
+	 * Method getValues.
+	 * 
+	 * @return Map<String,String>
+	 */
+	public Map<String, String> getValues() {
+		return this.values;
+	}
+
+	/**
+	 * Method getPortfolio.
+	 * 
+	 * @return Portfolio
+	 */
+	public Portfolio getPortfolio() {
+		return this.portfolio;
+	}
+
+	/**
+	 * Method setPortfolio.
+	 * 
+	 * @param portfolio
+	 *            Portfolio
+	 */
+	public void setPortfolio(Portfolio portfolio) {
+		this.portfolio = portfolio;
+	}
+
+	/**
+	 * Method getReport.
+	 * 
+	 * @return BackTestReport
+	 */
+	public BackTestReport getReport() {
+		return this.report;
+	}
+
+	/**
+	 * Method setReport.
+	 * 
+	 * @param report
+	 *            BackTestReport
+	 */
+	public void setReport(BackTestReport report) {
+		this.report = report;
+	}
+
+	/**
+	 * Method getMetric.
+	 * 
+	 * @param metric
+	 *            String battingAverage, simpleSharpeRatio or netProfitLoss.
+	 * @return BigDecimal null if there were no closed positions.
+	 */
+	public BigDecimal getMetric(String metric) {
+		if (null == this.report)
+			return null;
+		TradelogSummary summary = this.report.getTotalSummary();
+		if (null == summary)
+			return null;
+		if (BATTING_AVERAGE.equals(metric))
+			return summary.getBattingAverage();
+		if (SIMPLE_SHARPE_RATIO.equals(metric))
+			return summary.getSimpleSharpeRatio();
+		if (NET_PROFIT_LOSS.equals(metric))
+			return summary.getNetProfitLoss();
+		throw new IllegalArgumentException("Unknown metric: " + metric);
+	}
+
+	/**
+	 * Method isMetric.
+	 * 
+	 * @param metric
+	 *            String
+	 * @return boolean
+	 */
+	public static boolean isMetric(String metric) {
+		return BATTING_AVERAGE.equals(metric)
+				|| SIMPLE_SHARPE_RATIO.equals(metric)
+				|| NET_PROFIT_LOSS.equals(metric);
+	}
+
+	/**
+	 * Method getComparator. Orders the combinations best first by the metric
+	 * then by net P/L, combinations without a value for the metric are last.
+	 * 
+	 * @param metric
+	 *            String
+	 * @return Comparator<SweepCombination>
+	 */
+	public static Comparator<SweepCombination> getComparator(final String metric) {
+		return new Comparator<SweepCombination>() {
+			public int compare(SweepCombination o1, SweepCombination o2) {
+				int returnVal = compareDesc(o1.getMetric(metric),
+						o2.getMetric(metric));
+				if (returnVal == 0 && !NET_PROFIT_LOSS.equals(metric))
+					returnVal = compareDesc(o1.getMetric(NET_PROFIT_LOSS),
+							o2.getMetric(NET_PROFIT_LOSS));
+				if (returnVal == 0)
+					returnVal = o1.getIndex() - o2.getIndex();
+				return returnVal;
+			}
+		};
+	}
+
+	/**
+	 * Method compareDesc.
+	 * 
+	 * @param value1
+	 *            BigDecimal
+	 * @param value2
+	 *            BigDecimal
+	 * @return int
+	 */
+	private static int compareDesc(BigDecimal value1, BigDecimal value2) {
+		if (null == value1)
+			return (null == value2) ? 0 : 1;
+		if (null == value2)
+			return -1;
+		return value2.compareTo(value1);
+	}
+}
@@ -0,0 +1,311 @@
+/* ===========================================================
+ * TradeManager : a application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.backtest;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * One indicator CodeValue to vary in a parameter sweep. The parameter is
+ * written as IndicatorName.AttributeName=values where the values are either a
+ * comma separated list e.g. SMA-20.Length=10,15,20 or a range min:max[:step]
+ * e.g. Vostro.Vostro Range=4.0:12.0:0.5. A range without a step can only be
+ * used for a random sweep.
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+public class SweepParameter {
+
+	private final String indicatorName;
+	private final String attributeName;
+	private final List<String> values;
+	private final BigDecimal min;
+	private final BigDecimal max;
+
+	/**
+	 * Constructor for SweepParameter.
+	 * 
+	 * @param indicatorName
+	 *            String
+	 * @param attributeName
+	 *            String
+	 * @param values
+	 *            List<String>
+	 */
+	public SweepParameter(String indicatorName, String attributeName,
+			List<String> values) {
+		this.indicatorName = indicatorName;
+		this.attributeName = attributeName;
+		this.values = Collections.unmodifiableList(new ArrayList<String>(
+				values));
+		this.min = null;
+		this.max = null;
+	}
+
+	/**
+	 * Constructor for SweepParameter.
+	 * 
+	 * @param indicatorName
+	 *            String
+	 * @param attributeName
+	 *            String
+	 * @param min
+	 *            BigDecimal
+	 * @param max
+	 *            BigDecimal
+	 */
+	public SweepParameter(String indicatorName, String attributeName,
+			BigDecimal min, BigDecimal max) {
+		this.indicatorName = indicatorName;
+		this.attributeName = attributeName;
+		this.values = null;
+		this.min = min;
+		this.max = max;
+	}
+
+	/**
+	 * Method parse.
+	 * 
+	 * @param parameter
+	 *            String e.g. SMA-20.Length=10,15,20 or SMA-20.Length=10:30:5
+	 * @return SweepParameter
+	 * @throws IllegalArgumentException
+	 *             if the parameter is not valid.
+	 */
+	public static SweepParameter parse(String parameter) {
+
+		int equals = parameter.indexOf('=');
+		int dot = parameter.lastIndexOf('.', equals);
+		if (equals < 0 || dot < 1 || dot == equals - 1
+				|| equals == parameter.length() - 1)
+			throw new IllegalArgumentException(
+					"Parameter must be IndicatorName.AttributeName=values: "
+							+ parameter);
+
+		String indicatorName = parameter.substring(0, dot).trim();
+		String attributeName = parameter.substring(dot + 1, equals).trim();
+		String valueString = parameter.substring(equals + 1).trim();
+
+		if (valueString.indexOf(':') > -1) {
+			String[] range = valueString.split(":");
+			if (range.length < 2 || range.length > 3)
+				throw new IllegalArgumentException(
+						"Range must be min:max or min:max:step: " + parameter);
+			BigDecimal min = toNumber(range[0], parameter);
+			BigDecimal max = toNumber(range[1], parameter);
+			if (min.compareTo(max) > 0)
+				throw new IllegalArgumentException(
+						"Range min is greater than max: " + parameter);
+			if (range.length == 2)
+				return new SweepParameter(indicatorName, attributeName, min,
+						max);
+
+			BigDecimal step = toNumber(range[2], parameter);
+			if (step.signum() <= 0)
+				throw new IllegalArgumentException(
+						"Range step must be greater than zero: " + parameter);
+			List<String> values = new ArrayList<String>();
+			for (BigDecimal value = min; value.compareTo(max) <= 0; value = value
+					.add(step)) {
+				values.add(value.toPlainString());
+			}
+			return new SweepParameter(indicatorName, attributeName, values);
+		}
+
+		List<String> values = new ArrayList<String>();
+		for (String value : valueString.split(",")) {
+			if (value.trim().length() > 0)
+				values.add(value.trim());
+		}
+		if (values.isEmpty())
+			throw new IllegalArgumentException("No values for: " + parameter);
+		return new SweepParameter(indicatorName, attributeName, values);
+	}
+
+	/**
+	 * Method getIndicatorName.
+	 * 
+	 * @return String
+	 */
+	public String getIndicatorName() {
+		return this.indicatorName;
+	}
+
+	/**
+	 * Method getAttributeName.
+	 * 
+	 * @return String
+	 */
+	public String getAttributeName() {
+		return this.attributeName;
+	}
+
+	/**
+	 * Method getKey.
+	 * 
+	 * @return String IndicatorName.AttributeName
+	 */
+	public String getKey() {
+		return this.indicatorName + "." + this.attributeName;
+	}
+
+	/**
+	 * Method isRange. A range without a step has no fixed values.
+	 * 
+	 * @return boolean
+	 */
+	public boolean isRange() {
+		return null == this.values;
+	}
+
+	/**
+	 * Method getValues.
+	 * 
+	 * @return List<String>
+	 * @throws IllegalStateException
+	 *             if this is a range without a step.
+	 */
+	public List<String> getValues() {
+		if (isRange())
+			throw new IllegalStateException(
+					"A range without a step has no values: " + getKey());
+		return this.values;
+	}
+
+	/**
+	 * Method getRandomValue. A value from the list or a value in the range.
+	 * For a range the value has the larger scale of the min and max so
+	 * 10:30 gives integers and 1.0:3.0 gives one decimal place.
+	 * 
+	 * @param random
+	 *            Random
+	 * @return String
+	 */
+	public String getRandomValue(Random random) {
+		if (!isRange())
+			return this.values.get(random.nextInt(this.values.size()));
+
+		int scale = Math.max(0, Math.max(this.min.scale(), this.max.scale()));
+		BigDecimal value = this.min.add(
+				this.max.subtract(this.min).multiply(
+						new BigDecimal(random.nextDouble()))).setScale(scale,
+				RoundingMode.HALF_UP);
+		if (value.compareTo(this.max) > 0)
+			value = this.max;
+		return value.toPlainString();
+	}
+
+	/**
+	 * Method createGrid. Every combination of the parameter values.
+	 * 
+	 * @param parameters
+	 *            List<SweepParameter>
+	 * @return List<Map<String,String>> the values for each combination keyed
+	 *         by the parameter key.
+	 */
+	public static List<Map<String, String>> createGrid(
+			List<SweepParameter> parameters) {
+
+		List<Map<String, String>> combinations = new ArrayList<Map<String, String>>();
+		combinations.add(new LinkedHashMap<String, String>());
+		for (SweepParameter parameter : parameters) {
+			List<Map<String, String>> next = new ArrayList<Map<String, String>>();
+			for (Map<String, String> combination : combinations) {
+				for (String value : parameter.getValues()) {
+					Map<String, String> item = new LinkedHashMap<String, String>(
+							combination);
+					item.put(parameter.getKey(), value);
+					next.add(item);
+				}
+			}
+			combinations = next;
+		}
+		return combinations;
+	}
+
+	/**
+	 * Method createRandom. Random combinations of the parameter values,
+	 * duplicate combinations are dropped so fewer than count may be returned.
+	 * 
+	 * @param parameters
+	 *            List<SweepParameter>
+	 * @param count
+	 *            int
+	 * @param random
+	 *            Random
+	 * @return List<Map<String,String>> the values for each combination keyed
+	 *         by the parameter key.
+	 */
+	public static List<Map<String, String>> createRandom(
+			List<SweepParameter> parameters, int count, Random random) {
+
+		List<Map<String, String>> combinations = new ArrayList<Map<String, String>>();
+		for (int i = 0; i < count; i++) {
+			Map<String, String> item = new LinkedHashMap<String, String>();
+			for (SweepParameter parameter : parameters) {
+				item.put(parameter.getKey(), parameter.getRandomValue(random));
+			}
+			if (!combinations.contains(item))
+				combinations.add(item);
+		}
+		return combinations;
+	}
+
+	/**
+	 * Method toNumber.
+	 * 
+	 * @param value
+	 *            String
+	 * @param parameter
+	 *            String
+	 * @return BigDecimal
+	 */
+	private static BigDecimal toNumber(String value, String parameter) {
+		try {
+			return new BigDecimal(value.trim());
+		} catch (NumberFormatException ex) {
+			throw new IllegalArgumentException("Range value is not a number: "
+					+ parameter);
+		}
+	}
+}
@@ -49,6 +49,8 @@ import java.util.concurrent.ConcurrentHashMap;
 
 import javax.swing.event.EventListenerList;
 
+import org.trade.core.metrics.Counter;
+import org.trade.core.metrics.MetricRegistry;
 import org.trade.persistent.dao.TradePosition;
 import org.trade.persistent.dao.TradeOrder;
 import org.trade.persistent.dao.Tradestrategy;
@@ -67,6 +69,22 @@ public abstract class AbstractBrokerModel implements BrokerModel, Cloneable,
 	 * 
 	 */
 	private static final long serialVersionUID = -3286930063989668002L;
+	private static final Counter m_connectionsOpened = MetricRegistry
+			.counter("broker.connections.opened");
+	private static final Counter m_connectionsClosed = MetricRegistry
+			.counter("broker.connections.closed");
+	private static final Counter m_historicalDataCompleted = MetricRegistry
+			.counter("broker.historicalData.completed");
+	private static final Counter m_brokerErrors = MetricRegistry
+			.counter("broker.errors");
+	private static final Counter m_tradeOrdersFilled = MetricRegistry
+			.counter("broker.orders.filled");
+	private static final Counter m_tradeOrderStatusChanges = MetricRegistry
+			.counter("broker.orders.statusChanged");
+	private static final Counter m_positionsClosed = MetricRegistry
+			.counter("broker.positions.closed");
+	private static final Counter m_tradeOrdersCancelled = MetricRegistry
+			.counter("broker.orders.cancelled");
 	/** Storage for registered change listeners. */
 	private transient EventListenerList listenerList;
 	private boolean brokerDataOnly = false;
@@ -134,6 +152,7 @@ public abstract class AbstractBrokerModel implements BrokerModel, Cloneable,
 	 * @see #addChangeListener(BrokerChangeListener)
 	 */
 	protected void fireConnectionOpened() {
+		m_connectionsOpened.inc();
 		Object[] listeners = this.listenerList.getListenerList();
 		for (int i = listeners.length - 2; i >= 0; i -= 2) {
 			if (listeners[i] == BrokerChangeListener.class) {
@@ -150,6 +169,7 @@ public abstract class AbstractBrokerModel implements BrokerModel, Cloneable,
 	 * @see #addChangeListener(BrokerChangeListener)
 	 */
 	protected void fireConnectionClosed(boolean forced) {
+		m_connectionsClosed.inc();
 		Object[] listeners = this.listenerList.getListenerList();
 		for (int i = listeners.length - 2; i >= 0; i -= 2) {
 			if (listeners[i] == BrokerChangeListener.class) {
@@ -189,6 +209,7 @@ public abstract class AbstractBrokerModel implements BrokerModel, Cloneable,
 	 * @see #addChangeListener(BrokerChangeListener)
 	 */
 	protected void fireHistoricalDataComplete(Tradestrategy tradestrategy) {
+		m_historicalDataCompleted.inc();
 		Object[] listeners = this.listenerList.getListenerList();
 		for (int i = listeners.length - 2; i >= 0; i -= 2) {
 			if (listeners[i] == BrokerChangeListener.class) {
@@ -262,6 +283,7 @@ public abstract class AbstractBrokerModel implements BrokerModel, Cloneable,
 	 * @see #addChangeListener(BrokerChangeListener)
 	 */
 	protected void fireBrokerError(BrokerModelException brokerError) {
+		m_brokerErrors.inc();
 		Object[] listeners = this.listenerList.getListenerList();
 		for (int i = listeners.length - 2; i >= 0; i -= 2) {
 			if (listeners[i] == BrokerChangeListener.class) {
@@ -281,6 +303,7 @@ public abstract class AbstractBrokerModel implements BrokerModel, Cloneable,
 	 * @see #addChangeListener(BrokerChangeListener)
 	 */
 	protected void fireTradeOrderFilled(TradeOrder tradeOrder) {
+		m_tradeOrdersFilled.inc();
 		Object[] listeners = this.listenerList.getListenerList();
 		for (int i = listeners.length - 2; i >= 0; i -= 2) {
 			if (listeners[i] == BrokerChangeListener.class) {
@@ -300,6 +323,7 @@ public abstract class AbstractBrokerModel implements BrokerModel, Cloneable,
 	 * @see #addChangeListener(BrokerChangeListener)
 	 */
 	protected void fireTradeOrderStatusChanged(TradeOrder tradeOrder) {
+		m_tradeOrderStatusChanges.inc();
 		Object[] listeners = this.listenerList.getListenerList();
 		for (int i = listeners.length - 2; i >= 0; i -= 2) {
 			if (listeners[i] == BrokerChangeListener.class) {
@@ -319,6 +343,7 @@ public abstract class AbstractBrokerModel implements BrokerModel, Cloneable,
 	 * @see #addChangeListener(BrokerChangeListener)
 	 */
 	protected void firePositionClosed(TradePosition tradePosition) {
+		m_positionsClosed.inc();
 		Object[] listeners = this.listenerList.getListenerList();
 		for (int i = listeners.length - 2; i >= 0; i -= 2) {
 			if (listeners[i] == BrokerChangeListener.class) {
@@ -338,6 +363,7 @@ public abstract class AbstractBrokerModel implements BrokerModel, Cloneable,
 	 * @see #addChangeListener(BrokerChangeListener)
 	 */
 	protected void fireTradeOrderCancelled(TradeOrder tradeOrder) {
+		m_tradeOrdersCancelled.inc();
 		Object[] listeners = this.listenerList.getListenerList();
 		for (int i = listeners.length - 2; i >= 0; i -= 2) {
 			if (listeners[i] == BrokerChangeListener.class) {
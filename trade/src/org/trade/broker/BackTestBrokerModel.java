@@ -40,7 +40,6 @@ import java.math.BigDecimal;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
@@ -82,10 +81,14 @@ public class BackTestBrokerModel extends AbstractBrokerModel implements
 	private static final SimpleDateFormat _sdfLocal = new SimpleDateFormat(
 			"yyyyMMdd HH:mm:ss");
 
-	// Use hashCode as key
-	private static final ConcurrentHashMap<Integer, Tradestrategy> m_historyDataRequests = new ConcurrentHashMap<Integer, Tradestrategy>();
-	private static final ConcurrentHashMap<Integer, Contract> m_realTimeBarsRequests = new ConcurrentHashMap<Integer, Contract>();
-	private static final ConcurrentHashMap<Integer, Contract> m_contractRequests = new ConcurrentHashMap<Integer, Contract>();
+	// Use idTradeStrategy as key
+	private static final RequestRegistry<Integer, Tradestrategy> m_historyDataRequests = new RequestRegistry<Integer, Tradestrategy>(
+			RequestRegistry.HISTORICAL_DATA);
+	// Use idContract as key
+	private static final RequestRegistry<Integer, Contract> m_realTimeBarsRequests = new RequestRegistry<Integer, Contract>(
+			RequestRegistry.REALTIME_BARS);
+	private static final RequestRegistry<Integer, Contract> m_contractRequests = new RequestRegistry<Integer, Contract>(
+			RequestRegistry.CONTRACT_DETAILS);
 	private PersistentModel m_tradePersistentModel = null;
 
 	private ClientSocket m_client = null;
@@ -134,10 +137,10 @@ public class BackTestBrokerModel extends AbstractBrokerModel implements
 	/**
 	 * Method getHistoricalData.
 	 * 
-	 * @return ConcurrentHashMap<Integer,Tradestrategy>
+	 * @return RequestRegistry<Integer,Tradestrategy>
 	 * @see org.trade.broker.BrokerModel#getHistoricalData()
 	 */
-	public ConcurrentHashMap<Integer, Tradestrategy> getHistoricalData() {
+	public RequestRegistry<Integer, Tradestrategy> getHistoricalData() {
 		return m_historyDataRequests;
 	}
 
@@ -390,8 +393,31 @@ public class BackTestBrokerModel extends AbstractBrokerModel implements
 	 */
 	public void onBrokerData(Tradestrategy tradestrategy, Date endDate)
 			throws BrokerModelException {
+		onBrokerData(tradestrategy, endDate, tradestrategy.getChartDays());
+	}
 
-		Integer reqId = tradestrategy.hashCode();
+	/**
+	 * Method onBrokerData.
+	 * 
+	 * @param tradestrategy
+	 *            Tradestrategy
+	 * @param Date
+	 *            startDate
+	 * @param Date
+	 *            endDate
+	 * @param chartDays
+	 *            Integer
+	 * @param Integer
+	 *            barSize
+	 * @param Integer
+	 *            chartDays
+	 * @throws BrokerModelException
+	 * @see org.trade.broker.BrokerModel#onBrokerData(Tradestrategy, Date, Integer)
+	 */
+	public void onBrokerData(Tradestrategy tradestrategy, Date endDate,
+			Integer chartDays) throws BrokerModelException {
+
+		Integer reqId = tradestrategy.getIdTradeStrategy();
 		try {
 			if (this.isHistoricalDataRunning(tradestrategy)) {
 				throw new BrokerModelException(reqId, 3010,
@@ -400,7 +426,8 @@ public class BackTestBrokerModel extends AbstractBrokerModel implements
 								+ " Please wait or cancel.");
 			}
 
-			m_historyDataRequests.put(reqId, tradestrategy);
+			reqId = m_historyDataRequests.register(
+					tradestrategy.getIdTradeStrategy(), tradestrategy);
 
 			if (this.isBrokerDataOnly()) {
 
@@ -409,27 +436,27 @@ public class BackTestBrokerModel extends AbstractBrokerModel implements
 								.addBusinessDays(endDate, backfillOffsetDays)));
 				String endDateTime = _sdfLocal.format(endDate);
 
-				m_contractRequests.put(tradestrategy.getContract().hashCode(),
-						tradestrategy.getContract());
-
+				/*
+				 * The contract details arrive on the history request id.
+				 */
 				_log.debug("onBrokerData ReqId: " + reqId + " Symbol: "
 						+ tradestrategy.getContract().getSymbol()
 						+ " end Time: " + endDateTime + " Period length: "
-						+ tradestrategy.getChartDays() + " Bar size: "
+						+ chartDays + " Bar size: "
 						+ tradestrategy.getBarSize() + " WhatToShow: "
 						+ backfillWhatToShow + " Regular Trading Hrs: "
 						+ backfillUseRTH + " Date format: "
 						+ backfillDateFormat);
 
 				m_client.reqHistoricalData(reqId, tradestrategy, endDateTime,
-						ChartDays.newInstance(tradestrategy.getChartDays())
+						ChartDays.newInstance(chartDays)
 								.getDisplayName(),
 						BarSize.newInstance(tradestrategy.getBarSize())
 								.getDisplayName(), backfillWhatToShow,
 						backfillUseRTH, backfillDateFormat);
 			} else {
 				m_client.reqHistoricalData(reqId, tradestrategy, null,
-						ChartDays.newInstance(tradestrategy.getChartDays())
+						ChartDays.newInstance(chartDays)
 								.getDisplayName(),
 						BarSize.newInstance(tradestrategy.getBarSize())
 								.getDisplayName(), backfillWhatToShow,
@@ -469,7 +496,8 @@ public class BackTestBrokerModel extends AbstractBrokerModel implements
 	 * @return boolean
 	 */
 	public boolean isHistoricalDataRunning(Tradestrategy tradestrategy) {
-		if (m_historyDataRequests.containsKey(tradestrategy.hashCode())) {
+		if (m_historyDataRequests.containsRequest(tradestrategy
+				.getIdTradeStrategy())) {
 			return true;
 		}
 		return false;
@@ -484,7 +512,7 @@ public class BackTestBrokerModel extends AbstractBrokerModel implements
 	 * @see org.trade.broker.BrokerModel#isRealtimeBarsRunning(Contract)
 	 */
 	public boolean isRealtimeBarsRunning(Contract contract) {
-		if (m_realTimeBarsRequests.containsKey(contract.hashCode())) {
+		if (m_realTimeBarsRequests.containsRequest(contract.getIdContract())) {
 			return true;
 		}
 		return false;
@@ -498,9 +526,9 @@ public class BackTestBrokerModel extends AbstractBrokerModel implements
 	 * @return boolean
 	 */
 	public boolean isRealtimeBarsRunning(Tradestrategy tradestrategy) {
-		Integer reqId = tradestrategy.getContract().hashCode();
-		if (m_realTimeBarsRequests.containsKey(reqId)) {
-			Contract contract = m_realTimeBarsRequests.get(reqId);
+		Contract contract = m_realTimeBarsRequests.getRequest(tradestrategy
+				.getContract().getIdContract());
+		if (null != contract) {
 			for (Tradestrategy item : contract.getTradestrategies()) {
 				if (item.equals(tradestrategy)) {
 					return true;
@@ -569,7 +597,8 @@ public class BackTestBrokerModel extends AbstractBrokerModel implements
 		 * This will use the Yahoo API to get the data.
 		 */
 		synchronized (m_contractRequests) {
-			m_contractRequests.put(contract.hashCode(), contract);
+			if (!m_contractRequests.containsRequest(contract.getIdContract()))
+				m_contractRequests.register(contract.getIdContract(), contract);
 		}
 	}
 
@@ -590,10 +619,12 @@ public class BackTestBrokerModel extends AbstractBrokerModel implements
 	 *            Tradestrategy
 	 */
 	public void onCancelBrokerData(Tradestrategy tradestrategy) {
-		Integer reqId = tradestrategy.hashCode();
 		synchronized (m_historyDataRequests) {
-			if (m_historyDataRequests.containsKey(reqId)) {
+			Integer reqId = m_historyDataRequests.getRequestId(tradestrategy
+					.getIdTradeStrategy());
+			if (null != reqId) {
 				tradestrategy.getContract().removeTradestrategy(tradestrategy);
+				tradestrategy.getStrategyData().endBulkLoad();
 				m_historyDataRequests.remove(reqId);
 				m_historyDataRequests.notifyAll();
 
@@ -611,11 +642,12 @@ public class BackTestBrokerModel extends AbstractBrokerModel implements
 	 */
 	public void onCancelBrokerData(Contract contract) {
 		synchronized (m_historyDataRequests) {
-			for (Tradestrategy tradestrategy : m_historyDataRequests.values()) {
-				Integer reqId = tradestrategy.hashCode();
+			for (Integer reqId : m_historyDataRequests.requestIds()) {
+				Tradestrategy tradestrategy = m_historyDataRequests.get(reqId);
 				if (contract.equals(tradestrategy.getContract())) {
 					contract.removeTradestrategy(tradestrategy);
 					m_client.removeBackTestBroker(tradestrategy);
+					tradestrategy.getStrategyData().endBulkLoad();
 					m_historyDataRequests.remove(reqId);
 					m_historyDataRequests.notifyAll();
 				}
@@ -631,9 +663,10 @@ public class BackTestBrokerModel extends AbstractBrokerModel implements
 	 * @see org.trade.broker.BrokerModel#onCancelRealtimeBars(Contract)
 	 */
 	public void onCancelRealtimeBars(Contract contract) {
-		Integer reqId = contract.hashCode();
 		synchronized (m_realTimeBarsRequests) {
-			if (m_realTimeBarsRequests.containsKey(reqId)) {
+			Integer reqId = m_realTimeBarsRequests.getRequestId(contract
+					.getIdContract());
+			if (null != reqId) {
 				m_realTimeBarsRequests.remove(reqId);
 				m_realTimeBarsRequests.notifyAll();
 			}
@@ -647,10 +680,10 @@ public class BackTestBrokerModel extends AbstractBrokerModel implements
 	 *            Tradestrategy
 	 */
 	public void onCancelRealtimeBars(Tradestrategy tradestrategy) {
-		Integer reqId = tradestrategy.getContract().hashCode();
 		synchronized (m_realTimeBarsRequests) {
-			if (m_realTimeBarsRequests.containsKey(reqId)) {
-				Contract contract = m_realTimeBarsRequests.get(reqId);
+			Contract contract = m_realTimeBarsRequests.getRequest(tradestrategy
+					.getContract().getIdContract());
+			if (null != contract) {
 				for (Tradestrategy item : contract.getTradestrategies()) {
 					if (item.equals(tradestrategy)) {
 						contract.removeTradestrategy(tradestrategy);
@@ -1040,21 +1073,23 @@ public class BackTestBrokerModel extends AbstractBrokerModel implements
 	public void error(int id, int code, String msg) {
 		String symbol = "N/A";
 		BrokerModelException brokerModelException = null;
-		if (m_contractRequests.containsKey(id)) {
+		if (m_contractRequests.contains(id)) {
 			symbol = m_contractRequests.get(id).getSymbol();
 			synchronized (m_contractRequests) {
 				m_contractRequests.remove(id);
 				m_contractRequests.notifyAll();
 			}
 		}
-		if (m_historyDataRequests.containsKey(id)) {
-			symbol = m_historyDataRequests.get(id).getContract().getSymbol();
+		Tradestrategy tradestrategy = m_historyDataRequests.get(id);
+		if (null != tradestrategy) {
+			symbol = tradestrategy.getContract().getSymbol();
+			tradestrategy.getStrategyData().endBulkLoad();
 			synchronized (m_historyDataRequests) {
 				m_historyDataRequests.remove(id);
 				m_historyDataRequests.notifyAll();
 			}
 		}
-		if (m_realTimeBarsRequests.containsKey(id)) {
+		if (m_realTimeBarsRequests.contains(id)) {
 			symbol = m_realTimeBarsRequests.get(id).getSymbol();
 		}
 
@@ -1096,7 +1131,7 @@ public class BackTestBrokerModel extends AbstractBrokerModel implements
 			}
 
 		} else {
-			if (m_realTimeBarsRequests.containsKey(id)) {
+			if (m_realTimeBarsRequests.contains(id)) {
 				synchronized (m_realTimeBarsRequests) {
 					m_realTimeBarsRequests.remove(id);
 					m_realTimeBarsRequests.notifyAll();
@@ -1121,8 +1156,20 @@ public class BackTestBrokerModel extends AbstractBrokerModel implements
 	public void contractDetails(int reqId, Contract contractDetails) {
 		try {
 			synchronized (m_contractRequests) {
-				if (m_contractRequests.containsKey(reqId)) {
-					Contract contract = m_contractRequests.get(reqId);
+				/*
+				 * Details for a history request arrive on the history request
+				 * id.
+				 */
+				Contract contract = null;
+				if (m_historyDataRequests.isRequestId(reqId)) {
+					Tradestrategy tradestrategy = m_historyDataRequests
+							.get(reqId);
+					if (null != tradestrategy)
+						contract = tradestrategy.getContract();
+				} else {
+					contract = m_contractRequests.get(reqId);
+				}
+				if (null != contract) {
 					BackTestBrokerModel.logContract(contractDetails);
 					if (BackTestBrokerModel.populateContract(contractDetails,
 							contract)) {
@@ -1147,9 +1194,7 @@ public class BackTestBrokerModel extends AbstractBrokerModel implements
 	 */
 	public void contractDetailsEnd(int reqId) {
 		synchronized (m_contractRequests) {
-			if (m_contractRequests.containsKey(reqId)) {
-				m_contractRequests.remove(reqId);
-			}
+			m_contractRequests.remove(reqId);
 		}
 	}
 
@@ -1186,11 +1231,13 @@ public class BackTestBrokerModel extends AbstractBrokerModel implements
 			 * Check to see if the trading day is today and this strategy is
 			 * selected to trade and that the market is open
 			 */
-			if (m_historyDataRequests.containsKey(reqId)) {
-				Tradestrategy tradestrategy = m_historyDataRequests.get(reqId);
+			Tradestrategy tradestrategy = m_historyDataRequests.get(reqId);
+			if (null != tradestrategy) {
 
 				if (dateString.contains("finished-")) {
 
+					tradestrategy.getStrategyData().endBulkLoad();
+
 					/*
 					 * The last one has arrived the reqId is the
 					 * tradeStrategyId. Remove this from the processing vector.
@@ -1262,6 +1309,11 @@ public class BackTestBrokerModel extends AbstractBrokerModel implements
 								.getContract().setLastBidPrice(price);
 						tradestrategy.getStrategyData().getBaseCandleSeries()
 								.getContract().setLastPrice(price);
+						/*
+						 * The bars are loaded as one bulk load that ends when
+						 * the finished message arrives.
+						 */
+						tradestrategy.getStrategyData().beginBulkLoad();
 						tradestrategy.getStrategyData().buildCandle(date, open,
 								high, low, close, volume, vwap, tradeCount, 1,
 								null);
@@ -0,0 +1,223 @@
+/* ===========================================================
+ * TradeManager : a application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.broker;
+
+import java.util.Date;
+
+import org.trade.core.util.TradingSession;
+import org.trade.persistent.dao.Tradestrategy;
+
+/**
+ * A reusable bar for the historical data of one request at a time. The bar
+ * time is decoded from the TWS date string into epoch millis and checked
+ * against the tradestrategies session without creating a Date, formatter or
+ * price for each bar. A Date is only created when the bar is passed to the
+ * candle series.
+ * 
+ * For use by the thread that receives the broker messages only.
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+public class BarRecord {
+
+	private int reqId = -1;
+	private Tradestrategy tradestrategy = null;
+	private TradingSession session = null;
+	private int count = 0;
+	private double lastClose;
+
+	private long time;
+	private double close;
+
+	/**
+	 * Method reset. Start receiving bars for a new request.
+	 * 
+	 * @param reqId
+	 *            int
+	 * @param tradestrategy
+	 *            Tradestrategy
+	 */
+	public void reset(int reqId, Tradestrategy tradestrategy) {
+		this.reqId = reqId;
+		this.tradestrategy = tradestrategy;
+		this.session = new TradingSession(tradestrategy.getTradingday()
+				.getOpen(), tradestrategy.getTradingday().getClose());
+		this.count = 0;
+	}
+
+	/**
+	 * Method clear. Stop receiving bars for the current request.
+	 */
+	public void clear() {
+		this.reqId = -1;
+		this.tradestrategy = null;
+		this.session = null;
+		this.count = 0;
+	}
+
+	/**
+	 * Method set. The other bar values are passed straight to the candle
+	 * series so only the time and close are kept.
+	 * 
+	 * @param dateString
+	 *            String either yyyyMMdd for daily bars or the epoch seconds.
+	 * @param close
+	 *            double
+	 */
+	public void set(String dateString, double close) {
+		this.time = parseTime(dateString);
+		this.close = close;
+	}
+
+	/**
+	 * Method candleBuilt. Called when the bar has been added to the candle
+	 * series, its close is the last price of the request.
+	 */
+	public void candleBuilt() {
+		this.lastClose = this.close;
+		this.count++;
+	}
+
+	/**
+	 * Method parseTime. There is a bug in the TWS interface format for dates
+	 * should always be seconds but when 1 day is selected as the period the
+	 * dates come through as yyyyMMdd. Daily bars are set to the open
+	 * time.
+	 * 
+	 * @param dateString
+	 *            String
+	 * @return long the bar time in millis.
+	 */
+	private long parseTime(String dateString) {
+		long millis;
+		if (dateString.length() == 8) {
+			millis = this.session.getDayStart(parseDigits(dateString, 0, 4),
+					parseDigits(dateString, 4, 6),
+					parseDigits(dateString, 6, 8));
+		} else {
+			millis = Long.parseLong(dateString) * 1000;
+		}
+		if (this.tradestrategy.getBarSize() > 3600)
+			return this.session.getOpenTime(millis);
+		return millis;
+	}
+
+	/**
+	 * Method parseDigits.
+	 * 
+	 * @param value
+	 *            String
+	 * @param start
+	 *            int
+	 * @param end
+	 *            int
+	 * @return int
+	 */
+	private static int parseDigits(String value, int start, int end) {
+		int result = 0;
+		for (int i = start; i < end; i++) {
+			int digit = value.charAt(i) - '0';
+			if (digit < 0 || digit > 9)
+				throw new NumberFormatException("Invalid date: " + value);
+			result = result * 10 + digit;
+		}
+		return result;
+	}
+
+	/**
+	 * Method isMarketHours.
+	 * 
+	 * @return boolean true if the bar is in the tradingday session.
+	 */
+	public boolean isMarketHours() {
+		return this.session.isMarketHours(this.time);
+	}
+
+	/**
+	 * Method getReqId.
+	 * 
+	 * @return int
+	 */
+	public int getReqId() {
+		return this.reqId;
+	}
+
+	/**
+	 * Method getTradestrategy.
+	 * 
+	 * @return Tradestrategy
+	 */
+	public Tradestrategy getTradestrategy() {
+		return this.tradestrategy;
+	}
+
+	/**
+	 * Method getCount.
+	 * 
+	 * @return int the number of candles built since the last reset.
+	 */
+	public int getCount() {
+		return this.count;
+	}
+
+	/**
+	 * Method getLastClose.
+	 * 
+	 * @return double the close of the last bar that built a candle.
+	 */
+	public double getLastClose() {
+		return this.lastClose;
+	}
+
+	/**
+	 * Method getTime.
+	 * 
+	 * @return long
+	 */
+	public long getTime() {
+		return this.time;
+	}
+
+	/**
+	 * Method getDate.
+	 * 
+	 * @return Date a new Date for the bar time.
+	 */
+	public Date getDate() {
+		return new Date(this.time);
+	}
+}
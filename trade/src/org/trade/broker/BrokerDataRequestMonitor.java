@@ -3,7 +3,6 @@ package org.trade.broker;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.IOException;
-import java.math.BigDecimal;
 import java.util.Collections;
 import java.util.Date;
 import java.util.LinkedList;
@@ -16,12 +15,17 @@ import javax.swing.Timer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.trade.core.metrics.Counter;
+import org.trade.core.metrics.MetricRegistry;
 import org.trade.core.properties.ConfigProperties;
 import org.trade.core.util.TradingCalendar;
+import org.trade.core.valuetype.Decode;
+import org.trade.core.valuetype.ValueTypeException;
+import org.trade.dictionary.valuetype.ChartDays;
 import org.trade.persistent.PersistentModel;
 import org.trade.persistent.PersistentModelException;
+import org.trade.persistent.dao.CandleCoverage;
 import org.trade.persistent.dao.Contract;
-import org.trade.persistent.dao.Strategy;
 import org.trade.persistent.dao.Tradestrategy;
 import org.trade.persistent.dao.Tradingday;
 import org.trade.persistent.dao.Tradingdays;
@@ -34,19 +38,28 @@ public class BrokerDataRequestMonitor extends SwingWorker<Void, String> {
 	private final static Logger _log = LoggerFactory
 			.getLogger(BrokerDataRequestMonitor.class);
 
+	private static final Counter m_requestsSubmitted = MetricRegistry
+			.counter("broker.data.requests.submitted");
+	private static final Counter m_requestsSkipped = MetricRegistry
+			.counter("broker.data.requests.skipped");
+	private static final Counter m_throttleWaits = MetricRegistry
+			.counter("broker.data.throttle.waits");
+
 	private BrokerModel brokerModel;
 	private PersistentModel tradePersistentModel = null;
 	private Tradingdays tradingdays = null;
 	private int grandTotal = 0;
 	private long startTime = 0;
 	private Integer backTestBarSize = 0;
+	private Integer backfillUseRTH = 0;
+	private Integer backfillOffsetDays = 0;
 	private final Integer TIME_BETWEEN_SUBMIT = new Integer(4);
 	private AtomicInteger timerRunning = null;
 	private final Object lockCoreUtilsTest = new Object();
 	private Timer timer = null;
 	private LinkedList<Long> submitTimes = new LinkedList<Long>();
 	private final ConcurrentHashMap<String, Contract> contractRequests = new ConcurrentHashMap<String, Contract>();
-	private final ConcurrentHashMap<Integer, Tradestrategy> indicatorRequests = new ConcurrentHashMap<Integer, Tradestrategy>();
+	private final IndicatorRequests indicatorRequests;
 
 	/**
 	 * Constructor for BrokerDataRequestProgressMonitor.
@@ -63,8 +76,14 @@ public class BrokerDataRequestMonitor extends SwingWorker<Void, String> {
 		this.brokerModel = brokerModel;
 		this.tradePersistentModel = tradePersistentModel;
 		this.tradingdays = tradingdays;
+		this.indicatorRequests = new IndicatorRequests(brokerModel,
+				tradePersistentModel);
 		this.backTestBarSize = ConfigProperties
 				.getPropAsInt("trade.backtest.barSize");
+		this.backfillUseRTH = ConfigProperties
+				.getPropAsInt("trade.backfill.useRTH");
+		this.backfillOffsetDays = ConfigProperties
+				.getPropAsInt("trade.backfill.offsetDays");
 		this.timer = new Timer(250, new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
 				synchronized (lockCoreUtilsTest) {
@@ -108,8 +127,8 @@ public class BrokerDataRequestMonitor extends SwingWorker<Void, String> {
 					 */
 					tradestrategy.setStrategyData(null);
 					toProcessTradingday.addTradestrategy(tradestrategy);
-					addIndicatorTradestrategyToTradingday(toProcessTradingday,
-							tradestrategy);
+					indicatorRequests.addIndicatorTradestrategyToTradingday(
+							toProcessTradingday, tradestrategy);
 				}
 
 				totalSumbitted = processTradingday(
@@ -165,7 +184,7 @@ public class BrokerDataRequestMonitor extends SwingWorker<Void, String> {
 									 */
 									tradestrategy.setStrategyData(null);
 									tradingday.addTradestrategy(tradestrategy);
-									addIndicatorTradestrategyToTradingday(
+									indicatorRequests.addIndicatorTradestrategyToTradingday(
 											tradingday, tradestrategy);
 								}
 							} catch (BrokerModelException ex) {
@@ -230,6 +249,10 @@ public class BrokerDataRequestMonitor extends SwingWorker<Void, String> {
 	 * 
 	 * @param tradestrategy
 	 *            Tradestrategy
+	 * @param endDate
+	 *            Date
+	 * @param chartDays
+	 *            Integer
 	 * @param totalSumbitted
 	 *            int
 	 * @return int
@@ -237,7 +260,7 @@ public class BrokerDataRequestMonitor extends SwingWorker<Void, String> {
 	 * @throws BrokerModelException
 	 */
 	private int submitBrokerRequest(Tradestrategy tradestrategy, Date endDate,
-			int totalSumbitted) throws InterruptedException,
+			Integer chartDays, int totalSumbitted) throws InterruptedException,
 			BrokerModelException {
 
 		if (this.brokerModel.isHistoricalDataRunning(tradestrategy
@@ -245,13 +268,14 @@ public class BrokerDataRequestMonitor extends SwingWorker<Void, String> {
 			_log.error("submitBrokerRequest contract already running: "
 					+ tradestrategy.getContract().getSymbol() + " endDate: "
 					+ endDate + " barSize: " + tradestrategy.getBarSize()
-					+ " chartDays: " + tradestrategy.getChartDays());
+					+ " chartDays: " + chartDays);
+			m_requestsSkipped.inc();
 			return totalSumbitted;
 		}
 		_log.debug("submitBrokerRequest: "
 				+ tradestrategy.getContract().getSymbol() + " endDate: "
 				+ endDate + " barSize: " + tradestrategy.getBarSize()
-				+ " chartDays:" + tradestrategy.getChartDays());
+				+ " chartDays:" + chartDays);
 
 		/*
 		 * Get the contract details.
@@ -262,7 +286,8 @@ public class BrokerDataRequestMonitor extends SwingWorker<Void, String> {
 			contractRequests.remove(tradestrategy.getContract().getSymbol());
 		}
 
-		this.brokerModel.onBrokerData(tradestrategy, endDate);
+		this.brokerModel.onBrokerData(tradestrategy, endDate, chartDays);
+		m_requestsSubmitted.inc();
 
 		totalSumbitted++;
 		hasSubmittedInSeconds();
@@ -289,6 +314,7 @@ public class BrokerDataRequestMonitor extends SwingWorker<Void, String> {
 				&& this.brokerModel.isConnected()) {
 
 			timerRunning = new AtomicInteger(0);
+			m_throttleWaits.inc();
 			timer.start();
 			synchronized (lockCoreUtilsTest) {
 				while (timerRunning.get() / 1000 < 601 && !this.isCancelled()) {
@@ -319,57 +345,6 @@ public class BrokerDataRequestMonitor extends SwingWorker<Void, String> {
 		return totalSumbitted;
 	}
 
-	/**
-	 * Method addIndicatorTradestrategyToTradingday. For the tradingday find all
-	 * the indicators and share them across like tradestrategies add the unique
-	 * ones to the tradeingday for processing.
-	 * 
-	 * @param tradingday
-	 *            Tradingday
-	 * @param tradestrategy
-	 *            Tradestrategy
-	 * 
-	 * @return boolean
-	 * @throws BrokerModelException
-	 * @throws PersistentModelException
-	 * @throws CloneNotSupportedException
-	 */
-	private boolean addIndicatorTradestrategyToTradingday(
-			Tradingday tradingday, Tradestrategy tradestrategy)
-			throws BrokerModelException, PersistentModelException,
-			CloneNotSupportedException {
-
-		boolean addedIndicator = false;
-		CandleDataset candleDataset = (CandleDataset) tradestrategy
-				.getStrategyData().getIndicatorByType(
-						IndicatorSeries.CandleSeries);
-
-		if (null != candleDataset) {
-			for (int seriesIndex = 0; seriesIndex < candleDataset
-					.getSeriesCount(); seriesIndex++) {
-
-				CandleSeries series = candleDataset.getSeries(seriesIndex);
-				Tradestrategy indicatorTradestrategy = getIndicatorTradestrategy(
-						tradestrategy, series);
-				candleDataset.setSeries(seriesIndex, indicatorTradestrategy
-						.getStrategyData().getBaseCandleSeries());
-				if (!indicatorRequests.containsKey(indicatorTradestrategy
-						.getIdTradeStrategy())) {
-					if (this.brokerModel.isConnected()
-							|| this.brokerModel.isBrokerDataOnly()) {
-						indicatorRequests.put(
-								indicatorTradestrategy.getIdTradeStrategy(),
-								indicatorTradestrategy);
-						tradingday.addTradestrategy(indicatorTradestrategy);
-						addedIndicator = true;
-					}
-				}
-			}
-		}
-
-		return addedIndicator;
-	}
-
 	/**
 	 * Method hasSubmittedInSeconds. Make sure no more than six requests every 2
 	 * seconds.
@@ -497,78 +472,6 @@ public class BrokerDataRequestMonitor extends SwingWorker<Void, String> {
 		this.firePropertyChange("information", new String("OK"), message);
 	}
 
-	/**
-	 * Method getIndicatorTradestrategy. For any child indicators that are
-	 * candle based create a Tradestrategy that will get the data. If this
-	 * tradestrategy already exist share this with any other tradestrategy that
-	 * requires this.
-	 * 
-	 * @param tradestrategy
-	 *            Tradestrategy
-	 * @param series
-	 *            CandleSeries
-	 * @return Tradestrategy
-	 * @throws BrokerModelException
-	 * @throws PersistentModelException
-	 * @throws CloneNotSupportedException
-	 */
-	private Tradestrategy getIndicatorTradestrategy(
-			Tradestrategy tradestrategy, CandleSeries series)
-			throws BrokerModelException, PersistentModelException,
-			CloneNotSupportedException {
-
-		Tradestrategy indicatorTradestrategy = null;
-		for (Tradestrategy indicator : indicatorRequests.values()) {
-			if (indicator.getContract().equals(series.getContract())
-					&& indicator.getTradingday().equals(
-							tradestrategy.getTradingday())
-					&& indicator.getBarSize()
-							.equals(tradestrategy.getBarSize())
-					&& indicator.getChartDays().equals(
-							tradestrategy.getChartDays())
-					&& indicator.getPortfolio().equals(
-							tradestrategy.getPortfolio())) {
-				indicatorTradestrategy = indicator;
-				break;
-			}
-		}
-		if (null == indicatorTradestrategy) {
-			Contract contract = series.getContract();
-			if (null == series.getContract().getIdContract()) {
-				contract = this.tradePersistentModel.findContractByUniqueKey(
-						series.getContract().getSecType(), series.getContract()
-								.getSymbol(), series.getContract()
-								.getExchange(), series.getContract()
-								.getCurrency(), series.getContract()
-								.getExpiry());
-				if (null == contract) {
-					contract = this.tradePersistentModel.persistAspect(series
-							.getContract());
-				}
-			}
-			indicatorTradestrategy = new Tradestrategy(contract,
-					tradestrategy.getTradingday(), new Strategy("Indicator"),
-					tradestrategy.getPortfolio(), new BigDecimal(0), null,
-					null, false, tradestrategy.getChartDays(),
-					tradestrategy.getBarSize());
-			indicatorTradestrategy.setIdTradeStrategy(this.brokerModel
-					.getNextRequestId());
-			indicatorTradestrategy.setDirty(false);
-		}
-
-		CandleSeries childSeries = indicatorTradestrategy.getStrategyData()
-				.getBaseCandleSeries();
-		childSeries.setDisplaySeries(series.getDisplaySeries());
-		childSeries.setSeriesRGBColor(series.getSeriesRGBColor());
-		childSeries.setSubChart(series.getSubChart());
-		childSeries.setSymbol(series.getSymbol());
-		childSeries.setSecType(series.getSecType());
-		childSeries.setCurrency(series.getCurrency());
-		childSeries.setExchange(series.getExchange());
-
-		return indicatorTradestrategy;
-	}
-
 	/**
 	 * Method processTradingday.
 	 * 
@@ -590,19 +493,121 @@ public class BrokerDataRequestMonitor extends SwingWorker<Void, String> {
 
 			if (!this.brokerModel.isRealtimeBarsRunning(tradestrategy)) {
 
+				Date endDate = tradingday.getClose();
+				Integer chartDays = tradestrategy.getChartDays();
+
+				/*
+				 * When only fetching data check the candles we already have.
+				 * If the whole chart window is stored skip the request,
+				 * otherwise only request the days that are missing.
+				 */
+				if (isGapDetection(tradestrategy)) {
+					List<CandleCoverage> missing = getMissingCoverage(
+							tradestrategy, tradingday);
+					if (missing.isEmpty()) {
+						_log.debug("processTradingday candles already stored: "
+								+ tradestrategy.getContract().getSymbol()
+								+ " endDate: " + endDate + " barSize: "
+								+ tradestrategy.getBarSize() + " chartDays: "
+								+ tradestrategy.getChartDays());
+						totalSumbitted++;
+						continue;
+					}
+					endDate = missing.get(missing.size() - 1).getClose();
+					chartDays = getGapChartDays(tradestrategy, missing.get(0)
+							.getOpen(), endDate);
+				}
+
 				/*
 				 * Fire all the requests to TWS to get chart data After data has
 				 * been retrieved save the data Only allow a maximum of 60
 				 * requests in a 10min period to avoid TWS pacing errors
 				 */
-				totalSumbitted = submitBrokerRequest(tradestrategy,
-						tradingday.getClose(), totalSumbitted);
+				totalSumbitted = submitBrokerRequest(tradestrategy, endDate,
+						chartDays, totalSumbitted);
 			}
 		}
 
 		return totalSumbitted;
 	}
 
+	/**
+	 * Method isGapDetection. Gaps are only looked for when fetching data
+	 * during regular trading hours with no offset as the stored candles then
+	 * line up with the tradingday open/close.
+	 * 
+	 * @param tradestrategy
+	 *            Tradestrategy
+	 * @return boolean
+	 */
+	private boolean isGapDetection(Tradestrategy tradestrategy) {
+		return this.brokerModel.isBrokerDataOnly() && backfillUseRTH == 1
+				&& backfillOffsetDays == 0
+				&& null != tradestrategy.getContract().getIdContract();
+	}
+
+	/**
+	 * Method getMissingCoverage. Find the range of trading days in the chart
+	 * window ending on the tradingday that do not have all their candles.
+	 * 
+	 * @param tradestrategy
+	 *            Tradestrategy
+	 * @param tradingday
+	 *            Tradingday
+	 * @return List<CandleCoverage> empty if all the candles are stored.
+	 * @throws BrokerModelException
+	 */
+	private List<CandleCoverage> getMissingCoverage(
+			Tradestrategy tradestrategy, Tradingday tradingday)
+			throws BrokerModelException {
+
+		Date startDate = TradingCalendar.addDays(tradingday.getOpen(),
+				-(tradestrategy.getChartDays() - 1));
+		try {
+			List<CandleCoverage> coverages = this.tradePersistentModel
+					.findCandleCoverage(tradestrategy.getContract()
+							.getIdContract(), startDate, tradingday.getClose(),
+							tradestrategy.getBarSize());
+			return CandleCoverage.getMissingRange(coverages);
+		} catch (PersistentModelException ex) {
+			throw new BrokerModelException(tradestrategy.getIdTradeStrategy(),
+					3020, "Error finding candle coverage for: "
+							+ tradestrategy.getContract().getSymbol()
+							+ " Msg: " + ex.getMessage());
+		}
+	}
+
+	/**
+	 * Method getGapChartDays. Returns the smallest chart days that covers the
+	 * missing range. The request is still made for the tradestrategy so the
+	 * data is keyed and saved the same as a full request.
+	 * 
+	 * @param tradestrategy
+	 *            Tradestrategy
+	 * @param startDate
+	 *            Date
+	 * @param endDate
+	 *            Date
+	 * @return Integer
+	 */
+	private Integer getGapChartDays(Tradestrategy tradestrategy,
+			Date startDate, Date endDate) {
+
+		long days = TradingCalendar.daysDiff(startDate, endDate) + 1;
+		Integer chartDays = tradestrategy.getChartDays();
+		try {
+			for (Decode decode : new ChartDays().getCodesDecodes()) {
+				Integer code = Integer.valueOf(decode.getCode());
+				if (code >= days && code < chartDays) {
+					chartDays = code;
+				}
+			}
+		} catch (ValueTypeException ex) {
+			return tradestrategy.getChartDays();
+		}
+		return chartDays;
+	}
+
 	/**
 	 * Method getGrandTotal.
 	 * 
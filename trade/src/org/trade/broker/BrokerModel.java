@@ -37,7 +37,6 @@ package org.trade.broker;
 
 import java.util.Date;
 import java.util.EventListener;
-import java.util.concurrent.ConcurrentHashMap;
 
 import org.trade.broker.client.Broker;
 import org.trade.persistent.dao.Contract;
@@ -207,6 +206,22 @@ public interface BrokerModel {
 	public void onBrokerData(Tradestrategy tradestrategy, Date endDate)
 			throws BrokerModelException;
 
+	/**
+	 * Method onBrokerData. Request fewer chart days than the tradestrategy
+	 * i.e. when only part of the chart window is missing. The request is still
+	 * made for the tradestrategy.
+	 * 
+	 * @param tradestrategy
+	 *            Tradestrategy
+	 * @param endDate
+	 *            Date
+	 * @param chartDays
+	 *            Integer
+	 * @throws BrokerModelException
+	 */
+	public void onBrokerData(Tradestrategy tradestrategy, Date endDate,
+			Integer chartDays) throws BrokerModelException;
+
 	/**
 	 * Method onReqRealTimeBars.
 	 * 
@@ -389,9 +404,10 @@ public interface BrokerModel {
 	/**
 	 * Method getHistoricalData.
 	 * 
-	 * @return ConcurrentHashMap<Integer,Tradestrategy>
+	 * @return RequestRegistry<Integer,Tradestrategy> the pending history
+	 *         requests keyed by idTradeStrategy.
 	 */
-	ConcurrentHashMap<Integer, Tradestrategy> getHistoricalData();
+	RequestRegistry<Integer, Tradestrategy> getHistoricalData();
 
 	/**
 	 * Method onPlaceOrder.
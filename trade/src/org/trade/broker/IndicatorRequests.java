@@ -0,0 +1,213 @@
+/* ===========================================================
+ * TradeManager : a application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.broker;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.trade.persistent.PersistentModel;
+import org.trade.persistent.PersistentModelException;
+import org.trade.persistent.dao.Contract;
+import org.trade.persistent.dao.Strategy;
+import org.trade.persistent.dao.Tradestrategy;
+import org.trade.persistent.dao.Tradingday;
+import org.trade.strategy.data.CandleDataset;
+import org.trade.strategy.data.CandleSeries;
+import org.trade.strategy.data.IndicatorSeries;
+
+/**
+ * The candle based indicators of the tradestrategies in a data request. Each
+ * indicator contract gets one Tradestrategy per tradingday/barSize/chartDays/
+ * portfolio that is shared by all the tradestrategies that use it. Used by the
+ * BrokerDataRequestMonitor and the BackTestRunner.
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+public class IndicatorRequests {
+
+	private final BrokerModel brokerModel;
+	private final PersistentModel tradePersistentModel;
+	private final ConcurrentHashMap<Integer, Tradestrategy> indicatorRequests = new ConcurrentHashMap<Integer, Tradestrategy>();
+
+	/**
+	 * Constructor for IndicatorRequests.
+	 * 
+	 * @param brokerModel
+	 *            BrokerModel
+	 * @param tradePersistentModel
+	 *            PersistentModel
+	 */
+	public IndicatorRequests(BrokerModel brokerModel,
+			PersistentModel tradePersistentModel) {
+		this.brokerModel = brokerModel;
+		this.tradePersistentModel = tradePersistentModel;
+	}
+
+	/**
+	 * Method addIndicatorTradestrategyToTradingday. For the tradingday find all
+	 * the indicators and share them across like tradestrategies add the unique
+	 * ones to the tradeingday for processing.
+	 * 
+	 * @param tradingday
+	 *            Tradingday
+	 * @param tradestrategy
+	 *            Tradestrategy
+	 * 
+	 * @return boolean
+	 * @throws BrokerModelException
+	 * @throws PersistentModelException
+	 * @throws CloneNotSupportedException
+	 */
+	public boolean addIndicatorTradestrategyToTradingday(
+			Tradingday tradingday, Tradestrategy tradestrategy)
+			throws BrokerModelException, PersistentModelException,
+			CloneNotSupportedException {
+
+		boolean addedIndicator = false;
+		CandleDataset candleDataset = (CandleDataset) tradestrategy
+				.getStrategyData().getIndicatorByType(
+						IndicatorSeries.CandleSeries);
+
+		if (null != candleDataset) {
+			for (int seriesIndex = 0; seriesIndex < candleDataset
+					.getSeriesCount(); seriesIndex++) {
+
+				CandleSeries series = candleDataset.getSeries(seriesIndex);
+				Tradestrategy indicatorTradestrategy = getIndicatorTradestrategy(
+						tradestrategy, series);
+				candleDataset.setSeries(seriesIndex, indicatorTradestrategy
+						.getStrategyData().getBaseCandleSeries());
+				/*
+				 * Keep the indicator so other tradestrategies on this
+				 * tradingday share it. Back test data is read from the
+				 * CandleSnapshotStore by the DBBroker so it only needs a
+				 * request when connected or getting broker data.
+				 */
+				if (null == indicatorRequests.putIfAbsent(
+						indicatorTradestrategy.getIdTradeStrategy(),
+						indicatorTradestrategy)) {
+					if (this.brokerModel.isConnected()
+							|| this.brokerModel.isBrokerDataOnly()) {
+						tradingday.addTradestrategy(indicatorTradestrategy);
+						addedIndicator = true;
+					}
+				}
+			}
+		}
+
+		return addedIndicator;
+	}
+
+	/**
+	 * Method clear.
+	 */
+	public void clear() {
+		indicatorRequests.clear();
+	}
+
+	/**
+	 * Method getIndicatorTradestrategy. For any child indicators that are
+	 * candle based create a Tradestrategy that will get the data. If this
+	 * tradestrategy already exist share this with any other tradestrategy that
+	 * requires this.
+	 * 
+	 * @param tradestrategy
+	 *            Tradestrategy
+	 * @param series
+	 *            CandleSeries
+	 * @return Tradestrategy
+	 * @throws BrokerModelException
+	 * @throws PersistentModelException
+	 * @throws CloneNotSupportedException
+	 */
+	private Tradestrategy getIndicatorTradestrategy(
+			Tradestrategy tradestrategy, CandleSeries series)
+			throws BrokerModelException, PersistentModelException,
+			CloneNotSupportedException {
+
+		Tradestrategy indicatorTradestrategy = null;
+		for (Tradestrategy indicator : indicatorRequests.values()) {
+			if (indicator.getContract().equals(series.getContract())
+					&& indicator.getTradingday().equals(
+							tradestrategy.getTradingday())
+					&& indicator.getBarSize()
+							.equals(tradestrategy.getBarSize())
+					&& indicator.getChartDays().equals(
+							tradestrategy.getChartDays())
+					&& indicator.getPortfolio().equals(
+							tradestrategy.getPortfolio())) {
+				indicatorTradestrategy = indicator;
+				break;
+			}
+		}
+		if (null == indicatorTradestrategy) {
+			Contract contract = series.getContract();
+			if (null == series.getContract().getIdContract()) {
+				contract = this.tradePersistentModel.findContractByUniqueKey(
+						series.getContract().getSecType(), series.getContract()
+								.getSymbol(), series.getContract()
+								.getExchange(), series.getContract()
+								.getCurrency(), series.getContract()
+								.getExpiry());
+				if (null == contract) {
+					contract = this.tradePersistentModel.persistAspect(series
+							.getContract());
+				}
+			}
+			indicatorTradestrategy = new Tradestrategy(contract,
+					tradestrategy.getTradingday(), new Strategy("Indicator"),
+					tradestrategy.getPortfolio(), new BigDecimal(0), null,
+					null, false, tradestrategy.getChartDays(),
+					tradestrategy.getBarSize());
+			indicatorTradestrategy.setIdTradeStrategy(this.brokerModel
+					.getNextRequestId());
+			indicatorTradestrategy.setDirty(false);
+		}
+
+		CandleSeries childSeries = indicatorTradestrategy.getStrategyData()
+				.getBaseCandleSeries();
+		childSeries.setDisplaySeries(series.getDisplaySeries());
+		childSeries.setSeriesRGBColor(series.getSeriesRGBColor());
+		childSeries.setSubChart(series.getSubChart());
+		childSeries.setSymbol(series.getSymbol());
+		childSeries.setSecType(series.getSecType());
+		childSeries.setCurrency(series.getCurrency());
+		childSeries.setExchange(series.getExchange());
+
+		return indicatorTradestrategy;
+	}
+}
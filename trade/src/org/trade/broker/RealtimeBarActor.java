@@ -0,0 +1,387 @@
+/* ===========================================================
+ * TradeManager : a application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.broker;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.trade.core.util.TradingSession;
+import org.trade.persistent.dao.Contract;
+import org.trade.persistent.dao.Tradestrategy;
+import org.trade.strategy.data.StrategyData;
+import org.trade.strategy.data.candle.CandleItem;
+
+/**
+ * A single writer for the realtime bars of one contract. The actor owns the
+ * list of tradestrategies that receive the contracts bars and keeps it in
+ * TRADINGDAY_CONTRACT order. Bars and changes to the tradestrategies are
+ * posted to a queue without locking and processed in order by one thread at a
+ * time from the executor. All the bars that are queued when the actor runs
+ * are passed to each tradestrategy in turn. Each tradestrategy has a session
+ * that checks the bar time in millis, so a bar only creates its dates and
+ * price once whatever the number of tradestrategies.
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+public abstract class RealtimeBarActor implements Runnable {
+
+	private static final int MAX_BATCH = 100;
+	private static final int SCALE = 5;
+
+	private final Contract contract;
+	private final Executor executor;
+	private final ConcurrentLinkedQueue<Object> mailbox = new ConcurrentLinkedQueue<Object>();
+	private final AtomicBoolean scheduled = new AtomicBoolean(false);
+	/*
+	 * Only used by the thread running the actor.
+	 */
+	private final List<Tradestrategy> tradestrategies = new ArrayList<Tradestrategy>();
+	private final List<TradingSession> sessions = new ArrayList<TradingSession>();
+	private final List<Bar> bars = new ArrayList<Bar>(MAX_BATCH);
+
+	/**
+	 * Constructor for RealtimeBarActor.
+	 * 
+	 * @param contract
+	 *            Contract
+	 * @param tradestrategies
+	 *            List<Tradestrategy> the tradestrategies that will receive
+	 *            bars.
+	 * @param executor
+	 *            Executor
+	 */
+	public RealtimeBarActor(Contract contract,
+			List<Tradestrategy> tradestrategies, Executor executor) {
+		this.contract = contract;
+		this.executor = executor;
+		for (Tradestrategy tradestrategy : tradestrategies) {
+			this.insertTradestrategy(tradestrategy);
+		}
+	}
+
+	/**
+	 * Method getContract.
+	 * 
+	 * @return Contract
+	 */
+	public Contract getContract() {
+		return this.contract;
+	}
+
+	/**
+	 * Method addTradestrategy.
+	 * 
+	 * @param tradestrategy
+	 *            Tradestrategy
+	 */
+	public void addTradestrategy(Tradestrategy tradestrategy) {
+		post(new Change(tradestrategy, true));
+	}
+
+	/**
+	 * Method removeTradestrategy.
+	 * 
+	 * @param tradestrategy
+	 *            Tradestrategy
+	 */
+	public void removeTradestrategy(Tradestrategy tradestrategy) {
+		post(new Change(tradestrategy, false));
+	}
+
+	/**
+	 * Method realtimeBar. Queue a 5sec bar for the tradestrategies.
+	 * 
+	 * @param time
+	 *            long the bar time in millis.
+	 * @param open
+	 *            double
+	 * @param high
+	 *            double
+	 * @param low
+	 *            double
+	 * @param close
+	 *            double
+	 * @param volume
+	 *            long
+	 * @param vwap
+	 *            double
+	 * @param tradeCount
+	 *            int
+	 */
+	public void realtimeBar(long time, double open, double high, double low,
+			double close, long volume, double vwap, int tradeCount) {
+		post(new Bar(time, open, high, low, close, volume, vwap, tradeCount));
+	}
+
+	/**
+	 * Method post.
+	 * 
+	 * @param message
+	 *            Object
+	 */
+	private void post(Object message) {
+		this.mailbox.offer(message);
+		if (this.scheduled.compareAndSet(false, true)) {
+			this.executor.execute(this);
+		}
+	}
+
+	/**
+	 * Method run. Process the queued messages, changes to the tradestrategies
+	 * are applied after the bars queued before them.
+	 * 
+	 * @see java.lang.Runnable#run()
+	 */
+	public void run() {
+		try {
+			Object message = null;
+			int count = 0;
+			while (count++ < MAX_BATCH
+					&& (message = this.mailbox.poll()) != null) {
+				if (message instanceof Bar) {
+					this.bars.add((Bar) message);
+				} else {
+					processBars();
+					Change change = (Change) message;
+					if (change.add) {
+						insertTradestrategy(change.tradestrategy);
+					} else {
+						int index = this.tradestrategies
+								.indexOf(change.tradestrategy);
+						if (index > -1) {
+							this.tradestrategies.remove(index);
+							this.sessions.remove(index);
+						}
+					}
+				}
+			}
+			processBars();
+		} finally {
+			this.scheduled.set(false);
+			/*
+			 * Anything posted after the queue was emptied but before the flag
+			 * was cleared needs a new run.
+			 */
+			if (!this.mailbox.isEmpty()
+					&& this.scheduled.compareAndSet(false, true)) {
+				this.executor.execute(this);
+			}
+		}
+	}
+
+	/**
+	 * Method getTradestrategyCount. For use on the actors thread only.
+	 * 
+	 * @return int
+	 */
+	protected int getTradestrategyCount() {
+		return this.tradestrategies.size();
+	}
+
+	/**
+	 * Method insertTradestrategy. Add the tradestrategy in
+	 * TRADINGDAY_CONTRACT order unless it is already in the list.
+	 * 
+	 * @param tradestrategy
+	 *            Tradestrategy
+	 */
+	private void insertTradestrategy(Tradestrategy tradestrategy) {
+		if (this.tradestrategies.contains(tradestrategy))
+			return;
+		int index = Collections.binarySearch(this.tradestrategies,
+				tradestrategy, Tradestrategy.TRADINGDAY_CONTRACT);
+		if (index < 0)
+			index = -index - 1;
+		this.tradestrategies.add(index, tradestrategy);
+		this.sessions.add(index, new TradingSession(tradestrategy
+				.getTradingday().getOpen(), tradestrategy.getTradingday()
+				.getClose()));
+	}
+
+	/**
+	 * Method processBars. Pass the batch of bars to each tradestrategy that
+	 * is trading when the bar arrived. The candle for each bar is saved once
+	 * from the first tradestrategy that received it.
+	 */
+	private void processBars() {
+		if (this.bars.isEmpty())
+			return;
+		try {
+			boolean[] candleSaved = new boolean[this.bars.size()];
+			boolean marketDataRunning = isMarketDataRunning(this.contract);
+			for (int t = 0; t < this.tradestrategies.size(); t++) {
+				Tradestrategy tradestrategy = this.tradestrategies.get(t);
+				StrategyData strategyData = tradestrategy.getStrategyData();
+				if (null == strategyData)
+					continue;
+				TradingSession session = this.sessions.get(t);
+				for (int i = 0; i < this.bars.size(); i++) {
+					Bar bar = this.bars.get(i);
+					if (!session.isMarketHours(bar.time)) {
+						continue;
+					}
+					if (!marketDataRunning) {
+						BigDecimal price = bar.getPrice();
+						strategyData.getBaseCandleSeries().getContract()
+								.setLastAskPrice(price);
+						strategyData.getBaseCandleSeries().getContract()
+								.setLastBidPrice(price);
+						strategyData.getBaseCandleSeries().getContract()
+								.setLastPrice(price);
+					}
+					strategyData.getLatencyTrace().barReceived(bar.received);
+					strategyData.buildCandle(bar.getDate(), bar.open,
+							bar.high, bar.low, bar.close, bar.volume,
+							bar.vwap, bar.tradeCount,
+							(tradestrategy.getBarSize() / 5),
+							bar.getLastUpdateDate());
+
+					if (!candleSaved[i]
+							&& !strategyData.getBaseCandleSeries().isEmpty()) {
+						CandleItem candleItem = (CandleItem) strategyData
+								.getBaseCandleSeries().getDataItem(
+										strategyData.getBaseCandleSeries()
+												.getItemCount() - 1);
+						candleCompleted(candleItem);
+						candleSaved[i] = true;
+					}
+				}
+			}
+		} catch (Exception ex) {
+			error(ex);
+		} finally {
+			this.bars.clear();
+		}
+	}
+
+	/**
+	 * Method isMarketDataRunning.
+	 * 
+	 * @param contract
+	 *            Contract
+	 * @return boolean true if prices are updated by market data, if not the
+	 *         bars close price is used.
+	 */
+	protected abstract boolean isMarketDataRunning(Contract contract);
+
+	/**
+	 * Method candleCompleted. Called once per bar with the candle that was
+	 * updated for the first tradestrategy.
+	 * 
+	 * @param candleItem
+	 *            CandleItem
+	 * @throws Exception
+	 */
+	protected abstract void candleCompleted(CandleItem candleItem)
+			throws Exception;
+
+	/**
+	 * Method error.
+	 * 
+	 * @param ex
+	 *            Exception
+	 */
+	protected abstract void error(Exception ex);
+
+	/**
+	 * The dates and price of a bar are created on the actors thread the first
+	 * time a tradestrategy uses them and shared by the others.
+	 */
+	private static class Bar {
+		private final long time;
+		private final double open;
+		private final double high;
+		private final double low;
+		private final double close;
+		private final long volume;
+		private final double vwap;
+		private final int tradeCount;
+		private final long received = System.nanoTime();
+		private Date date = null;
+		private Date lastUpdateDate = null;
+		private BigDecimal price = null;
+
+		Bar(long time, double open, double high, double low, double close,
+				long volume, double vwap, int tradeCount) {
+			this.time = time;
+			this.open = open;
+			this.high = high;
+			this.low = low;
+			this.close = close;
+			this.volume = volume;
+			this.vwap = vwap;
+			this.tradeCount = tradeCount;
+		}
+
+		Date getDate() {
+			if (null == this.date)
+				this.date = new Date(this.time);
+			return this.date;
+		}
+
+		Date getLastUpdateDate() {
+			if (null == this.lastUpdateDate)
+				this.lastUpdateDate = new Date(this.time + 4999);
+			return this.lastUpdateDate;
+		}
+
+		BigDecimal getPrice() {
+			if (null == this.price)
+				this.price = (new BigDecimal(this.close)).setScale(SCALE,
+						BigDecimal.ROUND_HALF_EVEN);
+			return this.price;
+		}
+	}
+
+	/**
+	 */
+	private static class Change {
+		private final Tradestrategy tradestrategy;
+		private final boolean add;
+
+		Change(Tradestrategy tradestrategy, boolean add) {
+			this.tradestrategy = tradestrategy;
+			this.add = add;
+		}
+	}
+}
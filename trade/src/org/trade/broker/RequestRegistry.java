@@ -0,0 +1,318 @@
+/* ===========================================================
+ * TradeManager : a application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.broker;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Allocates the request ids used for broker requests and finds the request
+ * for the id in the broker callbacks. Ids are dense from the first id of the
+ * registry so a callback is an array read, the key i.e. the idTradeStrategy
+ * or idContract is only used when a request is made or cancelled. The ids of
+ * finished requests are reused oldest first so a late callback for a
+ * cancelled request is unlikely to find a new request.
+ * 
+ * Each registry is given its own range of ids so the range tells which
+ * registry an id belongs to, the ranges are above the order keys.
+ * 
+ * Methods that change the registry or use the key lock the registry, as
+ * before callers can wait on the registry for requests to finish.
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+public class RequestRegistry<K, V> {
+
+	public static final int CONTRACT_DETAILS = 1000000000;
+	public static final int HISTORICAL_DATA = 1100000000;
+	public static final int REALTIME_BARS = 1200000000;
+	public static final int MARKET_DATA = 1300000000;
+	public static final int RANGE = 100000000;
+
+	private final int firstId;
+	private volatile AtomicReferenceArray<V> values;
+	private Object[] keys;
+	private final HashMap<K, Integer> ids = new HashMap<K, Integer>();
+	private int nextIndex = 0;
+	private int[] free;
+	private int freeHead = 0;
+	private int freeCount = 0;
+
+	/**
+	 * Constructor for RequestRegistry.
+	 * 
+	 * @param firstId
+	 *            int the first id of the range.
+	 */
+	public RequestRegistry(int firstId) {
+		this(firstId, 64);
+	}
+
+	/**
+	 * Constructor for RequestRegistry.
+	 * 
+	 * @param firstId
+	 *            int the first id of the range.
+	 * @param capacity
+	 *            int the initial number of requests held.
+	 */
+	public RequestRegistry(int firstId, int capacity) {
+		this.firstId = firstId;
+		this.values = new AtomicReferenceArray<V>(capacity);
+		this.keys = new Object[capacity];
+		this.free = new int[capacity];
+	}
+
+	/**
+	 * Method register. Allocate an id for the request.
+	 * 
+	 * @param key
+	 *            K
+	 * @param value
+	 *            V the object the callbacks for the id are passed to.
+	 * @return int the request id.
+	 */
+	public synchronized int register(K key, V value) {
+		if (null == key || null == value)
+			throw new IllegalArgumentException(
+					"Request key and value cannot be null.");
+		if (this.ids.containsKey(key))
+			throw new IllegalStateException("Request already registered for: "
+					+ key);
+		int index;
+		if (this.freeCount > 0) {
+			index = this.free[this.freeHead];
+			this.freeHead = (this.freeHead + 1) % this.free.length;
+			this.freeCount--;
+		} else {
+			if (this.nextIndex == RANGE)
+				throw new IllegalStateException(
+						"No request ids left in range starting: "
+								+ this.firstId);
+			if (this.nextIndex == this.keys.length)
+				grow();
+			index = this.nextIndex++;
+		}
+		this.keys[index] = key;
+		this.values.set(index, value);
+		this.ids.put(key, index);
+		return this.firstId + index;
+	}
+
+	/**
+	 * Method get. Used by the callbacks this does not lock the registry.
+	 * 
+	 * @param reqId
+	 *            int
+	 * @return V the request or null if the id is not in use.
+	 */
+	public V get(int reqId) {
+		AtomicReferenceArray<V> values = this.values;
+		int index = reqId - this.firstId;
+		if (index < 0 || index >= values.length())
+			return null;
+		return values.get(index);
+	}
+
+	/**
+	 * Method contains.
+	 * 
+	 * @param reqId
+	 *            int
+	 * @return boolean
+	 */
+	public boolean contains(int reqId) {
+		return null != get(reqId);
+	}
+
+	/**
+	 * Method isRequestId.
+	 * 
+	 * @param reqId
+	 *            int
+	 * @return boolean true if the id is in the range of this registry.
+	 */
+	public boolean isRequestId(int reqId) {
+		return reqId >= this.firstId && reqId - this.firstId < RANGE;
+	}
+
+	/**
+	 * Method getRequestId.
+	 * 
+	 * @param key
+	 *            K
+	 * @return Integer the request id or null if there is no request.
+	 */
+	public synchronized Integer getRequestId(K key) {
+		Integer index = this.ids.get(key);
+		return (null == index ? null : this.firstId + index);
+	}
+
+	/**
+	 * Method containsRequest.
+	 * 
+	 * @param key
+	 *            K
+	 * @return boolean
+	 */
+	public synchronized boolean containsRequest(K key) {
+		return this.ids.containsKey(key);
+	}
+
+	/**
+	 * Method getRequest.
+	 * 
+	 * @param key
+	 *            K
+	 * @return V
+	 */
+	public synchronized V getRequest(K key) {
+		Integer index = this.ids.get(key);
+		return (null == index ? null : this.values.get(index));
+	}
+
+	/**
+	 * Method remove. Remove the request and free its id.
+	 * 
+	 * @param reqId
+	 *            int
+	 * @return V the request or null if the id was not in use.
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized V remove(int reqId) {
+		V value = get(reqId);
+		if (null == value)
+			return null;
+		int index = reqId - this.firstId;
+		this.ids.remove((K) this.keys[index]);
+		this.keys[index] = null;
+		this.values.set(index, null);
+		this.free[(this.freeHead + this.freeCount) % this.free.length] = index;
+		this.freeCount++;
+		return value;
+	}
+
+	/**
+	 * Method removeRequest.
+	 * 
+	 * @param key
+	 *            K
+	 * @return V the request or null if there was no request.
+	 */
+	public synchronized V removeRequest(K key) {
+		Integer reqId = getRequestId(key);
+		return (null == reqId ? null : remove(reqId));
+	}
+
+	/**
+	 * Method size.
+	 * 
+	 * @return int the number of requests.
+	 */
+	public synchronized int size() {
+		return this.ids.size();
+	}
+
+	/**
+	 * Method isEmpty.
+	 * 
+	 * @return boolean
+	 */
+	public synchronized boolean isEmpty() {
+		return this.ids.isEmpty();
+	}
+
+	/**
+	 * Method values.
+	 * 
+	 * @return List<V> a copy of the requests so callers can cancel requests
+	 *         while iterating.
+	 */
+	public synchronized List<V> values() {
+		List<V> values = new ArrayList<V>(this.ids.size());
+		for (Integer index : this.ids.values()) {
+			values.add(this.values.get(index));
+		}
+		return values;
+	}
+
+	/**
+	 * Method requestIds.
+	 * 
+	 * @return List<Integer> a copy of the request ids.
+	 */
+	public synchronized List<Integer> requestIds() {
+		List<Integer> reqIds = new ArrayList<Integer>(this.ids.size());
+		for (Integer index : this.ids.values()) {
+			reqIds.add(this.firstId + index);
+		}
+		return reqIds;
+	}
+
+	/**
+	 * Method clear. Remove all the requests and free all the ids.
+	 */
+	public synchronized void clear() {
+		for (Integer reqId : requestIds()) {
+			remove(reqId);
+		}
+	}
+
+	/**
+	 * Method grow. Double the capacity, the new array is published after it
+	 * is filled so callbacks see either the old or the new array.
+	 */
+	private void grow() {
+		int capacity = Math.min(Math.max(this.keys.length * 2, 16), RANGE);
+		AtomicReferenceArray<V> values = new AtomicReferenceArray<V>(capacity);
+		for (int i = 0; i < this.keys.length; i++) {
+			values.set(i, this.values.get(i));
+		}
+		Object[] keys = new Object[capacity];
+		System.arraycopy(this.keys, 0, keys, 0, this.keys.length);
+		int[] free = new int[capacity];
+		for (int i = 0; i < this.freeCount; i++) {
+			free[i] = this.free[(this.freeHead + i) % this.free.length];
+		}
+		this.keys = keys;
+		this.free = free;
+		this.freeHead = 0;
+		this.values = values;
+	}
+}
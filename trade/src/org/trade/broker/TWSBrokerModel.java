@@ -44,10 +44,17 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.StringTokenizer;
 import java.util.TimeZone;
 import java.util.Vector;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
@@ -58,7 +65,11 @@ import org.trade.broker.request.TWSAllocationRequest;
 import org.trade.broker.request.TWSGroupRequest;
 import org.trade.core.dao.Aspect;
 import org.trade.core.dao.Aspects;
+import org.trade.core.dao.DataAccessExecutor;
 import org.trade.core.factory.ClassFactory;
+import org.trade.core.metrics.Counter;
+import org.trade.core.metrics.Gauge;
+import org.trade.core.metrics.MetricRegistry;
 import org.trade.core.properties.ConfigProperties;
 import org.trade.core.util.CoreUtils;
 import org.trade.core.util.TradingCalendar;
@@ -79,6 +90,7 @@ import org.trade.dictionary.valuetype.TriggerMethod;
 import org.trade.persistent.PersistentModel;
 import org.trade.persistent.dao.Contract;
 import org.trade.persistent.dao.Account;
+import org.trade.persistent.dao.Candle;
 import org.trade.persistent.dao.Portfolio;
 import org.trade.persistent.dao.TradeOrder;
 import org.trade.persistent.dao.TradeOrderfill;
@@ -114,11 +126,25 @@ public class TWSBrokerModel extends AbstractBrokerModel implements EWrapper {
 	private static final SimpleDateFormat _sdfExpiry = new SimpleDateFormat(
 			"yyyyMMdd");
 
-	// Use hashCode as key
-	private static final ConcurrentHashMap<Integer, Tradestrategy> m_historyDataRequests = new ConcurrentHashMap<Integer, Tradestrategy>();
-	private static final ConcurrentHashMap<Integer, Contract> m_realTimeBarsRequests = new ConcurrentHashMap<Integer, Contract>();
-	private static final ConcurrentHashMap<Integer, Contract> m_marketDataRequests = new ConcurrentHashMap<Integer, Contract>();
-	private static final ConcurrentHashMap<Integer, Contract> m_contractRequests = new ConcurrentHashMap<Integer, Contract>();
+	// Use idTradeStrategy as key
+	private static final RequestRegistry<Integer, Tradestrategy> m_historyDataRequests = new RequestRegistry<Integer, Tradestrategy>(
+			RequestRegistry.HISTORICAL_DATA);
+	// Use idContract as key
+	private static final RequestRegistry<Integer, RealtimeBarActor> m_realTimeBarsRequests = new RequestRegistry<Integer, RealtimeBarActor>(
+			RequestRegistry.REALTIME_BARS);
+	private static final ExecutorService m_realtimeBarExecutor = Executors
+			.newFixedThreadPool(Math.max(2, Runtime.getRuntime()
+					.availableProcessors()), new ThreadFactory() {
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "RealtimeBarActor");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+	private static final RequestRegistry<Integer, Contract> m_marketDataRequests = new RequestRegistry<Integer, Contract>(
+			RequestRegistry.MARKET_DATA);
+	private static final RequestRegistry<Integer, Contract> m_contractRequests = new RequestRegistry<Integer, Contract>(
+			RequestRegistry.CONTRACT_DETAILS);
 	// Use account number as key
 	private static final ConcurrentHashMap<String, Account> m_accountRequests = new ConcurrentHashMap<String, Account>();
 
@@ -130,11 +156,29 @@ public class TWSBrokerModel extends AbstractBrokerModel implements EWrapper {
 	// Use commsReport.m_execId as key
 	private static final ConcurrentHashMap<String, CommissionReport> commissionDetails = new ConcurrentHashMap<String, CommissionReport>();
 
+	private static final Counter m_realtimeBarsReceived = MetricRegistry
+			.counter("broker.realtimeBars.received");
+
+	static {
+		registerSizeGauge("broker.requests.historicalData",
+				m_historyDataRequests);
+		registerSizeGauge("broker.requests.realtimeBars",
+				m_realTimeBarsRequests);
+		registerSizeGauge("broker.requests.marketData", m_marketDataRequests);
+		registerSizeGauge("broker.requests.contractDetails",
+				m_contractRequests);
+		registerSizeGauge("broker.orders.open", openOrders);
+	}
+
 	private EClientSocket m_client = null;
 	private PersistentModel m_tradePersistentModel = null;
 	private AtomicInteger reqId = null;
 	private AtomicInteger orderKey = null;
 	private Integer m_clientId = null;
+	/*
+	 * Only used by the thread that receives the historical data.
+	 */
+	private final BarRecord m_historicalBar = new BarRecord();
 
 	private static final int SCALE = 5;
 	private static final int minOrderId = 100000;
@@ -216,10 +260,10 @@ public class TWSBrokerModel extends AbstractBrokerModel implements EWrapper {
 	/**
 	 * Method getHistoricalData.
 	 * 
-	 * @return ConcurrentHashMap<Integer,Tradestrategy>
+	 * @return RequestRegistry<Integer,Tradestrategy>
 	 * @see org.trade.broker.BrokerModel#getHistoricalData()
 	 */
-	public ConcurrentHashMap<Integer, Tradestrategy> getHistoricalData() {
+	public RequestRegistry<Integer, Tradestrategy> getHistoricalData() {
 		return m_historyDataRequests;
 	}
 
@@ -501,7 +545,7 @@ public class TWSBrokerModel extends AbstractBrokerModel implements EWrapper {
 	public void onReqRealTimeBars(Contract contract, boolean mktData)
 			throws BrokerModelException {
 
-		Integer reqId = contract.hashCode();
+		Integer reqId = contract.getIdContract();
 		try {
 			if (m_client.isConnected()) {
 
@@ -512,7 +556,9 @@ public class TWSBrokerModel extends AbstractBrokerModel implements EWrapper {
 									+ contract.getSymbol()
 									+ " Please wait or cancel.");
 				}
-				m_realTimeBarsRequests.put(reqId, contract);
+				reqId = m_realTimeBarsRequests.register(
+						contract.getIdContract(),
+						createRealtimeBarActor(contract));
 
 				/*
 				 * Bar interval is set to 5= 5sec this is the only thing
@@ -553,7 +599,7 @@ public class TWSBrokerModel extends AbstractBrokerModel implements EWrapper {
 	public void onReqMarketData(Contract contract, String genericTicklist,
 			boolean snapshot) throws BrokerModelException {
 
-		Integer reqId = contract.hashCode();
+		Integer reqId = contract.getIdContract();
 
 		try {
 			if (m_client.isConnected()) {
@@ -564,7 +610,8 @@ public class TWSBrokerModel extends AbstractBrokerModel implements EWrapper {
 									+ " Please wait or cancel.");
 				}
 				List<TagValue> mktDataOptions = new ArrayList<TagValue>();
-				m_marketDataRequests.put(reqId, contract);
+				reqId = m_marketDataRequests.register(contract.getIdContract(),
+						contract);
 				m_client.reqMktData(reqId,
 						TWSBrokerModel.getIBContract(contract),
 						genericTicklist, snapshot, mktDataOptions);
@@ -591,18 +638,19 @@ public class TWSBrokerModel extends AbstractBrokerModel implements EWrapper {
 	public void onContractDetails(Contract contract)
 			throws BrokerModelException {
 
-		Integer reqId = contract.hashCode();
+		Integer reqId = contract.getIdContract();
 
 		try {
 			if (m_client.isConnected()) {
-				if (!m_contractRequests.containsKey(reqId)) {
+				if (!m_contractRequests.containsRequest(contract.getIdContract())) {
 					/*
 					 * Null the IB Contract Id as these sometimes change. This
 					 * will force a get of the IB data via the
 					 * Exchange/Symbol/Currency.
 					 */
 					contract.setIdContractIB(null);
-					m_contractRequests.put(reqId, contract);
+					reqId = m_contractRequests.register(
+							contract.getIdContract(), contract);
 					TWSBrokerModel.logContract(TWSBrokerModel
 							.getIBContract(contract));
 					m_client.reqContractDetails(reqId,
@@ -632,8 +680,25 @@ public class TWSBrokerModel extends AbstractBrokerModel implements EWrapper {
 	 */
 	public void onBrokerData(Tradestrategy tradestrategy, Date endDate)
 			throws BrokerModelException {
+		onBrokerData(tradestrategy, endDate, tradestrategy.getChartDays());
+	}
+
+	/**
+	 * Method onBrokerData.
+	 * 
+	 * @param tradestrategy
+	 *            Tradestrategy
+	 * @param Date
+	 *            endDate
+	 * @param chartDays
+	 *            Integer
+	 * @throws BrokerModelException
+	 * @see org.trade.broker.BrokerModel#onBrokerData(Tradestrategy, Date, Integer)
+	 */
+	public void onBrokerData(Tradestrategy tradestrategy, Date endDate,
+			Integer chartDays) throws BrokerModelException {
 
-		Integer reqId = tradestrategy.hashCode();
+		Integer reqId = tradestrategy.getIdTradeStrategy();
 
 		try {
 
@@ -655,7 +720,8 @@ public class TWSBrokerModel extends AbstractBrokerModel implements EWrapper {
 				if (!tradestrategy.getStrategyData().isRunning())
 					tradestrategy.getStrategyData().execute();
 
-				m_historyDataRequests.put(reqId, tradestrategy);
+				reqId = m_historyDataRequests.register(
+						tradestrategy.getIdTradeStrategy(), tradestrategy);
 
 				endDate = TradingCalendar.getSpecificTime(endDate,
 						TradingCalendar.getMostRecentTradingDay(TradingCalendar
@@ -667,10 +733,8 @@ public class TWSBrokerModel extends AbstractBrokerModel implements EWrapper {
 				 * TWS API data has a limit of one calendar year of data. So
 				 * apply this limit to the chartDays.
 				 */
-				Integer chartDays = tradestrategy.getChartDays();
 				if (TradingCalendar.daysDiff(
-						TradingCalendar.addDays(endDate,
-								(tradestrategy.getChartDays() * -1)),
+						TradingCalendar.addDays(endDate, (chartDays * -1)),
 						new Date()) > TradingCalendar.getDaysInYear(endDate)) {
 					chartDays = TradingCalendar.getDaysInYear(endDate)
 							- TradingCalendar.daysDiff(endDate, new Date());
@@ -679,7 +743,7 @@ public class TWSBrokerModel extends AbstractBrokerModel implements EWrapper {
 				_log.debug("onBrokerData Req Id: " + reqId + " Symbol: "
 						+ tradestrategy.getContract().getSymbol()
 						+ " end Time: " + endDateTime + " Period length: "
-						+ tradestrategy.getChartDays() + " Bar size: "
+						+ chartDays + " Bar size: "
 						+ tradestrategy.getBarSize() + " WhatToShow: "
 						+ backfillWhatToShow + " Regular Trading Hrs: "
 						+ backfillUseRTH + " Date format: "
@@ -746,7 +810,8 @@ public class TWSBrokerModel extends AbstractBrokerModel implements EWrapper {
 	 * @return boolean
 	 */
 	public boolean isHistoricalDataRunning(Tradestrategy tradestrategy) {
-		if (m_historyDataRequests.containsKey(tradestrategy.hashCode())) {
+		if (m_historyDataRequests.containsRequest(tradestrategy
+				.getIdTradeStrategy())) {
 			return true;
 		}
 		return false;
@@ -762,7 +827,7 @@ public class TWSBrokerModel extends AbstractBrokerModel implements EWrapper {
 	 */
 	public boolean isRealtimeBarsRunning(Contract contract) {
 		if (m_client.isConnected()) {
-			if (m_realTimeBarsRequests.containsKey(contract.hashCode())) {
+			if (m_realTimeBarsRequests.containsRequest(contract.getIdContract())) {
 				return true;
 			}
 		}
@@ -777,9 +842,10 @@ public class TWSBrokerModel extends AbstractBrokerModel implements EWrapper {
 	 * @return boolean
 	 */
 	public boolean isRealtimeBarsRunning(Tradestrategy tradestrategy) {
-		Integer reqId = tradestrategy.getContract().hashCode();
-		if (m_realTimeBarsRequests.containsKey(reqId)) {
-			Contract contract = m_realTimeBarsRequests.get(reqId);
+		RealtimeBarActor actor = m_realTimeBarsRequests
+				.getRequest(tradestrategy.getContract().getIdContract());
+		if (null != actor) {
+			Contract contract = actor.getContract();
 			for (Tradestrategy item : contract.getTradestrategies()) {
 				if (item.equals(tradestrategy)) {
 					return true;
@@ -799,7 +865,7 @@ public class TWSBrokerModel extends AbstractBrokerModel implements EWrapper {
 	 */
 	public boolean isMarketDataRunning(Contract contract) {
 		if (m_client.isConnected()) {
-			if (m_marketDataRequests.containsKey(contract.hashCode())) {
+			if (m_marketDataRequests.containsRequest(contract.getIdContract())) {
 				return true;
 			}
 		}
@@ -814,9 +880,9 @@ public class TWSBrokerModel extends AbstractBrokerModel implements EWrapper {
 	 * @return boolean
 	 */
 	public boolean isMarketDataRunning(Tradestrategy tradestrategy) {
-		Integer reqId = tradestrategy.getContract().hashCode();
-		if (m_marketDataRequests.containsKey(reqId)) {
-			Contract contract = m_marketDataRequests.get(reqId);
+		Contract contract = m_marketDataRequests.getRequest(tradestrategy
+				.getContract().getIdContract());
+		if (null != contract) {
 			for (Tradestrategy item : contract.getTradestrategies()) {
 				if (item.equals(tradestrategy)) {
 					return true;
@@ -837,8 +903,8 @@ public class TWSBrokerModel extends AbstractBrokerModel implements EWrapper {
 			for (Tradestrategy tradestrategy : m_historyDataRequests.values()) {
 				this.onCancelBrokerData(tradestrategy);
 			}
-			for (Contract contract : m_realTimeBarsRequests.values()) {
-				this.onCancelRealtimeBars(contract);
+			for (RealtimeBarActor actor : m_realTimeBarsRequests.values()) {
+				this.onCancelRealtimeBars(actor.getContract());
 			}
 			for (Contract contract : m_marketDataRequests.values()) {
 				this.onCancelMarketData(contract);
@@ -881,13 +947,7 @@ public class TWSBrokerModel extends AbstractBrokerModel implements EWrapper {
 	 */
 	public void onCancelContractDetails(Contract contract) {
 		if (m_client.isConnected()) {
-			for (Integer reqId : m_contractRequests.keySet()) {
-				Contract value = m_contractRequests.get(reqId);
-				if (contract.equals(value)) {
-					m_contractRequests.remove(reqId);
-					break;
-				}
-			}
+			m_contractRequests.removeRequest(contract.getIdContract());
 		}
 	}
 
@@ -899,11 +959,13 @@ public class TWSBrokerModel extends AbstractBrokerModel implements EWrapper {
 	 * @see org.trade.broker.BrokerModel#onCancelRealtimeBars(Contract)
 	 */
 	public void onCancelBrokerData(Tradestrategy tradestrategy) {
-		Integer reqId = tradestrategy.hashCode();
 		synchronized (m_historyDataRequests) {
-			if (m_historyDataRequests.containsKey(reqId)) {
+			Integer reqId = m_historyDataRequests.getRequestId(tradestrategy
+					.getIdTradeStrategy());
+			if (null != reqId) {
 				if (m_client.isConnected())
 					m_client.cancelHistoricalData(reqId);
+				tradestrategy.getStrategyData().endBulkLoad();
 				m_historyDataRequests.remove(reqId);
 				m_historyDataRequests.notifyAll();
 			}
@@ -919,11 +981,12 @@ public class TWSBrokerModel extends AbstractBrokerModel implements EWrapper {
 	 */
 	public void onCancelBrokerData(Contract contract) {
 		synchronized (m_historyDataRequests) {
-			for (Tradestrategy tradestrategy : m_historyDataRequests.values()) {
-				Integer reqId = tradestrategy.hashCode();
+			for (Integer reqId : m_historyDataRequests.requestIds()) {
+				Tradestrategy tradestrategy = m_historyDataRequests.get(reqId);
 				if (contract.equals(tradestrategy.getContract())) {
 					if (m_client.isConnected())
 						m_client.cancelHistoricalData(reqId);
+					tradestrategy.getStrategyData().endBulkLoad();
 					m_historyDataRequests.remove(reqId);
 					m_historyDataRequests.notifyAll();
 				}
@@ -938,16 +1001,18 @@ public class TWSBrokerModel extends AbstractBrokerModel implements EWrapper {
 	 *            Tradestrategy
 	 */
 	public void onCancelRealtimeBars(Tradestrategy tradestrategy) {
-		Integer reqId = tradestrategy.getContract().hashCode();
 		synchronized (m_realTimeBarsRequests) {
-			if (m_realTimeBarsRequests.containsKey(reqId)) {
-				Contract contract = m_realTimeBarsRequests.get(reqId);
+			RealtimeBarActor actor = m_realTimeBarsRequests
+					.getRequest(tradestrategy.getContract().getIdContract());
+			if (null != actor) {
+				Contract contract = actor.getContract();
 				for (Tradestrategy item : contract.getTradestrategies()) {
 					if (item.equals(tradestrategy)) {
 						contract.removeTradestrategy(tradestrategy);
 						break;
 					}
 				}
+				actor.removeTradestrategy(tradestrategy);
 				if (contract.getTradestrategies().isEmpty()) {
 					onCancelRealtimeBars(contract);
 					onCancelMarketData(contract);
@@ -964,9 +1029,10 @@ public class TWSBrokerModel extends AbstractBrokerModel implements EWrapper {
 	 * @see org.trade.broker.BrokerModel#onCancelRealtimeBars(Contract)
 	 */
 	public void onCancelRealtimeBars(Contract contract) {
-		Integer reqId = contract.hashCode();
 		synchronized (m_realTimeBarsRequests) {
-			if (m_realTimeBarsRequests.containsKey(reqId)) {
+			Integer reqId = m_realTimeBarsRequests.getRequestId(contract
+					.getIdContract());
+			if (null != reqId) {
 				if (m_client.isConnected())
 					m_client.cancelRealTimeBars(reqId);
 				m_realTimeBarsRequests.remove(reqId);
@@ -982,10 +1048,10 @@ public class TWSBrokerModel extends AbstractBrokerModel implements EWrapper {
 	 *            Tradestrategy
 	 */
 	public void onCancelMarketData(Tradestrategy tradestrategy) {
-		Integer reqId = tradestrategy.getContract().hashCode();
 		synchronized (m_marketDataRequests) {
-			if (m_marketDataRequests.containsKey(reqId)) {
-				Contract contract = m_marketDataRequests.get(reqId);
+			Contract contract = m_marketDataRequests.getRequest(tradestrategy
+					.getContract().getIdContract());
+			if (null != contract) {
 				for (Tradestrategy item : contract.getTradestrategies()) {
 					if (item.equals(tradestrategy)) {
 						contract.removeTradestrategy(tradestrategy);
@@ -1007,9 +1073,10 @@ public class TWSBrokerModel extends AbstractBrokerModel implements EWrapper {
 	 * @see org.trade.broker.BrokerModel#onCancelRealtimeBars(Contract)
 	 */
 	public void onCancelMarketData(Contract contract) {
-		Integer reqId = contract.hashCode();
 		synchronized (m_marketDataRequests) {
-			if (m_marketDataRequests.containsKey(reqId)) {
+			Integer reqId = m_marketDataRequests.getRequestId(contract
+					.getIdContract());
+			if (null != reqId) {
 				if (m_client.isConnected())
 					m_client.cancelMktData(reqId);
 				m_marketDataRequests.remove(reqId);
@@ -1571,15 +1638,16 @@ public class TWSBrokerModel extends AbstractBrokerModel implements EWrapper {
 
 		String symbol = "N/A";
 		BrokerModelException brokerModelException = null;
-		if (m_contractRequests.containsKey(id)) {
+		if (m_contractRequests.contains(id)) {
 			symbol = m_contractRequests.get(id).getSymbol();
 			synchronized (m_contractRequests) {
 				m_contractRequests.remove(id);
 				m_contractRequests.notifyAll();
 			}
 		}
-		if (m_historyDataRequests.containsKey(id)) {
-			Tradestrategy tradestrategy = m_historyDataRequests.get(id);
+		Tradestrategy tradestrategy = m_historyDataRequests.get(id);
+		if (null != tradestrategy) {
+			tradestrategy.getStrategyData().endBulkLoad();
 			symbol = tradestrategy.getContract().getSymbol();
 			if (code == 162) {
 				symbol = tradestrategy.getContract().getSymbol()
@@ -1600,10 +1668,10 @@ public class TWSBrokerModel extends AbstractBrokerModel implements EWrapper {
 				m_historyDataRequests.notifyAll();
 			}
 		}
-		if (m_realTimeBarsRequests.containsKey(id)) {
-			symbol = m_realTimeBarsRequests.get(id).getSymbol();
+		if (m_realTimeBarsRequests.contains(id)) {
+			symbol = m_realTimeBarsRequests.get(id).getContract().getSymbol();
 		}
-		if (m_marketDataRequests.containsKey(id)) {
+		if (m_marketDataRequests.contains(id)) {
 			symbol = m_marketDataRequests.get(id).getSymbol();
 		}
 
@@ -1645,13 +1713,13 @@ public class TWSBrokerModel extends AbstractBrokerModel implements EWrapper {
 			}
 
 		} else {
-			if (m_realTimeBarsRequests.containsKey(id)) {
+			if (m_realTimeBarsRequests.contains(id)) {
 				synchronized (m_realTimeBarsRequests) {
 					m_realTimeBarsRequests.remove(id);
 					m_realTimeBarsRequests.notifyAll();
 				}
 			}
-			if (m_marketDataRequests.containsKey(id)) {
+			if (m_marketDataRequests.contains(id)) {
 				synchronized (m_marketDataRequests) {
 					m_marketDataRequests.remove(id);
 					m_marketDataRequests.notifyAll();
@@ -1695,9 +1763,9 @@ public class TWSBrokerModel extends AbstractBrokerModel implements EWrapper {
 			synchronized (price) {
 				// _log.warn("tickPrice Field: " + field + " value :" + value
 				// + " time: " + System.currentTimeMillis());
-				if (!m_marketDataRequests.containsKey(new Integer(reqId)))
-					return;
 				Contract contract = m_marketDataRequests.get(reqId);
+				if (null == contract)
+					return;
 
 				/*
 				 * Make sure the lastPrice is between the current Bid/Ask as
@@ -1815,7 +1883,7 @@ public class TWSBrokerModel extends AbstractBrokerModel implements EWrapper {
 
 			synchronized (value) {
 
-				if (!m_marketDataRequests.containsKey(new Integer(reqId)))
+				if (!m_marketDataRequests.contains(reqId))
 					return;
 
 				switch (field) {
@@ -2241,8 +2309,8 @@ public class TWSBrokerModel extends AbstractBrokerModel implements EWrapper {
 	 */
 	public void contractDetails(int reqId, ContractDetails contractDetails) {
 		try {
-			if (m_contractRequests.containsKey(reqId)) {
-				Contract contract = m_contractRequests.get(reqId);
+			Contract contract = m_contractRequests.get(reqId);
+			if (null != contract) {
 				TWSBrokerModel.logContractDetails(contractDetails);
 				if (TWSBrokerModel.populateContract(contractDetails, contract)) {
 					m_tradePersistentModel.persistContract(contract);
@@ -2279,9 +2347,7 @@ public class TWSBrokerModel extends AbstractBrokerModel implements EWrapper {
 	 */
 	public void contractDetailsEnd(int reqId) {
 		synchronized (m_contractRequests) {
-			if (m_contractRequests.containsKey(reqId)) {
-				m_contractRequests.remove(reqId);
-			}
+			m_contractRequests.remove(reqId);
 		}
 	}
 
@@ -2488,11 +2554,17 @@ public class TWSBrokerModel extends AbstractBrokerModel implements EWrapper {
 			double vwap, boolean hasGaps) {
 		try {
 			volume = volume * 100;
-			if (m_historyDataRequests.containsKey(reqId)) {
-				Tradestrategy tradestrategy = m_historyDataRequests.get(reqId);
+			Tradestrategy tradestrategy = m_historyDataRequests.get(reqId);
+			if (null != tradestrategy) {
 
 				if (dateString.contains("finished-")) {
 
+					if (m_historicalBar.getReqId() == reqId) {
+						setLastPrice(m_historicalBar);
+						m_historicalBar.clear();
+					}
+					tradestrategy.getStrategyData().endBulkLoad();
+
 					CandleSeries candleSeries = tradestrategy.getStrategyData()
 							.getBaseCandleSeries();
 
@@ -2541,57 +2613,46 @@ public class TWSBrokerModel extends AbstractBrokerModel implements EWrapper {
 										.getContract(), tradestrategy
 										.getStrategy().getMarketData());
 							} else {
-								Contract contract = m_realTimeBarsRequests
-										.get(tradestrategy.getContract()
-												.hashCode());
-								contract.addTradestrategy(tradestrategy);
+								RealtimeBarActor actor = m_realTimeBarsRequests
+										.getRequest(tradestrategy.getContract()
+												.getIdContract());
+								actor.getContract().addTradestrategy(
+										tradestrategy);
+								actor.addTradestrategy(tradestrategy);
 							}
 						}
 					}
 
 				} else {
 
-					Date date = null;
 					/*
-					 * There is a bug in the TWS interface format for dates
-					 * should always be milli sec but when 1 day is selected as
-					 * the period the dates come through as yyyyMMdd.
+					 * The bars for a request arrive together, the bar is reset
+					 * when the next request starts. The bar time is checked
+					 * against the session in millis and the contracts price is
+					 * set once from the last bar when the request changes or
+					 * finishes.
 					 */
-					if (dateString.length() == 8) {
-						SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd");
-						date = sdf.parse(dateString);
-
-					} else {
-						date = TradingCalendar.getDate(Long
-								.parseLong(dateString) * 1000);
+					if (m_historicalBar.getReqId() != reqId) {
+						setLastPrice(m_historicalBar);
+						m_historicalBar.reset(reqId, tradestrategy);
 					}
+					m_historicalBar.set(dateString, close);
 
-					/*
-					 * For daily bars set the time to the open time.
-					 */
-					if (tradestrategy.getBarSize() > 3600) {
-						date = TradingCalendar.getSpecificTime(tradestrategy
-								.getTradingday().getOpen(), date);
-					}
-					if (tradestrategy.getTradingday().getClose().after(date)) {
+					if (tradestrategy.getTradingday().getClose().getTime() > m_historicalBar
+							.getTime()) {
 
 						if (backfillUseRTH == 1
-								&& !TradingCalendar.isMarketHours(tradestrategy
-										.getTradingday().getOpen(),
-										tradestrategy.getTradingday()
-												.getClose(), date))
+								&& !m_historicalBar.isMarketHours())
 							return;
-						BigDecimal price = (new BigDecimal(close)).setScale(
-								SCALE, BigDecimal.ROUND_HALF_EVEN);
-						tradestrategy.getStrategyData().getBaseCandleSeries()
-								.getContract().setLastAskPrice(price);
-						tradestrategy.getStrategyData().getBaseCandleSeries()
-								.getContract().setLastBidPrice(price);
-						tradestrategy.getStrategyData().getBaseCandleSeries()
-								.getContract().setLastPrice(price);
-						tradestrategy.getStrategyData().buildCandle(date, open,
-								high, low, close, volume, vwap, tradeCount, 1,
-								null);
+						/*
+						 * The bars are loaded as one bulk load that ends when
+						 * the finished message arrives.
+						 */
+						tradestrategy.getStrategyData().beginBulkLoad();
+						tradestrategy.getStrategyData().buildCandle(
+								m_historicalBar.getDate(), open, high, low,
+								close, volume, vwap, tradeCount, 1, null);
+						m_historicalBar.candleBuilt();
 					}
 				}
 			}
@@ -2600,6 +2661,25 @@ public class TWSBrokerModel extends AbstractBrokerModel implements EWrapper {
 		}
 	}
 
+	/**
+	 * Method setLastPrice. Set the contracts prices from the last bar that
+	 * built a candle for a historical data request.
+	 * 
+	 * @param bar
+	 *            BarRecord
+	 */
+	private void setLastPrice(BarRecord bar) {
+		if (null == bar.getTradestrategy() || bar.getCount() == 0)
+			return;
+		BigDecimal price = (new BigDecimal(bar.getLastClose())).setScale(
+				SCALE, BigDecimal.ROUND_HALF_EVEN);
+		Contract contract = bar.getTradestrategy().getStrategyData()
+				.getBaseCandleSeries().getContract();
+		contract.setLastAskPrice(price);
+		contract.setLastBidPrice(price);
+		contract.setLastPrice(price);
+	}
+
 	/**
 	 * Method scannerParameters.
 	 * 
@@ -2647,6 +2727,152 @@ public class TWSBrokerModel extends AbstractBrokerModel implements EWrapper {
 
 	}
 
+	/**
+	 * Method registerSizeGauge. Publish the number of pending requests in a
+	 * request registry.
+	 * 
+	 * @param name
+	 *            String
+	 * @param requests
+	 *            RequestRegistry<?,?>
+	 */
+	private static void registerSizeGauge(String name,
+			final RequestRegistry<?, ?> requests) {
+		MetricRegistry.gauge(name, new Gauge() {
+			public long getValue() {
+				return requests.size();
+			}
+		});
+	}
+
+	/**
+	 * Method registerSizeGauge. Publish the number of pending requests in a
+	 * request map.
+	 * 
+	 * @param name
+	 *            String
+	 * @param requests
+	 *            Map<?,?>
+	 */
+	private static void registerSizeGauge(String name, final Map<?, ?> requests) {
+		MetricRegistry.gauge(name, new Gauge() {
+			public long getValue() {
+				return requests.size();
+			}
+		});
+	}
+
+	/**
+	 * Method createRealtimeBarActor. Create the actor that passes the
+	 * contracts realtime bars to its tradestrategies.
+	 * 
+	 * @param contract
+	 *            Contract
+	 * @return RealtimeBarActor
+	 */
+	private RealtimeBarActor createRealtimeBarActor(final Contract contract) {
+		List<Tradestrategy> tradestrategies = null;
+		synchronized (contract.getTradestrategies()) {
+			tradestrategies = new ArrayList<Tradestrategy>(
+					contract.getTradestrategies());
+		}
+		return new RealtimeBarActor(contract, tradestrategies,
+				m_realtimeBarExecutor) {
+			protected boolean isMarketDataRunning(Contract contract) {
+				return TWSBrokerModel.this.isMarketDataRunning(contract);
+			}
+
+			/*
+			 * Copies of the candles waiting to be saved. They are saved one
+			 * at a time in the order the bars arrived.
+			 */
+			private final ConcurrentLinkedQueue<Candle> pendingCandles = new ConcurrentLinkedQueue<Candle>();
+			private final AtomicBoolean savingCandles = new AtomicBoolean(false);
+			private Candle savedCandle = null;
+
+			protected void candleCompleted(CandleItem candleItem)
+					throws Exception {
+				/*
+				 * The actor keeps building this candle so save a copy. Save on
+				 * the data access threads so the bars for this contract do not
+				 * wait for the database.
+				 */
+				pendingCandles.add((Candle) candleItem.getCandle().clone());
+				scheduleCandleSave();
+			}
+
+			/**
+			 * Method scheduleCandleSave. Only one save per contract is
+			 * submitted at a time.
+			 */
+			private void scheduleCandleSave() {
+				if (pendingCandles.isEmpty()
+						|| !savingCandles.compareAndSet(false, true))
+					return;
+				DataAccessExecutor.getInstance().submit(
+						DataAccessExecutor.CANDLE_WRITE, new Callable<Void>() {
+							public Void call() throws Exception {
+								try {
+									saveCandles();
+								} finally {
+									savingCandles.set(false);
+									scheduleCandleSave();
+								}
+								return null;
+							}
+						});
+			}
+
+			/**
+			 * Method saveCandles. A copy that is followed by a later copy of
+			 * the same candle is skipped. The id and version of the last save
+			 * are carried to the next copy of the same candle.
+			 */
+			private void saveCandles() {
+				Candle candle = null;
+				while (null != (candle = pendingCandles.poll())) {
+					Candle nextCandle = pendingCandles.peek();
+					if (null != nextCandle && isSameCandle(candle, nextCandle))
+						continue;
+					if (null != savedCandle
+							&& isSameCandle(candle, savedCandle)) {
+						candle.setIdCandle(savedCandle.getIdCandle());
+						candle.setVersion(savedCandle.getVersion());
+						candle.setTradingday(savedCandle.getTradingday());
+					}
+					try {
+						savedCandle = m_tradePersistentModel
+								.persistCandle(candle);
+					} catch (Exception ex) {
+						savedCandle = null;
+						error(ex);
+					}
+				}
+			}
+
+			/**
+			 * Method isSameCandle.
+			 * 
+			 * @param candle
+			 *            Candle
+			 * @param other
+			 *            Candle
+			 * @return boolean true if both are copies of the same period.
+			 */
+			private boolean isSameCandle(Candle candle, Candle other) {
+				return candle.getStartPeriod().equals(other.getStartPeriod())
+						&& candle.getBarSize().equals(other.getBarSize());
+			}
+
+			protected void error(Exception ex) {
+				Integer reqId = m_realTimeBarsRequests.getRequestId(contract
+						.getIdContract());
+				TWSBrokerModel.this.error((null == reqId ? 0 : reqId), 3270,
+						ex.getMessage());
+			}
+		};
+	}
+
 	/**
 	 * Method realtimeBar.
 	 * 
@@ -2677,61 +2903,17 @@ public class TWSBrokerModel extends AbstractBrokerModel implements EWrapper {
 		// Called when a candle finishes
 		try {
 
+			m_realtimeBarsReceived.inc();
 			volume = volume * 100;
-			Date date = TradingCalendar.getDate(time * 1000);
 
-			// Only store data that is during mkt hours
-			if (m_realTimeBarsRequests.containsKey(reqId)) {
-				Contract contract = m_realTimeBarsRequests.get(reqId);
-
-				synchronized (contract) {
-					Collections.sort(contract.getTradestrategies(),
-							Tradestrategy.TRADINGDAY_CONTRACT);
-					boolean updateCandleDB = true;
-					for (Tradestrategy tradestrategy : contract
-							.getTradestrategies()) {
-						StrategyData strategyData = tradestrategy
-								.getStrategyData();
-
-						if (TradingCalendar.isMarketHours(tradestrategy
-								.getTradingday().getOpen(), tradestrategy
-								.getTradingday().getClose(), date)) {
-
-							if (!this.isMarketDataRunning(contract)) {
-								BigDecimal price = (new BigDecimal(close))
-										.setScale(SCALE,
-												BigDecimal.ROUND_HALF_EVEN);
-								strategyData.getBaseCandleSeries()
-										.getContract().setLastAskPrice(price);
-								strategyData.getBaseCandleSeries()
-										.getContract().setLastBidPrice(price);
-								strategyData.getBaseCandleSeries()
-										.getContract().setLastPrice(price);
-							}
-							Date lastUpdateDate = new Date(
-									date.getTime() + 4999);
-
-							strategyData.buildCandle(date, open, high, low,
-									close, volume, vwap, tradeCount,
-									(tradestrategy.getBarSize() / 5),
-									lastUpdateDate);
-
-							if (!strategyData.getBaseCandleSeries().isEmpty()) {
-								CandleItem candleItem = (CandleItem) strategyData
-										.getBaseCandleSeries().getDataItem(
-												strategyData
-														.getBaseCandleSeries()
-														.getItemCount() - 1);
-								if (updateCandleDB) {
-									m_tradePersistentModel
-											.persistCandle(candleItem
-													.getCandle());
-									updateCandleDB = false;
-								}
-							}
-						}
-					}
-				}
+			/*
+			 * Hand the bar to the contracts actor, it fans the bar out to the
+			 * tradestrategies on its own thread.
+			 */
+			RealtimeBarActor actor = m_realTimeBarsRequests.get(reqId);
+			if (null != actor) {
+				actor.realtimeBar(time * 1000, open, high, low, close, volume,
+						vwap, tradeCount);
 			}
 		} catch (Exception ex) {
 			error(reqId, 3270, ex.getMessage());
@@ -0,0 +1,450 @@
+/* ===========================================================
+ * TradeManager : a application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.broker.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.trade.core.util.TradingCalendar;
+import org.trade.persistent.PersistentModel;
+import org.trade.persistent.PersistentModelException;
+import org.trade.persistent.dao.Candle;
+import org.trade.persistent.dao.Tradestrategy;
+import org.trade.persistent.dao.Tradingday;
+import org.trade.persistent.dao.Tradingdays;
+
+/**
+ * A read only cache of the candles the DBBroker replays. While the cache is
+ * open each contract/date range/barSize is read from the database once and the
+ * same Candle objects are shared by every DBBroker that replays them, this is
+ * used when the same tradestrategies are back tested many times e.g. a
+ * parameter sweep. The DBBroker only reads the candles so they are never
+ * changed once cached.
+ * 
+ * When the cache is opened for the tradingdays of a back test each contract
+ * has a rolling window of tradingdays. The window is read from the database
+ * once, from the first day of chart history to the last tradingday, and each
+ * DBBroker takes its tradingday and chart history from it. As each
+ * tradestrategy is released the days before the chart history of the
+ * contracts remaining tradestrategies are dropped, when none remain the
+ * contracts candles are dropped. Opening the cache for more tradingdays only
+ * reads the days that are not already held.
+ * 
+ * The cache is counted so nested open/close calls are allowed, the candles are
+ * released when the last user closes the cache.
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+public class BackTestCandleCache {
+
+	private static final ConcurrentHashMap<String, FutureTask<List<Candle>>> m_candles = new ConcurrentHashMap<String, FutureTask<List<Candle>>>();
+	private static final ConcurrentHashMap<String, CandleDays> m_candleDays = new ConcurrentHashMap<String, CandleDays>();
+	private static final AtomicInteger m_users = new AtomicInteger(0);
+	/*
+	 * The history start dates of the tradestrategies still to be released and
+	 * the last tradingday open per idContract.
+	 */
+	private static final Map<Integer, TreeMap<Long, Integer>> m_pending = new HashMap<Integer, TreeMap<Long, Integer>>();
+	private static final Map<Integer, Date> m_endOpen = new HashMap<Integer, Date>();
+
+	private BackTestCandleCache() {
+	}
+
+	/**
+	 * Method open. Start caching candles.
+	 */
+	public static void open() {
+		m_users.incrementAndGet();
+	}
+
+	/**
+	 * Method open. Start caching candles and hold a window of tradingdays per
+	 * contract for the tradestrategies in the tradingdays. If the cache is
+	 * already open the windows are widened to include these tradingdays.
+	 * 
+	 * @param tradingdays
+	 *            Tradingdays
+	 */
+	public static synchronized void open(Tradingdays tradingdays) {
+		m_users.incrementAndGet();
+		for (Tradingday tradingday : tradingdays.getTradingdays()) {
+			for (Tradestrategy tradestrategy : tradingday.getTradestrategies()) {
+				/*
+				 * Only the tradestrategies that are traded are replayed by a
+				 * DBBroker and released.
+				 */
+				if (!tradestrategy.getTrade())
+					continue;
+				Integer idContract = tradestrategy.getContract()
+						.getIdContract();
+				TreeMap<Long, Integer> pending = m_pending.get(idContract);
+				if (null == pending) {
+					pending = new TreeMap<Long, Integer>();
+					m_pending.put(idContract, pending);
+				}
+				Long historyStart = getHistoryStartDate(tradestrategy)
+						.getTime();
+				Integer count = pending.get(historyStart);
+				pending.put(historyStart, (null == count ? 1 : count + 1));
+				Date endOpen = m_endOpen.get(idContract);
+				if (null == endOpen || tradingday.getOpen().after(endOpen))
+					m_endOpen.put(idContract, tradingday.getOpen());
+			}
+		}
+	}
+
+	/**
+	 * Method release. The DBBroker for the tradestrategy has finished with
+	 * its candles. The contracts days that are no longer needed are dropped.
+	 * 
+	 * @param tradestrategy
+	 *            Tradestrategy
+	 */
+	public static synchronized void release(Tradestrategy tradestrategy) {
+		Integer idContract = tradestrategy.getContract().getIdContract();
+		TreeMap<Long, Integer> pending = m_pending.get(idContract);
+		if (null == pending)
+			return;
+		Long historyStart = getHistoryStartDate(tradestrategy).getTime();
+		Integer count = pending.get(historyStart);
+		if (null == count)
+			return;
+		if (count > 1) {
+			pending.put(historyStart, count - 1);
+			return;
+		}
+		pending.remove(historyStart);
+		if (pending.isEmpty()) {
+			m_pending.remove(idContract);
+			m_endOpen.remove(idContract);
+		}
+		String prefix = idContract + "|";
+		for (String key : m_candleDays.keySet()) {
+			if (key.startsWith(prefix)) {
+				if (pending.isEmpty()) {
+					m_candleDays.remove(key);
+				} else {
+					m_candleDays.get(key).trim(pending.firstKey());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Method close. Stop caching candles, the candles are released when the
+	 * last user closes the cache.
+	 */
+	public static synchronized void close() {
+		if (m_users.decrementAndGet() <= 0) {
+			m_users.set(0);
+			m_pending.clear();
+			m_endOpen.clear();
+			m_candleDays.clear();
+			m_candles.clear();
+		}
+	}
+
+	/**
+	 * Method isOpen.
+	 * 
+	 * @return boolean
+	 */
+	public static boolean isOpen() {
+		return m_users.get() > 0;
+	}
+
+	/**
+	 * Method size. The number of contract/barSize windows and contract/date
+	 * range/barSize entries cached.
+	 * 
+	 * @return int
+	 */
+	public static int size() {
+		return m_candleDays.size() + m_candles.size();
+	}
+
+	/**
+	 * Method getHistoryStartDate. The first tradingday open of the chart
+	 * history the DBBroker loads before the tradestrategies tradingday.
+	 * 
+	 * @param tradestrategy
+	 *            Tradestrategy
+	 * @return Date
+	 */
+	public static Date getHistoryStartDate(Tradestrategy tradestrategy) {
+		Date endDate = TradingCalendar.getSpecificTime(tradestrategy
+				.getTradingday().getClose(), TradingCalendar
+				.getMostRecentTradingDay(tradestrategy.getTradingday()
+						.getClose()));
+		Date startDate = TradingCalendar.addDays(endDate,
+				(-1 * (tradestrategy.getChartDays() - 1)));
+		startDate = TradingCalendar.getMostRecentTradingDay(startDate);
+		return TradingCalendar.getSpecificTime(tradestrategy.getTradingday()
+				.getOpen(), startDate);
+	}
+
+	/**
+	 * Method findCandlesByContractDateRangeBarSize. If the contracts window
+	 * covers the date range the candles are taken from the window, if not the
+	 * date range is read and cached on its own. Returns a new list that the
+	 * caller is free to change, the candles in the list are shared and must
+	 * not be changed.
+	 * 
+	 * @param tradePersistentModel
+	 *            PersistentModel
+	 * @param idContract
+	 *            Integer
+	 * @param startOpen
+	 *            Date
+	 * @param endOpen
+	 *            Date
+	 * @param barSize
+	 *            Integer
+	 * @return List<Candle>
+	 * @throws PersistentModelException
+	 */
+	public static List<Candle> findCandlesByContractDateRangeBarSize(
+			final PersistentModel tradePersistentModel,
+			final Integer idContract, final Date startOpen,
+			final Date endOpen, final Integer barSize)
+			throws PersistentModelException {
+
+		if (!isOpen()) {
+			return tradePersistentModel.findCandlesByContractDateRangeBarSize(
+					idContract, startOpen, endOpen, barSize);
+		}
+
+		Date windowStart = null;
+		Date windowEnd = null;
+		CandleDays candleDays = null;
+		synchronized (BackTestCandleCache.class) {
+			TreeMap<Long, Integer> pending = m_pending.get(idContract);
+			if (null != pending
+					&& startOpen.getTime() >= pending.firstKey()
+					&& !endOpen.after(m_endOpen.get(idContract))) {
+				windowStart = new Date(pending.firstKey());
+				windowEnd = m_endOpen.get(idContract);
+				String key = idContract + "|" + barSize;
+				candleDays = m_candleDays.get(key);
+				if (null == candleDays) {
+					candleDays = new CandleDays();
+					m_candleDays.put(key, candleDays);
+				}
+			}
+		}
+		if (null != candleDays) {
+			/*
+			 * The first DBBroker that needs the contract/barSize reads the
+			 * window, any others wait for that read.
+			 */
+			candleDays.read(tradePersistentModel, idContract, windowStart,
+					windowEnd, barSize);
+			return candleDays.getCandles(startOpen, endOpen);
+		}
+
+		String key = idContract + "|" + startOpen.getTime() + "|"
+				+ endOpen.getTime() + "|" + barSize;
+		FutureTask<List<Candle>> task = m_candles.get(key);
+		if (null == task) {
+			FutureTask<List<Candle>> newTask = new FutureTask<List<Candle>>(
+					new Callable<List<Candle>>() {
+						public List<Candle> call() throws Exception {
+							return Collections
+									.unmodifiableList(tradePersistentModel
+											.findCandlesByContractDateRangeBarSize(
+													idContract, startOpen,
+													endOpen, barSize));
+						}
+					});
+			task = m_candles.putIfAbsent(key, newTask);
+			if (null == task) {
+				task = newTask;
+				task.run();
+			}
+		}
+		try {
+			return new ArrayList<Candle>(task.get());
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new PersistentModelException(
+					"Interrupted reading candles for idContract: "
+							+ idContract);
+		} catch (ExecutionException ex) {
+			m_candles.remove(key, task);
+			if (ex.getCause() instanceof PersistentModelException)
+				throw (PersistentModelException) ex.getCause();
+			throw new PersistentModelException(
+					"Error reading candles for idContract: " + idContract
+							+ " Msg: " + ex.getCause().getMessage());
+		}
+	}
+
+	/**
+	 * Method getDayCount. The number of tradingdays held for the
+	 * contract/barSize.
+	 * 
+	 * @param idContract
+	 *            Integer
+	 * @param barSize
+	 *            Integer
+	 * @return int
+	 */
+	static int getDayCount(Integer idContract, Integer barSize) {
+		CandleDays candleDays = m_candleDays.get(idContract + "|" + barSize);
+		if (null == candleDays)
+			return 0;
+		return candleDays.days.size();
+	}
+
+	/**
+	 * The candles for a contract/barSize by tradingday open. The days from
+	 * start to end have been read, days with no candles have no entry.
+	 */
+	private static class CandleDays {
+
+		private final ConcurrentSkipListMap<Long, List<Candle>> days = new ConcurrentSkipListMap<Long, List<Candle>>();
+		private Date start = null;
+		private Date end = null;
+
+		/**
+		 * Method read. Read the days from startOpen to endOpen that are not
+		 * already held.
+		 * 
+		 * @param tradePersistentModel
+		 *            PersistentModel
+		 * @param idContract
+		 *            Integer
+		 * @param startOpen
+		 *            Date
+		 * @param endOpen
+		 *            Date
+		 * @param barSize
+		 *            Integer
+		 * @throws PersistentModelException
+		 */
+		synchronized void read(PersistentModel tradePersistentModel,
+				Integer idContract, Date startOpen, Date endOpen,
+				Integer barSize) throws PersistentModelException {
+			if (null == this.start) {
+				add(tradePersistentModel.findCandlesByContractDateRangeBarSize(
+						idContract, startOpen, endOpen, barSize));
+				this.start = startOpen;
+				this.end = endOpen;
+				return;
+			}
+			if (startOpen.before(this.start)) {
+				add(tradePersistentModel.findCandlesByContractDateRangeBarSize(
+						idContract, startOpen,
+						new Date(this.start.getTime() - 1), barSize));
+				this.start = startOpen;
+			}
+			if (endOpen.after(this.end)) {
+				add(tradePersistentModel.findCandlesByContractDateRangeBarSize(
+						idContract, new Date(this.end.getTime() + 1),
+						endOpen, barSize));
+				this.end = endOpen;
+			}
+		}
+
+		/**
+		 * Method trim. Drop the days before startOpen.
+		 * 
+		 * @param startOpen
+		 *            long
+		 */
+		synchronized void trim(long startOpen) {
+			this.days.headMap(startOpen).clear();
+			if (null != this.start && this.start.getTime() < startOpen)
+				this.start = new Date(startOpen);
+		}
+
+		/**
+		 * Method getCandles.
+		 * 
+		 * @param startOpen
+		 *            Date
+		 * @param endOpen
+		 *            Date
+		 * @return List<Candle> the candles whose tradingday open is from
+		 *         startOpen to endOpen.
+		 */
+		List<Candle> getCandles(Date startOpen, Date endOpen) {
+			List<Candle> candles = new ArrayList<Candle>();
+			for (List<Candle> day : this.days.subMap(startOpen.getTime(),
+					true, endOpen.getTime(), true).values()) {
+				candles.addAll(day);
+			}
+			return candles;
+		}
+
+		/**
+		 * Method add. The candles are in startPeriod order so each days
+		 * candles stay in order.
+		 * 
+		 * @param candles
+		 *            List<Candle>
+		 */
+		private void add(List<Candle> candles) {
+			Map<Long, List<Candle>> items = new LinkedHashMap<Long, List<Candle>>();
+			for (Candle candle : candles) {
+				Long open = candle.getTradingday().getOpen().getTime();
+				List<Candle> day = items.get(open);
+				if (null == day) {
+					day = new ArrayList<Candle>();
+					items.put(open, day);
+				}
+				day.add(candle);
+			}
+			for (Map.Entry<Long, List<Candle>> item : items.entrySet()) {
+				this.days.put(item.getKey(),
+						Collections.unmodifiableList(item.getValue()));
+			}
+		}
+	}
+}
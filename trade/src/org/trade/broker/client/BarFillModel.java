@@ -0,0 +1,449 @@
+/* ===========================================================
+ * TradeManager : a application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.broker.client;
+
+import java.math.BigDecimal;
+
+import org.trade.core.properties.ConfigProperties;
+import org.trade.core.util.PriceTicks;
+import org.trade.dictionary.valuetype.Action;
+import org.trade.dictionary.valuetype.OrderType;
+import org.trade.persistent.dao.Candle;
+import org.trade.persistent.dao.TradeOrder;
+
+/**
+ * The default FillModel. Orders are filled at the price the candle reaches
+ * them, or at the open if the candle gaps through them. The quantity filled
+ * on a candle is limited to a share of the candle volume so large orders fill
+ * over several candles. When trade.backtest.barSize is set the trading day is
+ * replayed from the smaller candles so the fills use those candles.
+ * 
+ * The settings are read from the config properties:
+ * 
+ * trade.backtest.fill.participation share of the candle volume an order can
+ * fill default 1.
+ * 
+ * trade.backtest.fill.participation.market true if MKT orders are also
+ * limited by the participation, false to always fill them completely at the
+ * close default false.
+ * 
+ * trade.backtest.fill.touchRatio share of that volume filled when the candle
+ * only touches a limit price as the order is likely at the back of the queue
+ * default 1.
+ * 
+ * trade.backtest.fill.slippage amount per share added against MKT and STP
+ * fills default 0.
+ * 
+ * trade.backtest.fill.nearestExtremeFirst true if the candle is assumed to
+ * reach the high or low nearest the open first, false to use the direction
+ * of the candle default false.
+ * 
+ * trade.backtest.commission.perShare and trade.backtest.commission.minimum
+ * default 0.005 and 1.
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+public class BarFillModel implements FillModel {
+
+	private double participation = 1;
+	private boolean marketParticipation = false;
+	private double touchRatio = 1;
+	/*
+	 * The slippage in ticks.
+	 */
+	private long slippage = 0;
+	private boolean nearestExtremeFirst = false;
+	private double commissionPerShare = 0.005d;
+	private double minimumCommission = 1;
+	/*
+	 * The prices in ticks of the last candle. A DBBroker fills all its open
+	 * orders against the same candle so they are converted once per candle.
+	 */
+	private Candle tickCandle = null;
+	private long openTicks = 0;
+	private long highTicks = 0;
+	private long lowTicks = 0;
+	private long closeTicks = 0;
+
+	/**
+	 * Constructor for BarFillModel. Reads the settings from the config
+	 * properties, any that are not set use the default.
+	 */
+	public BarFillModel() {
+		this.participation = getPropAsDouble(
+				"trade.backtest.fill.participation", this.participation);
+		this.touchRatio = getPropAsDouble("trade.backtest.fill.touchRatio",
+				this.touchRatio);
+		this.slippage = PriceTicks.valueOf(getPropAsDouble(
+				"trade.backtest.fill.slippage", 0));
+		try {
+			this.nearestExtremeFirst = ConfigProperties
+					.getPropAsBoolean("trade.backtest.fill.nearestExtremeFirst");
+		} catch (Exception ex) {
+			// Do nothing use the default.
+		}
+		try {
+			this.marketParticipation = ConfigProperties
+					.getPropAsBoolean("trade.backtest.fill.participation.market");
+		} catch (Exception ex) {
+			// Do nothing use the default.
+		}
+		this.commissionPerShare = getPropAsDouble(
+				"trade.backtest.commission.perShare", this.commissionPerShare);
+		this.minimumCommission = getPropAsDouble(
+				"trade.backtest.commission.minimum", this.minimumCommission);
+	}
+
+	/**
+	 * Constructor for BarFillModel. MKT orders are filled completely.
+	 * 
+	 * @param participation
+	 *            double
+	 * @param touchRatio
+	 *            double
+	 * @param slippage
+	 *            BigDecimal
+	 * @param nearestExtremeFirst
+	 *            boolean
+	 * @param commissionPerShare
+	 *            double
+	 * @param minimumCommission
+	 *            double
+	 */
+	public BarFillModel(double participation, double touchRatio,
+			BigDecimal slippage, boolean nearestExtremeFirst,
+			double commissionPerShare, double minimumCommission) {
+		this(participation, false, touchRatio, slippage, nearestExtremeFirst,
+				commissionPerShare, minimumCommission);
+	}
+
+	/**
+	 * Constructor for BarFillModel.
+	 * 
+	 * @param participation
+	 *            double
+	 * @param marketParticipation
+	 *            boolean true if MKT orders are limited by the participation.
+	 * @param touchRatio
+	 *            double
+	 * @param slippage
+	 *            BigDecimal
+	 * @param nearestExtremeFirst
+	 *            boolean
+	 * @param commissionPerShare
+	 *            double
+	 * @param minimumCommission
+	 *            double
+	 */
+	public BarFillModel(double participation, boolean marketParticipation,
+			double touchRatio, BigDecimal slippage,
+			boolean nearestExtremeFirst, double commissionPerShare,
+			double minimumCommission) {
+		this.participation = participation;
+		this.marketParticipation = marketParticipation;
+		this.touchRatio = touchRatio;
+		this.slippage = PriceTicks.valueOf(slippage);
+		this.nearestExtremeFirst = nearestExtremeFirst;
+		this.commissionPerShare = commissionPerShare;
+		this.minimumCommission = minimumCommission;
+	}
+
+	/**
+	 * Method getFilledPrice.
+	 * 
+	 * @param order
+	 *            TradeOrder
+	 * @param candle
+	 *            Candle
+	 * @return BigDecimal
+	 * @see org.trade.broker.client.FillModel#getFilledPrice(TradeOrder,
+	 *      Candle)
+	 */
+	public BigDecimal getFilledPrice(TradeOrder order, Candle candle) {
+
+		/*
+		 * Use the close price for market orders as the candle has been
+		 * processed by the Strategy at this point.
+		 */
+		setCandleTicks(candle);
+		if (OrderType.MKT.equals(order.getOrderType()))
+			return addSlippage(order, candle.getClose(), this.closeTicks);
+
+		/*
+		 * The prices are compared in ticks, the filled price returned is the
+		 * candle or order price that was reached.
+		 */
+		long open = this.openTicks;
+		long high = this.highTicks;
+		long low = this.lowTicks;
+
+		if (Action.SELL.equals(order.getAction())) {
+			if (OrderType.STP.equals(order.getOrderType())
+					|| OrderType.TRAIL.equals(order.getOrderType())) {
+				long aux = PriceTicks.valueOf(order.getAuxPrice());
+				if (low <= aux) {
+					if (open <= aux) {
+						return addSlippage(order, candle.getOpen(), open);
+					}
+					return addSlippage(order, order.getAuxPrice(), aux);
+				}
+			} else if (OrderType.STPLMT.equals(order.getOrderType())
+					|| OrderType.TRAILLIMIT.equals(order.getOrderType())) {
+				long aux = PriceTicks.valueOf(order.getAuxPrice());
+				long limit = PriceTicks.valueOf(order.getLimitPrice());
+				if (low <= aux && high >= limit) {
+					if (open >= aux) {
+						return order.getAuxPrice();
+					} else {
+						if (PriceTicks.isBetween(aux, limit, open)) {
+							return candle.getOpen();
+						} else {
+							if (open <= limit) {
+								return order.getLimitPrice();
+							}
+						}
+					}
+				}
+			} else if (OrderType.LMT.equals(order.getOrderType())) {
+				long limit = PriceTicks.valueOf(order.getLimitPrice());
+				if (high >= limit) {
+					if (open >= limit) {
+						return candle.getOpen();
+					}
+					return order.getLimitPrice();
+				}
+			}
+
+		} else {
+			if (OrderType.STP.equals(order.getOrderType())
+					|| OrderType.TRAIL.equals(order.getOrderType())) {
+				long aux = PriceTicks.valueOf(order.getAuxPrice());
+				if (high >= aux) {
+					if (open >= aux) {
+						return addSlippage(order, candle.getOpen(), open);
+					}
+					return addSlippage(order, order.getAuxPrice(), aux);
+				}
+			} else if (OrderType.STPLMT.equals(order.getOrderType())
+					|| OrderType.TRAILLIMIT.equals(order.getOrderType())) {
+				long aux = PriceTicks.valueOf(order.getAuxPrice());
+				long limit = PriceTicks.valueOf(order.getLimitPrice());
+				if (high >= aux && low <= limit) {
+					if (open <= aux) {
+						return order.getAuxPrice();
+					} else {
+						if (PriceTicks.isBetween(aux, limit, open)) {
+							return candle.getOpen();
+						} else {
+							if (open >= limit) {
+								return order.getLimitPrice();
+							}
+						}
+					}
+				}
+
+			} else if (OrderType.LMT.equals(order.getOrderType())) {
+				long limit = PriceTicks.valueOf(order.getLimitPrice());
+				if (low <= limit) {
+					if (open <= limit) {
+						return candle.getOpen();
+					}
+					return order.getLimitPrice();
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Method getFilledQuantity. The quantity is limited by the participation
+	 * unless this is a MKT order and trade.backtest.fill.participation.market
+	 * is false.
+	 * 
+	 * @param order
+	 *            TradeOrder
+	 * @param candle
+	 *            Candle
+	 * @param filledPrice
+	 *            BigDecimal
+	 * @param remainingQuantity
+	 *            int
+	 * @return int
+	 * @see org.trade.broker.client.FillModel#getFilledQuantity(TradeOrder,
+	 *      Candle, BigDecimal, int)
+	 */
+	public int getFilledQuantity(TradeOrder order, Candle candle,
+			BigDecimal filledPrice, int remainingQuantity) {
+
+		if (!this.marketParticipation
+				&& OrderType.MKT.equals(order.getOrderType()))
+			return remainingQuantity;
+
+		double available = candle.getVolume() * this.participation;
+		if (isTouched(order, candle, filledPrice)) {
+			available = available * this.touchRatio;
+		}
+		if (available >= remainingQuantity)
+			return remainingQuantity;
+		return (int) Math.floor(available);
+	}
+
+	/**
+	 * Method isLowBeforeHigh.
+	 * 
+	 * @param candle
+	 *            Candle
+	 * @return boolean
+	 * @see org.trade.broker.client.FillModel#isLowBeforeHigh(Candle)
+	 */
+	public boolean isLowBeforeHigh(Candle candle) {
+		setCandleTicks(candle);
+		if (this.nearestExtremeFirst) {
+			return (this.openTicks - this.lowTicks) <= (this.highTicks
+					- this.openTicks);
+		}
+		return this.closeTicks > this.openTicks;
+	}
+
+	/**
+	 * Method getCommission.
+	 * 
+	 * @param order
+	 *            TradeOrder
+	 * @param quantity
+	 *            int
+	 * @return double
+	 * @see org.trade.broker.client.FillModel#getCommission(TradeOrder, int)
+	 */
+	public double getCommission(TradeOrder order, int quantity) {
+		double commission = quantity * this.commissionPerShare;
+		if (commission < this.minimumCommission) {
+			commission = this.minimumCommission;
+		}
+		return commission;
+	}
+
+	/**
+	 * Method isTouched. A limit order filled at its limit price on a candle
+	 * whose high (sell) or low (buy) is the limit price. i.e. the price did
+	 * not trade through the limit.
+	 * 
+	 * @param order
+	 *            TradeOrder
+	 * @param candle
+	 *            Candle
+	 * @param filledPrice
+	 *            BigDecimal
+	 * @return boolean
+	 */
+	private boolean isTouched(TradeOrder order, Candle candle,
+			BigDecimal filledPrice) {
+		if (null == order.getLimitPrice() || null == filledPrice)
+			return false;
+		long limit = PriceTicks.valueOf(order.getLimitPrice());
+		if (PriceTicks.valueOf(filledPrice) != limit)
+			return false;
+		if (OrderType.LMT.equals(order.getOrderType())
+				|| OrderType.STPLMT.equals(order.getOrderType())
+				|| OrderType.TRAILLIMIT.equals(order.getOrderType())) {
+			setCandleTicks(candle);
+			if (Action.SELL.equals(order.getAction())) {
+				return this.highTicks == limit;
+			}
+			return this.lowTicks == limit;
+		}
+		return false;
+	}
+
+	/**
+	 * Method addSlippage. Move the price against the order by the slippage.
+	 * 
+	 * @param order
+	 *            TradeOrder
+	 * @param price
+	 *            BigDecimal
+	 * @param priceTicks
+	 *            long the price in ticks.
+	 * @return BigDecimal
+	 */
+	private BigDecimal addSlippage(TradeOrder order, BigDecimal price,
+			long priceTicks) {
+		if (this.slippage == 0)
+			return price;
+		if (Action.BUY.equals(order.getAction())) {
+			return PriceTicks.toBigDecimal(priceTicks + this.slippage);
+		}
+		return PriceTicks.toBigDecimal(priceTicks - this.slippage);
+	}
+
+	/**
+	 * Method setCandleTicks. Convert the candle prices to ticks unless they
+	 * are already held for this candle.
+	 * 
+	 * @param candle
+	 *            Candle
+	 */
+	private void setCandleTicks(Candle candle) {
+		if (candle == this.tickCandle)
+			return;
+		this.openTicks = PriceTicks.valueOf(candle.getOpen());
+		this.highTicks = PriceTicks.valueOf(candle.getHigh());
+		this.lowTicks = PriceTicks.valueOf(candle.getLow());
+		this.closeTicks = PriceTicks.valueOf(candle.getClose());
+		this.tickCandle = candle;
+	}
+
+	/**
+	 * Method getPropAsDouble.
+	 * 
+	 * @param key
+	 *            String
+	 * @param defaultValue
+	 *            double
+	 * @return double the property or the defaultValue if it is not set.
+	 */
+	private static double getPropAsDouble(String key, double defaultValue) {
+		try {
+			String value = ConfigProperties.getPropAsString(key);
+			if (null != value && value.trim().length() > 0)
+				return Double.parseDouble(value.trim());
+		} catch (Exception ex) {
+			// Do nothing use the default.
+		}
+		return defaultValue;
+	}
+}
@@ -0,0 +1,121 @@
+/* ===========================================================
+ * TradeManager : a application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.broker.client;
+
+import org.trade.strategy.data.CandleSeries;
+
+/**
+ * The candles for one contract/barSize/tradingday built once into a
+ * CandleSeries and shared by every tradestrategy that uses the contract as an
+ * indicator. Once the series is built it is never changed, the CandleSeries
+ * indicators are not updated by the StrategyData or cleared with the base
+ * candle dataset so it is safe to share between strategies.
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+public class CandleSnapshot {
+
+	private final String key;
+	private CandleSeries candleSeries = null;
+	private int references = 0;
+
+	/**
+	 * Constructor for CandleSnapshot.
+	 * 
+	 * @param key
+	 *            String
+	 */
+	CandleSnapshot(String key) {
+		this.key = key;
+	}
+
+	/**
+	 * Method getKey.
+	 * 
+	 * @return String
+	 */
+	public String getKey() {
+		return this.key;
+	}
+
+	/**
+	 * Method getCandleSeries.
+	 * 
+	 * @return CandleSeries null until the snapshot has been loaded.
+	 */
+	public synchronized CandleSeries getCandleSeries() {
+		return this.candleSeries;
+	}
+
+	/**
+	 * Method setCandleSeries.
+	 * 
+	 * @param candleSeries
+	 *            CandleSeries
+	 */
+	synchronized void setCandleSeries(CandleSeries candleSeries) {
+		this.candleSeries = candleSeries;
+	}
+
+	/**
+	 * Method getReferences.
+	 * 
+	 * @return int the number of users that have acquired this snapshot and
+	 *         not released it.
+	 */
+	public int getReferences() {
+		return this.references;
+	}
+
+	/**
+	 * Method addReference.
+	 * 
+	 * @return int
+	 */
+	int addReference() {
+		return ++this.references;
+	}
+
+	/**
+	 * Method removeReference.
+	 * 
+	 * @return int
+	 */
+	int removeReference() {
+		return --this.references;
+	}
+}
@@ -0,0 +1,242 @@
+/* ===========================================================
+ * TradeManager : a application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.broker.client;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+
+import org.trade.persistent.PersistentModel;
+import org.trade.persistent.PersistentModelException;
+import org.trade.persistent.dao.Candle;
+import org.trade.persistent.dao.Contract;
+import org.trade.persistent.dao.Portfolio;
+import org.trade.persistent.dao.Strategy;
+import org.trade.persistent.dao.Tradestrategy;
+import org.trade.persistent.dao.Tradingday;
+import org.trade.strategy.data.CandleDataset;
+import org.trade.strategy.data.CandleSeries;
+
+/**
+ * Holds the CandleSnapshots for the indicator contracts (e.g. SPY, ES) used by
+ * the tradestrategies in a back test. Each contract/barSize/tradingday is
+ * read from the database and built into a CandleSeries once, every DBBroker
+ * that needs it acquires the same snapshot and releases it when done. The
+ * snapshot is dropped from the store when the last user releases it. Users
+ * that add the series to a CandleDataset release it with that dataset so the
+ * shared series does not keep a listener for every strategy that used it.
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+public class CandleSnapshotStore {
+
+	private static final HashMap<String, CandleSnapshot> m_snapshots = new HashMap<String, CandleSnapshot>();
+
+	private CandleSnapshotStore() {
+	}
+
+	/**
+	 * Method acquire. Get the snapshot for the contract/barSize/tradingday
+	 * loading it if this is the first user. The display settings of the series
+	 * are taken from the template series of the first user. Every call must be
+	 * matched by a call to release.
+	 * 
+	 * @param tradePersistentModel
+	 *            PersistentModel
+	 * @param contract
+	 *            Contract the indicator contract.
+	 * @param tradingday
+	 *            Tradingday
+	 * @param barSize
+	 *            Integer
+	 * @param chartDays
+	 *            Integer
+	 * @param portfolio
+	 *            Portfolio
+	 * @param template
+	 *            CandleSeries the indicator series from the strategy.
+	 * @return CandleSnapshot
+	 * @throws PersistentModelException
+	 */
+	public static CandleSnapshot acquire(PersistentModel tradePersistentModel,
+			Contract contract, Tradingday tradingday, Integer barSize,
+			Integer chartDays, Portfolio portfolio, CandleSeries template)
+			throws PersistentModelException {
+
+		String key = getKey(contract, barSize, tradingday);
+		CandleSnapshot snapshot = null;
+		synchronized (m_snapshots) {
+			snapshot = m_snapshots.get(key);
+			if (null == snapshot) {
+				snapshot = new CandleSnapshot(key);
+				m_snapshots.put(key, snapshot);
+			}
+			snapshot.addReference();
+		}
+
+		/*
+		 * Load outside the store lock so different contracts load in
+		 * parallel, users of the same contract wait for the first to load.
+		 */
+		synchronized (snapshot) {
+			if (null == snapshot.getCandleSeries()) {
+				try {
+					snapshot.setCandleSeries(createCandleSeries(
+							tradePersistentModel, contract, tradingday,
+							barSize, chartDays, portfolio, template));
+				} catch (PersistentModelException ex) {
+					release(snapshot);
+					throw ex;
+				}
+			}
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Method release.
+	 * 
+	 * @param snapshot
+	 *            CandleSnapshot
+	 */
+	public static void release(CandleSnapshot snapshot) {
+		synchronized (m_snapshots) {
+			if (snapshot.removeReference() <= 0) {
+				if (snapshot == m_snapshots.get(snapshot.getKey()))
+					m_snapshots.remove(snapshot.getKey());
+			}
+		}
+	}
+
+	/**
+	 * Method release. Remove the dataset from the listeners of the shared
+	 * series then release the snapshot.
+	 * 
+	 * @param snapshot
+	 *            CandleSnapshot
+	 * @param candleDataset
+	 *            CandleDataset the dataset the series was added to or null.
+	 */
+	public static void release(CandleSnapshot snapshot,
+			CandleDataset candleDataset) {
+		CandleSeries candleSeries = snapshot.getCandleSeries();
+		if (null != candleSeries && null != candleDataset)
+			candleSeries.removeChangeListener(candleDataset);
+		release(snapshot);
+	}
+
+	/**
+	 * Method size.
+	 * 
+	 * @return int the number of snapshots held.
+	 */
+	public static int size() {
+		synchronized (m_snapshots) {
+			return m_snapshots.size();
+		}
+	}
+
+	/**
+	 * Method getKey.
+	 * 
+	 * @param contract
+	 *            Contract
+	 * @param barSize
+	 *            Integer
+	 * @param tradingday
+	 *            Tradingday
+	 * @return String
+	 */
+	public static String getKey(Contract contract, Integer barSize,
+			Tradingday tradingday) {
+		return contract.getIdContract() + "|" + barSize + "|"
+				+ tradingday.getOpen().getTime();
+	}
+
+	/**
+	 * Method createCandleSeries. Build the series via a child tradestrategy
+	 * for the indicator contract in the same way as the strategies base
+	 * series.
+	 * 
+	 * @param tradePersistentModel
+	 *            PersistentModel
+	 * @param contract
+	 *            Contract
+	 * @param tradingday
+	 *            Tradingday
+	 * @param barSize
+	 *            Integer
+	 * @param chartDays
+	 *            Integer
+	 * @param portfolio
+	 *            Portfolio
+	 * @param template
+	 *            CandleSeries
+	 * @return CandleSeries
+	 * @throws PersistentModelException
+	 */
+	private static CandleSeries createCandleSeries(
+			PersistentModel tradePersistentModel, Contract contract,
+			Tradingday tradingday, Integer barSize, Integer chartDays,
+			Portfolio portfolio, CandleSeries template)
+			throws PersistentModelException {
+
+		Tradestrategy childTradestrategy = new Tradestrategy(contract,
+				tradingday, new Strategy(), portfolio, new BigDecimal(0), null,
+				null, false, chartDays, barSize);
+		childTradestrategy.setDirty(false);
+
+		List<Candle> indicatorCandles = tradePersistentModel
+				.findCandlesByContractDateRangeBarSize(
+						contract.getIdContract(), tradingday.getOpen(),
+						tradingday.getOpen(), barSize);
+		CandleDataset.populateSeries(childTradestrategy.getStrategyData(),
+				indicatorCandles);
+		indicatorCandles.clear();
+
+		CandleSeries childSeries = childTradestrategy.getStrategyData()
+				.getBaseCandleSeries();
+		childSeries.setDisplaySeries(template.getDisplaySeries());
+		childSeries.setSeriesRGBColor(template.getSeriesRGBColor());
+		childSeries.setSubChart(template.getSubChart());
+		childSeries.setSymbol(template.getSymbol());
+		childSeries.setSecType(template.getSecType());
+		childSeries.setCurrency(template.getCurrency());
+		childSeries.setExchange(template.getExchange());
+		return childSeries;
+	}
+}
@@ -82,7 +82,8 @@ public class ClientSocket {
 				YahooBroker yahooBroker = new YahooBroker(reqId,
 						tradestrategy.getContract(), endDateTime, durationStr,
 						barSizeSetting, m_client);
-				m_backTestBroker.put(reqId, yahooBroker);
+				m_backTestBroker.put(tradestrategy.getIdTradeStrategy(),
+						yahooBroker);
 				yahooBroker.execute();
 
 			} else {
@@ -91,7 +92,8 @@ public class ClientSocket {
 					DBBroker backTestBroker = new DBBroker(
 							tradestrategy.getStrategyData(),
 							tradestrategy.getIdTradeStrategy(), m_client);
-					m_backTestBroker.put(reqId, backTestBroker);
+					m_backTestBroker.put(tradestrategy.getIdTradeStrategy(),
+							backTestBroker);
 					backTestBroker.execute();
 				}
 				m_client.historicalData(reqId,
@@ -112,12 +114,12 @@ public class ClientSocket {
 	 */
 
 	public void removeBackTestBroker(Tradestrategy tradestrategy) {
-		Integer reqId = tradestrategy.hashCode();
+		Integer idTradeStrategy = tradestrategy.getIdTradeStrategy();
 		synchronized (m_backTestBroker) {
-			Broker worker = m_backTestBroker.get(reqId);
+			Broker worker = m_backTestBroker.get(idTradeStrategy);
 			if (null != worker) {
 				if (worker.isDone() || worker.isCancelled()) {
-					m_backTestBroker.remove(reqId);
+					m_backTestBroker.remove(idTradeStrategy);
 				}
 			}
 		}
@@ -133,7 +135,7 @@ public class ClientSocket {
 	 */
 
 	public Broker getBackTestBroker(Tradestrategy tradestrategy) {
-		return m_backTestBroker.get(tradestrategy.hashCode());
+		return m_backTestBroker.get(tradestrategy.getIdTradeStrategy());
 	}
 
 	/**
@@ -46,8 +46,11 @@ import java.util.TimeZone;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.trade.core.factory.ClassFactory;
+import org.trade.core.metrics.Counter;
+import org.trade.core.metrics.MetricRegistry;
+import org.trade.core.metrics.Timer;
 import org.trade.core.properties.ConfigProperties;
-import org.trade.core.util.CoreUtils;
+import org.trade.core.util.PriceTicks;
 import org.trade.core.util.TradingCalendar;
 import org.trade.dictionary.valuetype.Action;
 import org.trade.dictionary.valuetype.OrderStatus;
@@ -58,7 +61,6 @@ import org.trade.persistent.PersistentModelException;
 import org.trade.persistent.dao.Candle;
 import org.trade.persistent.dao.Contract;
 import org.trade.persistent.dao.TradestrategyOrders;
-import org.trade.persistent.dao.Strategy;
 import org.trade.persistent.dao.TradeOrder;
 import org.trade.persistent.dao.TradeOrderfill;
 import org.trade.persistent.dao.Tradestrategy;
@@ -74,15 +76,22 @@ public class DBBroker extends Broker {
 
 	private final static Logger _log = LoggerFactory.getLogger(DBBroker.class);
 
+	private static final Counter m_candlesReplayed = MetricRegistry
+			.counter("broker.backtest.candles");
+	private static final Timer m_strategyWait = MetricRegistry
+			.timer("broker.backtest.strategyWait");
+
 	private PersistentModel tradePersistentModel = null;
 	private StrategyData strategyData = null;
 	private Tradestrategy tradestrategy = null;
 	private Integer idTradestrategy = null;
 	private ClientWrapper brokerModel = null;
+	private FillModel fillModel = null;
 	private BigDecimal trailAmount = null;
 	private BigDecimal trailLimitOffsetAmount = null;
 
 	private long execId = new Date().getTime();
+	private final List<CandleSnapshot> candleSnapshots = new ArrayList<CandleSnapshot>();
 
 	private static final SimpleDateFormat _sdfLocal = new SimpleDateFormat(
 			"yyyyMMdd HH:mm:ss");
@@ -117,6 +126,19 @@ public class DBBroker extends Broker {
 		this.strategyData = strategyData;
 	}
 
+	/**
+	 * Constructor for DBBroker. Only fills orders via filledOrders().
+	 * 
+	 * @param brokerModel
+	 *            ClientWrapper
+	 * @param fillModel
+	 *            FillModel
+	 */
+	DBBroker(ClientWrapper brokerModel, FillModel fillModel) {
+		this.brokerModel = brokerModel;
+		this.fillModel = fillModel;
+	}
+
 	/**
 	 * Method doInBackground.
 	 * 
@@ -129,6 +151,13 @@ public class DBBroker extends Broker {
 			this.tradePersistentModel = (PersistentModel) ClassFactory
 					.getServiceForInterface(PersistentModel._persistentModel,
 							this);
+			try {
+				this.fillModel = (FillModel) ClassFactory
+						.getServiceForInterface(FillModel._fillModel, this);
+			} catch (Exception ex) {
+				// Not set use the default.
+				this.fillModel = new BarFillModel();
+			}
 			this.tradestrategy = this.tradePersistentModel
 					.findTradestrategyById(this.idTradestrategy);
 			this.strategyData.clearBaseCandleDataset();
@@ -138,11 +167,8 @@ public class DBBroker extends Broker {
 					.getTradingday().getClose(), TradingCalendar
 					.getMostRecentTradingDay(tradestrategy.getTradingday()
 							.getClose()));
-			Date startDate = TradingCalendar.addDays(endDate,
-					(-1 * (tradestrategy.getChartDays() - 1)));
-			startDate = TradingCalendar.getMostRecentTradingDay(startDate);
-			startDate = TradingCalendar.getSpecificTime(tradestrategy
-					.getTradingday().getOpen(), startDate);
+			Date startDate = BackTestCandleCache
+					.getHistoryStartDate(this.tradestrategy);
 
 			List<Candle> candlesTradingday = new ArrayList<Candle>();
 			endDate = TradingCalendar.addBusinessDays(endDate, -1);
@@ -241,10 +267,12 @@ public class DBBroker extends Broker {
 						candle.getVwap().doubleValue(), candle.getTradeCount(),
 						this.tradestrategy.getBarSize() / candle.getBarSize(),
 						candle.getLastUpdateDate());
+				m_candlesReplayed.inc();
 
 				/*
 				 * Wait for the candle to be processed by the strategy.
 				 */
+				long waitStart = m_strategyWait.start();
 				synchronized (lockBackTestWorker) {
 					/*
 					 * Wait for the rule to be completed by the strategy. note
@@ -255,6 +283,7 @@ public class DBBroker extends Broker {
 						lockBackTestWorker.wait();
 					}
 				}
+				m_strategyWait.stop(waitStart);
 				if (candle.getStartPeriod().before(
 						this.tradestrategy.getTradingday().getOpen()))
 					continue;
@@ -351,8 +380,16 @@ public class DBBroker extends Broker {
 	}
 
 	public void done() {
+		BackTestCandleCache.release(this.tradestrategy);
 		brokerModel.onCancelRealtimeBars(this.tradestrategy);
 		brokerModel.onCancelBrokerData(this.tradestrategy);
+		CandleDataset candleDataset = (CandleDataset) this.tradestrategy
+				.getStrategyData().getIndicatorByType(
+						IndicatorSeries.CandleSeries);
+		for (CandleSnapshot snapshot : this.candleSnapshots) {
+			CandleSnapshotStore.release(snapshot, candleDataset);
+		}
+		this.candleSnapshots.clear();
 		// Free some memory!!
 		this.tradestrategy.getStrategyData().clearBaseCandleDataset();
 		this.tradestrategy.setStrategyData(null);
@@ -363,7 +400,9 @@ public class DBBroker extends Broker {
 	}
 
 	/**
-	 * Method filledOrders.
+	 * Method filledOrders. When one side of an OCA group is partially filled
+	 * the other side is reduced by the same quantity, it is only cancelled
+	 * once the first side is completely filled.
 	 * 
 	 * @param contract
 	 *            Contract
@@ -374,7 +413,7 @@ public class DBBroker extends Broker {
 	 * @return boolean
 	 * @throws Exception
 	 */
-	private boolean filledOrders(Contract contract,
+	boolean filledOrders(Contract contract,
 			TradestrategyOrders positionOrders, Candle candle) throws Exception {
 
 		boolean orderfilled = false;
@@ -396,74 +435,59 @@ public class DBBroker extends Broker {
 			}
 		}
 		for (TradeOrder order : positionOrders.getTradeOrders()) {
-			if (OrderStatus.SUBMITTED.equals(order.getStatus())
-					&& order.getTransmit()) {
+			/*
+			 * Dirty orders have been filled or changed by an OCA fill on this
+			 * candle.
+			 */
+			if ((OrderStatus.SUBMITTED.equals(order.getStatus()) || OrderStatus.PARTIALFILLED
+					.equals(order.getStatus()))
+					&& order.getTransmit()
+					&& !order.isDirty()) {
 
 				BigDecimal filledPrice = getFilledPrice(order, candle);
-				if (null != filledPrice) {
+				int filledQuantity = getFilledQuantity(order, candle,
+						filledPrice);
+				if (filledQuantity > 0) {
 					if (!orderfilled)
 						orderfilled = true;
 
 					if (null == order.getOcaGroupName()) {
 						createOrderExecution(contract, order, filledPrice,
-								candle.getStartPeriod());
+								filledQuantity, candle.getStartPeriod());
 					} else {
-						// If OCA cancel other side
-						for (TradeOrder orderOCA : positionOrders
-								.getTradeOrders()) {
-							if (orderOCA.isDirty())
-								continue;
-
-							if (order.getOcaGroupName().equals(
-									orderOCA.getOcaGroupName())
-									&& !order.getOrderKey().equals(
-											orderOCA.getOrderKey())
-									&& !orderOCA.getIsFilled()) {
-								BigDecimal orderOCAFilledPrice = getFilledPrice(
-										orderOCA, candle);
-
-								if (null != orderOCAFilledPrice) {
-									/*
-									 * Other side of order could have been
-									 * filled on this bar also. So assume the if
-									 * a green bar we went open/low/high/close.
-									 */
-									if (candle.getClose().compareTo(
-											candle.getOpen()) > 0) {
-										// Green bar
-										if (filledPrice
-												.compareTo(orderOCAFilledPrice) > 0) {
-											cancelOrder(contract, order);
-											order.setDirty(true);
-											createOrderExecution(contract,
-													orderOCA,
-													orderOCAFilledPrice,
-													candle.getStartPeriod());
-											orderOCA.setDirty(true);
-											break;
-										}
-									} else {
-										if (filledPrice
-												.compareTo(orderOCAFilledPrice) < 0) {
-											cancelOrder(contract, order);
-											order.setDirty(true);
-											createOrderExecution(contract,
-													orderOCA,
-													orderOCAFilledPrice,
-													candle.getStartPeriod());
-											orderOCA.setDirty(true);
-											break;
-										}
-									}
-								}
-								cancelOrder(contract, orderOCA);
-								orderOCA.setDirty(true);
-								createOrderExecution(contract, order,
-										filledPrice, candle.getStartPeriod());
-								order.setDirty(true);
-								break;
+						TradeOrder filledOrder = order;
+						TradeOrder orderOCA = getOCAOrder(positionOrders,
+								order);
+						if (null != orderOCA) {
+							BigDecimal orderOCAFilledPrice = getFilledPrice(
+									orderOCA, candle);
+							int orderOCAFilledQuantity = getFilledQuantity(
+									orderOCA, candle, orderOCAFilledPrice);
+							/*
+							 * Other side of order could have been filled on
+							 * this bar also. So use the fill model to decide
+							 * if the low or high was reached first.
+							 */
+							if (orderOCAFilledQuantity > 0
+									&& (this.fillModel.isLowBeforeHigh(candle) ? filledPrice
+											.compareTo(orderOCAFilledPrice) > 0
+											: filledPrice
+													.compareTo(orderOCAFilledPrice) < 0)) {
+								filledOrder = orderOCA;
+								orderOCA = order;
+								filledPrice = orderOCAFilledPrice;
+								filledQuantity = orderOCAFilledQuantity;
 							}
 						}
+						createOrderExecution(contract, filledOrder,
+								filledPrice, filledQuantity,
+								candle.getStartPeriod());
+						filledOrder.setDirty(true);
+						if (null != orderOCA) {
+							reduceOCAOrder(contract, filledOrder, orderOCA,
+									filledQuantity);
+							orderOCA.setDirty(true);
+						}
 					}
 				}
 			}
@@ -471,6 +495,66 @@ public class DBBroker extends Broker {
 		return orderfilled;
 	}
 
+	/**
+	 * Method getOCAOrder. Find the working order on the other side of an OCA
+	 * group.
+	 * 
+	 * @param positionOrders
+	 *            TradestrategyOrders
+	 * @param order
+	 *            TradeOrder
+	 * @return TradeOrder null if there is none.
+	 */
+	private TradeOrder getOCAOrder(TradestrategyOrders positionOrders,
+			TradeOrder order) {
+		for (TradeOrder orderOCA : positionOrders.getTradeOrders()) {
+			if (orderOCA.isDirty()
+					|| OrderStatus.CANCELLED.equals(orderOCA.getStatus()))
+				continue;
+
+			if (order.getOcaGroupName().equals(orderOCA.getOcaGroupName())
+					&& !order.getOrderKey().equals(orderOCA.getOrderKey())
+					&& !orderOCA.getIsFilled()) {
+				return orderOCA;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Method reduceOCAOrder. An order in an OCA group has been filled. If it
+	 * is now completely filled the other side is cancelled, if not the other
+	 * side is reduced by the quantity filled so it still covers the position.
+	 * 
+	 * @param contract
+	 *            Contract
+	 * @param order
+	 *            TradeOrder the order that was filled.
+	 * @param orderOCA
+	 *            TradeOrder the other side of the OCA group.
+	 * @param filledQuantity
+	 *            int the quantity filled on this candle.
+	 * @throws IOException
+	 */
+	private void reduceOCAOrder(Contract contract, TradeOrder order,
+			TradeOrder orderOCA, int filledQuantity) throws IOException {
+		int orderFilled = (null == order.getFilledQuantity() ? 0 : order
+				.getFilledQuantity()) + filledQuantity;
+		int orderOCAFilled = (null == orderOCA.getFilledQuantity() ? 0
+				: orderOCA.getFilledQuantity());
+		int quantity = orderOCA.getQuantity() - filledQuantity;
+		if (orderFilled >= order.getQuantity() || quantity <= orderOCAFilled) {
+			cancelOrder(contract, orderOCA);
+			return;
+		}
+		orderOCA.setQuantity(quantity);
+		OrderState orderState = new OrderState();
+		orderState.m_status = (orderOCAFilled > 0 ? OrderStatus.PARTIALFILLED
+				: OrderStatus.SUBMITTED);
+		this.brokerModel.openOrder(orderOCA.getOrderKey(), contract,
+				orderOCA, orderState);
+	}
+
 	/**
 	 * Method getFilledPrice.
 	 * 
@@ -486,23 +570,6 @@ public class DBBroker extends Broker {
 			return null;
 		}
 
-		/*
-		 * Use the close price for market orders as the candle has been
-		 * processed by the Strategy at this point. Note assume mkt orders are
-		 * always filled.
-		 */
-		if (OrderType.MKT.equals(order.getOrderType()))
-			return candle.getClose();
-
-		/*
-		 * There must be enough volume to fill the unfilled quantity. For none
-		 * market orders.
-		 * 
-		 * TODO add logic to handle partial fills.
-		 */
-		if (candle.getVolume() < order.getQuantity())
-			return null;
-
 		/*
 		 * Set the AuxPrice to the trailing amount.
 		 */
@@ -569,15 +636,15 @@ public class DBBroker extends Broker {
 					}
 				}
 			}
-			BigDecimal avgFillPrice = null;
+			/*
+			 * The trail is moved in ticks as this is done for every candle.
+			 */
+			long close = PriceTicks.valueOf(candle.getClose());
+			long avgFillPrice = close;
 			if (order.hasTradePosition()) {
-				avgFillPrice = order
-						.getTradePosition()
-						.getTotalNetValue()
-						.divide(new BigDecimal(order.getTradePosition()
-								.getOpenQuantity()));
-			} else {
-				avgFillPrice = candle.getClose();
+				avgFillPrice = PriceTicks.valueOf(order.getTradePosition()
+						.getTotalNetValue())
+						/ order.getTradePosition().getOpenQuantity();
 			}
 
 			/*
@@ -587,105 +654,56 @@ public class DBBroker extends Broker {
 			 * when the order was first submitted. i.e candle.close - trail
 			 * amt/percent
 			 */
-			if (Action.SELL.equals(order.getAction())
-					&& (1 == candle.getClose().compareTo(avgFillPrice))) {
-				if (1 == candle.getClose().subtract(trailAmount)
-						.compareTo(order.getAuxPrice())) {
-					order.setAuxPrice(candle.getClose().subtract(trailAmount));
+			if (Action.SELL.equals(order.getAction()) && close > avgFillPrice) {
+				long trail = PriceTicks.valueOf(trailAmount);
+				if (close - trail > PriceTicks.valueOf(order.getAuxPrice())) {
+					order.setAuxPrice(PriceTicks.toBigDecimal(close - trail));
 					if (OrderType.TRAILLIMIT.equals(order.getOrderType())) {
-						order.setLimitPrice(candle.getClose().subtract(
-								trailAmount.subtract(trailLimitOffsetAmount)));
+						order.setLimitPrice(PriceTicks.toBigDecimal(close
+								- (trail - PriceTicks
+										.valueOf(trailLimitOffsetAmount))));
 					}
 				}
 			}
-			if (Action.BUY.equals(order.getAction())
-					&& (-1 == candle.getClose().compareTo(avgFillPrice))) {
-				if (-1 == candle.getClose().add(trailAmount)
-						.compareTo(order.getAuxPrice())) {
-					order.setAuxPrice(candle.getClose().add(trailAmount));
+			if (Action.BUY.equals(order.getAction()) && close < avgFillPrice) {
+				long trail = PriceTicks.valueOf(trailAmount);
+				if (close + trail < PriceTicks.valueOf(order.getAuxPrice())) {
+					order.setAuxPrice(PriceTicks.toBigDecimal(close + trail));
 					if (OrderType.TRAILLIMIT.equals(order.getOrderType())) {
-						order.setLimitPrice(candle.getClose().add(
-								trailAmount.add(trailLimitOffsetAmount)));
+						order.setLimitPrice(PriceTicks.toBigDecimal(close
+								+ trail
+								+ PriceTicks.valueOf(trailLimitOffsetAmount)));
 					}
 				}
 			}
 
 		}
 
-		if (Action.SELL.equals(order.getAction())) {
-			if (OrderType.STP.equals(order.getOrderType())
-					|| OrderType.TRAIL.equals(order.getOrderType())) {
-				if (candle.getLow().compareTo(order.getAuxPrice()) < 1) {
-					if (candle.getOpen().compareTo(order.getAuxPrice()) < 1) {
-						return candle.getOpen();
-					}
-					return order.getAuxPrice();
-				}
-			} else if (OrderType.STPLMT.equals(order.getOrderType())
-					|| OrderType.TRAILLIMIT.equals(order.getOrderType())) {
-				if (candle.getLow().compareTo(order.getAuxPrice()) < 1
-						&& candle.getHigh().compareTo(order.getLimitPrice()) > -1) {
-					if (candle.getOpen().compareTo(order.getAuxPrice()) > -1) {
-						return order.getAuxPrice();
-					} else {
-						if (CoreUtils.isBetween(order.getAuxPrice(),
-								order.getLimitPrice(), candle.getOpen())) {
-							return candle.getOpen();
-						} else {
-							if (candle.getOpen().compareTo(
-									order.getLimitPrice()) < 1) {
-								return order.getLimitPrice();
-							}
-						}
-					}
-				}
-			} else if (OrderType.LMT.equals(order.getOrderType())) {
-				if (candle.getHigh().compareTo(order.getLimitPrice()) > -1) {
-					if (candle.getOpen().compareTo(order.getLimitPrice()) > -1) {
-						return candle.getOpen();
-					}
-					return order.getLimitPrice();
-				}
-			}
-
-		} else {
-			if (OrderType.STP.equals(order.getOrderType())
-					|| OrderType.TRAIL.equals(order.getOrderType())) {
-				if (candle.getHigh().compareTo(order.getAuxPrice()) > -1) {
-					if (candle.getOpen().compareTo(order.getAuxPrice()) > -1) {
-						return candle.getOpen();
-					}
-					return order.getAuxPrice();
-				}
-			} else if (OrderType.STPLMT.equals(order.getOrderType())
-					|| OrderType.TRAILLIMIT.equals(order.getOrderType())) {
-				if (candle.getHigh().compareTo(order.getAuxPrice()) > -1
-						&& candle.getLow().compareTo(order.getLimitPrice()) < 1) {
-					if (candle.getOpen().compareTo(order.getAuxPrice()) < 1) {
-						return order.getAuxPrice();
-					} else {
-						if (CoreUtils.isBetween(order.getAuxPrice(),
-								order.getLimitPrice(), candle.getOpen())) {
-							return candle.getOpen();
-						} else {
-							if (candle.getOpen().compareTo(
-									order.getLimitPrice()) > -1) {
-								return order.getLimitPrice();
-							}
-						}
-					}
-				}
+		return this.fillModel.getFilledPrice(order, candle);
+	}
 
-			} else if (OrderType.LMT.equals(order.getOrderType())) {
-				if (candle.getLow().compareTo(order.getLimitPrice()) < 1) {
-					if (candle.getOpen().compareTo(order.getLimitPrice()) < 1) {
-						return candle.getOpen();
-					}
-					return order.getLimitPrice();
-				}
-			}
-		}
-		return null;
+	/**
+	 * Method getFilledQuantity.
+	 * 
+	 * @param order
+	 *            TradeOrder
+	 * @param candle
+	 *            Candle
+	 * @param filledPrice
+	 *            BigDecimal
+	 * @return int the quantity filled on this candle zero if none.
+	 */
+	private int getFilledQuantity(TradeOrder order, Candle candle,
+			BigDecimal filledPrice) {
+		if (null == filledPrice)
+			return 0;
+		int remainingQuantity = order.getQuantity()
+				- (null == order.getFilledQuantity() ? 0 : order
+						.getFilledQuantity());
+		if (remainingQuantity < 1)
+			return 0;
+		return this.fillModel.getFilledQuantity(order, candle, filledPrice,
+				remainingQuantity);
 	}
 
 	/**
@@ -697,23 +715,39 @@ public class DBBroker extends Broker {
 	 *            TradeOrder
 	 * @param filledPrice
 	 *            BigDecimal
+	 * @param quantity
+	 *            int
 	 * @param date
 	 *            Date
 	 * @throws IOException
 	 */
 	private void createOrderExecution(Contract contract, TradeOrder order,
-			BigDecimal filledPrice, Date date) throws IOException {
+			BigDecimal filledPrice, int quantity, Date date)
+			throws IOException {
+
+		double commission = this.fillModel.getCommission(order, quantity);
 
-		double commission = order.getQuantity() * 0.005d;
-		if (commission < 1) {
-			commission = 1;
+		/*
+		 * The order may have been partially filled on earlier candles.
+		 */
+		int previousQuantity = (null == order.getFilledQuantity() ? 0 : order
+				.getFilledQuantity());
+		int cumulativeQuantity = previousQuantity + quantity;
+		BigDecimal averagePrice = filledPrice;
+		if (previousQuantity > 0 && null != order.getAverageFilledPrice()) {
+			averagePrice = order
+					.getAverageFilledPrice()
+					.multiply(new BigDecimal(previousQuantity))
+					.add(filledPrice.multiply(new BigDecimal(quantity)))
+					.divide(new BigDecimal(cumulativeQuantity),
+							filledPrice.scale() + 4, BigDecimal.ROUND_HALF_EVEN);
 		}
 
 		TradeOrderfill execution = new TradeOrderfill();
 		execution.setTradeOrder(order);
-		execution.setAveragePrice(filledPrice);
+		execution.setAveragePrice(averagePrice);
 		execution.setCommission(new BigDecimal(commission));
-		execution.setCumulativeQuantity(order.getQuantity());
+		execution.setCumulativeQuantity(cumulativeQuantity);
 		execution.setExchange("BATS");
 		execution.setPrice(filledPrice);
 		execution.setTime(date);
@@ -722,13 +756,16 @@ public class DBBroker extends Broker {
 		} else {
 			execution.setSide(Side.SLD);
 		}
-		execution.setQuantity(order.getQuantity());
+		execution.setQuantity(quantity);
 		execution.setExecId(String.valueOf(execId++));
 		this.brokerModel.execDetails(execution.getTradeOrder().getOrderKey(),
 				contract, execution);
 		OrderState orderState = new OrderState();
-		orderState.m_status = OrderStatus.FILLED;
-		orderState.m_commission = commission;
+		orderState.m_status = (cumulativeQuantity < order.getQuantity() ? OrderStatus.PARTIALFILLED
+				: OrderStatus.FILLED);
+		orderState.m_commission = commission
+				+ (null == order.getCommission() ? 0 : order.getCommission()
+						.doubleValue());
 		this.brokerModel.openOrder(order.getOrderKey(), contract, order,
 				orderState);
 	}
@@ -753,9 +790,9 @@ public class DBBroker extends Broker {
 
 	/**
 	 * Method populateIndicatorCandleSeries. For any child indicators that are
-	 * candle based create a Tradestrategy that will get the data. If this
-	 * tradestrategy already exist share this with any other tradestrategy that
-	 * requires this.
+	 * candle based get the shared CandleSnapshot for the contract. The snapshot
+	 * is loaded by the first tradestrategy that requires it and released when
+	 * this broker is done.
 	 * 
 	 * @param tradestrategy
 	 *            Tradestrategy
@@ -784,38 +821,21 @@ public class DBBroker extends Broker {
 				if (null == contract)
 					continue;
 
-				Tradestrategy childTradestrategy = new Tradestrategy(contract,
-						tradestrategy.getTradingday(), new Strategy(),
-						tradestrategy.getPortfolio(), new BigDecimal(0), null,
-						null, false, tradestrategy.getChartDays(),
-						tradestrategy.getBarSize());
-				childTradestrategy.setDirty(false);
-
-				List<Candle> indicatorCandles = this.tradePersistentModel
-						.findCandlesByContractDateRangeBarSize(
-								childTradestrategy.getContract()
-										.getIdContract(), startDate, endDate,
-								childTradestrategy.getBarSize());
-				if (indicatorCandles.isEmpty()) {
-					_log.warn("No data available for "
-							+ childTradestrategy.getContract().getSymbol()
+				CandleSnapshot snapshot = CandleSnapshotStore.acquire(
+						this.tradePersistentModel, contract,
+						tradestrategy.getTradingday(),
+						tradestrategy.getBarSize(),
+						tradestrategy.getChartDays(),
+						tradestrategy.getPortfolio(), series);
+				this.candleSnapshots.add(snapshot);
+
+				CandleSeries childSeries = snapshot.getCandleSeries();
+				if (childSeries.isEmpty()) {
+					_log.warn("No data available for " + contract.getSymbol()
 							+ " and Tradingday: " + startDate + " to "
 							+ endDate + " and barSize: "
-							+ childTradestrategy.getBarSize());
+							+ tradestrategy.getBarSize());
 				} else {
-					CandleDataset.populateSeries(
-							childTradestrategy.getStrategyData(),
-							indicatorCandles);
-					indicatorCandles.clear();
-
-					CandleSeries childSeries = childTradestrategy
-							.getStrategyData().getBaseCandleSeries();
-					childSeries.setDisplaySeries(series.getDisplaySeries());
-					childSeries.setSeriesRGBColor(series.getSeriesRGBColor());
-					childSeries.setSymbol(series.getSymbol());
-					childSeries.setSecType(series.getSecType());
-					childSeries.setCurrency(series.getCurrency());
-					childSeries.setExchange(series.getExchange());
 					candleDataset.setSeries(seriesIndex, childSeries);
 				}
 			}
@@ -851,9 +871,10 @@ public class DBBroker extends Broker {
 				 */
 				if ((Math.floor(tradestrategy.getBarSize() / (double) element) == (tradestrategy
 						.getBarSize() / (double) element))) {
-					candles = tradePersistentModel
+					candles = BackTestCandleCache
 							.findCandlesByContractDateRangeBarSize(
-									tradestrategy.getContract().getIdContract(),
+									tradePersistentModel, tradestrategy
+											.getContract().getIdContract(),
 									startDate, endDate, element);
 					if (!candles.isEmpty()) {
 						break;
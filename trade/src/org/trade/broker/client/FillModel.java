@@ -0,0 +1,107 @@
+/* ===========================================================
+ * TradeManager : a application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.broker.client;
+
+import java.math.BigDecimal;
+
+import org.trade.persistent.dao.Candle;
+import org.trade.persistent.dao.TradeOrder;
+
+/**
+ * Decides how the DBBroker fills orders against the candles of a back test.
+ * The implementation is set in the properties file by the FillModel property.
+ * Implementations must only use the order and candle so that a back test run
+ * twice gives the same fills.
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+public interface FillModel {
+
+	public final static String _fillModel = "FillModel";
+
+	/**
+	 * Method getFilledPrice. The price the order would trade at on this
+	 * candle.
+	 * 
+	 * @param order
+	 *            TradeOrder
+	 * @param candle
+	 *            Candle
+	 * @return BigDecimal the price or null if the candle does not reach the
+	 *         order price.
+	 */
+	BigDecimal getFilledPrice(TradeOrder order, Candle candle);
+
+	/**
+	 * Method getFilledQuantity. The quantity of the order that is filled on
+	 * this candle.
+	 * 
+	 * @param order
+	 *            TradeOrder
+	 * @param candle
+	 *            Candle
+	 * @param filledPrice
+	 *            BigDecimal the price from getFilledPrice.
+	 * @param remainingQuantity
+	 *            int the quantity of the order not yet filled.
+	 * @return int between zero and remainingQuantity.
+	 */
+	int getFilledQuantity(TradeOrder order, Candle candle,
+			BigDecimal filledPrice, int remainingQuantity);
+
+	/**
+	 * Method isLowBeforeHigh. Used when both sides of an OCA group could be
+	 * filled on the same candle to decide which was reached first.
+	 * 
+	 * @param candle
+	 *            Candle
+	 * @return boolean true if the candle is assumed to have gone
+	 *         open/low/high/close, false for open/high/low/close.
+	 */
+	boolean isLowBeforeHigh(Candle candle);
+
+	/**
+	 * Method getCommission.
+	 * 
+	 * @param order
+	 *            TradeOrder
+	 * @param quantity
+	 *            int the quantity of the fill.
+	 * @return double the commission for the fill.
+	 */
+	double getCommission(TradeOrder order, int quantity);
+}
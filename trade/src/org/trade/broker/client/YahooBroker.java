@@ -109,8 +109,8 @@ public class YahooBroker extends Broker {
 					"yyyyMMdd HH:mm:ss");
 			setYahooContractDetails(contract);
 
-			this.brokerModel.contractDetails(contract.hashCode(), contract);
-			this.brokerModel.contractDetailsEnd(contract.hashCode());
+			this.brokerModel.contractDetails(this.reqId, contract);
+			this.brokerModel.contractDetailsEnd(this.reqId);
 			Date endDate = _sdfLocal.parse(this.endDateTime);
 			ChartDays chartDays = ChartDays.newInstance();
 			chartDays.setDisplayName(this.durationStr);
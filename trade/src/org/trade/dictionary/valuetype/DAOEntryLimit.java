@@ -35,13 +35,8 @@
  */
 package org.trade.dictionary.valuetype;
 
-import java.util.Enumeration;
-import java.util.Vector;
-
 import org.trade.core.valuetype.DAODecode;
-import org.trade.core.valuetype.Decode;
 import org.trade.core.valuetype.Money;
-import org.trade.core.valuetype.ValueTypeException;
 import org.trade.persistent.dao.Entrylimit;
 
 /**
@@ -70,35 +65,13 @@ public class DAOEntryLimit extends DAODecode {
 	}
 
 	/**
-	 * Method getValue.
+	 * Method getValue. The band is found in the shared EntryLimitIndex.
 	 * 
 	 * @param price
 	 *            Money
 	 * @return Entrylimit
 	 */
 	public Entrylimit getValue(Money price) {
-
-		Vector<Decode> decodes;
-		try {
-			decodes = this.getCodesDecodes();
-			final Enumeration<Decode> enumDAODecode = decodes.elements();
-			while (enumDAODecode.hasMoreElements()) {
-				final Decode decode = enumDAODecode.nextElement();
-				final Entrylimit entryLimit = (Entrylimit) decode.getObject();
-				if ((entryLimit.getStartPrice()
-						.subtract(price.getBigDecimalValue()).doubleValue() <= 0)
-						&& (entryLimit.getEndPrice()
-								.subtract(price.getBigDecimalValue())
-								.doubleValue() >= 0)) {
-					return entryLimit;
-				}
-			}
-		} catch (final ValueTypeException e) {
-			/*
-			 * Do nothing is no code just report to log.
-			 */
-
-		}
-		return null;
+		return EntryLimitIndex.getInstance().getValue(price);
 	}
 }
\ No newline at end of file
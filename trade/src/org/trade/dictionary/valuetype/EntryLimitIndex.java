@@ -0,0 +1,243 @@
+/* ===========================================================
+ * TradeManager : a application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.dictionary.valuetype;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.List;
+
+import org.trade.core.lookup.DBTableLookupServiceProvider;
+import org.trade.core.valuetype.Decode;
+import org.trade.core.valuetype.Money;
+import org.trade.core.valuetype.ValueTypeException;
+import org.trade.persistent.dao.Entrylimit;
+
+/**
+ * The Entrylimit price bands sorted on start price. Each band's start and end
+ * price is held in ticks (cents the precision of Money) so finding the band
+ * for a price is a binary search of a long array and does not allocate.
+ * 
+ * The index is immutable and one instance is shared by all strategies and
+ * indicators. It is rebuilt the first time it is used after the lookups are
+ * cleared i.e. after the entrylimit table is saved.
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+public final class EntryLimitIndex {
+
+	public static final int TICKS_PER_UNIT = 100;
+	private static final int SCALE = 2;
+
+	private static volatile EntryLimitIndex _instance = null;
+
+	private final long[] startTicks;
+	private final long[] endTicks;
+	private final Entrylimit[] entryLimits;
+	private final int generation;
+
+	/**
+	 * Constructor for EntryLimitIndex.
+	 * 
+	 * @param entryLimits
+	 *            List<Entrylimit>
+	 */
+	public EntryLimitIndex(List<Entrylimit> entryLimits) {
+		this(entryLimits, 0);
+	}
+
+	/**
+	 * Constructor for EntryLimitIndex.
+	 * 
+	 * @param entryLimits
+	 *            List<Entrylimit>
+	 * @param generation
+	 *            int the lookup generation the entry limits were read at.
+	 */
+	private EntryLimitIndex(List<Entrylimit> entryLimits, int generation) {
+		List<Entrylimit> sorted = new ArrayList<Entrylimit>(entryLimits.size());
+		for (Entrylimit entryLimit : entryLimits) {
+			if (null != entryLimit.getStartPrice()
+					&& null != entryLimit.getEndPrice())
+				sorted.add(entryLimit);
+		}
+		Collections.sort(sorted, new Comparator<Entrylimit>() {
+			public int compare(Entrylimit o1, Entrylimit o2) {
+				return o1.getStartPrice().compareTo(o2.getStartPrice());
+			}
+		});
+		this.startTicks = new long[sorted.size()];
+		this.endTicks = new long[sorted.size()];
+		this.entryLimits = sorted.toArray(new Entrylimit[sorted.size()]);
+		for (int i = 0; i < this.entryLimits.length; i++) {
+			/*
+			 * Prices are whole ticks so round the bounds inwards to keep the
+			 * start <= price <= end test the same as for the BigDecimals.
+			 */
+			this.startTicks[i] = toTicks(this.entryLimits[i].getStartPrice(),
+					RoundingMode.CEILING);
+			this.endTicks[i] = toTicks(this.entryLimits[i].getEndPrice(),
+					RoundingMode.FLOOR);
+		}
+		this.generation = generation;
+	}
+
+	/**
+	 * Method getInstance.
+	 * 
+	 * @return EntryLimitIndex the shared index of the entrylimit table.
+	 */
+	public static EntryLimitIndex getInstance() {
+		EntryLimitIndex index = _instance;
+		if (null == index
+				|| index.generation != DBTableLookupServiceProvider
+						.getGeneration()) {
+			index = load();
+		}
+		return index;
+	}
+
+	/**
+	 * Method getValue.
+	 * 
+	 * @param price
+	 *            double
+	 * @return Entrylimit the band the price is in or null if there is none.
+	 */
+	public Entrylimit getValue(double price) {
+		return getValue((long) Math.rint(price * TICKS_PER_UNIT));
+	}
+
+	/**
+	 * Method getValue.
+	 * 
+	 * @param price
+	 *            Money
+	 * @return Entrylimit the band the price is in or null if there is none.
+	 */
+	public Entrylimit getValue(Money price) {
+		return getValue(toTicks(price.getBigDecimalValue(),
+				RoundingMode.HALF_EVEN));
+	}
+
+	/**
+	 * Method getValue.
+	 * 
+	 * @param priceTicks
+	 *            long
+	 * @return Entrylimit the band the price is in or null if there is none.
+	 */
+	public Entrylimit getValue(long priceTicks) {
+		int low = 0;
+		int high = this.startTicks.length - 1;
+		int index = -1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (this.startTicks[mid] <= priceTicks) {
+				index = mid;
+				low = mid + 1;
+			} else {
+				high = mid - 1;
+			}
+		}
+		/*
+		 * Where bands share a boundary price the lower band is used.
+		 */
+		Entrylimit entryLimit = null;
+		while (index > -1 && this.endTicks[index] >= priceTicks) {
+			entryLimit = this.entryLimits[index];
+			index--;
+		}
+		return entryLimit;
+	}
+
+	/**
+	 * Method size.
+	 * 
+	 * @return int the number of bands.
+	 */
+	public int size() {
+		return this.entryLimits.length;
+	}
+
+	/**
+	 * Method load. Read the entry limits from the lookup and replace the
+	 * shared index. The index is not shared if the entry limits could not be
+	 * read so the next call tries again.
+	 * 
+	 * @return EntryLimitIndex
+	 */
+	private static synchronized EntryLimitIndex load() {
+		int generation = DBTableLookupServiceProvider.getGeneration();
+		EntryLimitIndex index = _instance;
+		if (null != index && index.generation == generation)
+			return index;
+
+		List<Entrylimit> entryLimits = new ArrayList<Entrylimit>();
+		try {
+			Enumeration<Decode> decodes = new DAOEntryLimit().getCodesDecodes()
+					.elements();
+			while (decodes.hasMoreElements()) {
+				entryLimits.add((Entrylimit) decodes.nextElement().getObject());
+			}
+		} catch (final ValueTypeException e) {
+			/*
+			 * The lookup could not be read so do not share this index.
+			 */
+			return new EntryLimitIndex(entryLimits, generation);
+		}
+		index = new EntryLimitIndex(entryLimits, generation);
+		_instance = index;
+		return index;
+	}
+
+	/**
+	 * Method toTicks.
+	 * 
+	 * @param price
+	 *            BigDecimal
+	 * @param roundingMode
+	 *            RoundingMode
+	 * @return long
+	 */
+	private static long toTicks(BigDecimal price, RoundingMode roundingMode) {
+		return price.movePointRight(SCALE).setScale(0, roundingMode).longValue();
+	}
+}
@@ -42,6 +42,7 @@ import java.util.List;
 import org.trade.core.dao.Aspect;
 import org.trade.core.dao.Aspects;
 import org.trade.persistent.dao.Candle;
+import org.trade.persistent.dao.CandleCoverage;
 import org.trade.persistent.dao.Contract;
 import org.trade.persistent.dao.Portfolio;
 import org.trade.persistent.dao.TradestrategyLite;
@@ -74,6 +75,17 @@ public interface PersistentModel {
 	void persistTradingday(Tradingday transientInstance)
 			throws PersistentModelException;
 
+	/**
+	 * Method persistTradingdays. Bulk save of new tradingdays and their
+	 * tradestrategies e.g. after a contract file import.
+	 * 
+	 * @param transientInstances
+	 *            List<Tradingday>
+	 * @throws PersistentModelException
+	 */
+	void persistTradingdays(List<Tradingday> transientInstances)
+			throws PersistentModelException;
+
 	/**
 	 * Method persistContract.
 	 * 
@@ -453,6 +465,20 @@ public interface PersistentModel {
 	Tradingdays findTradingdaysByDateRange(Date startDate, Date endDate)
 			throws PersistentModelException;
 
+	/**
+	 * Method findTradingdayListByDateRange. The tradestrategies are read
+	 * without their trade orders, portfolio accounts or indicator series.
+	 * 
+	 * @param startDate
+	 *            Date
+	 * @param endDate
+	 *            Date
+	 * @return Tradingdays
+	 * @throws PersistentModelException
+	 */
+	Tradingdays findTradingdayListByDateRange(Date startDate, Date endDate)
+			throws PersistentModelException;
+
 	/**
 	 * Method findTradelogReport.
 	 * 
@@ -506,6 +532,27 @@ public interface PersistentModel {
 	Long findCandleCount(Integer idTradingday, Integer idContract)
 			throws PersistentModelException;
 
+	/**
+	 * Method findCandleCoverage. Returns the candle coverage for each trading
+	 * day from the startDate to the endDate in ascending order. Coverage is
+	 * served from the CandleCoverageIndex and only loaded from the database
+	 * when a day is not indexed.
+	 *
+	 * @param idContract
+	 *            Integer
+	 * @param startDate
+	 *            Date the open of the first trading day.
+	 * @param endDate
+	 *            Date the close of the last trading day.
+	 * @param barSize
+	 *            Integer
+	 * @return List<CandleCoverage>
+	 * @throws PersistentModelException
+	 */
+	List<CandleCoverage> findCandleCoverage(Integer idContract,
+			Date startDate, Date endDate, Integer barSize)
+			throws PersistentModelException;
+
 	/**
 	 * Method findRuleById.
 	 * 
@@ -36,6 +36,7 @@
 package org.trade.persistent;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.Hashtable;
 import java.util.List;
@@ -45,6 +46,8 @@ import javax.persistence.OptimisticLockException;
 import org.trade.core.dao.Aspect;
 import org.trade.core.dao.AspectHome;
 import org.trade.core.dao.Aspects;
+import org.trade.core.metrics.MetricRegistry;
+import org.trade.core.metrics.Timer;
 import org.trade.core.util.CoreUtils;
 import org.trade.core.util.TradingCalendar;
 import org.trade.core.valuetype.Money;
@@ -53,6 +56,8 @@ import org.trade.dictionary.valuetype.OrderStatus;
 import org.trade.dictionary.valuetype.Side;
 import org.trade.dictionary.valuetype.TradestrategyStatus;
 import org.trade.persistent.dao.Candle;
+import org.trade.persistent.dao.CandleCoverage;
+import org.trade.persistent.dao.CandleCoverageIndex;
 import org.trade.persistent.dao.CandleHome;
 import org.trade.persistent.dao.Contract;
 import org.trade.persistent.dao.ContractHome;
@@ -103,6 +108,29 @@ public class TradePersistentModel implements PersistentModel {
 	private static final int SCALE_5 = 5;
 	private static final int SCALE_2 = 2;
 
+	private static final Timer m_findTradestrategy = MetricRegistry
+			.timer("persistence.findTradestrategyById");
+	private static final Timer m_refreshPositionOrders = MetricRegistry
+			.timer("persistence.refreshPositionOrders");
+	private static final Timer m_findPositionOrders = MetricRegistry
+			.timer("persistence.findPositionOrders");
+	private static final Timer m_findTradingdays = MetricRegistry
+			.timer("persistence.findTradingdaysByDateRange");
+	private static final Timer m_findCandles = MetricRegistry
+			.timer("persistence.findCandles");
+	private static final Timer m_findTradeOrder = MetricRegistry
+			.timer("persistence.findTradeOrderByKey");
+	private static final Timer m_persistCandleSeries = MetricRegistry
+			.timer("persistence.persistCandleSeries");
+	private static final Timer m_persistCandle = MetricRegistry
+			.timer("persistence.persistCandle");
+	private static final Timer m_persistTradingdays = MetricRegistry
+			.timer("persistence.persistTradingdays");
+	private static final Timer m_persistTradeOrder = MetricRegistry
+			.timer("persistence.persistTradeOrder");
+	private static final Timer m_persistTradeOrderfill = MetricRegistry
+			.timer("persistence.persistTradeOrderfill");
+
 	public TradePersistentModel() {
 		m_contractHome = new ContractHome();
 		m_strategyHome = new StrategyHome();
@@ -279,20 +307,25 @@ public class TradePersistentModel implements PersistentModel {
 	 */
 	public Tradestrategy findTradestrategyById(Tradestrategy tradestrategy)
 			throws PersistentModelException {
-		if (null == tradestrategy.getIdTradeStrategy())
-			throw new PersistentModelException(
-					"Please save Tradestrategy for symbol: "
-							+ tradestrategy.getContract().getSymbol());
+		long start = m_findTradestrategy.start();
+		try {
+			if (null == tradestrategy.getIdTradeStrategy())
+				throw new PersistentModelException(
+						"Please save Tradestrategy for symbol: "
+								+ tradestrategy.getContract().getSymbol());
 
-		Tradestrategy instance = m_tradestrategyHome.findById(tradestrategy
-				.getIdTradeStrategy());
-		if (null == instance)
-			throw new PersistentModelException(
-					"Tradestrategy not found for id: "
-							+ tradestrategy.getIdTradeStrategy());
+			Tradestrategy instance = m_tradestrategyHome
+					.findById(tradestrategy.getIdTradeStrategy());
+			if (null == instance)
+				throw new PersistentModelException(
+						"Tradestrategy not found for id: "
+								+ tradestrategy.getIdTradeStrategy());
 
-		instance.setStrategyData(tradestrategy.getStrategyData());
-		return instance;
+			instance.setStrategyData(tradestrategy.getStrategyData());
+			return instance;
+		} finally {
+			m_findTradestrategy.stop(start);
+		}
 	}
 
 	/**
@@ -307,21 +340,25 @@ public class TradePersistentModel implements PersistentModel {
 	 */
 	public TradestrategyOrders refreshPositionOrdersByTradestrategyId(
 			TradestrategyOrders positionOrders) throws PersistentModelException {
+		long start = m_refreshPositionOrders.start();
+		try {
+			Integer version = m_tradestrategyHome
+					.findVersionById(positionOrders.getIdTradeStrategy());
 
-		Integer version = m_tradestrategyHome.findVersionById(positionOrders
-				.getIdTradeStrategy());
-
-		if (positionOrders.getVersion().equals(version)) {
-			return positionOrders;
-		} else {
-			TradestrategyOrders instance = m_tradestrategyHome
-					.findPositionOrdersByTradestrategyId(positionOrders
-							.getIdTradeStrategy());
-			if (null == instance)
-				throw new PersistentModelException(
-						"Tradestrategy not found for id: "
-								+ positionOrders.getIdTradeStrategy());
-			return instance;
+			if (positionOrders.getVersion().equals(version)) {
+				return positionOrders;
+			} else {
+				TradestrategyOrders instance = m_tradestrategyHome
+						.findPositionOrdersByTradestrategyId(positionOrders
+								.getIdTradeStrategy());
+				if (null == instance)
+					throw new PersistentModelException(
+							"Tradestrategy not found for id: "
+									+ positionOrders.getIdTradeStrategy());
+				return instance;
+			}
+		} finally {
+			m_refreshPositionOrders.stop(start);
 		}
 	}
 
@@ -337,13 +374,17 @@ public class TradePersistentModel implements PersistentModel {
 	 */
 	public TradestrategyOrders findPositionOrdersByTradestrategyId(
 			Integer idTradestrategy) throws PersistentModelException {
-
-		TradestrategyOrders instance = m_tradestrategyHome
-				.findPositionOrdersByTradestrategyId(idTradestrategy);
-		if (null == instance)
-			throw new PersistentModelException(
-					"Tradestrategy not found for id: " + idTradestrategy);
-		return instance;
+		long start = m_findPositionOrders.start();
+		try {
+			TradestrategyOrders instance = m_tradestrategyHome
+					.findPositionOrdersByTradestrategyId(idTradestrategy);
+			if (null == instance)
+				throw new PersistentModelException(
+						"Tradestrategy not found for id: " + idTradestrategy);
+			return instance;
+		} finally {
+			m_findPositionOrders.stop(start);
+		}
 	}
 
 	/**
@@ -357,11 +398,16 @@ public class TradePersistentModel implements PersistentModel {
 	 */
 	public Tradestrategy findTradestrategyById(Integer id)
 			throws PersistentModelException {
-		Tradestrategy instance = m_tradestrategyHome.findById(id);
-		if (null == instance)
-			throw new PersistentModelException(
-					"Tradestrategy not found for id: " + id);
-		return instance;
+		long start = m_findTradestrategy.start();
+		try {
+			Tradestrategy instance = m_tradestrategyHome.findById(id);
+			if (null == instance)
+				throw new PersistentModelException(
+						"Tradestrategy not found for id: " + id);
+			return instance;
+		} finally {
+			m_findTradestrategy.stop(start);
+		}
 	}
 
 	/**
@@ -648,7 +694,12 @@ public class TradePersistentModel implements PersistentModel {
 	 */
 	public TradeOrder findTradeOrderByKey(Integer orderKey)
 			throws PersistentModelException {
-		return m_tradeOrderHome.findTradeOrderByKey(orderKey);
+		long start = m_findTradeOrder.start();
+		try {
+			return m_tradeOrderHome.findTradeOrderByKey(orderKey);
+		} finally {
+			m_findTradeOrder.stop(start);
+		}
 	}
 
 	/**
@@ -690,7 +741,31 @@ public class TradePersistentModel implements PersistentModel {
 	 */
 	public Tradingdays findTradingdaysByDateRange(Date startDate, Date endDate)
 			throws PersistentModelException {
-		return m_tradingdayHome.findTradingdaysByDateRange(startDate, endDate);
+		long start = m_findTradingdays.start();
+		try {
+			return m_tradingdayHome.findTradingdaysByDateRange(startDate,
+					endDate);
+		} finally {
+			m_findTradingdays.stop(start);
+		}
+	}
+
+	/**
+	 * Method findTradingdayListByDateRange.
+	 * 
+	 * @param startDate
+	 *            Date
+	 * @param endDate
+	 *            Date
+	 * @return Tradingdays
+	 * @throws PersistentModelException
+	 * @see org.trade.persistent.PersistentModel#findTradingdayListByDateRange(Date,
+	 *      Date)
+	 */
+	public Tradingdays findTradingdayListByDateRange(Date startDate,
+			Date endDate) throws PersistentModelException {
+		return m_tradingdayHome.findTradingdayListByDateRange(startDate,
+				endDate);
 	}
 
 	/**
@@ -710,8 +785,13 @@ public class TradePersistentModel implements PersistentModel {
 	public List<Candle> findCandlesByContractDateRangeBarSize(
 			Integer idContract, Date startDate, Date endDate, Integer barSize)
 			throws PersistentModelException {
-		return m_candleHome.findCandlesByContractDateRangeBarSize(idContract,
-				startDate, endDate, barSize);
+		long start = m_findCandles.start();
+		try {
+			return m_candleHome.findCandlesByContractDateRangeBarSize(
+					idContract, startDate, endDate, barSize);
+		} finally {
+			m_findCandles.stop(start);
+		}
 	}
 
 	/**
@@ -731,6 +811,72 @@ public class TradePersistentModel implements PersistentModel {
 		return m_candleHome.findCandleCount(idTradingday, idContract);
 	}
 
+	/**
+	 * Method findCandleCoverage.
+	 * 
+	 * @param idContract
+	 *            Integer
+	 * @param startDate
+	 *            Date
+	 * @param endDate
+	 *            Date
+	 * @param barSize
+	 *            Integer
+	 * @return List<CandleCoverage>
+	 * @throws PersistentModelException
+	 * @see org.trade.persistent.PersistentModel#findCandleCoverage(Integer,
+	 *      Date, Date, Integer)
+	 */
+	public List<CandleCoverage> findCandleCoverage(Integer idContract,
+			Date startDate, Date endDate, Integer barSize)
+			throws PersistentModelException {
+
+		List<CandleCoverage> coverages = new ArrayList<CandleCoverage>();
+		Date lastOpen = TradingCalendar.getSpecificTime(startDate, endDate);
+		Date day = startDate;
+		boolean indexed = true;
+		while (!day.after(lastOpen)) {
+			if (TradingCalendar.isTradingDay(day)) {
+				CandleCoverage coverage = CandleCoverageIndex
+						.get(CandleCoverage.getKey(idContract, barSize, day));
+				if (null == coverage) {
+					indexed = false;
+					break;
+				}
+				coverages.add(coverage);
+			}
+			day = TradingCalendar.addDays(day, 1);
+		}
+		if (indexed)
+			return coverages;
+
+		/*
+		 * One or more days are not indexed so load the whole range in one
+		 * query. Days with no candles are indexed as empty coverage.
+		 */
+		coverages.clear();
+		Hashtable<String, CandleCoverage> loaded = new Hashtable<String, CandleCoverage>();
+		for (CandleCoverage coverage : m_candleHome.findCandleCoverage(
+				idContract, startDate, lastOpen, barSize)) {
+			loaded.put(coverage.getKey(), coverage);
+		}
+		day = startDate;
+		while (!day.after(lastOpen)) {
+			if (TradingCalendar.isTradingDay(day)) {
+				CandleCoverage coverage = loaded.get(CandleCoverage.getKey(
+						idContract, barSize, day));
+				if (null == coverage) {
+					coverage = new CandleCoverage(idContract, barSize, day,
+							TradingCalendar.getSpecificTime(endDate, day));
+				}
+				CandleCoverageIndex.put(coverage);
+				coverages.add(coverage);
+			}
+			day = TradingCalendar.addDays(day, 1);
+		}
+		return coverages;
+	}
+
 	/**
 	 * Method persistContract.
 	 * 
@@ -778,6 +924,7 @@ public class TradePersistentModel implements PersistentModel {
 	 */
 	public void persistCandleSeries(CandleSeries candleSeries)
 			throws PersistentModelException {
+		long start = m_persistCandleSeries.start();
 		try {
 			/*
 			 * This can happen when an indicator is a contract that has never
@@ -791,6 +938,7 @@ public class TradePersistentModel implements PersistentModel {
 				candleSeries.getContract().setVersion(contract.getVersion());
 			}
 			m_candleHome.persistCandleSeries(candleSeries);
+			CandleCoverageIndex.updateCandleSeries(candleSeries);
 		} catch (OptimisticLockException ex1) {
 			throw new PersistentModelException(
 					"Error saving CandleSeries please refresh before save.");
@@ -798,6 +946,8 @@ public class TradePersistentModel implements PersistentModel {
 			throw new PersistentModelException("Error saving CandleSeries: "
 					+ candleSeries.getDescription() + "\n Msg: "
 					+ e.getMessage());
+		} finally {
+			m_persistCandleSeries.stop(start);
 		}
 	}
 
@@ -811,6 +961,7 @@ public class TradePersistentModel implements PersistentModel {
 	 * @see org.trade.persistent.PersistentModel#persistCandleItem(CandleItem)
 	 */
 	public Candle persistCandle(Candle candle) throws PersistentModelException {
+		long start = m_persistCandle.start();
 		try {
 			synchronized (candle) {
 				if (null == candle.getTradingday().getIdTradingDay()) {
@@ -842,6 +993,7 @@ public class TradePersistentModel implements PersistentModel {
 				}
 				Candle item = m_aspectHome.persist(candle);
 				candle.setVersion(item.getVersion());
+				CandleCoverageIndex.updateCandle(item);
 				return item;
 			}
 		} catch (OptimisticLockException ex1) {
@@ -850,6 +1002,8 @@ public class TradePersistentModel implements PersistentModel {
 		} catch (Exception e) {
 			throw new PersistentModelException("Error saving CandleItem: "
 					+ candle.getOpen() + "\n Msg: " + e.getMessage());
+		} finally {
+			m_persistCandle.stop(start);
 		}
 	}
 
@@ -875,6 +1029,31 @@ public class TradePersistentModel implements PersistentModel {
 		}
 	}
 
+	/**
+	 * Method persistTradingdays.
+	 * 
+	 * @param transientInstances
+	 *            List<Tradingday>
+	 * @throws PersistentModelException
+	 * @see org.trade.persistent.PersistentModel#persistTradingdays(List<Tradingday>)
+	 */
+	public void persistTradingdays(List<Tradingday> transientInstances)
+			throws PersistentModelException {
+
+		long start = m_persistTradingdays.start();
+		try {
+			m_tradingdayHome.persistTradingdays(transientInstances);
+		} catch (OptimisticLockException ex1) {
+			throw new PersistentModelException(
+					"Error saving Tradingdays please refresh before save.");
+		} catch (Exception e) {
+			throw new PersistentModelException("Error saving Tradingdays: "
+					+ transientInstances.size() + "\n Msg: " + e.getMessage());
+		} finally {
+			m_persistTradingdays.stop(start);
+		}
+	}
+
 	/**
 	 * Method persistTradeOrder.
 	 * 
@@ -887,6 +1066,7 @@ public class TradePersistentModel implements PersistentModel {
 
 	public synchronized TradeOrder persistTradeOrder(TradeOrder tradeOrder)
 			throws PersistentModelException {
+		long start = m_persistTradeOrder.start();
 		try {
 
 			if (null == tradeOrder.getOrderKey()) {
@@ -990,6 +1170,7 @@ public class TradePersistentModel implements PersistentModel {
 			}
 
 			boolean allOrdersCancelled = true;
+			boolean tradePositionChanged = false;
 			int totalBuyQuantity = 0;
 			int totalSellQuantity = 0;
 			double totalCommission = 0;
@@ -1110,6 +1291,7 @@ public class TradePersistentModel implements PersistentModel {
 
 				tradePosition.setLastUpdateDate(new Date());
 				tradePosition = this.persistAspect(tradePosition);
+				tradePositionChanged = true;
 
 			} else {
 				if (allOrdersCancelled) {
@@ -1139,10 +1321,22 @@ public class TradePersistentModel implements PersistentModel {
 							.setTotalCommission(comms.getBigDecimalValue());
 					tradePosition.setLastUpdateDate(new Date());
 					tradePosition = this.persistAspect(tradePosition);
+					tradePositionChanged = true;
 				}
 			}
 
-			return this.persistAspect(tradeOrder);
+			tradeOrder = this.persistAspect(tradeOrder);
+
+			/*
+			 * Keep the trade log totals for a closed position in step with its
+			 * fills and commissions.
+			 */
+			if (tradePositionChanged
+					&& null != tradePosition.getPositionCloseDate()) {
+				m_tradelogHome.refreshTradelogPosition(tradePosition
+						.getIdTradePosition());
+			}
+			return tradeOrder;
 
 		} catch (OptimisticLockException ex1) {
 			throw new PersistentModelException(
@@ -1150,6 +1344,8 @@ public class TradePersistentModel implements PersistentModel {
 		} catch (Exception e) {
 			throw new PersistentModelException("Error saving TradeOrder: "
 					+ tradeOrder.getOrderKey() + "\n Msg: " + e.getMessage());
+		} finally {
+			m_persistTradeOrder.stop(start);
 		}
 	}
 
@@ -1164,6 +1360,7 @@ public class TradePersistentModel implements PersistentModel {
 	 */
 	public synchronized TradeOrder persistTradeOrderfill(TradeOrder tradeOrder)
 			throws PersistentModelException {
+		long start = m_persistTradeOrderfill.start();
 		try {
 
 			Date filledDate = null;
@@ -1227,6 +1424,8 @@ public class TradePersistentModel implements PersistentModel {
 		} catch (Exception e) {
 			throw new PersistentModelException("Error saving TradeOrderfill: "
 					+ tradeOrder.getOrderKey() + "\n Msg: " + e.getMessage());
+		} finally {
+			m_persistTradeOrderfill.stop(start);
 		}
 	}
 
@@ -68,7 +68,8 @@ import org.trade.core.dao.Aspect;
  */
 @Entity
 @Table(name = "candle")
-public class Candle extends Aspect implements java.io.Serializable {
+public class Candle extends Aspect implements java.io.Serializable,
+		Cloneable {
 
 	/**
 	 * 
@@ -562,6 +563,17 @@ public class Candle extends Aspect implements java.io.Serializable {
 		return this.getClose().doubleValue() >= this.getOpen().doubleValue();
 	}
 
+	/**
+	 * Method clone. The prices are immutable so the clone is a snapshot of
+	 * the candle.
+	 * 
+	 * @return Object
+	 * @throws CloneNotSupportedException
+	 */
+	public Object clone() throws CloneNotSupportedException {
+		return super.clone();
+	}
+
 	/**
 	 * Method equals.
 	 * 
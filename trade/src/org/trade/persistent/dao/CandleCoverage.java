@@ -0,0 +1,328 @@
+/* ===========================================================
+ * TradeManager : a application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.persistent.dao;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.List;
+
+import org.trade.core.util.TradingCalendar;
+
+/**
+ * A bitmap of the bar slots for one contract/barSize/tradingday that have a
+ * candle in the candle table. Slot zero is the first bar of the tradingday,
+ * the slots are aligned the same way as CandleSeries.getPeriodStart() so 60min
+ * bars start on the hour.
+ * 
+ * The broker does not send bars for periods with no trades and half days
+ * close early, so a tradingday is covered once it has been fetched rather
+ * than when every slot is populated.
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+public class CandleCoverage implements Serializable {
+
+	private static final long serialVersionUID = -2650446305929226837L;
+
+	private final Integer idContract;
+	private final Integer barSize;
+	private final Date open;
+	private final Date close;
+	private final long firstSlotTime;
+	private final int slotCount;
+	private final BitSet slots;
+	private boolean fetched = false;
+
+	/**
+	 * Constructor for CandleCoverage.
+	 * 
+	 * @param idContract
+	 *            Integer
+	 * @param barSize
+	 *            Integer
+	 * @param open
+	 *            Date the tradingday open.
+	 * @param close
+	 *            Date the tradingday close.
+	 */
+	public CandleCoverage(Integer idContract, Integer barSize, Date open,
+			Date close) {
+		this.idContract = idContract;
+		this.barSize = barSize;
+		this.open = open;
+		this.close = close;
+		long sessionSeconds = (close.getTime() - open.getTime()) / 1000;
+		if (barSize <= 1 || barSize >= sessionSeconds) {
+			/*
+			 * Daily bars have one slot per tradingday.
+			 */
+			this.firstSlotTime = open.getTime();
+			this.slotCount = 1;
+		} else {
+			/*
+			 * For 60min time period the clock starts at 9:00am see
+			 * CandleSeries.getPeriodStart().
+			 */
+			Date firstSlot = open;
+			if (3600 == barSize && TradingCalendar.getMinute(open) == 30) {
+				firstSlot = TradingCalendar.addMinutes(open, -30);
+			}
+			this.firstSlotTime = firstSlot.getTime();
+			this.slotCount = (int) Math.ceil((close.getTime() - firstSlotTime)
+					/ (barSize * 1000d));
+		}
+		this.slots = new BitSet(this.slotCount);
+	}
+
+	/**
+	 * Method getKey. The key used in the CandleCoverageIndex.
+	 * 
+	 * @param idContract
+	 *            Integer
+	 * @param barSize
+	 *            Integer
+	 * @param open
+	 *            Date
+	 * @return String
+	 */
+	public static String getKey(Integer idContract, Integer barSize, Date open) {
+		return idContract + "_" + barSize + "_"
+				+ TradingCalendar.getFormattedDate(open, "yyyyMMdd");
+	}
+
+	/**
+	 * Method getKey.
+	 * 
+	 * @return String
+	 */
+	public String getKey() {
+		return getKey(this.idContract, this.barSize, this.open);
+	}
+
+	/**
+	 * Method getIdContract.
+	 * 
+	 * @return Integer
+	 */
+	public Integer getIdContract() {
+		return this.idContract;
+	}
+
+	/**
+	 * Method getBarSize.
+	 * 
+	 * @return Integer
+	 */
+	public Integer getBarSize() {
+		return this.barSize;
+	}
+
+	/**
+	 * Method getOpen.
+	 * 
+	 * @return Date
+	 */
+	public Date getOpen() {
+		return this.open;
+	}
+
+	/**
+	 * Method getClose.
+	 * 
+	 * @return Date
+	 */
+	public Date getClose() {
+		return this.close;
+	}
+
+	/**
+	 * Method getSlotCount.
+	 * 
+	 * @return int the number of bars in a complete tradingday.
+	 */
+	public int getSlotCount() {
+		return this.slotCount;
+	}
+
+	/**
+	 * Method getSlot. The slot for a candle start period, -1 if the period is
+	 * outside of the tradingday i.e. pre/post market bars.
+	 * 
+	 * @param startPeriod
+	 *            Date
+	 * @return int
+	 */
+	public int getSlot(Date startPeriod) {
+		if (this.slotCount == 1) {
+			return TradingCalendar.sameDay(this.open, startPeriod) ? 0 : -1;
+		}
+		long offset = startPeriod.getTime() - this.firstSlotTime;
+		if (offset < 0) {
+			return -1;
+		}
+		long slot = offset / (this.barSize * 1000L);
+		return slot < this.slotCount ? (int) slot : -1;
+	}
+
+	/**
+	 * Method addCandle. Mark the slot for this candle start period as
+	 * populated.
+	 * 
+	 * @param startPeriod
+	 *            Date
+	 * @return boolean true if the start period fell within the tradingday.
+	 */
+	public synchronized boolean addCandle(Date startPeriod) {
+		int slot = getSlot(startPeriod);
+		if (slot > -1) {
+			this.slots.set(slot);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Method hasCandle.
+	 * 
+	 * @param startPeriod
+	 *            Date
+	 * @return boolean
+	 */
+	public synchronized boolean hasCandle(Date startPeriod) {
+		int slot = getSlot(startPeriod);
+		return slot > -1 && this.slots.get(slot);
+	}
+
+	/**
+	 * Method getCandleCount.
+	 * 
+	 * @return int the number of populated slots.
+	 */
+	public synchronized int getCandleCount() {
+		return this.slots.cardinality();
+	}
+
+	/**
+	 * Method isComplete.
+	 * 
+	 * @return boolean true if every bar of the tradingday is populated.
+	 */
+	public synchronized boolean isComplete() {
+		return this.slots.nextClearBit(0) >= this.slotCount;
+	}
+
+	/**
+	 * Method isFetched.
+	 * 
+	 * @return boolean true if the tradingday was in a completed broker data
+	 *         request.
+	 */
+	public synchronized boolean isFetched() {
+		return this.fetched;
+	}
+
+	/**
+	 * Method setFetched.
+	 * 
+	 * @param fetched
+	 *            boolean
+	 */
+	public synchronized void setFetched(boolean fetched) {
+		this.fetched = fetched;
+	}
+
+	/**
+	 * Method isCovered. A tradingday is covered if it was fetched or, when
+	 * loaded from the DB, its last bar is stored as candles are only saved
+	 * through to the close when the whole day was fetched.
+	 * 
+	 * @return boolean true if the tradingday does not need to be requested.
+	 */
+	public synchronized boolean isCovered() {
+		return this.fetched || this.slots.get(this.slotCount - 1);
+	}
+
+	/**
+	 * Method isEmpty.
+	 * 
+	 * @return boolean
+	 */
+	public synchronized boolean isEmpty() {
+		return this.slots.isEmpty();
+	}
+
+	/**
+	 * Method getMissingRange. Returns the coverage from the first tradingday
+	 * that is not covered to the last one inclusive. An empty list means all
+	 * the tradingdays are covered.
+	 * 
+	 * @param coverages
+	 *            List<CandleCoverage> in ascending tradingday order.
+	 * @return List<CandleCoverage>
+	 */
+	public static List<CandleCoverage> getMissingRange(
+			List<CandleCoverage> coverages) {
+		int first = -1;
+		int last = -1;
+		for (int i = 0; i < coverages.size(); i++) {
+			if (!coverages.get(i).isCovered()) {
+				if (first == -1)
+					first = i;
+				last = i;
+			}
+		}
+		if (first == -1)
+			return new ArrayList<CandleCoverage>(0);
+
+		return new ArrayList<CandleCoverage>(coverages.subList(first,
+				last + 1));
+	}
+
+	/**
+	 * Method toString.
+	 * 
+	 * @return String
+	 */
+	public String toString() {
+		return "CandleCoverage idContract: " + this.idContract + " barSize: "
+				+ this.barSize + " open: " + this.open + " candles: "
+				+ this.getCandleCount() + " of: " + this.slotCount
+				+ " fetched: " + this.isFetched();
+	}
+}
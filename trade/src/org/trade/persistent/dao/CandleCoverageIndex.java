@@ -0,0 +1,213 @@
+/* ===========================================================
+ * TradeManager : a application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.persistent.dao;
+
+import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.trade.core.util.TradingCalendar;
+import org.trade.strategy.data.CandleSeries;
+import org.trade.strategy.data.candle.CandleItem;
+
+/**
+ * An in memory index of the candle table coverage keyed by
+ * contract/barSize/tradingday. Entries are loaded from the DB on first use and
+ * maintained as candles are persisted so that data requests can be limited to
+ * the ranges that are missing.
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+public class CandleCoverageIndex {
+
+	// Use CandleCoverage.getKey() as key
+	private static final ConcurrentHashMap<String, CandleCoverage> m_coverage = new ConcurrentHashMap<String, CandleCoverage>();
+
+	private CandleCoverageIndex() {
+	}
+
+	/**
+	 * Method get.
+	 * 
+	 * @param key
+	 *            String
+	 * @return CandleCoverage null if this tradingday has not been loaded.
+	 */
+	public static CandleCoverage get(String key) {
+		return m_coverage.get(key);
+	}
+
+	/**
+	 * Method put.
+	 * 
+	 * @param coverage
+	 *            CandleCoverage
+	 */
+	public static void put(CandleCoverage coverage) {
+		m_coverage.put(coverage.getKey(), coverage);
+	}
+
+	/**
+	 * Method updateCandleSeries. The candles for each contract/barSize/
+	 * tradingday in the series replace those in the DB so the coverage is
+	 * rebuilt from the series. The series is the result of a broker data
+	 * request so every closed tradingday from the first to the last candle is
+	 * marked as fetched, including days where no bars were returned.
+	 * 
+	 * @param candleSeries
+	 *            CandleSeries
+	 */
+	public static void updateCandleSeries(CandleSeries candleSeries) {
+
+		CandleCoverage coverage = null;
+		Integer idContract = null;
+		Integer barSize = null;
+		Date firstOpen = null;
+		Date lastClose = null;
+		for (int i = 0; i < candleSeries.getItemCount(); i++) {
+			Candle candle = ((CandleItem) candleSeries.getDataItem(i))
+					.getCandle();
+			if (null == candle.getContract()
+					|| null == candle.getContract().getIdContract()
+					|| null == candle.getTradingday())
+				continue;
+
+			String key = CandleCoverage.getKey(candle.getContract()
+					.getIdContract(), candle.getBarSize(), candle
+					.getTradingday().getOpen());
+			if (null == coverage || !coverage.getKey().equals(key)) {
+				if (null != coverage)
+					put(coverage);
+				coverage = new CandleCoverage(candle.getContract()
+						.getIdContract(), candle.getBarSize(), candle
+						.getTradingday().getOpen(), candle.getTradingday()
+						.getClose());
+				if (null == firstOpen) {
+					idContract = coverage.getIdContract();
+					barSize = coverage.getBarSize();
+					firstOpen = coverage.getOpen();
+				}
+				lastClose = coverage.getClose();
+			}
+			coverage.addCandle(candle.getStartPeriod());
+		}
+		if (null != coverage)
+			put(coverage);
+
+		if (null != firstOpen)
+			setFetched(idContract, barSize, firstOpen, lastClose);
+	}
+
+	/**
+	 * Method setFetched. Mark the tradingdays from the open of the start date
+	 * to the end date as fetched. Tradingdays that have not closed yet are
+	 * left as they are as more bars will follow.
+	 * 
+	 * @param idContract
+	 *            Integer
+	 * @param barSize
+	 *            Integer
+	 * @param startDate
+	 *            Date the open of the first tradingday.
+	 * @param endDate
+	 *            Date the close of the last tradingday.
+	 */
+	public static void setFetched(Integer idContract, Integer barSize,
+			Date startDate, Date endDate) {
+
+		long now = System.currentTimeMillis();
+		Date day = startDate;
+		while (!day.after(endDate)) {
+			if (TradingCalendar.isTradingDay(day)) {
+				String key = CandleCoverage.getKey(idContract, barSize, day);
+				CandleCoverage coverage = m_coverage.get(key);
+				if (null == coverage) {
+					coverage = new CandleCoverage(idContract, barSize, day,
+							TradingCalendar.getSpecificTime(endDate, day));
+					CandleCoverage current = m_coverage.putIfAbsent(key,
+							coverage);
+					if (null != current)
+						coverage = current;
+				}
+				if (coverage.getClose().getTime() <= now)
+					coverage.setFetched(true);
+			}
+			day = TradingCalendar.addDays(day, 1);
+		}
+	}
+
+	/**
+	 * Method updateCandle. Only tradingdays that are already in the index are
+	 * updated, others will be loaded from the DB when next requested.
+	 * 
+	 * @param candle
+	 *            Candle
+	 */
+	public static void updateCandle(Candle candle) {
+		if (null == candle.getContract()
+				|| null == candle.getContract().getIdContract()
+				|| null == candle.getTradingday())
+			return;
+
+		CandleCoverage coverage = m_coverage.get(CandleCoverage.getKey(candle
+				.getContract().getIdContract(), candle.getBarSize(), candle
+				.getTradingday().getOpen()));
+		if (null != coverage)
+			coverage.addCandle(candle.getStartPeriod());
+	}
+
+	/**
+	 * Method remove. Remove all the coverage for a contract, this will force a
+	 * reload from the DB.
+	 * 
+	 * @param idContract
+	 *            Integer
+	 */
+	public static void remove(Integer idContract) {
+		String prefix = idContract + "_";
+		for (String key : m_coverage.keySet()) {
+			if (key.startsWith(prefix))
+				m_coverage.remove(key);
+		}
+	}
+
+	/**
+	 * Method clear. Clear the index, coverage will be rebuilt from the DB.
+	 */
+	public static void clear() {
+		m_coverage.clear();
+	}
+}
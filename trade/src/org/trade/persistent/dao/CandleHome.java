@@ -283,6 +283,72 @@ public class CandleHome {
 		}
 	}
 
+	/**
+	 * Method findCandleCoverage. Loads only the start period and the
+	 * tradingday open/close of each candle so the coverage of each trading
+	 * day can be rebuilt without materializing the candles.
+	 * 
+	 * @param idContract
+	 *            Integer
+	 * @param startOpenDate
+	 *            Date
+	 * @param endOpenDate
+	 *            Date
+	 * @param barSize
+	 *            Integer
+	 * @return List<CandleCoverage> in ascending tradingday order.
+	 */
+	public List<CandleCoverage> findCandleCoverage(Integer idContract,
+			Date startOpenDate, Date endOpenDate, Integer barSize) {
+
+		try {
+			EntityManager entityManager = EntityManagerHelper
+					.getEntityManager();
+			entityManager.getTransaction().begin();
+			CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+			CriteriaQuery<Object[]> query = builder
+					.createQuery(Object[].class);
+			Root<Candle> from = query.from(Candle.class);
+			Join<Candle, Contract> contract = from.join("contract");
+			Join<Candle, Tradingday> tradingday = from.join("tradingday");
+			query.multiselect(from.get("startPeriod"), tradingday.get("open"),
+					tradingday.get("close"));
+			query.orderBy(builder.asc(from.get("startPeriod")));
+			List<Predicate> predicates = new ArrayList<Predicate>();
+			predicates.add(builder.equal(contract.get("idContract"),
+					idContract));
+			predicates.add(builder.greaterThanOrEqualTo(tradingday.get("open")
+					.as(Date.class), startOpenDate));
+			predicates.add(builder.lessThanOrEqualTo(tradingday.get("open")
+					.as(Date.class), endOpenDate));
+			predicates.add(builder.equal(from.get("barSize"), barSize));
+			query.where(predicates.toArray(new Predicate[] {}));
+			TypedQuery<Object[]> typedQuery = entityManager.createQuery(query);
+			List<Object[]> rows = typedQuery.getResultList();
+			entityManager.getTransaction().commit();
+
+			List<CandleCoverage> coverages = new ArrayList<CandleCoverage>();
+			CandleCoverage coverage = null;
+			for (Object[] row : rows) {
+				Date open = (Date) row[1];
+				if (null == coverage
+						|| coverage.getOpen().getTime() != open.getTime()) {
+					coverage = new CandleCoverage(idContract, barSize, open,
+							(Date) row[2]);
+					coverages.add(coverage);
+				}
+				coverage.addCandle((Date) row[0]);
+			}
+			return coverages;
+
+		} catch (Exception re) {
+			EntityManagerHelper.rollback();
+			throw re;
+		} finally {
+			EntityManagerHelper.close();
+		}
+	}
+
 	/**
 	 * Method findById.
 	 * 
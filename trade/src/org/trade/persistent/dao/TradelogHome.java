@@ -35,6 +35,7 @@
  */
 package org.trade.persistent.dao;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -44,6 +45,7 @@ import javax.persistence.EntityManager;
 import javax.persistence.Query;
 
 import org.trade.core.dao.EntityManagerHelper;
+import org.trade.core.properties.ConfigProperties;
 
 /**
  */
@@ -52,6 +54,8 @@ public class TradelogHome {
 	private static final SimpleDateFormat m_sdf = new SimpleDateFormat(
 			"yyyy-MM-dd HH:mm:ss");
 
+	private static String m_tradelogPositionSQL = null;
+
 	public TradelogHome() {
 
 	}
@@ -209,4 +213,68 @@ public class TradelogHome {
 			entityManagerLocal.close();
 		}
 	}
+
+	/**
+	 * Method refreshTradelogPosition. Rebuild the tradelogposition row(s) for
+	 * a closed TradePosition from its filled orders. The summary report reads
+	 * these rows so it no longer has to total the order history on every
+	 * refresh. Rows for positions that are not closed are removed.
+	 * 
+	 * @param idTradePosition
+	 *            Integer the position to refresh or null for all positions.
+	 * @return int the number of rows written.
+	 */
+	public int refreshTradelogPosition(Integer idTradePosition) {
+		EntityManager entityManagerLocal = EntityManagerHelper
+				.getLocalEntityManager();
+		try {
+			entityManagerLocal.getTransaction().begin();
+			Query queryDelete = null;
+			if (null == idTradePosition) {
+				queryDelete = entityManagerLocal
+						.createNativeQuery("delete from tradelogposition");
+			} else {
+				queryDelete = entityManagerLocal
+						.createNativeQuery("delete from tradelogposition where idTradePosition = :idTradePosition");
+				queryDelete.setParameter("idTradePosition", idTradePosition);
+			}
+			queryDelete.executeUpdate();
+
+			Query queryInsert = entityManagerLocal
+					.createNativeQuery(getTradelogPositionSQL());
+			queryInsert.setParameter("idTradePosition", idTradePosition);
+			int rows = queryInsert.executeUpdate();
+			entityManagerLocal.getTransaction().commit();
+			return rows;
+
+		} catch (Exception re) {
+			if ((entityManagerLocal.getTransaction() != null)
+					&& entityManagerLocal.getTransaction().isActive()) {
+				entityManagerLocal.getTransaction().rollback();
+			}
+			throw re;
+		} finally {
+			entityManagerLocal.close();
+		}
+	}
+
+	/**
+	 * Method getTradelogPositionSQL.
+	 * 
+	 * @return String
+	 */
+	private static synchronized String getTradelogPositionSQL() {
+		if (null == m_tradelogPositionSQL) {
+			try {
+				m_tradelogPositionSQL = ConfigProperties.readFileAsString(
+						"org/trade/persistent/dao/sql/TradelogPosition.sql",
+						Thread.currentThread().getContextClassLoader());
+			} catch (IOException e) {
+				throw new IllegalStateException(
+						"Could not read TradelogPosition.sql: "
+								+ e.getMessage());
+			}
+		}
+		return m_tradelogPositionSQL;
+	}
 }
@@ -65,7 +65,7 @@ public class TradestrategyHome {
 	 *            Integer
 	 * @return Tradestrategy
 	 */
-	public synchronized Tradestrategy findById(Integer id) {
+	public Tradestrategy findById(Integer id) {
 
 		try {
 			EntityManager entityManager = EntityManagerHelper
@@ -96,7 +96,7 @@ public class TradestrategyHome {
 	 *            Integer
 	 * @return TradestrategyLite
 	 */
-	public synchronized TradestrategyLite findTradestrategyLiteById(Integer id) {
+	public TradestrategyLite findTradestrategyLiteById(Integer id) {
 
 		try {
 			EntityManager entityManager = EntityManagerHelper
@@ -121,7 +121,7 @@ public class TradestrategyHome {
 	 *            Integer
 	 * @return Integer
 	 */
-	public synchronized Integer findVersionById(Integer id) {
+	public Integer findVersionById(Integer id) {
 
 		try {
 			EntityManager entityManager = EntityManagerHelper
@@ -163,7 +163,7 @@ public class TradestrategyHome {
 	 * @return PositionOrders
 	 */
 
-	public synchronized TradestrategyOrders findPositionOrdersByTradestrategyId(
+	public TradestrategyOrders findPositionOrdersByTradestrategyId(
 			Integer idTradestrategy) {
 
 		try {
@@ -196,7 +196,7 @@ public class TradestrategyHome {
 	 *            Integer
 	 * @return Tradestrategy
 	 */
-	public synchronized Tradestrategy findByTradeOrderId(Integer idTradeOrder) {
+	public Tradestrategy findByTradeOrderId(Integer idTradeOrder) {
 
 		try {
 			Tradestrategy tradestrategy = null;
@@ -37,6 +37,7 @@ package org.trade.persistent.dao;
 
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 
 import javax.ejb.Stateless;
@@ -45,18 +46,28 @@ import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Fetch;
 import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
 
 import org.trade.core.dao.EntityManagerHelper;
 import org.trade.core.util.TradingCalendar;
+import org.trade.strategy.data.IndicatorSeries;
 
 /**
  */
 @Stateless
 public class TradingdayHome {
 
+	private static final int BATCH_SIZE = 500;
+	/*
+	 * Must match hibernate.jdbc.batch_size in persistence.xml.
+	 */
+	private static final int JDBC_BATCH_SIZE = 50;
+
 	public TradingdayHome() {
 
 	}
@@ -192,6 +203,202 @@ public class TradingdayHome {
 		}
 	}
 
+	/**
+	 * Method persistTradingdays. Bulk save of tradingdays that have not been
+	 * saved before e.g. from a contract file import. Everything is saved in
+	 * one transaction in dependency order, the contracts, then the
+	 * tradingdays, then the tradestrategies. The existing contracts and
+	 * tradingdays are read with one query per entity type rather than one per
+	 * tradestrategy. The tradestrategies are written in JDBC batches and the
+	 * persistence context is cleared after each batch so it does not grow
+	 * with the file. Unlike persist(Tradingday) tradestrategies are never
+	 * removed.
+	 * 
+	 * @param detachedInstances
+	 *            List<Tradingday> the new tradingdays.
+	 * @throws Exception
+	 */
+	public void persistTradingdays(List<Tradingday> detachedInstances)
+			throws Exception {
+
+		try {
+			EntityManager entityManager = EntityManagerHelper
+					.getEntityManager();
+			entityManager.getTransaction().begin();
+
+			List<Tradestrategy> tradestrategies = new ArrayList<Tradestrategy>();
+			Date startDate = null;
+			Date endDate = null;
+			for (Tradingday tradingday : detachedInstances) {
+				if (null == startDate || tradingday.getOpen().before(startDate))
+					startDate = tradingday.getOpen();
+				if (null == endDate || tradingday.getOpen().after(endDate))
+					endDate = tradingday.getOpen();
+				for (Tradestrategy tradestrategy : tradingday
+						.getTradestrategies()) {
+					// If it has trades do nothing
+					if (tradestrategy.getTradeOrders().isEmpty()
+							&& tradestrategy.isDirty())
+						tradestrategies.add(tradestrategy);
+				}
+			}
+			if (null == startDate) {
+				entityManager.getTransaction().commit();
+				return;
+			}
+
+			/*
+			 * Contracts. Find all the contracts for the symbols and use the
+			 * persisted one if it exists, persist any new ones once.
+			 */
+			HashMap<String, Contract> contracts = new HashMap<String, Contract>();
+			List<String> symbols = new ArrayList<String>();
+			for (Tradestrategy tradestrategy : tradestrategies) {
+				if (!symbols.contains(tradestrategy.getContract().getSymbol()))
+					symbols.add(tradestrategy.getContract().getSymbol());
+			}
+			for (Contract contract : findContractsBySymbols(symbols)) {
+				contracts.put(getContractKey(contract), contract);
+			}
+			for (Tradestrategy tradestrategy : tradestrategies) {
+				String key = getContractKey(tradestrategy.getContract());
+				Contract contract = contracts.get(key);
+				if (null == contract) {
+					contract = tradestrategy.getContract();
+					if (null == contract.getIdContract()) {
+						entityManager.persist(contract);
+					} else {
+						contract = entityManager.merge(contract);
+					}
+					contracts.put(key, contract);
+				}
+				tradestrategy.setContract(contract);
+			}
+
+			/*
+			 * Tradingdays. Merge with the persisted one if it exists if not
+			 * persist.
+			 */
+			HashMap<String, Tradingday> tradingdays = new HashMap<String, Tradingday>();
+			for (Tradingday tradingday : findTradingdaysByOpenDateRange(
+					startDate, endDate)) {
+				tradingdays.put(getTradingdayKey(tradingday), tradingday);
+			}
+			for (Tradingday detachedInstance : detachedInstances) {
+				Tradingday tradingday = tradingdays
+						.get(getTradingdayKey(detachedInstance));
+				if (null == tradingday) {
+					entityManager.persist(detachedInstance);
+					tradingday = detachedInstance;
+				} else {
+					detachedInstance.setIdTradingDay(tradingday
+							.getIdTradingDay());
+					detachedInstance.setVersion(tradingday.getVersion());
+					tradingday = entityManager.merge(detachedInstance);
+				}
+				for (Tradestrategy tradestrategy : detachedInstance
+						.getTradestrategies()) {
+					if (tradestrategy.getTradeOrders().isEmpty()
+							&& tradestrategy.isDirty())
+						tradestrategy.setTradingday(tradingday);
+				}
+			}
+
+			/*
+			 * Tradestrategies. The strategy will always exist as these cannot
+			 * be created via the import so find the persisted one once per
+			 * name.
+			 */
+			HashMap<String, Strategy> strategies = new HashMap<String, Strategy>();
+			List<Tradestrategy> batch = new ArrayList<Tradestrategy>(
+					JDBC_BATCH_SIZE);
+			List<Contract> batchContracts = new ArrayList<Contract>(
+					JDBC_BATCH_SIZE);
+			List<Tradingday> batchTradingdays = new ArrayList<Tradingday>(
+					JDBC_BATCH_SIZE);
+			for (Tradestrategy tradestrategy : tradestrategies) {
+				String name = tradestrategy.getStrategy().getName();
+				if (!strategies.containsKey(name))
+					strategies.put(name, this.findStrategyByName(name));
+				if (null != strategies.get(name))
+					tradestrategy.setStrategy(strategies.get(name));
+
+				/*
+				 * Once the context has been cleared the contract and
+				 * tradingday are detached, persist would cascade to them so
+				 * use a reference until the batch is flushed.
+				 */
+				batch.add(tradestrategy);
+				batchContracts.add(tradestrategy.getContract());
+				batchTradingdays.add(tradestrategy.getTradingday());
+				if (!entityManager.contains(tradestrategy.getContract()))
+					tradestrategy.setContract(entityManager.getReference(
+							Contract.class, tradestrategy.getContract()
+									.getIdContract()));
+				if (!entityManager.contains(tradestrategy.getTradingday()))
+					tradestrategy.setTradingday(entityManager.getReference(
+							Tradingday.class, tradestrategy.getTradingday()
+									.getIdTradingDay()));
+
+				if (null == tradestrategy.getIdTradeStrategy()) {
+					entityManager.persist(tradestrategy);
+				} else {
+					Tradestrategy instance = entityManager.merge(tradestrategy);
+					tradestrategy.setVersion(instance.getVersion());
+				}
+				if (batch.size() == JDBC_BATCH_SIZE) {
+					flushBatch(entityManager, batch, batchContracts,
+							batchTradingdays);
+				}
+			}
+			flushBatch(entityManager, batch, batchContracts, batchTradingdays);
+			entityManager.getTransaction().commit();
+
+			for (Tradestrategy tradestrategy : tradestrategies) {
+				tradestrategy.setDirty(false);
+			}
+			for (Tradingday detachedInstance : detachedInstances) {
+				detachedInstance.setDirty(false);
+			}
+
+		} catch (Exception re) {
+			EntityManagerHelper.logError(
+					"Error saving Tradingdays: " + re.getMessage(), re);
+			EntityManagerHelper.rollback();
+			throw re;
+		} finally {
+			EntityManagerHelper.close();
+		}
+	}
+
+	/**
+	 * Method flushBatch. Write the batch of tradestrategies and clear the
+	 * persistence context. The tradestrategies then get back the contract
+	 * and tradingday they had before they were saved.
+	 * 
+	 * @param entityManager
+	 *            EntityManager
+	 * @param batch
+	 *            List<Tradestrategy>
+	 * @param contracts
+	 *            List<Contract> the contract of each tradestrategy.
+	 * @param tradingdays
+	 *            List<Tradingday> the tradingday of each tradestrategy.
+	 */
+	private void flushBatch(EntityManager entityManager,
+			List<Tradestrategy> batch, List<Contract> contracts,
+			List<Tradingday> tradingdays) {
+		entityManager.flush();
+		entityManager.clear();
+		for (int i = 0; i < batch.size(); i++) {
+			batch.get(i).setContract(contracts.get(i));
+			batch.get(i).setTradingday(tradingdays.get(i));
+		}
+		batch.clear();
+		contracts.clear();
+		tradingdays.clear();
+	}
+
 	/**
 	 * Method findTradingdayById.
 	 * 
@@ -224,7 +431,10 @@ public class TradingdayHome {
 	}
 
 	/**
-	 * Method findTradingdaysByDateRange.
+	 * Method findTradingdaysByDateRange. The tradingdays are loaded with the
+	 * full fetch plan, everything the Tradingday Tab and the back test use is
+	 * read up front. Each level of the plan is one query so the number of
+	 * queries does not grow with the number of tradestrategies.
 	 * 
 	 * @param startDate
 	 *            Date
@@ -233,6 +443,40 @@ public class TradingdayHome {
 	 * @return Tradingdays
 	 */
 	public Tradingdays findTradingdaysByDateRange(Date startDate, Date endDate) {
+		return findTradingdaysByDateRange(startDate, endDate, true);
+	}
+
+	/**
+	 * Method findTradingdayListByDateRange. The tradingdays are loaded with
+	 * the list fetch plan, the tradestrategies with their contract, strategy
+	 * and portfolio. The trade orders, portfolio accounts and indicator series
+	 * are not read and must not be used, this is for views that only list the
+	 * tradestrategies.
+	 * 
+	 * @param startDate
+	 *            Date
+	 * @param endDate
+	 *            Date
+	 * @return Tradingdays
+	 */
+	public Tradingdays findTradingdayListByDateRange(Date startDate,
+			Date endDate) {
+		return findTradingdaysByDateRange(startDate, endDate, false);
+	}
+
+	/**
+	 * Method findTradingdaysByDateRange.
+	 * 
+	 * @param startDate
+	 *            Date
+	 * @param endDate
+	 *            Date
+	 * @param fetchDetails
+	 *            boolean true for the full fetch plan.
+	 * @return Tradingdays
+	 */
+	private Tradingdays findTradingdaysByDateRange(Date startDate,
+			Date endDate, boolean fetchDetails) {
 
 		try {
 			EntityManager entityManager = EntityManagerHelper
@@ -243,33 +487,48 @@ public class TradingdayHome {
 			CriteriaQuery<Tradingday> query = builder
 					.createQuery(Tradingday.class);
 			Root<Tradingday> from = query.from(Tradingday.class);
-			query.select(from);
+			/*
+			 * Fetch the tradestrategies and their many to ones in the same
+			 * query, otherwise each contract, strategy and portfolio is a
+			 * select.
+			 */
+			Fetch<Tradingday, Tradestrategy> tradestrategies = from.fetch(
+					"tradestrategies", JoinType.LEFT);
+			tradestrategies.fetch("contract", JoinType.LEFT).fetch(
+					"tradePosition", JoinType.LEFT);
+			tradestrategies.fetch("strategy", JoinType.LEFT).fetch(
+					"strategyManager", JoinType.LEFT);
+			tradestrategies.fetch("portfolio", JoinType.LEFT);
+			query.select(from).distinct(true);
 			query.orderBy(builder.desc(from.get("open")));
-			List<Predicate> predicates = new ArrayList<Predicate>();
-
-			if (null != startDate) {
-				Predicate predicate = builder.greaterThanOrEqualTo(
-						from.get("open").as(Date.class), startDate);
-				predicates.add(predicate);
-			}
-			if (null != endDate) {
-				Predicate predicate = builder.lessThanOrEqualTo(from
-						.get("open").as(Date.class), endDate);
-				predicates.add(predicate);
-			}
-
-			query.where(predicates.toArray(new Predicate[] {}));
+			query.where(getOpenDateRange(builder, from, startDate, endDate));
 			TypedQuery<Tradingday> typedQuery = entityManager
 					.createQuery(query);
 			List<Tradingday> items = typedQuery.getResultList();
 			for (Tradingday tradingday : items) {
 				tradingdays.add(tradingday);
-				for (Tradestrategy tradestrategy : tradingday
-						.getTradestrategies()) {
-					tradestrategy.getTradeOrders().size();
-					tradestrategy.getPortfolio().getPortfolioAccounts().size();
-					tradestrategy.getStrategy().getIndicatorSeries().size();
+			}
+			if (fetchDetails && !items.isEmpty()) {
+				fetchTradeOrders(entityManager, startDate, endDate);
+				List<Integer> idPortfolios = new ArrayList<Integer>();
+				List<Integer> idStrategies = new ArrayList<Integer>();
+				for (Tradingday tradingday : items) {
+					for (Tradestrategy tradestrategy : tradingday
+							.getTradestrategies()) {
+						if (null != tradestrategy.getPortfolio()
+								&& !idPortfolios.contains(tradestrategy
+										.getPortfolio().getIdPortfolio()))
+							idPortfolios.add(tradestrategy.getPortfolio()
+									.getIdPortfolio());
+						if (null != tradestrategy.getStrategy()
+								&& !idStrategies.contains(tradestrategy
+										.getStrategy().getIdStrategy()))
+							idStrategies.add(tradestrategy.getStrategy()
+									.getIdStrategy());
+					}
 				}
+				fetchPortfolioAccounts(entityManager, idPortfolios);
+				fetchIndicatorSeries(entityManager, idStrategies);
 			}
 			entityManager.getTransaction().commit();
 			return tradingdays;
@@ -282,6 +541,122 @@ public class TradingdayHome {
 		}
 	}
 
+	/**
+	 * Method fetchTradeOrders. Read the trade orders for all the
+	 * tradestrategies in the date range in one query. The orders are added to
+	 * the tradestrategies already in the persistence context.
+	 * 
+	 * @param entityManager
+	 *            EntityManager
+	 * @param startDate
+	 *            Date
+	 * @param endDate
+	 *            Date
+	 */
+	private void fetchTradeOrders(EntityManager entityManager, Date startDate,
+			Date endDate) {
+		CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+		CriteriaQuery<Tradestrategy> query = builder
+				.createQuery(Tradestrategy.class);
+		Root<Tradestrategy> from = query.from(Tradestrategy.class);
+		Fetch<Tradestrategy, TradeOrder> tradeOrders = from.fetch(
+				"tradeOrders", JoinType.LEFT);
+		tradeOrders.fetch("tradePosition", JoinType.LEFT).fetch("contract",
+				JoinType.LEFT);
+		tradeOrders.fetch("tradestrategyId", JoinType.LEFT);
+		Join<Tradestrategy, Tradingday> tradingday = from.join("tradingday");
+		query.select(from).distinct(true);
+		query.where(getOpenDateRange(builder, tradingday, startDate, endDate));
+		entityManager.createQuery(query).getResultList();
+	}
+
+	/**
+	 * Method fetchPortfolioAccounts. Read the accounts for the portfolios in
+	 * one query.
+	 * 
+	 * @param entityManager
+	 *            EntityManager
+	 * @param idPortfolios
+	 *            List<Integer>
+	 */
+	private void fetchPortfolioAccounts(EntityManager entityManager,
+			List<Integer> idPortfolios) {
+		if (idPortfolios.isEmpty())
+			return;
+		CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+		CriteriaQuery<Portfolio> query = builder.createQuery(Portfolio.class);
+		Root<Portfolio> from = query.from(Portfolio.class);
+		Fetch<Portfolio, PortfolioAccount> portfolioAccounts = from.fetch(
+				"portfolioAccounts", JoinType.LEFT);
+		portfolioAccounts.fetch("account", JoinType.LEFT);
+		query.select(from).distinct(true);
+		query.where(from.get("idPortfolio").in(idPortfolios));
+		entityManager.createQuery(query).getResultList();
+	}
+
+	/**
+	 * Method fetchIndicatorSeries. Read the indicator series for the
+	 * strategies. The series and their code values are read first as both are
+	 * lists and cannot be fetched in one query, then the strategies are read
+	 * with their series.
+	 * 
+	 * @param entityManager
+	 *            EntityManager
+	 * @param idStrategies
+	 *            List<Integer>
+	 */
+	private void fetchIndicatorSeries(EntityManager entityManager,
+			List<Integer> idStrategies) {
+		if (idStrategies.isEmpty())
+			return;
+		CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+		CriteriaQuery<IndicatorSeries> seriesQuery = builder
+				.createQuery(IndicatorSeries.class);
+		Root<IndicatorSeries> series = seriesQuery.from(IndicatorSeries.class);
+		series.fetch("codeValues", JoinType.LEFT);
+		Join<IndicatorSeries, Strategy> strategy = series.join("strategy");
+		seriesQuery.select(series).distinct(true);
+		seriesQuery.where(strategy.get("idStrategy").in(idStrategies));
+		entityManager.createQuery(seriesQuery).getResultList();
+
+		CriteriaQuery<Strategy> query = builder.createQuery(Strategy.class);
+		Root<Strategy> from = query.from(Strategy.class);
+		from.fetch("indicatorSeries", JoinType.LEFT);
+		query.select(from).distinct(true);
+		query.where(from.get("idStrategy").in(idStrategies));
+		entityManager.createQuery(query).getResultList();
+	}
+
+	/**
+	 * Method getOpenDateRange.
+	 * 
+	 * @param builder
+	 *            CriteriaBuilder
+	 * @param tradingday
+	 *            Path<Tradingday>
+	 * @param startDate
+	 *            Date
+	 * @param endDate
+	 *            Date
+	 * @return Predicate[]
+	 */
+	private Predicate[] getOpenDateRange(CriteriaBuilder builder,
+			Path<Tradingday> tradingday, Date startDate, Date endDate) {
+		List<Predicate> predicates = new ArrayList<Predicate>();
+
+		if (null != startDate) {
+			Predicate predicate = builder.greaterThanOrEqualTo(
+					tradingday.get("open").as(Date.class), startDate);
+			predicates.add(predicate);
+		}
+		if (null != endDate) {
+			Predicate predicate = builder.lessThanOrEqualTo(
+					tradingday.get("open").as(Date.class), endDate);
+			predicates.add(predicate);
+		}
+		return predicates.toArray(new Predicate[] {});
+	}
+
 	/**
 	 * Method findByOpen.
 	 * 
@@ -395,6 +770,83 @@ public class TradingdayHome {
 		}
 	}
 
+	/**
+	 * Method findTradingdaysByOpenDateRange.
+	 * 
+	 * @param startDate
+	 *            Date
+	 * @param endDate
+	 *            Date
+	 * @return List<Tradingday>
+	 */
+	private List<Tradingday> findTradingdaysByOpenDateRange(Date startDate,
+			Date endDate) {
+
+		EntityManager entityManager = EntityManagerHelper.getEntityManager();
+		CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+		CriteriaQuery<Tradingday> query = builder.createQuery(Tradingday.class);
+		Root<Tradingday> from = query.from(Tradingday.class);
+		query.select(from);
+		Expression<Date> open = from.get("open");
+		query.where(builder.between(open, startDate, endDate));
+		return entityManager.createQuery(query).getResultList();
+	}
+
+	/**
+	 * Method findContractsBySymbols. The symbols are queried in batches to
+	 * keep the in list a reasonable size.
+	 * 
+	 * @param symbols
+	 *            List<String>
+	 * @return List<Contract>
+	 */
+	private List<Contract> findContractsBySymbols(List<String> symbols) {
+
+		EntityManager entityManager = EntityManagerHelper.getEntityManager();
+		List<Contract> contracts = new ArrayList<Contract>();
+		for (int i = 0; i < symbols.size(); i = i + BATCH_SIZE) {
+			CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+			CriteriaQuery<Contract> query = builder.createQuery(Contract.class);
+			Root<Contract> from = query.from(Contract.class);
+			query.select(from);
+			Expression<String> symbol = from.get("symbol");
+			query.where(symbol.in(symbols.subList(i,
+					Math.min(i + BATCH_SIZE, symbols.size()))));
+			contracts.addAll(entityManager.createQuery(query).getResultList());
+		}
+		return contracts;
+	}
+
+	/**
+	 * Method getContractKey. The same key as findContractByUniqueKey i.e.
+	 * expiry is matched on year and month.
+	 * 
+	 * @param contract
+	 *            Contract
+	 * @return String
+	 */
+	private static String getContractKey(Contract contract) {
+		String expiry = "";
+		if (null != contract.getExpiry())
+			expiry = TradingCalendar.getYear(contract.getExpiry()) + "/"
+					+ TradingCalendar.getMonth(contract.getExpiry());
+		return contract.getSecType() + "|" + contract.getSymbol() + "|"
+				+ contract.getExchange() + "|" + contract.getCurrency() + "|"
+				+ expiry;
+	}
+
+	/**
+	 * Method getTradingdayKey.
+	 * 
+	 * @param tradingday
+	 *            Tradingday
+	 * @return String
+	 */
+	private static String getTradingdayKey(Tradingday tradingday) {
+		return tradingday.getOpen().getTime() + "|"
+				+ tradingday.getClose().getTime();
+	}
+
 	/**
 	 * Method findTradestrategyByDate.
 	 * 
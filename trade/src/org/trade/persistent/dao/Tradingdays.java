@@ -35,20 +35,36 @@
  */
 package org.trade.persistent.dao;
 
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.text.ParseException;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Scanner;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import javax.persistence.Persistence;
+import javax.persistence.PersistenceUtil;
 
 import org.trade.core.dao.Aspect;
 import org.trade.core.lookup.DBTableLookupServiceProvider;
@@ -63,6 +79,19 @@ import org.trade.dictionary.valuetype.Tier;
 import org.trade.persistent.PersistentModelException;
 
 /**
+ * The Tradingdays in view. Secondary indexes are kept for the tradingdays by
+ * open/close, the tradestrategies by id and the contracts by symbol and by
+ * secType/symbol/exchange/currency so the lookups used on every order event
+ * and every line of a contract file do not scan every tradingday and
+ * tradestrategy. The indexes are ConcurrentHashMaps so reads do not lock.
+ * 
+ * The tradingday index follows every change made to the list (including via
+ * getTradingdays(), its iterators and sub lists). Tradestrategies may be added
+ * to or removed from a Tradingday directly, so an index hit is checked against
+ * the position it was found at on its tradingday and a miss falls back to a
+ * scan that then indexes the result. The contract indexes hold the
+ * tradestrategy the contract was found on and are checked the same way so a
+ * contract is not returned once no tradestrategy in view uses it.
  */
 public class Tradingdays extends Aspect implements java.io.Serializable {
 
@@ -70,11 +99,27 @@ public class Tradingdays extends Aspect implements java.io.Serializable {
 	 * 
 	 */
 	private static final long serialVersionUID = 3388042483785305102L;
+	private static final int IMPORT_CHUNK_SIZE = 1000;
+	private static final int IMPORT_THREADS = Math.max(1, Runtime
+			.getRuntime().availableProcessors());
+	// Shared by every import rather than a pool per file
+	private static final ExecutorService m_importExecutor = Executors
+			.newFixedThreadPool(IMPORT_THREADS, new ThreadFactory() {
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "ImportParseChunk");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
 	// private ConcurrentHashMap<Date, Tradingday> tradingdays = new
 	// ConcurrentHashMap<Date, Tradingday>(
 	// 0);
+	private final ConcurrentHashMap<String, Tradingday> tradingdayIndex = new ConcurrentHashMap<String, Tradingday>();
+	private final ConcurrentHashMap<Integer, TradestrategyEntry> tradestrategyIndex = new ConcurrentHashMap<Integer, TradestrategyEntry>();
+	private final ConcurrentHashMap<String, TradestrategyEntry> contractIndex = new ConcurrentHashMap<String, TradestrategyEntry>();
+	private final ConcurrentHashMap<String, TradestrategyEntry> symbolIndex = new ConcurrentHashMap<String, TradestrategyEntry>();
 	private List<Tradingday> tradingdays = Collections
-			.synchronizedList(new ArrayList<Tradingday>(0));
+			.synchronizedList(new IndexedList());
 
 	public Tradingdays() {
 	}
@@ -140,16 +185,7 @@ public class Tradingdays extends Aspect implements java.io.Serializable {
 	 *            Tradingday
 	 */
 	public void remove(Tradingday tradingday) {
-		synchronized (this.tradingdays) {
-			for (ListIterator<Tradingday> itemIter = this.tradingdays
-					.listIterator(); itemIter.hasNext();) {
-				Tradingday item = itemIter.next();
-				if (item.equals(tradingday)) {
-					itemIter.remove();
-					break;
-				}
-			}
-		}
+		remove(tradingday.getOpen(), tradingday.getClose());
 	}
 
 	/**
@@ -162,16 +198,10 @@ public class Tradingdays extends Aspect implements java.io.Serializable {
 	 *            Date
 	 */
 	public void remove(Date open, Date close) {
-		synchronized (this.tradingdays) {
-			for (ListIterator<Tradingday> itemIter = this.tradingdays
-					.listIterator(); itemIter.hasNext();) {
-				Tradingday item = itemIter.next();
-				if (item.getOpen().compareTo(open) == 0
-						&& item.getClose().compareTo(close) == 0) {
-					itemIter.remove();
-					break;
-				}
-			}
+		Tradingday item = this.tradingdayIndex.get(getTradingdayKey(open,
+				close));
+		if (null != item) {
+			this.tradingdays.remove(item);
 		}
 	}
 
@@ -191,7 +221,9 @@ public class Tradingdays extends Aspect implements java.io.Serializable {
 	 *            ConcurrentHashMap<Date,Tradingday>
 	 */
 	public void setTradingdays(List<Tradingday> tradingdays) {
-		this.tradingdays = Collections.synchronizedList(tradingdays);
+		this.tradingdays = Collections.synchronizedList(new IndexedList());
+		clearIndexes();
+		this.tradingdays.addAll(tradingdays);
 	}
 
 	/**
@@ -204,14 +236,7 @@ public class Tradingdays extends Aspect implements java.io.Serializable {
 	 * @return Tradingday
 	 */
 	public Tradingday getTradingday(Date open, Date close) {
-		synchronized (this.tradingdays) {
-			for (Tradingday tradingday : this.tradingdays) {
-				if (tradingday.getOpen().compareTo(open) == 0
-						&& tradingday.getClose().compareTo(close) == 0)
-					return tradingday;
-			}
-		}
-		return null;
+		return this.tradingdayIndex.get(getTradingdayKey(open, close));
 	}
 
 	/**
@@ -224,13 +249,8 @@ public class Tradingdays extends Aspect implements java.io.Serializable {
 	 * @return boolean
 	 */
 	public boolean containsTradingday(Tradingday tradingday) {
-		synchronized (this.tradingdays) {
-			for (Tradingday item : this.tradingdays) {
-				if (item.equals(tradingday))
-					return true;
-			}
-		}
-		return false;
+		return this.tradingdayIndex.containsKey(getTradingdayKey(
+				tradingday.getOpen(), tradingday.getClose()));
 	}
 
 	/**
@@ -256,19 +276,91 @@ public class Tradingdays extends Aspect implements java.io.Serializable {
 	 * @return Contract
 	 */
 	public Contract getContract(String symbol) {
-		Contract contract = null;
+		if (null == symbol)
+			return null;
+		TradestrategyEntry entry = this.symbolIndex.get(symbol);
+		if (null != entry) {
+			Contract contract = entry.tradestrategy.getContract();
+			if (null != contract && symbol.equals(contract.getSymbol())
+					&& isIndexed(entry))
+				return contract;
+		}
+
 		synchronized (this.tradingdays) {
 			for (Tradingday tradingday : this.tradingdays) {
-				for (Tradestrategy tradestrategy : tradingday
-						.getTradestrategies()) {
-					if (tradestrategy.getContract().getSymbol().equals(symbol)) {
-						contract = tradestrategy.getContract();
-						break;
+				List<Tradestrategy> tradestrategies = tradingday
+						.getTradestrategies();
+				for (int i = 0; i < tradestrategies.size(); i++) {
+					Tradestrategy tradestrategy = tradestrategies.get(i);
+					if (symbol.equals(tradestrategy.getContract()
+							.getSymbol())) {
+						indexTradestrategy(tradestrategy, i);
+						return tradestrategy.getContract();
 					}
 				}
 			}
 		}
-		return contract;
+		if (null != entry)
+			this.symbolIndex.remove(symbol, entry);
+		return null;
+	}
+
+	/**
+	 * Method getIndexedContract. Used for every line of a contract file so a
+	 * symbol that is not indexed is taken as new without a scan of the
+	 * tradingdays, an indexed symbol is checked via getContract().
+	 * 
+	 * @param symbol
+	 *            String
+	 * @return Contract null if the symbol is not in view.
+	 */
+	private Contract getIndexedContract(String symbol) {
+		if (null == symbol || !this.symbolIndex.containsKey(symbol))
+			return null;
+		return getContract(symbol);
+	}
+
+	/**
+	 * Method getContract.
+	 * 
+	 * @param secType
+	 *            String
+	 * @param symbol
+	 *            String
+	 * @param exchange
+	 *            String
+	 * @param currency
+	 *            String
+	 * @return Contract
+	 */
+	public Contract getContract(String secType, String symbol,
+			String exchange, String currency) {
+		String key = getContractKey(secType, symbol, exchange, currency);
+		TradestrategyEntry entry = this.contractIndex.get(key);
+		if (null != entry) {
+			Contract contract = entry.tradestrategy.getContract();
+			if (null != contract && key.equals(getContractKey(contract))
+					&& isIndexed(entry))
+				return contract;
+		}
+
+		synchronized (this.tradingdays) {
+			for (Tradingday tradingday : this.tradingdays) {
+				List<Tradestrategy> tradestrategies = tradingday
+						.getTradestrategies();
+				for (int i = 0; i < tradestrategies.size(); i++) {
+					Tradestrategy tradestrategy = tradestrategies.get(i);
+					if (key.equals(getContractKey(tradestrategy
+							.getContract()))) {
+						indexTradestrategy(tradestrategy, i);
+						return tradestrategy.getContract();
+					}
+				}
+			}
+		}
+		if (null != entry)
+			this.contractIndex.remove(key, entry);
+		return null;
 	}
 
 	/**
@@ -279,20 +371,75 @@ public class Tradingdays extends Aspect implements java.io.Serializable {
 	 * @return Tradestrategy
 	 */
 	public Tradestrategy getTradestrategy(Integer idTradestrategy) {
+		if (null == idTradestrategy)
+			return null;
+		TradestrategyEntry entry = this.tradestrategyIndex
+				.get(idTradestrategy);
+		if (null != entry && isIndexed(entry))
+			return entry.tradestrategy;
+
 		synchronized (this.tradingdays) {
 			for (Tradingday tradingday : this.tradingdays) {
-				for (Tradestrategy tradestrategy : tradingday
-						.getTradestrategies()) {
-					if (tradestrategy.getIdTradeStrategy().equals(
-							idTradestrategy)) {
-						return tradestrategy;
+				List<Tradestrategy> tradestrategies = tradingday
+						.getTradestrategies();
+				for (int i = 0; i < tradestrategies.size(); i++) {
+					Tradestrategy item = tradestrategies.get(i);
+					if (idTradestrategy.equals(item.getIdTradeStrategy())) {
+						indexTradestrategy(item, i);
+						return item;
 					}
 				}
 			}
 		}
+		this.tradestrategyIndex.remove(idTradestrategy);
 		return null;
 	}
 
+	/**
+	 * Method merge. Add the tradingdays and tradestrategies read into
+	 * another Tradingdays i.e. by an import on a background thread. Existing
+	 * tradingdays and contracts are used in place of the imported ones.
+	 * 
+	 * @param imported
+	 *            Tradingdays
+	 */
+	public void merge(Tradingdays imported) {
+		synchronized (this.tradingdays) {
+			for (Tradingday importedTradingday : imported.getTradingdays()) {
+				Tradingday tradingday = this.getTradingday(
+						importedTradingday.getOpen(),
+						importedTradingday.getClose());
+				for (Tradestrategy tradestrategy : importedTradingday
+						.getTradestrategies()) {
+					Contract contract = getIndexedContract(tradestrategy
+							.getContract().getSymbol());
+					if (null != contract)
+						tradestrategy.setContract(contract);
+				}
+				if (null == tradingday) {
+					this.add(importedTradingday);
+					continue;
+				}
+				if (null == tradingday.getMarketGap())
+					tradingday.setMarketGap(importedTradingday.getMarketGap());
+				if (null == tradingday.getMarketBias())
+					tradingday
+							.setMarketBias(importedTradingday.getMarketBias());
+				if (null == tradingday.getMarketBar())
+					tradingday.setMarketBar(importedTradingday.getMarketBar());
+				for (Tradestrategy tradestrategy : importedTradingday
+						.getTradestrategies()) {
+					tradestrategy.setTradingday(tradingday);
+					if (!tradingday.existTradestrategy(tradestrategy))
+						tradingday.addTradestrategy(tradestrategy);
+				}
+				Collections.sort(tradingday.getTradestrategies(),
+						Tradestrategy.DATE_ORDER_ASC);
+				indexTradingday(tradingday);
+			}
+		}
+	}
+
 	/**
 	 * Method replaceTradingday.
 	 * 
@@ -300,13 +447,38 @@ public class Tradingdays extends Aspect implements java.io.Serializable {
 	 *            Tradingday
 	 */
 	public void replaceTradingday(Tradingday newTradingday) {
+		Tradingday item = this.getTradingday(newTradingday.getOpen(),
+				newTradingday.getClose());
+		if (null == item)
+			return;
+		synchronized (this.tradingdays) {
+			int index = this.tradingdays.indexOf(item);
+			if (index > -1)
+				this.tradingdays.set(index, newTradingday);
+		}
+	}
+
+	/**
+	 * Method replaceTradestrategy.
+	 * 
+	 * @param newTradestrategy
+	 *            Tradestrategy
+	 */
+	public void replaceTradestrategy(Tradestrategy newTradestrategy) {
+		/*
+		 * Tradestrategies are equal only when on the same tradingday so only
+		 * that tradingday needs to be searched.
+		 */
+		Tradingday tradingday = null;
+		if (null != newTradestrategy.getTradingday())
+			tradingday = this.getTradingday(newTradestrategy.getTradingday()
+					.getOpen(), newTradestrategy.getTradingday().getClose());
 		synchronized (this.tradingdays) {
-			for (ListIterator<Tradingday> itemIter = this.tradingdays
-					.listIterator(); itemIter.hasNext();) {
-				Tradingday item = itemIter.next();
-				if (item.equals(newTradingday)) {
-					itemIter.set(newTradingday);
-					break;
+			if (null != tradingday) {
+				replaceTradestrategy(tradingday, newTradestrategy);
+			} else {
+				for (Tradingday item : this.tradingdays) {
+					replaceTradestrategy(item, newTradestrategy);
 				}
 			}
 		}
@@ -315,22 +487,345 @@ public class Tradingdays extends Aspect implements java.io.Serializable {
 	/**
 	 * Method replaceTradestrategy.
 	 * 
+	 * @param tradingday
+	 *            Tradingday
 	 * @param newTradestrategy
 	 *            Tradestrategy
 	 */
-	public void replaceTradestrategy(Tradestrategy newTradestrategy) {
+	private void replaceTradestrategy(Tradingday tradingday,
+			Tradestrategy newTradestrategy) {
+		for (ListIterator<Tradestrategy> itemIter = tradingday
+				.getTradestrategies().listIterator(); itemIter.hasNext();) {
+			Tradestrategy tradestrategy = itemIter.next();
+			if (tradestrategy.equals(newTradestrategy)) {
+				itemIter.set(newTradestrategy);
+				unindexTradestrategy(tradestrategy);
+				indexTradestrategy(newTradestrategy, itemIter.previousIndex());
+			}
+		}
+	}
+
+	/**
+	 * Method reindex. Rebuild the indexes from the tradingdays. Use after
+	 * tradestrategies have been added to or removed from a Tradingday
+	 * directly.
+	 */
+	public void reindex() {
 		synchronized (this.tradingdays) {
+			clearIndexes();
 			for (Tradingday tradingday : this.tradingdays) {
-				for (ListIterator<Tradestrategy> itemIter = tradingday
-						.getTradestrategies().listIterator(); itemIter
-						.hasNext();) {
-					Tradestrategy tradestrategy = itemIter.next();
-					if (tradestrategy.equals(newTradestrategy)) {
-						itemIter.set(newTradestrategy);
-					}
+				indexTradingday(tradingday);
+			}
+		}
+	}
+
+	/**
+	 * Method clearIndexes.
+	 */
+	private void clearIndexes() {
+		this.tradingdayIndex.clear();
+		this.tradestrategyIndex.clear();
+		this.contractIndex.clear();
+		this.symbolIndex.clear();
+	}
+
+	/**
+	 * Method indexTradingday.
+	 * 
+	 * @param tradingday
+	 *            Tradingday
+	 */
+	private void indexTradingday(Tradingday tradingday) {
+		if (null == tradingday.getOpen() || null == tradingday.getClose())
+			return;
+		this.tradingdayIndex.put(
+				getTradingdayKey(tradingday.getOpen(), tradingday.getClose()),
+				tradingday);
+		List<Tradestrategy> tradestrategies = tradingday.getTradestrategies();
+		for (int i = 0; i < tradestrategies.size(); i++) {
+			indexTradestrategy(tradestrategies.get(i), i);
+		}
+	}
+
+	/**
+	 * Method unindexTradingday.
+	 * 
+	 * @param tradingday
+	 *            Tradingday
+	 */
+	private void unindexTradingday(Tradingday tradingday) {
+		if (null == tradingday.getOpen() || null == tradingday.getClose())
+			return;
+		this.tradingdayIndex.remove(
+				getTradingdayKey(tradingday.getOpen(), tradingday.getClose()),
+				tradingday);
+		for (Tradestrategy tradestrategy : tradingday.getTradestrategies()) {
+			unindexTradestrategy(tradestrategy);
+		}
+	}
+
+	/**
+	 * Method indexTradestrategy. The contract indexes take the latest
+	 * contract so a replaced tradestrategy does not leave the old contract
+	 * indexed.
+	 * 
+	 * @param tradestrategy
+	 *            Tradestrategy
+	 * @param position
+	 *            int the position of the tradestrategy on its tradingday.
+	 */
+	private void indexTradestrategy(Tradestrategy tradestrategy, int position) {
+		TradestrategyEntry entry = new TradestrategyEntry(tradestrategy,
+				position);
+		if (null != tradestrategy.getIdTradeStrategy())
+			this.tradestrategyIndex.put(tradestrategy.getIdTradeStrategy(),
+					entry);
+		Contract contract = tradestrategy.getContract();
+		if (null != contract && null != contract.getSymbol()) {
+			this.contractIndex.put(getContractKey(contract), entry);
+			this.symbolIndex.put(contract.getSymbol(), entry);
+		}
+	}
+
+	/**
+	 * Method unindexTradestrategy. Contracts stay indexed as they may be
+	 * shared by tradestrategies on other tradingdays, a contract entry is
+	 * checked when it is read and removed if its tradestrategy has gone.
+	 * 
+	 * @param tradestrategy
+	 *            Tradestrategy
+	 */
+	private void unindexTradestrategy(Tradestrategy tradestrategy) {
+		if (null == tradestrategy.getIdTradeStrategy())
+			return;
+		TradestrategyEntry entry = this.tradestrategyIndex.get(tradestrategy
+				.getIdTradeStrategy());
+		if (null != entry && entry.tradestrategy == tradestrategy)
+			this.tradestrategyIndex.remove(
+					tradestrategy.getIdTradeStrategy(), entry);
+	}
+
+	/**
+	 * Method isIndexed. Check an indexed tradestrategy is still on its
+	 * tradingday. It is normally at the position it was indexed at, if not
+	 * its tradingday is searched and the new position kept.
+	 * 
+	 * @param entry
+	 *            TradestrategyEntry
+	 * @return boolean
+	 */
+	private boolean isIndexed(TradestrategyEntry entry) {
+		Tradestrategy tradestrategy = entry.tradestrategy;
+		if (null == tradestrategy.getTradingday())
+			return false;
+		Tradingday tradingday = this.getTradingday(tradestrategy
+				.getTradingday().getOpen(), tradestrategy.getTradingday()
+				.getClose());
+		if (null == tradingday)
+			return false;
+		List<Tradestrategy> tradestrategies = tradingday.getTradestrategies();
+		synchronized (tradestrategies) {
+			int position = entry.position;
+			if (position >= 0 && position < tradestrategies.size()
+					&& tradestrategies.get(position) == tradestrategy)
+				return true;
+			for (int i = 0; i < tradestrategies.size(); i++) {
+				if (tradestrategies.get(i) == tradestrategy) {
+					entry.position = i;
+					return true;
 				}
 			}
 		}
+		return false;
+	}
+
+	/**
+	 * Method getTradingdayKey.
+	 * 
+	 * @param open
+	 *            Date
+	 * @param close
+	 *            Date
+	 * @return String
+	 */
+	private static String getTradingdayKey(Date open, Date close) {
+		return open.getTime() + "|" + close.getTime();
+	}
+
+	/**
+	 * Method getContractKey.
+	 * 
+	 * @param contract
+	 *            Contract
+	 * @return String
+	 */
+	private static String getContractKey(Contract contract) {
+		return getContractKey(contract.getSecType(), contract.getSymbol(),
+				contract.getExchange(), contract.getCurrency());
+	}
+
+	/**
+	 * Method getContractKey.
+	 * 
+	 * @param secType
+	 *            String
+	 * @param symbol
+	 *            String
+	 * @param exchange
+	 *            String
+	 * @param currency
+	 *            String
+	 * @return String
+	 */
+	private static String getContractKey(String secType, String symbol,
+			String exchange, String currency) {
+		return secType + "|" + symbol + "|" + exchange + "|" + currency;
+	}
+
+	/**
+	 * Parses a chunk of lines from a contract file.
+	 */
+	private static class ParseChunk implements Callable<List<Tradestrategy>> {
+
+		private final List<String> lines;
+
+		/**
+		 * Constructor for ParseChunk.
+		 * 
+		 * @param lines
+		 *            List<String>
+		 */
+		ParseChunk(List<String> lines) {
+			this.lines = lines;
+		}
+
+		/**
+		 * Method call.
+		 * 
+		 * @return List<Tradestrategy>
+		 * @throws Exception
+		 */
+		public List<Tradestrategy> call() throws Exception {
+			List<Tradestrategy> tradestrategies = new ArrayList<Tradestrategy>(
+					this.lines.size());
+			for (String line : this.lines) {
+				Tradestrategy tradestrategy = Tradingdays
+						.parseContractLine(line);
+				if (null != tradestrategy)
+					tradestrategies.add(tradestrategy);
+			}
+			return tradestrategies;
+		}
+	}
+
+	/**
+	 * An indexed tradestrategy and the position it was last found at on its
+	 * tradingday.
+	 */
+	private static class TradestrategyEntry {
+
+		private final Tradestrategy tradestrategy;
+		private volatile int position;
+
+		/**
+		 * Constructor for TradestrategyEntry.
+		 * 
+		 * @param tradestrategy
+		 *            Tradestrategy
+		 * @param position
+		 *            int
+		 */
+		TradestrategyEntry(Tradestrategy tradestrategy, int position) {
+			this.tradestrategy = tradestrategy;
+			this.position = position;
+		}
+	}
+
+	/**
+	 * The list behind getTradingdays(). Keeps the tradingday index in step
+	 * with the list however it is changed. Every change made by the List
+	 * methods, iterators and sub lists goes through add(int, Tradingday),
+	 * set(), remove(int) or removeRange() so there is no way round the
+	 * index. Always used via the synchronized wrapper.
+	 */
+	private class IndexedList extends AbstractList<Tradingday> implements
+			java.io.Serializable {
+
+		private static final long serialVersionUID = -3094237795064851726L;
+
+		private final ArrayList<Tradingday> items = new ArrayList<Tradingday>();
+
+		public Tradingday get(int index) {
+			return this.items.get(index);
+		}
+
+		public int size() {
+			return this.items.size();
+		}
+
+		public void add(int index, Tradingday tradingday) {
+			this.items.add(index, tradingday);
+			this.modCount++;
+			indexTradingday(tradingday);
+		}
+
+		public Tradingday set(int index, Tradingday tradingday) {
+			Tradingday item = this.items.set(index, tradingday);
+			if (item != tradingday) {
+				if (null != item && !containsItem(item))
+					unindexTradingday(item);
+				indexTradingday(tradingday);
+			}
+			return item;
+		}
+
+		public Tradingday remove(int index) {
+			Tradingday item = this.items.remove(index);
+			this.modCount++;
+			if (!containsItem(item))
+				unindexTradingday(item);
+			return item;
+		}
+
+		protected void removeRange(int fromIndex, int toIndex) {
+			this.items.subList(fromIndex, toIndex).clear();
+			this.modCount++;
+			reindex();
+		}
+
+		public void clear() {
+			this.items.clear();
+			this.modCount++;
+			clearIndexes();
+		}
+
+		/**
+		 * Method sort. Sorting does not change the items so the indexes are
+		 * left as they are.
+		 * 
+		 * @param comparator
+		 *            Comparator<? super Tradingday>
+		 */
+		public void sort(Comparator<? super Tradingday> comparator) {
+			Collections.sort(this.items, comparator);
+			this.modCount++;
+		}
+
+		/**
+		 * Method containsItem. The same tradingday may be in the list twice
+		 * i.e. while it is being moved by a sort.
+		 * 
+		 * @param tradingday
+		 *            Tradingday
+		 * @return boolean
+		 */
+		private boolean containsItem(Tradingday tradingday) {
+			for (Tradingday item : this.items) {
+				if (item == tradingday)
+					return true;
+			}
+			return false;
+		}
 	}
 
 	/**
@@ -351,6 +846,24 @@ public class Tradingdays extends Aspect implements java.io.Serializable {
 		return false;
 	}
 
+	/**
+	 * Method isDetailsLoaded. A tradingday read with the list fetch plan does
+	 * not have the trade orders of its tradestrategies read.
+	 * 
+	 * @param tradingday
+	 *            Tradingday
+	 * @return boolean
+	 */
+	public static boolean isDetailsLoaded(Tradingday tradingday) {
+		PersistenceUtil persistenceUtil = Persistence.getPersistenceUtil();
+		for (Tradestrategy tradestrategy : tradingday.getTradestrategies()) {
+			if (!persistenceUtil.isLoaded(tradestrategy, "tradeOrders")) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	/**
 	 * Method hasTradeOrders.
 	 * 
@@ -392,8 +905,30 @@ public class Tradingdays extends Aspect implements java.io.Serializable {
 	 *            String
 	 * @throws Exception
 	 */
-	public synchronized void populateDataFromFile(String fileName,
-			Tradingday tradingday) throws Exception {
+	public void populateDataFromFile(String fileName, Tradingday tradingday)
+			throws Exception {
+		populateDataFromFile(fileName, tradingday, null);
+	}
+
+	/**
+	 * Method populateDataFromFile. The file is read in chunks of lines that
+	 * are parsed in parallel, the parsed tradestrategies are then added in
+	 * file order. Contracts and tradingdays are de-duplicated via the
+	 * indexes. Progress is reported as a percentage of the file read via the
+	 * "progress" property.
+	 * 
+	 * @param fileName
+	 *            String
+	 * @param tradingday
+	 *            Tradingday the default tradingday for lines with no date.
+	 * @param progressListener
+	 *            PropertyChangeListener may be null.
+	 * @return int the number of tradestrategies read.
+	 * @throws Exception
+	 */
+	public synchronized int populateDataFromFile(String fileName,
+			Tradingday tradingday, PropertyChangeListener progressListener)
+			throws Exception {
 
 		/*
 		 * CSV file format CSV file format is: DES, Underlying, Sec Type,
@@ -404,6 +939,8 @@ public class Tradingdays extends Aspect implements java.io.Serializable {
 		 */
 		FileReader fileReader = null;
 		BufferedReader bufferedReader = null;
+		LinkedList<Future<List<Tradestrategy>>> chunks = new LinkedList<Future<List<Tradestrategy>>>();
+		int count = 0;
 		/*
 		 * Refresh the decode tables.
 		 */
@@ -411,10 +948,16 @@ public class Tradingdays extends Aspect implements java.io.Serializable {
 		try {
 
 			if ((fileName == null) || fileName.equals("")) {
-				return;
+				return count;
 			}
-			fileReader = new FileReader(fileName);
+			File file = new File(fileName);
+			fileReader = new FileReader(file);
 			bufferedReader = new BufferedReader(fileReader);
+			/*
+			 * Contracts are then found via the index only, each new
+			 * tradestrategy is indexed as it is added.
+			 */
+			reindex();
 
 			Integer chartDays = ConfigProperties
 					.getPropAsInt("trade.backfill.duration");
@@ -437,98 +980,160 @@ public class Tradingdays extends Aspect implements java.io.Serializable {
 			if (!DAOStrategy.newInstance(strategyName).isValid())
 				strategyName = DAOStrategy.newInstance().getCode();
 
-			Strategy strategy = (Strategy) DAOStrategy
-					.newInstance(strategyName).getObject();
-
-			Portfolio portfolio = (Portfolio) DAOPortfolio.newInstance()
-					.getObject();
-			String strLine = "";
-
-			// read comma separated file line by line
-
-			while ((strLine = bufferedReader.readLine()) != null) {
-				Tradestrategy tradestrategy = Tradingdays
-						.parseContractLine(strLine);
+			/*
+			 * The defaults for every tradestrategy in the file.
+			 */
+			Tradestrategy defaults = new Tradestrategy();
+			defaults.setTradingday(tradingday);
+			defaults.setRiskAmount(new BigDecimal(riskAmount));
+			defaults.setBarSize(barSize);
+			defaults.setChartDays(chartDays);
+			defaults.setTier(tierDefault);
+			defaults.setStrategy((Strategy) DAOStrategy.newInstance(
+					strategyName).getObject());
+			defaults.setPortfolio((Portfolio) DAOPortfolio.newInstance()
+					.getObject());
 
-				if (null != tradestrategy) {
+			HashMap<String, Tradingday> changedTradingdays = new HashMap<String, Tradingday>();
+			long fileLength = Math.max(1, file.length());
+			long bytesRead = 0;
+			int progress = 0;
 
-					Contract contract = this.getContract(tradestrategy
-							.getContract().getSymbol());
-					if (null != contract) {
-						tradestrategy.setContract(contract);
-					}
-
-					if (null == tradestrategy.getTradingday()) {
-						if (null == tradingday) {
-							throw new PersistentModelException(
-									"Please select a Tradingday");
-						}
-						tradestrategy.setTradingday(tradingday);
-					} else {
-						Tradingday currTradingday = this.getTradingday(
-								tradestrategy.getTradingday().getOpen(),
-								tradestrategy.getTradingday().getClose());
-
-						if (null != currTradingday) {
-							if (null != tradestrategy.getTradingday()
-									.getMarketGap()
-									&& null == currTradingday.getMarketGap()) {
-								currTradingday.setMarketGap(tradestrategy
-										.getTradingday().getMarketGap());
-							}
-							if (null != tradestrategy.getTradingday()
-									.getMarketBias()
-									&& null == currTradingday.getMarketBias()) {
-								currTradingday.setMarketBias(tradestrategy
-										.getTradingday().getMarketBias());
-							}
-							if (null != tradestrategy.getTradingday()
-									.getMarketBar()
-									&& null == currTradingday.getMarketBar()) {
-								currTradingday.setMarketBar(tradestrategy
-										.getTradingday().getMarketBar());
-							}
-							tradestrategy.setTradingday(currTradingday);
+			// read comma separated file line by line in chunks
+			List<String> lines = new ArrayList<String>(IMPORT_CHUNK_SIZE);
+			String strLine = "";
+			while (strLine != null) {
+				strLine = bufferedReader.readLine();
+				if (null != strLine) {
+					lines.add(strLine);
+					bytesRead = bytesRead + strLine.length() + 1;
+				}
+				if (lines.size() == IMPORT_CHUNK_SIZE
+						|| (null == strLine && !lines.isEmpty())) {
+					chunks.add(m_importExecutor.submit(new ParseChunk(lines)));
+					lines = new ArrayList<String>(IMPORT_CHUNK_SIZE);
+				}
+				/*
+				 * Add the oldest parsed chunk once enough are queued or at the
+				 * end of the file so memory stays bounded.
+				 */
+				while (chunks.size() > (IMPORT_THREADS * 2)
+						|| (null == strLine && !chunks.isEmpty())) {
+					for (Tradestrategy tradestrategy : chunks.removeFirst()
+							.get()) {
+						if (addTradestrategy(tradestrategy, defaults)) {
+							count++;
+							changedTradingdays.put(getTradingdayKey(
+									tradestrategy.getTradingday().getOpen(),
+									tradestrategy.getTradingday().getClose()),
+									tradestrategy.getTradingday());
 						}
 					}
-					/*
-					 * Do not load tradestrategies for trading holidays.
-					 */
-					if (TradingCalendar.isHoliday(tradestrategy.getTradingday()
-							.getOpen())) {
-						continue;
+					int percent = (int) Math.min(100,
+							(bytesRead * 100) / fileLength);
+					if (null != progressListener && percent > progress) {
+						progressListener
+								.propertyChange(new PropertyChangeEvent(this,
+										"progress", progress, percent));
+						progress = percent;
 					}
-					tradestrategy.setRiskAmount(new BigDecimal(riskAmount));
-					tradestrategy.setBarSize(barSize);
-					tradestrategy.setChartDays(chartDays);
-					tradestrategy.setTier(tierDefault);
-					tradestrategy.setTrade(true);
-					tradestrategy.setDirty(true);
-					tradestrategy.setStrategy(strategy);
-					tradestrategy.setPortfolio(portfolio);
-					if (!tradestrategy.getTradingday().existTradestrategy(
-							tradestrategy))
-						tradestrategy.getTradingday().addTradestrategy(
-								tradestrategy);
-
-					if (!this.containsTradingday(tradestrategy.getTradingday())) {
-						this.add(tradestrategy.getTradingday());
-					}
-					Collections
-							.sort(tradestrategy.getTradingday()
-									.getTradestrategies(),
-									Tradestrategy.DATE_ORDER_ASC);
 				}
 			}
+			for (Tradingday item : changedTradingdays.values()) {
+				Collections.sort(item.getTradestrategies(),
+						Tradestrategy.DATE_ORDER_ASC);
+			}
 
+		} catch (ExecutionException ex) {
+			throw new PersistentModelException(1, 200, ex.getCause()
+					.getMessage());
 		} catch (Exception ex) {
 			throw new PersistentModelException(1, 200, ex.getMessage());
 		} finally {
+			for (Future<List<Tradestrategy>> chunk : chunks) {
+				chunk.cancel(true);
+			}
 			if (null != fileReader)
 				fileReader.close();
 			if (null != bufferedReader)
 				bufferedReader.close();
 		}
+		return count;
+	}
+
+	/**
+	 * Method addTradestrategy. Add a tradestrategy read from a file using the
+	 * existing contract and tradingday if there are any.
+	 * 
+	 * @param tradestrategy
+	 *            Tradestrategy
+	 * @param defaults
+	 *            Tradestrategy holds the default values.
+	 * @return boolean true if the tradestrategy was added.
+	 * @throws PersistentModelException
+	 */
+	private boolean addTradestrategy(Tradestrategy tradestrategy,
+			Tradestrategy defaults) throws PersistentModelException {
+
+		Contract contract = getIndexedContract(tradestrategy.getContract()
+				.getSymbol());
+		if (null != contract) {
+			tradestrategy.setContract(contract);
+		}
+
+		if (null == tradestrategy.getTradingday()) {
+			if (null == defaults.getTradingday()) {
+				throw new PersistentModelException("Please select a Tradingday");
+			}
+			tradestrategy.setTradingday(defaults.getTradingday());
+		} else {
+			Tradingday currTradingday = this.getTradingday(tradestrategy
+					.getTradingday().getOpen(), tradestrategy.getTradingday()
+					.getClose());
+
+			if (null != currTradingday) {
+				if (null != tradestrategy.getTradingday().getMarketGap()
+						&& null == currTradingday.getMarketGap()) {
+					currTradingday.setMarketGap(tradestrategy.getTradingday()
+							.getMarketGap());
+				}
+				if (null != tradestrategy.getTradingday().getMarketBias()
+						&& null == currTradingday.getMarketBias()) {
+					currTradingday.setMarketBias(tradestrategy.getTradingday()
+							.getMarketBias());
+				}
+				if (null != tradestrategy.getTradingday().getMarketBar()
+						&& null == currTradingday.getMarketBar()) {
+					currTradingday.setMarketBar(tradestrategy.getTradingday()
+							.getMarketBar());
+				}
+				tradestrategy.setTradingday(currTradingday);
+			}
+		}
+		/*
+		 * Do not load tradestrategies for trading holidays.
+		 */
+		if (TradingCalendar.isHoliday(tradestrategy.getTradingday().getOpen())) {
+			return false;
+		}
+		tradestrategy.setRiskAmount(defaults.getRiskAmount());
+		tradestrategy.setBarSize(defaults.getBarSize());
+		tradestrategy.setChartDays(defaults.getChartDays());
+		tradestrategy.setTier(defaults.getTier());
+		tradestrategy.setTrade(true);
+		tradestrategy.setDirty(true);
+		tradestrategy.setStrategy(defaults.getStrategy());
+		tradestrategy.setPortfolio(defaults.getPortfolio());
+		if (!tradestrategy.getTradingday().existTradestrategy(tradestrategy))
+			tradestrategy.getTradingday().addTradestrategy(tradestrategy);
+
+		if (!this.containsTradingday(tradestrategy.getTradingday())) {
+			this.add(tradestrategy.getTradingday());
+		} else {
+			indexTradestrategy(tradestrategy, tradestrategy.getTradingday()
+					.getTradestrategies().indexOf(tradestrategy));
+		}
+		return true;
 	}
 
 	/**
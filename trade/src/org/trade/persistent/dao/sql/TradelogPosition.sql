@@ -0,0 +1,21 @@
+insert into tradelogposition (idTradePosition, idPortfolio, idContract, positionCloseDate, quantity, openQuantity, commission, grossProfitLoss)
+select
+tradeposition.idTradePosition,
+tradestrategy.idPortfolio,
+tradeposition.idContract,
+tradeposition.positionCloseDate,
+sum(ifnull(tradeorder.quantity,0)) as quantity,
+sum((if(tradeorder.action = 'BUY',  1 , -1)) * ifnull(tradeorder.quantity,0)) as openQuantity,
+sum(ifnull(tradeorder.commission,0)) as commission,
+ifnull(sum((if(tradeorder.action = 'BUY',  -1 , 1)) * tradeorder.quantity * tradeorder.averageFilledPrice), 0) as grossProfitLoss
+from tradeposition
+inner join tradeorder on tradeposition.idTradePosition = tradeorder.idTradePosition
+inner join tradestrategy on tradestrategy.idTradestrategy = tradeorder.idTradestrategy
+where (isnull(:idTradePosition) or tradeposition.idTradePosition = :idTradePosition)
+and tradeposition.openQuantity = 0
+and tradeposition.positionCloseDate is not null
+and tradeorder.isFilled = 1
+and tradestrategy.trade = 1
+group by
+tradeposition.idTradePosition,
+tradestrategy.idPortfolio
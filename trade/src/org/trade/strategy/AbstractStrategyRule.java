@@ -37,6 +37,7 @@ package org.trade.strategy;
 
 import java.io.Serializable;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.util.Date;
 
 import javax.swing.event.EventListenerList;
@@ -48,13 +49,18 @@ import org.slf4j.LoggerFactory;
 import org.trade.broker.BrokerModel;
 import org.trade.broker.BrokerModelException;
 import org.trade.core.factory.ClassFactory;
+import org.trade.core.metrics.Counter;
+import org.trade.core.metrics.MetricRegistry;
+import org.trade.core.metrics.Timer;
 import org.trade.core.util.CoreUtils;
+import org.trade.core.util.PriceTicks;
 import org.trade.core.util.TradingCalendar;
 import org.trade.core.util.Worker;
 import org.trade.core.valuetype.Money;
 import org.trade.core.valuetype.Percent;
 import org.trade.dictionary.valuetype.Action;
 import org.trade.dictionary.valuetype.DAOEntryLimit;
+import org.trade.dictionary.valuetype.EntryLimitIndex;
 import org.trade.dictionary.valuetype.OrderType;
 import org.trade.dictionary.valuetype.OverrideConstraints;
 import org.trade.dictionary.valuetype.Side;
@@ -87,6 +93,13 @@ public abstract class AbstractStrategyRule extends Worker implements
 	private final static Logger _log = LoggerFactory
 			.getLogger(AbstractStrategyRule.class);
 
+	private static final Counter m_workersRunning = MetricRegistry
+			.counter("strategy.workers.running");
+	private static final Counter m_ordersPlaced = MetricRegistry
+			.counter("strategy.orders.placed");
+	private static final Timer m_runStrategy = MetricRegistry
+			.timer("strategy.runStrategy");
+
 	/*
 	 * Message handler that allows the main controller to listen for errors.
 	 * Storage for registered change listeners.
@@ -282,6 +295,7 @@ public abstract class AbstractStrategyRule extends Worker implements
 		 * We initialize here to keep this instances as part of this worker
 		 * thread
 		 */
+		m_workersRunning.inc();
 		try {
 
 			this.tradePersistentModel = (PersistentModel) ClassFactory
@@ -292,6 +306,8 @@ public abstract class AbstractStrategyRule extends Worker implements
 					.findTradestrategyById(this.idTradestrategy);
 			this.tradestrategy.setStrategyData(this.strategyData);
 			this.symbol = this.tradestrategy.getContract().getSymbol();
+			this.strategyData.getLatencyTrace().setStrategy(
+					this.getClass().getSimpleName());
 
 			_log.debug("Starting: " + this.getClass().getName()
 					+ " engine doInBackground Symbol: " + this.symbol
@@ -393,7 +409,16 @@ public abstract class AbstractStrategyRule extends Worker implements
 											.getLastBidPrice());
 							this.tradestrategy.getContract().setLastPrice(
 									candleSeries.getContract().getLastPrice());
-							runStrategy(candleSeries, newCandle);
+							this.strategyData.getLatencyTrace()
+									.strategyStarted();
+							long start = m_runStrategy.start();
+							try {
+								runStrategy(candleSeries, newCandle);
+							} finally {
+								m_runStrategy.stop(start);
+							}
+							this.strategyData.getLatencyTrace()
+									.strategyCompleted();
 							strategyLastFired = new Date();
 						}
 					}
@@ -437,6 +462,7 @@ public abstract class AbstractStrategyRule extends Worker implements
 			/*
 			 * Ok we are complete clean up.
 			 */
+			m_workersRunning.dec();
 		}
 		return null;
 	}
@@ -563,7 +589,7 @@ public abstract class AbstractStrategyRule extends Worker implements
 
 		try {
 			tradeOrder.validate();
-			tradeOrder = getBrokerManager().onPlaceOrder(contract, tradeOrder);
+			tradeOrder = placeOrder(contract, tradeOrder);
 			this.getTradestrategyOrders().addTradeOrder(tradeOrder);
 
 			return tradeOrder;
@@ -760,7 +786,7 @@ public abstract class AbstractStrategyRule extends Worker implements
 			if (roundPrice)
 				tradeOrder = this.roundTradeOrderPrice(tradeOrder);
 			tradeOrder.validate();
-			tradeOrder = getBrokerManager().onPlaceOrder(contract, tradeOrder);
+			tradeOrder = placeOrder(contract, tradeOrder);
 			this.getTradestrategyOrders().addTradeOrder(tradeOrder);
 			return tradeOrder;
 
@@ -855,7 +881,7 @@ public abstract class AbstractStrategyRule extends Worker implements
 				tradeOrder.setOrderType(orderType);
 
 			tradeOrder.setTransmit(transmit);
-			TradeOrder tradeOrderUpdate = getBrokerManager().onPlaceOrder(
+			TradeOrder tradeOrderUpdate = placeOrder(
 					getTradestrategy().getContract(), tradeOrder);
 
 			tradeOrder.setVersion(tradeOrderUpdate.getVersion());
@@ -970,7 +996,7 @@ public abstract class AbstractStrategyRule extends Worker implements
 					}
 				}
 			}
-			tradeOrder = getBrokerManager().onPlaceOrder(
+			tradeOrder = placeOrder(
 					getTradestrategy().getContract(), tradeOrder);
 			this.getTradestrategyOrders().addTradeOrder(tradeOrder);
 			return tradeOrder;
@@ -1102,7 +1128,7 @@ public abstract class AbstractStrategyRule extends Worker implements
 			orderTarget.setTransmit(true);
 			orderTarget.setOcaGroupName(ocaID);
 
-			orderTarget = getBrokerManager().onPlaceOrder(
+			orderTarget = placeOrder(
 					getTradestrategy().getContract(), orderTarget);
 			this.getTradestrategyOrders().addTradeOrder(orderTarget);
 			/*
@@ -1123,7 +1149,7 @@ public abstract class AbstractStrategyRule extends Worker implements
 						.getIndividualAccount().getAccountNumber());
 
 			}
-			orderStop = getBrokerManager().onPlaceOrder(
+			orderStop = placeOrder(
 					getTradestrategy().getContract(), orderStop);
 			this.getTradestrategyOrders().addTradeOrder(orderStop);
 			return orderTarget;
@@ -1232,7 +1258,7 @@ public abstract class AbstractStrategyRule extends Worker implements
 			orderTarget.setFAProfile(openPosition.getFAProfile());
 			orderTarget.setFAMethod(openPosition.getFAMethod());
 			orderTarget.setFAPercent(openPosition.getFAPercent());
-			orderTarget = getBrokerManager().onPlaceOrder(
+			orderTarget = placeOrder(
 					getTradestrategy().getContract(), orderTarget);
 			this.getTradestrategyOrders().addTradeOrder(orderTarget);
 			/*
@@ -1252,7 +1278,7 @@ public abstract class AbstractStrategyRule extends Worker implements
 			orderStop.setFAProfile(openPosition.getFAProfile());
 			orderStop.setFAMethod(openPosition.getFAMethod());
 			orderStop.setFAPercent(openPosition.getFAPercent());
-			orderStop = getBrokerManager().onPlaceOrder(
+			orderStop = placeOrder(
 					getTradestrategy().getContract(), orderStop);
 			this.getTradestrategyOrders().addTradeOrder(orderStop);
 			return orderTarget;
@@ -1358,11 +1384,9 @@ public abstract class AbstractStrategyRule extends Worker implements
 								tradeOrder.setAuxPrice(stopPrice
 										.getBigDecimalValue());
 								tradeOrder.setTransmit(transmit);
-								TradeOrder tradeOrderBE = this
-										.getBrokerManager().onPlaceOrder(
-												getTradestrategy()
-														.getContract(),
-												tradeOrder);
+								TradeOrder tradeOrderBE = this.placeOrder(
+										getTradestrategy().getContract(),
+										tradeOrder);
 								tradeOrder
 										.setVersion(tradeOrderBE.getVersion());
 							}
@@ -1415,13 +1439,17 @@ public abstract class AbstractStrategyRule extends Worker implements
 					"Error rounding price cannot be less than zero price: "
 							+ price);
 		}
-		double roundPrice = 0;
+		long roundPrice = 0;
 		if (Side.BOT.equals(side)) {
-			roundPrice = roundPrice(price + dollars, action);
+			roundPrice = roundPrice(
+					PriceTicks.valueOf(price) + PriceTicks.valueOf(dollars),
+					action);
 		} else {
-			roundPrice = roundPrice(price - dollars, action);
+			roundPrice = roundPrice(
+					PriceTicks.valueOf(price) - PriceTicks.valueOf(dollars),
+					action);
 		}
-		return new Money(roundPrice);
+		return new Money(PriceTicks.toBigDecimal(roundPrice));
 	}
 
 	/**
@@ -1517,6 +1545,29 @@ public abstract class AbstractStrategyRule extends Worker implements
 		}
 	}
 
+	/**
+	 * Method placeOrder. Send the order to the broker and record the time
+	 * taken against the bar being processed.
+	 * 
+	 * @param contract
+	 *            Contract
+	 * @param tradeOrder
+	 *            TradeOrder
+	 * @return TradeOrder
+	 * @throws BrokerModelException
+	 */
+	private TradeOrder placeOrder(Contract contract, TradeOrder tradeOrder)
+			throws BrokerModelException {
+		long start = System.nanoTime();
+		m_ordersPlaced.inc();
+		try {
+			return getBrokerManager().onPlaceOrder(contract, tradeOrder);
+		} finally {
+			this.strategyData.getLatencyTrace().orderPlaced(start,
+					System.nanoTime());
+		}
+	}
+
 	/**
 	 * Method getBrokerManager.
 	 * 
@@ -1801,42 +1852,47 @@ public abstract class AbstractStrategyRule extends Worker implements
 	}
 
 	/**
-	 * Method roundPrice.
+	 * Method roundPrice. The price is rounded in ticks so the whole and half
+	 * numbers are found exactly.
 	 * 
 	 * @param price
-	 *            double
+	 *            long the price in ticks.
 	 * @param action
 	 *            String
-	 * @return double
+	 * @return long the price in ticks.
 	 * @throws StrategyRuleException
 	 */
-	private double roundPrice(double price, String action)
+	private long roundPrice(long price, String action)
 			throws StrategyRuleException {
 		try {
 			// Round at whole and half numbers add to this if you
 			// need others.
-			Entrylimit entrylimit = getEntryLimit().getValue(new Money(price));
+			Entrylimit entrylimit = EntryLimitIndex.getInstance().getValue(
+					PriceTicks.toDouble(price));
 			if (null == entrylimit) {
 				throw new StrategyRuleException(1, 211,
-						"No EntryLimits found for price: " + price);
+						"No EntryLimits found for price: "
+								+ PriceTicks.toDouble(price));
 			}
 
-			double[] rounding = { 1, 0.5 };
+			long unit = PriceTicks.TICKS_PER_UNIT;
+			long penny = unit / 100;
+			long priceRound = PriceTicks.valueOf(entrylimit.getPriceRound());
+			long[] offsets = { 0, unit / 2 };
 			int buySellMultiplier = 1;
 
 			if (action.equals(Action.SELL)) {
 				buySellMultiplier = -1;
 			}
 
-			for (double element : rounding) {
+			for (long offset : offsets) {
 				// Round the price to over under half numbers
-				double wholePrice = price + (1 - element);
-				double remainder = ((Math.rint(wholePrice) - wholePrice) * buySellMultiplier);
-				if ((remainder < entrylimit.getPriceRound().doubleValue())
-						&& (remainder >= 0)) {
-					price = (Math.rint(wholePrice) + (0.01d * buySellMultiplier))
-							- (1 - element);
-					return price;
+				long wholePrice = price + offset;
+				long nearest = PriceTicks.round(wholePrice, unit,
+						RoundingMode.HALF_EVEN);
+				long remainder = (nearest - wholePrice) * buySellMultiplier;
+				if ((remainder < priceRound) && (remainder >= 0)) {
+					return (nearest + (penny * buySellMultiplier)) - offset;
 				}
 			}
 			return price;
@@ -36,7 +36,9 @@
 package org.trade.strategy.data;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 import javax.persistence.DiscriminatorValue;
 import javax.persistence.Entity;
@@ -311,6 +313,18 @@ public class AverageTrueRangeSeries extends IndicatorSeries {
 		this.rollingCandle = rollingCandle;
 	}
 
+	/**
+	 * Method isBatchCreate. Rolling candles are only held for the latest bar
+	 * so these must be updated bar by bar.
+	 * 
+	 * @return boolean
+	 * @see org.trade.strategy.data.IndicatorSeries#isBatchCreate()
+	 */
+	@Transient
+	public boolean isBatchCreate() {
+		return Boolean.FALSE.equals(this.getRollingCandle());
+	}
+
 	/**
 	 * Method createSeries.
 	 * 
@@ -325,9 +339,61 @@ public class AverageTrueRangeSeries extends IndicatorSeries {
 			throw new IllegalArgumentException("Null source (CandleDataset).");
 		}
 
-		for (int i = 0; i < source.getSeries(seriesIndex).getItemCount(); i++) {
-			this.updateSeries(source.getSeries(seriesIndex), i, true);
+		/*
+		 * Rolling candles are only held for the latest bar so these can only
+		 * be calculated bar by bar.
+		 */
+		if (this.getRollingCandle()) {
+			for (int i = 0; i < source.getSeries(seriesIndex).getItemCount(); i++) {
+				this.updateSeries(source.getSeries(seriesIndex), i, true);
+			}
+			return;
+		}
+
+		CandleSeriesArrays candles = new CandleSeriesArrays(
+				source.getSeries(seriesIndex));
+		if (candles.size() == 0) {
+			return;
+		}
+		if (getLength() == null || getLength() < 1) {
+			throw new IllegalArgumentException(
+					"ATR period must be greater than 0.");
+		}
+
+		/*
+		 * Batch version of updateSeries for new bars. Must be kept in step
+		 * with updateSeries so the two give the same values and leave the
+		 * same state for the following streaming updates.
+		 */
+		int length = getLength();
+		RegularTimePeriod[] period = candles.getPeriod();
+		double[] high = candles.getHigh();
+		double[] low = candles.getLow();
+		double[] close = candles.getClose();
+		List<AverageTrueRangeItem> items = new ArrayList<AverageTrueRangeItem>(
+				candles.size());
+
+		for (int i = 1; i < candles.size(); i++) {
+			double highLessLow = high[i] - low[i];
+			double absHighLessPrevClose = Math.abs(high[i] - close[i - 1]);
+			double absLowLessPrevClose = Math.abs(low[i] - close[i - 1]);
+			double tR = Math.max(highLessLow,
+					Math.max(absHighLessPrevClose, absLowLessPrevClose));
+			sum = sum + tR;
+			prevTR = tR;
+			prevATR = currATR;
+
+			if (i >= length - 1) {
+				if (currATR == -1) {
+					currATR = sum / length;
+				} else {
+					currATR = ((prevATR * (length - 1)) + tR) / length;
+				}
+				items.add(new AverageTrueRangeItem(period[i], new BigDecimal(
+						currATR)));
+			}
 		}
+		this.addBatch(items);
 	}
 
 	/**
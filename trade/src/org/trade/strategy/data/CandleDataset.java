@@ -42,6 +42,7 @@ import java.util.Date;
 import java.util.List;
 
 import org.jfree.chart.renderer.xy.XYItemRenderer;
+import org.jfree.data.DomainOrder;
 import org.jfree.data.general.DatasetChangeEvent;
 import org.jfree.data.time.RegularTimePeriod;
 import org.jfree.data.time.TimePeriodAnchor;
@@ -171,6 +172,18 @@ public class CandleDataset extends AbstractXYDataset implements
 		fireDatasetChanged();
 	}
 
+	/**
+	 * Method getDomainOrder. There is one candle per period in ascending time
+	 * order, this lets the chart binary search for the visible items and only
+	 * draw those.
+	 * 
+	 * @return DomainOrder
+	 * @see org.jfree.data.xy.XYDataset#getDomainOrder()
+	 */
+	public DomainOrder getDomainOrder() {
+		return DomainOrder.ASCENDING;
+	}
+
 	/**
 	 * Returns the number of series in the collection.
 	 * 
@@ -571,6 +584,26 @@ public class CandleDataset extends AbstractXYDataset implements
 		}
 	}
 
+	/**
+	 * Method beginBulkLoad. Stop the series in this dataset sending change
+	 * events until endBulkLoad is called.
+	 */
+	public void beginBulkLoad() {
+		for (int i = 0; i < this.getSeriesCount(); i++) {
+			this.getSeries(i).beginBulkLoad();
+		}
+	}
+
+	/**
+	 * Method endBulkLoad. Send one change event for each series in this
+	 * dataset.
+	 */
+	public void endBulkLoad() {
+		for (int i = 0; i < this.getSeriesCount(); i++) {
+			this.getSeries(i).endBulkLoad();
+		}
+	}
+
 	/**
 	 * Method createSeries.
 	 * 
@@ -603,7 +636,8 @@ public class CandleDataset extends AbstractXYDataset implements
 	}
 
 	/**
-	 * Method populateSeries.
+	 * Method populateSeries. The candles are added as one bulk load so
+	 * listeners are notified once when all the candles are in.
 	 * 
 	 * @param strategyData
 	 *            StrategyData
@@ -613,18 +647,24 @@ public class CandleDataset extends AbstractXYDataset implements
 	public static void populateSeries(StrategyData strategyData,
 			List<Candle> candles) {
 		strategyData.clearBaseCandleDataset();
-		for (Candle candle : candles) {
-			strategyData.buildCandle(candle.getStartPeriod(), candle.getOpen()
-					.doubleValue(), candle.getHigh().doubleValue(), candle
-					.getLow().doubleValue(), candle.getClose().doubleValue(),
-					candle.getVolume(), candle.getVwap().doubleValue(), candle
-							.getTradeCount(), 1, null);
-			strategyData.getBaseCandleSeries().getContract()
-					.setLastAskPrice(candle.getClose());
-			strategyData.getBaseCandleSeries().getContract()
-					.setLastBidPrice(candle.getClose());
-			strategyData.getBaseCandleSeries().getContract()
-					.setLastPrice(candle.getClose());
+		strategyData.beginBulkLoad();
+		try {
+			for (Candle candle : candles) {
+				strategyData.buildCandle(candle.getStartPeriod(), candle
+						.getOpen().doubleValue(), candle.getHigh()
+						.doubleValue(), candle.getLow().doubleValue(), candle
+						.getClose().doubleValue(), candle.getVolume(), candle
+						.getVwap().doubleValue(), candle.getTradeCount(), 1,
+						null);
+				strategyData.getBaseCandleSeries().getContract()
+						.setLastAskPrice(candle.getClose());
+				strategyData.getBaseCandleSeries().getContract()
+						.setLastBidPrice(candle.getClose());
+				strategyData.getBaseCandleSeries().getContract()
+						.setLastPrice(candle.getClose());
+			}
+		} finally {
+			strategyData.endBulkLoad();
 		}
 	}
 
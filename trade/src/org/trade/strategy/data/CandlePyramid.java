@@ -0,0 +1,229 @@
+/* ===========================================================
+ * TradeManager : a application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.strategy.data;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The candles of a base CandleSeries aggregated to larger bar sizes. A level
+ * is added for a bar size the first time it is needed, after that each candle
+ * built on the base series is also built on every level so changing the bar
+ * size of a chart back to a level already seen does not re-aggregate the base
+ * candles.
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+public class CandlePyramid {
+
+	private final CandleDataset baseCandleDataset;
+	private final Map<Integer, Level> levels = new HashMap<Integer, Level>();
+	private boolean baseNewBar = false;
+
+	/**
+	 * Constructor for CandlePyramid.
+	 * 
+	 * @param baseCandleDataset
+	 *            CandleDataset
+	 */
+	public CandlePyramid(CandleDataset baseCandleDataset) {
+		this.baseCandleDataset = baseCandleDataset;
+	}
+
+	/**
+	 * Method getBaseBarSize.
+	 * 
+	 * @return int
+	 */
+	public int getBaseBarSize() {
+		return this.baseCandleDataset.getSeries(0).getBarSize();
+	}
+
+	/**
+	 * Method getDataset.
+	 * 
+	 * @param barSize
+	 *            int
+	 * @return CandleDataset the base dataset for the base bar size, the level
+	 *         for the bar size or null if there is no level.
+	 */
+	public synchronized CandleDataset getDataset(int barSize) {
+		if (barSize == getBaseBarSize())
+			return this.baseCandleDataset;
+		Level level = this.levels.get(barSize);
+		return (null == level ? null : level.candleDataset);
+	}
+
+	/**
+	 * Method createLevel. Create an empty level for the bar size that is not
+	 * yet part of the pyramid. The caller populates the level from the base
+	 * candles then adds it via addLevel, so candles built in the meantime are
+	 * not built on a level that is part way through being populated.
+	 * 
+	 * @param barSize
+	 *            int
+	 * @return CandleDataset
+	 */
+	public CandleDataset createLevel(int barSize) {
+		CandleSeries base = this.baseCandleDataset.getSeries(0);
+		CandleSeries series = new CandleSeries(base, barSize,
+				base.getStartTime(), base.getEndTime());
+		series.setBarSize(barSize);
+		CandleDataset candleDataset = new CandleDataset();
+		candleDataset.addSeries(series);
+		return candleDataset;
+	}
+
+	/**
+	 * Method addLevel. Add a level created via createLevel for the bar size.
+	 * 
+	 * @param barSize
+	 *            int
+	 * @param candleDataset
+	 *            CandleDataset
+	 * @return CandleDataset the level for the bar size, this is the existing
+	 *         level if there is one.
+	 */
+	public synchronized CandleDataset addLevel(int barSize,
+			CandleDataset candleDataset) {
+		CandleDataset current = getDataset(barSize);
+		if (null != current)
+			return current;
+		this.levels.put(barSize, new Level(candleDataset));
+		return candleDataset;
+	}
+
+	/**
+	 * Method getBarSizes.
+	 * 
+	 * @return Set<Integer> the base bar size and the bar sizes of the levels.
+	 */
+	public synchronized Set<Integer> getBarSizes() {
+		Set<Integer> barSizes = new TreeSet<Integer>(this.levels.keySet());
+		barSizes.add(getBaseBarSize());
+		return barSizes;
+	}
+
+	/**
+	 * Method isNewBar.
+	 * 
+	 * @param barSize
+	 *            int
+	 * @return boolean true if the last candle built started a new bar for
+	 *         this bar size.
+	 */
+	public synchronized boolean isNewBar(int barSize) {
+		if (barSize == getBaseBarSize())
+			return this.baseNewBar;
+		Level level = this.levels.get(barSize);
+		return (null == level ? false : level.newBar);
+	}
+
+	/**
+	 * Method buildCandle. Build the candle that was built on the base series
+	 * on each level.
+	 * 
+	 * @param time
+	 *            Date
+	 * @param open
+	 *            double
+	 * @param high
+	 *            double
+	 * @param low
+	 *            double
+	 * @param close
+	 *            double
+	 * @param volume
+	 *            long
+	 * @param vwap
+	 *            double
+	 * @param tradeCount
+	 *            int
+	 * @param rollupInterval
+	 *            int the rollupInterval used for the base series.
+	 * @param lastUpdateDate
+	 *            Date
+	 * @param newBar
+	 *            boolean true if the candle started a new base bar.
+	 */
+	public synchronized void buildCandle(Date time, double open, double high,
+			double low, double close, long volume, double vwap,
+			int tradeCount, int rollupInterval, Date lastUpdateDate,
+			boolean newBar) {
+		this.baseNewBar = newBar;
+		int baseBarSize = getBaseBarSize();
+		for (Map.Entry<Integer, Level> entry : this.levels.entrySet()) {
+			Level level = entry.getValue();
+			level.newBar = level.candleDataset.getSeries(0).buildCandle(time,
+					open, high, low, close, volume, vwap, tradeCount,
+					rollupInterval * (entry.getKey() / baseBarSize),
+					lastUpdateDate);
+		}
+	}
+
+	/**
+	 * Method clear. Clear the candles of each level, the levels are kept.
+	 */
+	public synchronized void clear() {
+		this.baseNewBar = false;
+		for (Level level : this.levels.values()) {
+			level.candleDataset.clear();
+			level.newBar = false;
+		}
+	}
+
+	/**
+	 */
+	private static class Level {
+
+		private final CandleDataset candleDataset;
+		private boolean newBar = false;
+
+		/**
+		 * Constructor for Level.
+		 * 
+		 * @param candleDataset
+		 *            CandleDataset
+		 */
+		Level(CandleDataset candleDataset) {
+			this.candleDataset = candleDataset;
+		}
+	}
+}
@@ -0,0 +1,146 @@
+/* ===========================================================
+ * TradeManager : a application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.strategy.data;
+
+import org.jfree.data.time.RegularTimePeriod;
+import org.trade.strategy.data.candle.CandleItem;
+
+/**
+ * The open, high, low, close and volume values of a CandleSeries copied once
+ * into primitive arrays. Used by the indicator series to compute a whole
+ * series in one pass without reading each CandleItem through its BigDecimal
+ * backed Candle on every bar.
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+public class CandleSeriesArrays {
+
+	private final RegularTimePeriod[] period;
+	private final double[] open;
+	private final double[] high;
+	private final double[] low;
+	private final double[] close;
+	private final long[] volume;
+
+	/**
+	 * Constructor for CandleSeriesArrays.
+	 * 
+	 * @param source
+	 *            CandleSeries
+	 */
+	public CandleSeriesArrays(CandleSeries source) {
+		int itemCount = source.getItemCount();
+		this.period = new RegularTimePeriod[itemCount];
+		this.open = new double[itemCount];
+		this.high = new double[itemCount];
+		this.low = new double[itemCount];
+		this.close = new double[itemCount];
+		this.volume = new long[itemCount];
+		for (int i = 0; i < itemCount; i++) {
+			CandleItem candleItem = (CandleItem) source.getDataItem(i);
+			this.period[i] = candleItem.getPeriod();
+			this.open[i] = candleItem.getOpen();
+			this.high[i] = candleItem.getHigh();
+			this.low[i] = candleItem.getLow();
+			this.close[i] = candleItem.getClose();
+			this.volume[i] = candleItem.getVolume();
+		}
+	}
+
+	/**
+	 * Method size.
+	 * 
+	 * @return int
+	 */
+	public int size() {
+		return this.close.length;
+	}
+
+	/**
+	 * Method getPeriod.
+	 * 
+	 * @return RegularTimePeriod[]
+	 */
+	public RegularTimePeriod[] getPeriod() {
+		return this.period;
+	}
+
+	/**
+	 * Method getOpen.
+	 * 
+	 * @return double[]
+	 */
+	public double[] getOpen() {
+		return this.open;
+	}
+
+	/**
+	 * Method getHigh.
+	 * 
+	 * @return double[]
+	 */
+	public double[] getHigh() {
+		return this.high;
+	}
+
+	/**
+	 * Method getLow.
+	 * 
+	 * @return double[]
+	 */
+	public double[] getLow() {
+		return this.low;
+	}
+
+	/**
+	 * Method getClose.
+	 * 
+	 * @return double[]
+	 */
+	public double[] getClose() {
+		return this.close;
+	}
+
+	/**
+	 * Method getVolume.
+	 * 
+	 * @return long[]
+	 */
+	public long[] getVolume() {
+		return this.volume;
+	}
+}
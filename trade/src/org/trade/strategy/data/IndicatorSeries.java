@@ -63,6 +63,7 @@ import javax.validation.constraints.NotNull;
 
 import org.jfree.data.ComparableObjectItem;
 import org.jfree.data.ComparableObjectSeries;
+import org.jfree.data.general.SeriesChangeEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.trade.core.factory.ClassFactory;
@@ -513,6 +514,65 @@ public abstract class IndicatorSeries extends ComparableObjectSeries implements
 		return super.getDataItem(index);
 	}
 
+	/**
+	 * Method addBatch. Appends items calculated by a batch createSeries in
+	 * one go and sends a single {@link SeriesChangeEvent} to the registered
+	 * listeners. Items that are in period order after the last item in the
+	 * series are appended directly, anything else is added through the sorted
+	 * add.
+	 * 
+	 * @param items
+	 *            List<? extends ComparableObjectItem>
+	 */
+	@SuppressWarnings("unchecked")
+	protected void addBatch(List<? extends ComparableObjectItem> items) {
+		if (items.isEmpty()) {
+			return;
+		}
+		ComparableObjectItem last = this.isEmpty() ? null : this
+				.getDataItem(this.getItemCount() - 1);
+		for (ComparableObjectItem item : items) {
+			if (null == last || item.compareTo(last) > 0) {
+				this.data.add(item);
+			} else {
+				this.add(item, false);
+			}
+			last = this.getDataItem(this.getItemCount() - 1);
+		}
+		fireSeriesChanged();
+	}
+
+	/**
+	 * Method isBatchCreate. Returns true if createSeries calculates the whole
+	 * series in one pass with the same values as updateSeries bar by bar. A
+	 * bulk load on StrategyData skips the per bar updates for these series
+	 * and recreates them once when the load ends.
+	 * 
+	 * @return boolean
+	 */
+	@Transient
+	public boolean isBatchCreate() {
+		return false;
+	}
+
+	/**
+	 * Method beginBulkLoad. Stop sending {@link SeriesChangeEvent} to the
+	 * registered listeners until endBulkLoad is called.
+	 */
+	public void beginBulkLoad() {
+		setNotify(false);
+	}
+
+	/**
+	 * Method endBulkLoad. Start sending change events again and send one
+	 * {@link SeriesChangeEvent} for all the changes made during the load.
+	 */
+	public void endBulkLoad() {
+		if (!getNotify()) {
+			setNotify(true);
+		}
+	}
+
 	/**
 	 * Method updateSeries.
 	 * 
@@ -0,0 +1,179 @@
+/* ===========================================================
+ * TradeManager : a application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.strategy.data;
+
+import org.trade.core.util.LatencyHistogram;
+
+/**
+ * The timestamps of the latest bar as it passes through a StrategyData and
+ * its strategy. The candle stages are written by the thread that builds the
+ * candles and the strategy stages by the strategy worker. Each stage is
+ * recorded in the contract histograms and, once the strategy has started, in
+ * the strategy histograms. Nothing is allocated when a stage is recorded.
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+public class LatencyTrace {
+
+	private final LatencyHistogram[] contractHistograms;
+	private volatile LatencyHistogram[] strategyHistograms = null;
+
+	private volatile long pendingReceived = 0;
+	private volatile long received = 0;
+	private volatile long candleStarted = 0;
+	private volatile long candleBuilt = 0;
+	private volatile long indicatorsUpdated = 0;
+	private volatile long strategyStarted = 0;
+
+	/**
+	 * Constructor for LatencyTrace.
+	 * 
+	 * @param symbol
+	 *            String the contract symbol.
+	 */
+	public LatencyTrace(String symbol) {
+		this.contractHistograms = LatencyTracer.getHistograms(
+				LatencyTracer.CONTRACT, symbol);
+	}
+
+	/**
+	 * Method setStrategy. Start recording in the strategy histograms.
+	 * 
+	 * @param strategyClass
+	 *            String
+	 */
+	public void setStrategy(String strategyClass) {
+		this.strategyHistograms = LatencyTracer.getHistograms(
+				LatencyTracer.STRATEGY, strategyClass);
+	}
+
+	/**
+	 * Method barReceived. Called with the time the bar arrived from the
+	 * broker before it is queued for the candle to be built.
+	 * 
+	 * @param nanos
+	 *            long from System.nanoTime()
+	 */
+	public void barReceived(long nanos) {
+		this.pendingReceived = nanos;
+	}
+
+	/**
+	 * Method candleStarted. If the bar did not come from the broker the bar is
+	 * received now.
+	 */
+	public void candleStarted() {
+		long now = System.nanoTime();
+		this.candleStarted = now;
+		if (this.pendingReceived != 0) {
+			this.received = this.pendingReceived;
+			this.pendingReceived = 0;
+			record(LatencyTracer.QUEUE, now - this.received);
+		} else {
+			this.received = now;
+		}
+	}
+
+	/**
+	 * Method candleBuilt.
+	 */
+	public void candleBuilt() {
+		long now = System.nanoTime();
+		this.candleBuilt = now;
+		record(LatencyTracer.BUILD_CANDLE, now - this.candleStarted);
+	}
+
+	/**
+	 * Method indicatorsUpdated.
+	 */
+	public void indicatorsUpdated() {
+		long now = System.nanoTime();
+		this.indicatorsUpdated = now;
+		record(LatencyTracer.INDICATORS, now - this.candleBuilt);
+	}
+
+	/**
+	 * Method strategyStarted. Called before the strategy rule runs.
+	 */
+	public void strategyStarted() {
+		long now = System.nanoTime();
+		this.strategyStarted = now;
+		if (this.indicatorsUpdated != 0)
+			record(LatencyTracer.STRATEGY_WAIT, now - this.indicatorsUpdated);
+	}
+
+	/**
+	 * Method strategyCompleted. Called after the strategy rule has run.
+	 */
+	public void strategyCompleted() {
+		long now = System.nanoTime();
+		record(LatencyTracer.RUN_STRATEGY, now - this.strategyStarted);
+		if (this.received != 0)
+			record(LatencyTracer.BAR_TO_STRATEGY, now - this.received);
+	}
+
+	/**
+	 * Method orderPlaced.
+	 * 
+	 * @param start
+	 *            long the System.nanoTime() the order was sent to the broker.
+	 * @param end
+	 *            long the System.nanoTime() the broker returned.
+	 */
+	public void orderPlaced(long start, long end) {
+		record(LatencyTracer.PLACE_ORDER, end - start);
+		if (this.received != 0)
+			record(LatencyTracer.BAR_TO_ORDER, end - this.received);
+	}
+
+	/**
+	 * Method record.
+	 * 
+	 * @param stage
+	 *            int
+	 * @param nanos
+	 *            long
+	 */
+	private void record(int stage, long nanos) {
+		if (!LatencyTracer.isEnabled())
+			return;
+		this.contractHistograms[stage].record(nanos);
+		LatencyHistogram[] histograms = this.strategyHistograms;
+		if (null != histograms)
+			histograms[stage].record(nanos);
+	}
+}
@@ -0,0 +1,229 @@
+/* ===========================================================
+ * TradeManager : a application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.strategy.data;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.trade.core.util.LatencyHistogram;
+
+/**
+ * The latency histograms for each stage a bar passes through from the broker
+ * callback to an order being placed. There is a set of histograms per
+ * strategy class and per contract. The histograms are created the first time
+ * a strategy or contract is traced, after that recording a latency does not
+ * allocate.
+ * 
+ * The stages are recorded by the {@link LatencyTrace} held by each
+ * StrategyData.
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+public class LatencyTracer {
+
+	public static final int QUEUE = 0;
+	public static final int BUILD_CANDLE = 1;
+	public static final int INDICATORS = 2;
+	public static final int STRATEGY_WAIT = 3;
+	public static final int RUN_STRATEGY = 4;
+	public static final int PLACE_ORDER = 5;
+	public static final int BAR_TO_STRATEGY = 6;
+	public static final int BAR_TO_ORDER = 7;
+
+	public static final String[] STAGES = { "Queue", "Build Candle",
+			"Indicators", "Strategy Wait", "Run Strategy", "Place Order",
+			"Bar to Strategy", "Bar to Order" };
+
+	public static final String STRATEGY = "Strategy";
+	public static final String CONTRACT = "Contract";
+
+	public static final String[] COLUMNS = { "Group", "Name", "Stage",
+			"Count", "Min(us)", "Mean(us)", "50%(us)", "90%(us)", "99%(us)",
+			"99.9%(us)", "Max(us)" };
+
+	private static final ConcurrentHashMap<String, LatencyHistogram[]> m_histograms = new ConcurrentHashMap<String, LatencyHistogram[]>();
+	private static volatile boolean m_enabled = true;
+
+	private LatencyTracer() {
+	}
+
+	/**
+	 * Method isEnabled.
+	 * 
+	 * @return boolean
+	 */
+	public static boolean isEnabled() {
+		return m_enabled;
+	}
+
+	/**
+	 * Method setEnabled. Tracing is on by default.
+	 * 
+	 * @param enabled
+	 *            boolean
+	 */
+	public static void setEnabled(boolean enabled) {
+		m_enabled = enabled;
+	}
+
+	/**
+	 * Method getHistograms. Get or create the histograms for a strategy or
+	 * contract.
+	 * 
+	 * @param group
+	 *            String either STRATEGY or CONTRACT.
+	 * @param name
+	 *            String the strategy class or contract symbol.
+	 * @return LatencyHistogram[] one histogram per stage.
+	 */
+	public static LatencyHistogram[] getHistograms(String group, String name) {
+		String key = getKey(group, name);
+		LatencyHistogram[] histograms = m_histograms.get(key);
+		if (null == histograms) {
+			LatencyHistogram[] newHistograms = new LatencyHistogram[STAGES.length];
+			for (int i = 0; i < newHistograms.length; i++) {
+				newHistograms[i] = new LatencyHistogram();
+			}
+			histograms = m_histograms.putIfAbsent(key, newHistograms);
+			if (null == histograms)
+				histograms = newHistograms;
+		}
+		return histograms;
+	}
+
+	/**
+	 * Method getRows. A row of statistics for every stage that has recorded
+	 * values ordered by group, name and stage. The columns are as COLUMNS.
+	 * 
+	 * @return List<Object[]>
+	 */
+	public static List<Object[]> getRows() {
+		Map<String, LatencyHistogram[]> sorted = new TreeMap<String, LatencyHistogram[]>(
+				m_histograms);
+		List<Object[]> rows = new ArrayList<Object[]>();
+		for (Map.Entry<String, LatencyHistogram[]> entry : sorted.entrySet()) {
+			int separator = entry.getKey().indexOf('|');
+			String group = entry.getKey().substring(0, separator);
+			String name = entry.getKey().substring(separator + 1);
+			for (int stage = 0; stage < STAGES.length; stage++) {
+				LatencyHistogram histogram = entry.getValue()[stage];
+				long count = histogram.getCount();
+				if (count == 0)
+					continue;
+				rows.add(new Object[] { group, name, STAGES[stage],
+						Long.valueOf(count), toMicros(histogram.getMin()),
+						toMicros(histogram.getMean()),
+						toMicros(histogram.getValueAtPercentile(50)),
+						toMicros(histogram.getValueAtPercentile(90)),
+						toMicros(histogram.getValueAtPercentile(99)),
+						toMicros(histogram.getValueAtPercentile(99.9)),
+						toMicros(histogram.getMax()) });
+			}
+		}
+		return rows;
+	}
+
+	/**
+	 * Method writeCSV. Write the rows with a header line.
+	 * 
+	 * @param writer
+	 *            Writer
+	 * @throws IOException
+	 */
+	public static void writeCSV(Writer writer) throws IOException {
+		StringBuffer line = new StringBuffer();
+		for (int i = 0; i < COLUMNS.length; i++) {
+			if (i > 0)
+				line.append(',');
+			line.append(COLUMNS[i]);
+		}
+		writer.write(line.toString());
+		writer.write(System.getProperty("line.separator"));
+		for (Object[] row : getRows()) {
+			line.setLength(0);
+			for (int i = 0; i < row.length; i++) {
+				if (i > 0)
+					line.append(',');
+				line.append(row[i]);
+			}
+			writer.write(line.toString());
+			writer.write(System.getProperty("line.separator"));
+		}
+		writer.flush();
+	}
+
+	/**
+	 * Method reset. Clear the recorded values, the histograms are kept as
+	 * they are held by the traces.
+	 */
+	public static void reset() {
+		for (LatencyHistogram[] histograms : m_histograms.values()) {
+			for (LatencyHistogram histogram : histograms) {
+				histogram.reset();
+			}
+		}
+	}
+
+	/**
+	 * Method getKey.
+	 * 
+	 * @param group
+	 *            String
+	 * @param name
+	 *            String
+	 * @return String
+	 */
+	private static String getKey(String group, String name) {
+		return group + "|" + name;
+	}
+
+	/**
+	 * Method toMicros.
+	 * 
+	 * @param nanos
+	 *            double
+	 * @return Double rounded to 0.1us
+	 */
+	private static Double toMicros(double nanos) {
+		return Double.valueOf(Math.round(nanos / 100d) / 10d);
+	}
+}
@@ -41,6 +41,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.jfree.chart.renderer.xy.XYItemRenderer;
+import org.jfree.data.DomainOrder;
 import org.jfree.data.general.DatasetChangeEvent;
 import org.jfree.data.time.RegularTimePeriod;
 import org.jfree.data.time.TimePeriodAnchor;
@@ -168,6 +169,16 @@ public class MACDDataset extends AbstractXYDataset implements IndicatorDataset,
 		fireDatasetChanged();
 	}
 
+	/**
+	 * Method getDomainOrder.
+	 * 
+	 * @return DomainOrder
+	 * @see org.jfree.data.xy.XYDataset#getDomainOrder()
+	 */
+	public DomainOrder getDomainOrder() {
+		return DomainOrder.ASCENDING;
+	}
+
 	/**
 	 * Returns the number of series in the collection.
 	 * 
@@ -36,8 +36,10 @@
 package org.trade.strategy.data;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.LinkedList;
+import java.util.List;
 
 import javax.persistence.DiscriminatorValue;
 import javax.persistence.Entity;
@@ -181,6 +183,8 @@ public class MACDSeries extends IndicatorSeries {
 	public Object clone() throws CloneNotSupportedException {
 		MACDSeries clone = (MACDSeries) super.clone();
 		clone.fastYYValues = new LinkedList<Double>();
+		clone.slowYYValues = new LinkedList<Double>();
+		clone.signalSmoothingYYValues = new LinkedList<Double>();
 		return clone;
 	}
 
@@ -390,6 +394,17 @@ public class MACDSeries extends IndicatorSeries {
 		this.simpleMAType = simpleMAType;
 	}
 
+	/**
+	 * Method isBatchCreate.
+	 * 
+	 * @return boolean
+	 * @see org.trade.strategy.data.IndicatorSeries#isBatchCreate()
+	 */
+	@Transient
+	public boolean isBatchCreate() {
+		return true;
+	}
+
 	/**
 	 * Method createSeries.
 	 * 
@@ -404,9 +419,109 @@ public class MACDSeries extends IndicatorSeries {
 			throw new IllegalArgumentException("Null source (CandleDataset).");
 		}
 
-		for (int i = 0; i < source.getSeries(seriesIndex).getItemCount(); i++) {
-			this.updateSeries(source.getSeries(seriesIndex), i, true);
+		CandleSeriesArrays candles = new CandleSeriesArrays(
+				source.getSeries(seriesIndex));
+		if (candles.size() == 0) {
+			return;
+		}
+		if (getFastLength() == null || getFastLength() < 1) {
+			throw new IllegalArgumentException(
+					"Fast MA must be greater than zero.");
+		}
+
+		if (getSlowLength() == null || getSlowLength() < 1) {
+			throw new IllegalArgumentException(
+					"Slow MA must be greater than zero.");
+		}
+
+		if (getSignalSmoothing() == null || getSignalSmoothing() < 1) {
+			throw new IllegalArgumentException(
+					"Signal Smoothing must be greater than zero.");
+		}
+
+		if (getSlowLength() < getFastLength()) {
+			throw new IllegalArgumentException(
+					"Fast MA must be greater than Slow MA.");
+		}
+
+		/*
+		 * Batch version of updateSeries for new bars. Must be kept in step
+		 * with updateSeries so the two give the same values and leave the
+		 * same state for the following streaming updates.
+		 */
+		int fastLength = getFastLength();
+		int slowLength = getSlowLength();
+		RollingWindow fastWindow = new RollingWindow(fastLength,
+				this.fastYYValues);
+		RollingWindow slowWindow = new RollingWindow(slowLength,
+				this.slowYYValues);
+		RollingWindow signalSmoothingWindow = new RollingWindow(
+				getSignalSmoothing(), this.signalSmoothingYYValues);
+		RegularTimePeriod[] period = candles.getPeriod();
+		double[] close = candles.getClose();
+		List<MACDItem> items = new ArrayList<MACDItem>(candles.size());
+
+		for (int i = 0; i < candles.size(); i++) {
+			double yy = close[i];
+			if (fastWindow.isFull()) {
+				fastSum = fastSum - fastWindow.add(yy) + yy;
+			} else {
+				fastSum = fastSum + yy;
+				fastWindow.add(yy);
+			}
+			if (slowWindow.isFull()) {
+				slowSum = slowSum - slowWindow.add(yy) + yy;
+			} else {
+				slowSum = slowSum + yy;
+				slowWindow.add(yy);
+			}
+
+			if (slowWindow.isFull()) {
+
+				double fastEMA = 0;
+				if (fastMultiplyer == Double.MAX_VALUE) {
+					fastEMA = fastSum / fastLength;
+					fastMultiplyer = 2 / (fastLength + 1.0d);
+				} else {
+					fastEMA = ((yy - prevFastEMA) * fastMultiplyer)
+							+ prevFastEMA;
+				}
+				prevFastEMA = fastEMA;
+				double slowEMA = 0;
+				if (slowMultiplyer == Double.MAX_VALUE) {
+					slowEMA = slowSum / slowLength;
+					slowMultiplyer = 2 / (slowLength + 1.0d);
+				} else {
+					slowEMA = ((yy - prevSlowEMA) * slowMultiplyer)
+							+ prevSlowEMA;
+				}
+				prevSlowEMA = slowEMA;
+				double MACD = fastEMA - slowEMA;
+				if (signalSmoothingWindow.isFull()) {
+					signalSmoothingSum = signalSmoothingSum
+							- signalSmoothingWindow.add(MACD) + MACD;
+				} else {
+					signalSmoothingSum = signalSmoothingSum + MACD;
+					signalSmoothingWindow.add(MACD);
+				}
+				double signalLine = Double.MAX_VALUE;
+				if (signalSmoothingWindow.isFull()) {
+					signalLine = calculateSmoothingMA(MACD,
+							this.prevSignalSmoothingEMA,
+							this.signalSmoothingSum);
+					this.prevSignalSmoothingEMA = signalLine;
+				}
+				items.add(new MACDItem(period[i], new BigDecimal(MACD),
+						(signalLine == Double.MAX_VALUE ? null
+								: new BigDecimal(signalLine)),
+						(signalLine == Double.MAX_VALUE ? null
+								: new BigDecimal(MACD - signalLine))));
+			}
 		}
+		fastWindow.toList(this.fastYYValues);
+		slowWindow.toList(this.slowYYValues);
+		signalSmoothingWindow.toList(this.signalSmoothingYYValues);
+		this.addBatch(items);
 	}
 
 	/**
@@ -36,8 +36,10 @@
 package org.trade.strategy.data;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.LinkedList;
+import java.util.List;
 
 import javax.persistence.DiscriminatorValue;
 import javax.persistence.Entity;
@@ -324,6 +326,17 @@ public class MovingAverageSeries extends IndicatorSeries {
 		this.MAType = MAType;
 	}
 
+	/**
+	 * Method isBatchCreate.
+	 * 
+	 * @return boolean
+	 * @see org.trade.strategy.data.IndicatorSeries#isBatchCreate()
+	 */
+	@Transient
+	public boolean isBatchCreate() {
+		return true;
+	}
+
 	/**
 	 * Method createSeries.
 	 * 
@@ -338,9 +351,59 @@ public class MovingAverageSeries extends IndicatorSeries {
 			throw new IllegalArgumentException("Null source (CandleDataset).");
 		}
 
-		for (int i = 0; i < source.getSeries(seriesIndex).getItemCount(); i++) {
-			this.updateSeries(source.getSeries(seriesIndex), i, true);
+		CandleSeriesArrays candles = new CandleSeriesArrays(
+				source.getSeries(seriesIndex));
+		if (candles.size() == 0) {
+			return;
+		}
+		if (getLength() == null || getLength() < 1) {
+			throw new IllegalArgumentException(
+					"MA period must be greater than zero.");
 		}
+
+		/*
+		 * Batch version of updateSeries for new bars. The values are
+		 * calculated from the primitive arrays in one pass and the items are
+		 * added in one go. The calculation must be kept in step with
+		 * updateSeries so the two give the same values and leave the same
+		 * state for the following streaming updates.
+		 */
+		int length = getLength();
+		String calcType = this.getMAType();
+		RollingWindow yyWindow = new RollingWindow(length, this.yyValues);
+		RollingWindow volWindow = new RollingWindow(length, this.volValues);
+		RegularTimePeriod[] period = candles.getPeriod();
+		double[] open = candles.getOpen();
+		double[] high = candles.getHigh();
+		double[] low = candles.getLow();
+		double[] close = candles.getClose();
+		long[] volume = candles.getVolume();
+		List<MovingAverageItem> items = new ArrayList<MovingAverageItem>(
+				candles.size());
+
+		for (int i = 0; i < candles.size(); i++) {
+			if (0 != close[i]) {
+				double price = this.getPrice(open[i], high[i], low[i],
+						close[i]);
+				if (yyWindow.isFull()) {
+					sum = sum - yyWindow.add(price) + price;
+				} else {
+					sum = sum + price;
+					yyWindow.add(price);
+				}
+				volWindow.add(volume[i]);
+
+				if (yyWindow.isFull()) {
+					double ma = calculateMA(calcType, yyWindow, volWindow,
+							length);
+					items.add(new MovingAverageItem(period[i],
+							new BigDecimal(ma)));
+				}
+			}
+		}
+		yyWindow.toList(this.yyValues);
+		volWindow.toLongList(this.volValues);
+		this.addBatch(items);
 	}
 
 	/**
@@ -520,6 +583,83 @@ public class MovingAverageSeries extends IndicatorSeries {
 		return ma;
 	}
 
+	/**
+	 * Method calculateMA. Array version of calculateMA used by createSeries,
+	 * the values are summed in the same order so the results match.
+	 * 
+	 * @param calcType
+	 *            String
+	 * @param yyWindow
+	 *            RollingWindow
+	 * @param volWindow
+	 *            RollingWindow
+	 * @param length
+	 *            int
+	 * @return double
+	 */
+	private double calculateMA(String calcType, RollingWindow yyWindow,
+			RollingWindow volWindow, int length) {
+
+		double ma = 0;
+		if (CalculationType.LINEAR.equals(calcType)) {
+			ma = sum / length;
+		} else if (CalculationType.EXPONENTIAL.equals(calcType)) {
+			if (multiplyer == 0) {
+				ma = sum / length;
+				multiplyer = 2 / (length + 1.0d);
+			} else {
+				ma = ((yyWindow.get(0) - yyWindow.get(1)) * multiplyer)
+						+ yyWindow.get(1);
+			}
+			yyWindow.setFirst(ma);
+
+		} else if (CalculationType.WEIGHTED.equals(calcType)) {
+
+			double sumYY = 0;
+			int count = 0;
+			for (int i = length; i > 0; i--) {
+				count = count + (length + 1 - i);
+				sumYY = sumYY + (yyWindow.get(i - 1) * (length + 1 - i));
+			}
+			ma = sumYY / count;
+
+		} else if (CalculationType.WEIGHTED_VOLUME.equals(calcType)) {
+
+			double sumYY = 0;
+			double count = 0;
+			for (int i = length; i > 0; i--) {
+				long vol = (long) volWindow.get(i - 1);
+				count = count + ((length + 1 - i) * vol);
+				sumYY = sumYY + (yyWindow.get(i - 1) * vol * (length + 1 - i));
+			}
+			ma = sumYY / count;
+		} else if (CalculationType.TRIANGULAR.equals(calcType)) {
+
+			double sumYY = 0;
+			int count = 0;
+			int half = length / 2;
+			int y = 0;
+			for (int x = 1; x <= half; x++) {
+				sumYY = sumYY + (yyWindow.get(y) * x);
+				count = count + x;
+				y++;
+			}
+			if ((length % 2) != 0) {
+				int z = half + 1;
+				sumYY = sumYY + (yyWindow.get(y) * z);
+				count = count + z;
+				y++;
+			}
+			for (int x = half; x >= 1; x--) {
+				sumYY = sumYY + (yyWindow.get(y) * x);
+				count = count + x;
+				y++;
+			}
+			ma = sumYY / count;
+		}
+		return ma;
+	}
+
 	/**
 	 * Method get the price.
 	 * 
@@ -528,32 +668,49 @@ public class MovingAverageSeries extends IndicatorSeries {
 	 * @return double
 	 */
 	private double getPrice(CandleItem candle) {
+		return getPrice(candle.getOpen(), candle.getHigh(), candle.getLow(),
+				candle.getClose());
+	}
+
+	/**
+	 * Method get the price.
+	 * 
+	 * @param open
+	 *            double
+	 * @param high
+	 *            double
+	 * @param low
+	 *            double
+	 * @param close
+	 *            double
+	 * @return double
+	 */
+	private double getPrice(double open, double high, double low, double close) {
 
 		switch (this.getPriceSource()) {
 		case 1: {
-			return candle.getClose();
+			return close;
 		}
 		case 2: {
-			return candle.getOpen();
+			return open;
 		}
 		case 3: {
-			return candle.getHigh();
+			return high;
 		}
 		case 4: {
-			return candle.getLow();
+			return low;
 		}
 		case 5: {
-			return (candle.getHigh() + candle.getLow()) / 2.0d;
+			return (high + low) / 2.0d;
 		}
 		case 6: {
-			return (candle.getHigh() + candle.getLow() + candle.getClose()) / 3.0d;
+			return (high + low + close) / 3.0d;
 		}
 		case 7: {
-			return (candle.getOpen() + candle.getHigh() + candle.getLow() + candle
-					.getClose()) / 4.0d;
+			return (open + high + low + close) / 4.0d;
 		}
 		default: {
-			return candle.getClose();
+			return close;
 		}
 		}
 	}
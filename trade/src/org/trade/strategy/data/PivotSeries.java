@@ -50,7 +50,7 @@ import org.trade.core.util.Pair;
 import org.trade.core.util.TradingCalendar;
 import org.trade.core.valuetype.Money;
 import org.trade.core.valuetype.ValueTypeException;
-import org.trade.dictionary.valuetype.DAOEntryLimit;
+import org.trade.dictionary.valuetype.EntryLimitIndex;
 import org.trade.dictionary.valuetype.Side;
 import org.trade.persistent.dao.Entrylimit;
 import org.trade.persistent.dao.Strategy;
@@ -359,7 +359,7 @@ public class PivotSeries extends IndicatorSeries {
 
 		PivotItem dataItem = null;
 		Hashtable<Long, Pair> userDataVector = new Hashtable<Long, Pair>();
-		DAOEntryLimit entryLimits = new DAOEntryLimit();
+		EntryLimitIndex entryLimits = EntryLimitIndex.getInstance();
 
 		boolean pivot = false;
 		String side = null;
@@ -510,8 +510,8 @@ public class PivotSeries extends IndicatorSeries {
 			if (pivot && (null != pivotCandle)) {
 
 				try {
-					Entrylimit entryLimit = entryLimits.getValue(new Money(
-							pivotCandle.getVwap()));
+					Entrylimit entryLimit = entryLimits.getValue(pivotCandle
+							.getVwap());
 					Money pivotRange = new Money(Math.abs((pivotRangeCandle
 							.getVwap() - pivotCandle.getVwap())));
 
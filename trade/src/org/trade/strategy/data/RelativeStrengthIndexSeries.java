@@ -36,7 +36,9 @@
 package org.trade.strategy.data;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 import javax.persistence.DiscriminatorValue;
 import javax.persistence.Entity;
@@ -328,6 +330,18 @@ public class RelativeStrengthIndexSeries extends IndicatorSeries {
 		this.rollingCandle = rollingCandle;
 	}
 
+	/**
+	 * Method isBatchCreate. Rolling candles are only held for the latest bar
+	 * so these must be updated bar by bar.
+	 * 
+	 * @return boolean
+	 * @see org.trade.strategy.data.IndicatorSeries#isBatchCreate()
+	 */
+	@Transient
+	public boolean isBatchCreate() {
+		return Boolean.FALSE.equals(this.getRollingCandle());
+	}
+
 	/**
 	 * Method createSeries.
 	 * 
@@ -342,9 +356,71 @@ public class RelativeStrengthIndexSeries extends IndicatorSeries {
 			throw new IllegalArgumentException("Null source (CandleDataset).");
 		}
 
-		for (int i = 0; i < source.getSeries(seriesIndex).getItemCount(); i++) {
-			this.updateSeries(source.getSeries(seriesIndex), i, true);
+		/*
+		 * Rolling candles are only held for the latest bar so these can only
+		 * be calculated bar by bar.
+		 */
+		if (this.getRollingCandle()) {
+			for (int i = 0; i < source.getSeries(seriesIndex).getItemCount(); i++) {
+				this.updateSeries(source.getSeries(seriesIndex), i, true);
+			}
+			return;
+		}
+
+		CandleSeriesArrays candles = new CandleSeriesArrays(
+				source.getSeries(seriesIndex));
+		if (candles.size() == 0) {
+			return;
+		}
+		if (getLength() == null || getLength() < 1) {
+			throw new IllegalArgumentException(
+					"RSI period must be  greater than zero.");
+		}
+
+		/*
+		 * Batch version of updateSeries for new bars. Must be kept in step
+		 * with updateSeries so the two give the same values and leave the
+		 * same state for the following streaming updates.
+		 */
+		int length = getLength();
+		RegularTimePeriod[] period = candles.getPeriod();
+		double[] close = candles.getClose();
+		List<RelativeStrengthIndexItem> items = new ArrayList<RelativeStrengthIndexItem>(
+				candles.size());
+
+		for (int i = 1; i < candles.size(); i++) {
+			double diffCloseValue = close[i] - close[i - 1];
+			if (diffCloseValue > 0) {
+				posSumCloseDiff = posSumCloseDiff + Math.abs(diffCloseValue);
+			} else {
+				negSumCloseDiff = negSumCloseDiff + Math.abs(diffCloseValue);
+			}
+			prevAvgLossRSI = avgLossRSI;
+			prevAvgGainRSI = avgGainRSI;
+			preDiffCloseValue = diffCloseValue;
+
+			if (i >= length) {
+				if (currentRSI == Double.MAX_VALUE) {
+					avgGainRSI = posSumCloseDiff / length;
+					avgLossRSI = negSumCloseDiff / length;
+				} else if (preDiffCloseValue > 0) {
+					avgGainRSI = (((prevAvgGainRSI * (length - 1)) + Math
+							.abs(preDiffCloseValue))) / length;
+					avgLossRSI = (((prevAvgLossRSI * (length - 1)) + 0))
+							/ length;
+				} else {
+					avgGainRSI = (((prevAvgGainRSI * (length - 1)) + 0))
+							/ length;
+					avgLossRSI = (((prevAvgLossRSI * (length - 1)) + Math
+							.abs(preDiffCloseValue))) / length;
+				}
+				currentRSI = 100 - (100 / (1 + (avgGainRSI / (avgLossRSI == 0 ? 1
+						: avgLossRSI))));
+				items.add(new RelativeStrengthIndexItem(period[i],
+						new BigDecimal(currentRSI)));
+			}
 		}
+		this.addBatch(items);
 	}
 
 	/**
@@ -0,0 +1,163 @@
+/* ===========================================================
+ * TradeManager : a application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.strategy.data;
+
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * A fixed size window of the last n values held in a ring buffer. Index 0 is
+ * the newest value, this matches the LinkedList windows the indicator series
+ * use on the streaming path where new values are added first. Used by the
+ * batch createSeries methods so a whole series can be calculated without
+ * LinkedList node allocation and indexed lookups.
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+class RollingWindow {
+
+	private final double[] values;
+	private int head = -1;
+	private int size = 0;
+
+	/**
+	 * Constructor for RollingWindow.
+	 * 
+	 * @param capacity
+	 *            int
+	 * @param seed
+	 *            List<? extends Number> the current streaming window newest
+	 *            first.
+	 */
+	RollingWindow(int capacity, List<? extends Number> seed) {
+		this.values = new double[capacity];
+		for (int i = Math.min(seed.size(), capacity); i > 0; i--) {
+			add(seed.get(i - 1).doubleValue());
+		}
+	}
+
+	/**
+	 * Method size.
+	 * 
+	 * @return int
+	 */
+	int size() {
+		return this.size;
+	}
+
+	/**
+	 * Method isFull.
+	 * 
+	 * @return boolean
+	 */
+	boolean isFull() {
+		return this.size == this.values.length;
+	}
+
+	/**
+	 * Method add. Adds the value as the newest in the window, when the window
+	 * is full the oldest value is dropped.
+	 * 
+	 * @param value
+	 *            double
+	 * @return double the value dropped or zero if the window was not full.
+	 */
+	double add(double value) {
+		double oldest = 0;
+		this.head = (this.head + 1) % this.values.length;
+		if (isFull()) {
+			oldest = this.values[this.head];
+		} else {
+			this.size++;
+		}
+		this.values[this.head] = value;
+		return oldest;
+	}
+
+	/**
+	 * Method get.
+	 * 
+	 * @param index
+	 *            int 0 is the newest value.
+	 * @return double
+	 */
+	double get(int index) {
+		if (index < 0 || index >= this.size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: "
+					+ this.size);
+		}
+		return this.values[(this.head - index + this.values.length)
+				% this.values.length];
+	}
+
+	/**
+	 * Method setFirst. Replace the newest value.
+	 * 
+	 * @param value
+	 *            double
+	 */
+	void setFirst(double value) {
+		this.values[this.head] = value;
+	}
+
+	/**
+	 * Method toList. Copy the window back to a streaming window newest first.
+	 * 
+	 * @param list
+	 *            LinkedList<Double>
+	 */
+	void toList(LinkedList<Double> list) {
+		list.clear();
+		for (int i = 0; i < this.size; i++) {
+			list.addLast(get(i));
+		}
+	}
+
+	/**
+	 * Method toLongList. Copy the window back to a streaming window of long
+	 * values newest first.
+	 * 
+	 * @param list
+	 *            LinkedList<Long>
+	 */
+	void toLongList(LinkedList<Long> list) {
+		list.clear();
+		for (int i = 0; i < this.size; i++) {
+			list.addLast((long) get(i));
+		}
+	}
+}
@@ -37,13 +37,18 @@ package org.trade.strategy.data;
 
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Vector;
 
 import org.jfree.data.time.RegularTimePeriod;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.trade.core.factory.ClassFactory;
+import org.trade.core.metrics.Counter;
+import org.trade.core.metrics.MetricRegistry;
+import org.trade.core.metrics.Timer;
 import org.trade.core.util.TradingCalendar;
 import org.trade.core.util.Worker;
 import org.trade.persistent.dao.Strategy;
@@ -58,11 +63,26 @@ public class StrategyData extends Worker {
 	private final static Logger _log = LoggerFactory
 			.getLogger(StrategyData.class);
 
+	private static final Counter m_workersRunning = MetricRegistry
+			.counter("strategy.data.workers.running");
+	private static final Timer m_buildCandle = MetricRegistry
+			.timer("strategy.data.buildCandle");
+
 	private CandleDataset baseCandleDataset = null;
 	private CandleDataset candleDataset = null;
 	private List<IndicatorDataset> indicators = new ArrayList<IndicatorDataset>();
 
 	private boolean seriesChanged = true;
+	private volatile boolean bulkLoading = false;
+	private CandlePyramid candlePyramid = null;
+	/*
+	 * The indicator series for each bar size the chart has shown. The list for
+	 * the current bar size holds the series in the indicator datasets. The map
+	 * is replaced rather than changed when a bar size is added so it can be
+	 * read while candles are built.
+	 */
+	private volatile Map<Integer, List<IndicatorSeries>> indicatorLevels = new HashMap<Integer, List<IndicatorSeries>>();
+	private LatencyTrace latencyTrace = null;
 	private final Object lockStrategyWorker = new Object();
 	private int currentBaseCandleCount = -1;
 	private int lastBaseCandleProcessed = -1;
@@ -78,6 +98,8 @@ public class StrategyData extends Worker {
 	public StrategyData(Strategy strategy, CandleDataset baseCandleDataset) {
 
 		this.baseCandleDataset = baseCandleDataset;
+		this.latencyTrace = new LatencyTrace(getBaseCandleSeries()
+				.getSymbol());
 		candleDataset = new CandleDataset();
 		candleDataset.addSeries(CandleDataset.createSeries(baseCandleDataset,
 				0, getBaseCandleSeries().getContract(), getBaseCandleSeries()
@@ -119,6 +141,9 @@ public class StrategyData extends Worker {
 								+ ex.getMessage());
 			}
 		}
+		this.candlePyramid = new CandlePyramid(baseCandleDataset);
+		this.indicatorLevels.put(getBaseCandleSeries().getBarSize(),
+				getIndicatorSeries());
 	}
 
 	/*
@@ -135,6 +160,7 @@ public class StrategyData extends Worker {
 		 * We initialize here to keep this instances as part of this worker
 		 * thread
 		 */
+		m_workersRunning.inc();
 		try {
 
 			this.seriesChanged = false;
@@ -162,17 +188,26 @@ public class StrategyData extends Worker {
 						 * Another candle has been added. Add the new candle to
 						 * the base series in the dataset.
 						 */
-						boolean newBar = false;
-						if (this.currentBaseCandleCount > this.lastBaseCandleProcessed) {
-							this.lastBaseCandleProcessed++;
-							newBar = true;
-						}
 						synchronized (this.getBaseCandleDataset()) {
-							this.getCandleDataset()
-									.getSeries(0)
-									.updateSeries(this.getBaseCandleSeries(),
-											this.lastBaseCandleProcessed,
-											newBar);
+							boolean newBar = false;
+							if (this.currentBaseCandleCount > this.lastBaseCandleProcessed) {
+								this.lastBaseCandleProcessed++;
+								newBar = true;
+							}
+							/*
+							 * When the chart shows a larger bar size its
+							 * candles are added in buildCandle.
+							 */
+							if (this.getCandleDataset().getSeries(0)
+									.getBarSize() == this.getBaseCandleSeries()
+									.getBarSize()) {
+								this.getCandleDataset()
+										.getSeries(0)
+										.updateSeries(
+												this.getBaseCandleSeries(),
+												this.lastBaseCandleProcessed,
+												newBar);
+							}
 						}
 					}
 				}
@@ -199,6 +234,7 @@ public class StrategyData extends Worker {
 			/*
 			 * Ok we are complete clean up.
 			 */
+			m_workersRunning.dec();
 		}
 		return null;
 	}
@@ -226,33 +262,171 @@ public class StrategyData extends Worker {
 	 * @param newPeriod
 	 *            int
 	 */
-	public void changeCandleSeriesPeriod(int newPeriod) {
+	public synchronized void changeCandleSeriesPeriod(int newPeriod) {
 		/*
-		 * Clear down the dependent data sets and re populate from the base
-		 * candle series.
+		 * The first time a bar size is shown its candles and indicators are
+		 * built from the base candle series. After that they are kept up to
+		 * date as candles arrive so changing back to it just swaps the series
+		 * the chart shows.
 		 */
-		clearChartDatasets();
-		this.getCandleDataset().getSeries(0).setBarSize(newPeriod);
-		for (int i = 0; i < getBaseCandleSeries().getItemCount(); i++) {
-			CandleItem candelItem = (CandleItem) getBaseCandleSeries()
-					.getDataItem(i);
-			boolean newBar = this
-					.getCandleDataset()
-					.getSeries(0)
-					.buildCandle(
-							candelItem.getLastUpdateDate(),
-							candelItem.getOpen(),
-							candelItem.getHigh(),
-							candelItem.getLow(),
-							candelItem.getClose(),
-							candelItem.getVolume(),
-							candelItem.getVwap(),
-							candelItem.getCount(),
-							this.getCandleDataset().getSeries(0).getBarSize()
-									/ getBaseCandleSeries().getBarSize(), null);
-			updateIndicators(this.getCandleDataset(), newBar);
+		List<IndicatorSeries> indicatorSeries = this.indicatorLevels
+				.get(newPeriod);
+		if (null == indicatorSeries) {
+			indicatorSeries = createIndicatorLevel(newPeriod);
+		}
+		CandleSeries level = this.candlePyramid.getDataset(newPeriod)
+				.getSeries(0);
+		CandleSeries series = this.getCandleDataset().getSeries(0);
+		synchronized (this.getBaseCandleDataset()) {
+			List<CandleItem> items = new ArrayList<CandleItem>(
+					level.getItemCount());
+			for (int i = 0; i < level.getItemCount(); i++) {
+				items.add((CandleItem) level.getDataItem(i));
+			}
+			boolean notify = series.getNotify();
+			series.beginBulkLoad();
+			series.clear();
+			series.setBarSize(newPeriod);
+			series.addBatch(items);
+			if (notify)
+				series.endBulkLoad();
+			this.lastBaseCandleProcessed = this.currentBaseCandleCount;
+		}
+
+		int index = 0;
+		for (IndicatorDataset indicator : indicators) {
+			if (!IndicatorSeries.CandleSeries.equals(indicator.getType(0))) {
+				for (int x = 0; x < indicator.getSeriesCount(); x++) {
+					indicator.setSeries(x, indicatorSeries.get(index++));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Method createIndicatorLevel. Add a level to the candle pyramid for the
+	 * bar size and build its candles from the base candle series along with a
+	 * copy of each indicator series.
+	 * 
+	 * @param barSize
+	 *            int
+	 * @return List<IndicatorSeries>
+	 */
+	private List<IndicatorSeries> createIndicatorLevel(int barSize) {
+
+		List<IndicatorSeries> indicatorSeries = new ArrayList<IndicatorSeries>();
+		try {
+			for (IndicatorSeries series : getIndicatorSeries()) {
+				IndicatorSeries clone = (IndicatorSeries) series.clone();
+				clone.clear();
+				indicatorSeries.add(clone);
+			}
+		} catch (CloneNotSupportedException ex) {
+			throw new IllegalArgumentException(
+					"Could not change candle series period. Indicator was not clonable Msg: "
+							+ ex.getMessage());
+		}
+
+		/*
+		 * Candles are built under the same lock so no candle arrives between
+		 * populating the level and adding it to the pyramid.
+		 */
+		synchronized (this.getBaseCandleDataset()) {
+			CandleDataset source = this.candlePyramid.createLevel(barSize);
+			CandleSeries level = source.getSeries(0);
+			for (int i = 0; i < getBaseCandleSeries().getItemCount(); i++) {
+				CandleItem candelItem = (CandleItem) getBaseCandleSeries()
+						.getDataItem(i);
+				boolean newBar = level.buildCandle(
+						candelItem.getLastUpdateDate(), candelItem.getOpen(),
+						candelItem.getHigh(), candelItem.getLow(),
+						candelItem.getClose(), candelItem.getVolume(),
+						candelItem.getVwap(), candelItem.getCount(), barSize
+								/ getBaseCandleSeries().getBarSize(), null);
+				for (IndicatorSeries series : indicatorSeries) {
+					if (!series.isBatchCreate()) {
+						series.updateSeries(level, level.getItemCount() - 1,
+								newBar);
+					}
+				}
+			}
+			for (IndicatorSeries series : indicatorSeries) {
+				if (series.isBatchCreate()) {
+					series.createSeries(source, 0);
+				}
+			}
+			this.candlePyramid.addLevel(barSize, source);
+			Map<Integer, List<IndicatorSeries>> indicatorLevels = new HashMap<Integer, List<IndicatorSeries>>(
+					this.indicatorLevels);
+			indicatorLevels.put(barSize, indicatorSeries);
+			this.indicatorLevels = indicatorLevels;
+		}
+		return indicatorSeries;
+	}
+
+	/**
+	 * Method beginBulkLoad. Start a bulk load of candles via buildCandle. Until
+	 * endBulkLoad is called no change events are sent by the candle and
+	 * indicator series, the strategy worker is not woken for each candle and
+	 * the indicators that can be created in one pass are not updated for each
+	 * candle. Calls while a bulk load is already in progress are ignored.
+	 */
+	public synchronized void beginBulkLoad() {
+		if (this.bulkLoading)
+			return;
+		this.bulkLoading = true;
+		this.getBaseCandleDataset().beginBulkLoad();
+		this.getCandleDataset().beginBulkLoad();
+		for (IndicatorDataset indicator : indicators) {
+			if (!IndicatorSeries.CandleSeries.equals(indicator.getType(0))) {
+				for (int x = 0; x < indicator.getSeriesCount(); x++) {
+					indicator.getSeries(x).beginBulkLoad();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Method endBulkLoad. End the bulk load, create the indicators that were
+	 * not updated for each candle from the loaded candles, then send one
+	 * change event per series and wake the strategy worker once.
+	 */
+	public synchronized void endBulkLoad() {
+		if (!this.bulkLoading)
+			return;
+		synchronized (this.getBaseCandleDataset()) {
+			for (Map.Entry<Integer, List<IndicatorSeries>> level : this.indicatorLevels
+					.entrySet()) {
+				CandleDataset source = this.candlePyramid.getDataset(level
+						.getKey());
+				for (IndicatorSeries series : level.getValue()) {
+					if (series.isBatchCreate()) {
+						series.clear();
+						series.createSeries(source, 0);
+					}
+					series.endBulkLoad();
+				}
+			}
+			this.bulkLoading = false;
+		}
+		this.getCandleDataset().endBulkLoad();
+		this.getBaseCandleDataset().endBulkLoad();
+
+		if (this.isRunning()) {
+			synchronized (lockStrategyWorker) {
+				this.seriesChanged = true;
+				lockStrategyWorker.notifyAll();
+			}
 		}
-		this.getCandleDataset().getSeries(0).fireSeriesChanged();
+	}
+
+	/**
+	 * Method isBulkLoading.
+	 * 
+	 * @return boolean
+	 */
+	public boolean isBulkLoading() {
+		return this.bulkLoading;
 	}
 
 	/**
@@ -287,24 +461,60 @@ public class StrategyData extends Worker {
 			double close, long volume, double vwap, int tradeCount,
 			int rollupInterval, Date lastUpdateDate) {
 
-		boolean newBar = this.getBaseCandleSeries().buildCandle(time, open,
-				high, low, close, volume, vwap, tradeCount, rollupInterval,
-				lastUpdateDate);
-
-		this.currentBaseCandleCount = this.getBaseCandleSeries().getItemCount() - 1;
-
-		CandleItem candleItem = (CandleItem) this.getBaseCandleSeries()
-				.getDataItem(this.currentBaseCandleCount);
-		this.getBaseCandleSeries().updatePercentChanged(candleItem);
-		updateIndicators(this.getBaseCandleDataset(), newBar);
+		long start = m_buildCandle.start();
+		this.latencyTrace.candleStarted();
+		boolean newBar = false;
+		/*
+		 * A bar size level added by changeCandleSeriesPeriod is populated
+		 * from the base candles and the chart series is replaced under this
+		 * lock.
+		 */
+		synchronized (this.getBaseCandleDataset()) {
+			newBar = this.getBaseCandleSeries().buildCandle(time, open, high,
+					low, close, volume, vwap, tradeCount, rollupInterval,
+					lastUpdateDate);
+
+			this.currentBaseCandleCount = this.getBaseCandleSeries()
+					.getItemCount() - 1;
+
+			CandleItem candleItem = (CandleItem) this.getBaseCandleSeries()
+					.getDataItem(this.currentBaseCandleCount);
+			this.getBaseCandleSeries().updatePercentChanged(candleItem);
+			this.candlePyramid.buildCandle(time, open, high, low, close,
+					volume, vwap, tradeCount, rollupInterval, lastUpdateDate,
+					newBar);
+			this.latencyTrace.candleBuilt();
+			updateIndicators();
+			this.latencyTrace.indicatorsUpdated();
+
+			int barSize = this.getCandleDataset().getSeries(0).getBarSize();
+			if (barSize != this.getBaseCandleSeries().getBarSize()) {
+				/*
+				 * The chart shows a larger bar size, its candle comes from the
+				 * pyramid level for that bar size.
+				 */
+				this.getCandleDataset().updateDataset(
+						this.candlePyramid.getDataset(barSize), 0,
+						this.candlePyramid.isNewBar(barSize));
+			} else if (!this.isRunning()) {
+				/*
+				 * Another candle has been added. Add the new candle to the
+				 * base series in the dataset. If the strategy worker is
+				 * running it does this.
+				 */
+				this.getCandleDataset().updateDataset(
+						this.getBaseCandleDataset(), 0, newBar);
+			}
+		}
 		this.getBaseCandleSeries().fireSeriesChanged();
 		/*
 		 * If thread Indicators the updates to all indicators and the subsequent
 		 * firing of base series changed is performed via the worker thread.
 		 * This should be used when this method is called from a broker thread
-		 * i.e. messaged bus thread.
+		 * i.e. messaged bus thread. During a bulk load the strategy worker is
+		 * woken once when the bulk load ends.
 		 */
-		if (this.isRunning()) {
+		if (!this.bulkLoading && this.isRunning()) {
 			/*
 			 * Unlock the doInBackground that may be waiting for a candle. This
 			 * will cause a clean finish to the process.
@@ -316,39 +526,30 @@ public class StrategyData extends Worker {
 			// _log.info("buildCandle symbol: "
 			// + this.getBaseCandleSeries().getSymbol() + " Count: "
 			// + this.currentCandleCount);
-		} else {
-
-			/*
-			 * Another candle has been added. Add the new candle to the base
-			 * series in the dataset.
-			 */
-			synchronized (this.getBaseCandleDataset()) {
-				this.getCandleDataset().updateDataset(
-						this.getBaseCandleDataset(), 0, newBar);
-			}
 		}
+		m_buildCandle.stop(start);
 		return newBar;
 	}
 
 	/**
-	 * Method updateIndicators. Update all the indicators before notifying any
-	 * strategy workers of this even.
-	 * 
-	 * @param source
-	 *            CandleDataset
-	 * 
-	 * @param newBar
-	 *            boolean
+	 * Method updateIndicators. Update all the indicators for each bar size in
+	 * the candle pyramid before notifying any strategy workers of this even.
 	 */
-	private void updateIndicators(CandleDataset source, boolean newBar) {
-
-		for (IndicatorDataset indicator : indicators) {
-			/*
-			 * CandleSeries are only updated via the API i.e. these are not true
-			 * indicators and are shared across Data-sets.
-			 */
-			if (!IndicatorSeries.CandleSeries.equals(indicator.getType(0))) {
-				indicator.updateDataset(source, 0, newBar);
+	private void updateIndicators() {
+
+		for (Map.Entry<Integer, List<IndicatorSeries>> level : this.indicatorLevels
+				.entrySet()) {
+			CandleSeries source = this.candlePyramid
+					.getDataset(level.getKey()).getSeries(0);
+			boolean newBar = this.candlePyramid.isNewBar(level.getKey());
+			for (IndicatorSeries series : level.getValue()) {
+				/*
+				 * Series that can be created in one pass are created when the
+				 * bulk load ends.
+				 */
+				if (this.bulkLoading && series.isBatchCreate())
+					continue;
+				series.updateSeries(source, source.getItemCount() - 1, newBar);
 			}
 		}
 	}
@@ -394,9 +595,33 @@ public class StrategyData extends Worker {
 				indicator.clear();
 			}
 		}
+		for (List<IndicatorSeries> level : this.indicatorLevels.values()) {
+			for (IndicatorSeries series : level) {
+				series.clear();
+			}
+		}
+		this.candlePyramid.clear();
 		getCandleDataset().clear();
 	}
 
+	/**
+	 * Method getIndicatorSeries.
+	 * 
+	 * @return List<IndicatorSeries> the series in the indicator datasets
+	 *         excluding the CandleSeries in dataset and series order.
+	 */
+	private List<IndicatorSeries> getIndicatorSeries() {
+		List<IndicatorSeries> indicatorSeries = new ArrayList<IndicatorSeries>();
+		for (IndicatorDataset indicator : indicators) {
+			if (!IndicatorSeries.CandleSeries.equals(indicator.getType(0))) {
+				for (int x = 0; x < indicator.getSeriesCount(); x++) {
+					indicatorSeries.add(indicator.getSeries(x));
+				}
+			}
+		}
+		return indicatorSeries;
+	}
+
 	/**
 	 * Method getIndicators.
 	 * 
@@ -450,6 +675,15 @@ public class StrategyData extends Worker {
 		return candleDataset;
 	}
 
+	/**
+	 * Method getLatencyTrace.
+	 *
+	 * @return LatencyTrace
+	 */
+	public LatencyTrace getLatencyTrace() {
+		return this.latencyTrace;
+	}
+
 	/**
 	 * Method doDummyData.
 	 * 
@@ -0,0 +1,416 @@
+/* ===========================================================
+ * TradeManager : a application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.strategy.data;
+
+import java.util.Date;
+
+import org.jfree.data.general.SeriesChangeEvent;
+import org.jfree.data.time.RegularTimePeriod;
+import org.trade.core.util.TradingCalendar;
+import org.trade.dictionary.valuetype.BarSize;
+import org.trade.strategy.data.candle.CandleItem;
+import org.trade.strategy.data.candle.CandlePeriod;
+
+/**
+ * A CandleDataset used by the chart that holds only the candles of the source
+ * series that fall in the visible domain range plus half a range either side.
+ * When the visible range holds more than maxBars candles they are merged into
+ * OHLC buckets, so the chart never draws more than about maxBars candles no
+ * matter how many chart days the strategy holds.
+ * 
+ * The source series is not changed. Candles appended to the source are added
+ * to the window when the window covers the latest bar. When every source
+ * candle would be in the window as is, the dataset shows the source series
+ * itself rather than holding a copy of it.
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+public class WindowedCandleDataset extends CandleDataset {
+
+	private static final long serialVersionUID = -2154087322180742791L;
+
+	private CandleSeries source = null;
+	private CandleSeries window = null;
+	private int maxBars = 0;
+	private int bucketSize = 1;
+	private long lowerBound = Long.MIN_VALUE;
+	private long upperBound = Long.MAX_VALUE;
+	/*
+	 * The source items from firstIndex to lastIndex (exclusive) are in the
+	 * window. lastBucketIndex is the first source item in the last bucket.
+	 */
+	private int firstIndex = 0;
+	private int lastIndex = 0;
+	private int lastBucketIndex = 0;
+	private boolean atEnd = true;
+	private boolean viewSource = false;
+
+	/**
+	 * Constructor for WindowedCandleDataset.
+	 * 
+	 * @param source
+	 *            CandleSeries
+	 * @param maxBars
+	 *            int the maximum candles to hold. Zero or less means no
+	 *            limit.
+	 */
+	public WindowedCandleDataset(CandleSeries source, int maxBars) {
+		super();
+		this.source = source;
+		this.maxBars = maxBars;
+		this.window = new CandleSeries(source, source.getBarSize(),
+				source.getStartTime(), source.getEndTime());
+		this.addSeries(this.window);
+		this.source.addChangeListener(this);
+		materialize();
+	}
+
+	/**
+	 * Method getSourceSeries.
+	 * 
+	 * @return CandleSeries
+	 */
+	public CandleSeries getSourceSeries() {
+		return this.source;
+	}
+
+	/**
+	 * Method getBucketSize.
+	 * 
+	 * @return int the number of source candles in each window candle.
+	 */
+	public synchronized int getBucketSize() {
+		return this.bucketSize;
+	}
+
+	/**
+	 * Method setDomainRange. Set the visible range in milliseconds. Use
+	 * Long.MIN_VALUE and Long.MAX_VALUE to show the whole source series.
+	 * 
+	 * @param lower
+	 *            long
+	 * @param upper
+	 *            long
+	 */
+	public synchronized void setDomainRange(long lower, long upper) {
+		if (lower == this.lowerBound && upper == this.upperBound) {
+			return;
+		}
+		this.lowerBound = lower;
+		this.upperBound = upper;
+		int first = findIndex(lower);
+		int last = findIndex(upper);
+		int newBucketSize = getBucketSize(last - first + 1);
+
+		/*
+		 * Nothing to do if the window already holds the visible range at the
+		 * same resolution i.e. a small pan.
+		 */
+		if (newBucketSize == this.bucketSize
+				&& (first >= this.firstIndex || this.firstIndex == 0)
+				&& (last < this.lastIndex || this.atEnd)) {
+			return;
+		}
+		this.bucketSize = newBucketSize;
+		materialize();
+	}
+
+	/**
+	 * Method removeSource. Stop listening to the source series.
+	 */
+	public void removeSource() {
+		this.source.removeChangeListener(this);
+	}
+
+	/**
+	 * Method seriesChanged.
+	 * 
+	 * @param event
+	 *            SeriesChangeEvent
+	 * @see org.jfree.data.general.SeriesChangeListener#seriesChanged(SeriesChangeEvent)
+	 */
+	public void seriesChanged(SeriesChangeEvent event) {
+		if (event.getSource() != this.source) {
+			super.seriesChanged(event);
+			return;
+		}
+		synchronized (this) {
+			int count = this.source.getItemCount();
+			if (this.viewSource) {
+				this.lastIndex = count;
+				super.seriesChanged(event);
+				return;
+			}
+			if (count < this.lastIndex) {
+				/*
+				 * The source has been cleared i.e. a change of bar size.
+				 */
+				materialize();
+				return;
+			}
+			if (!this.atEnd) {
+				return;
+			}
+			if (this.bucketSize > 1 && this.lastIndex > this.lastBucketIndex) {
+				/*
+				 * The last source candle may have been updated so rebuild the
+				 * last bucket.
+				 */
+				CandleItem bucket = (CandleItem) this.window
+						.getDataItem(this.window.getItemCount() - 1);
+				setBucket(bucket, (CandleItem) this.source
+						.getDataItem(this.lastBucketIndex));
+				for (int i = this.lastBucketIndex + 1; i < this.lastIndex; i++) {
+					mergeBucket(bucket,
+							(CandleItem) this.source.getDataItem(i));
+				}
+			}
+			for (int i = this.lastIndex; i < count; i++) {
+				addItem(i);
+			}
+			this.lastIndex = count;
+			this.window.fireSeriesChanged();
+		}
+	}
+
+	/**
+	 * Method materialize. Rebuild the window from the source for the current
+	 * domain range.
+	 */
+	private void materialize() {
+		int count = this.source.getItemCount();
+		if (this.lowerBound == Long.MIN_VALUE
+				&& this.upperBound == Long.MAX_VALUE) {
+			this.firstIndex = 0;
+			this.lastIndex = count;
+			this.bucketSize = getBucketSize(count);
+		} else {
+			int first = findIndex(this.lowerBound);
+			int last = findIndex(this.upperBound);
+			int margin = (last - first + 1) / 2;
+			this.firstIndex = Math.max(0, first - margin);
+			this.lastIndex = Math.min(count, last + 1 + margin);
+		}
+		this.atEnd = (this.lastIndex == count);
+		if (this.bucketSize == 1 && this.firstIndex == 0 && this.atEnd) {
+			setViewSource(true);
+			return;
+		}
+		setViewSource(false);
+		this.window.clear();
+		this.lastBucketIndex = this.firstIndex;
+		for (int i = this.firstIndex; i < this.lastIndex; i++) {
+			addItem(i);
+		}
+		this.window.fireSeriesChanged();
+	}
+
+	/**
+	 * Method setViewSource. Switch the dataset between the source series and
+	 * the window. setSeries() moves this dataset's listener from the old
+	 * series to the new one, the source keeps only the listener added in the
+	 * constructor so each change is seen once.
+	 * 
+	 * @param viewSource
+	 *            boolean
+	 */
+	private void setViewSource(boolean viewSource) {
+		if (viewSource == this.viewSource) {
+			return;
+		}
+		this.viewSource = viewSource;
+		if (viewSource) {
+			this.setSeries(0, this.source);
+			this.source.removeChangeListener(this);
+			this.window.clear();
+		} else {
+			this.setSeries(0, this.window);
+			this.source.addChangeListener(this);
+		}
+	}
+
+	/**
+	 * Method addItem. Add the source candle to the window either as a new
+	 * candle or merged into the last bucket.
+	 * 
+	 * @param index
+	 *            int
+	 */
+	private void addItem(int index) {
+		CandleItem item = (CandleItem) this.source.getDataItem(index);
+		if (this.bucketSize == 1) {
+			/*
+			 * Share the source candle, updates to the latest bar are then
+			 * seen by the window.
+			 */
+			this.window.add(item, false);
+			this.lastBucketIndex = index;
+			return;
+		}
+		long bucketStart = getBucketStart(item);
+		if (!this.window.isEmpty()
+				&& bucketStart == getBucketStart((CandleItem) this.source
+						.getDataItem(this.lastBucketIndex))) {
+			mergeBucket(
+					(CandleItem) this.window.getDataItem(this.window
+							.getItemCount() - 1), item);
+		} else {
+			this.lastBucketIndex = index;
+			Date endOfDay = new Date(TradingCalendar.getSpecificTime(
+					item.getPeriod().getStart(), 23, 59).getTime() + 59000);
+			Date end = new Date(Math.min(bucketStart + getBucketMillis()
+					- 1000, endOfDay.getTime()));
+			RegularTimePeriod period = new CandlePeriod(item.getPeriod()
+					.getStart(), end);
+			this.window.add(new CandleItem(item.getCandle().getContract(),
+					item.getCandle().getTradingday(), period, item.getOpen(),
+					item.getHigh(), item.getLow(), item.getClose(), item
+							.getVolume(), item.getVwap(), item.getCount(), item
+							.getLastUpdateDate()), false);
+		}
+	}
+
+	/**
+	 * Method setBucket. Reset the bucket to the values of the first candle in
+	 * it.
+	 * 
+	 * @param bucket
+	 *            CandleItem
+	 * @param item
+	 *            CandleItem
+	 */
+	private void setBucket(CandleItem bucket, CandleItem item) {
+		bucket.setOpen(item.getOpen());
+		bucket.setHigh(item.getHigh());
+		bucket.setLow(item.getLow());
+		bucket.setClose(item.getClose());
+		bucket.setVolume(item.getVolume());
+		bucket.setVwap(item.getVwap());
+		bucket.setCount(item.getCount());
+		bucket.setLastUpdateDate(item.getLastUpdateDate());
+	}
+
+	/**
+	 * Method mergeBucket. The high/low are the max/min, the close is the
+	 * latest close and the vwap is weighted by volume.
+	 * 
+	 * @param bucket
+	 *            CandleItem
+	 * @param item
+	 *            CandleItem
+	 */
+	private void mergeBucket(CandleItem bucket, CandleItem item) {
+		long volume = bucket.getVolume() + item.getVolume();
+		if (volume > 0) {
+			bucket.setVwap(((bucket.getVwap() * bucket.getVolume()) + (item
+					.getVwap() * item.getVolume()))
+					/ volume);
+		}
+		bucket.setHigh(Math.max(bucket.getHigh(), item.getHigh()));
+		bucket.setLow(Math.min(bucket.getLow(), item.getLow()));
+		bucket.setClose(item.getClose());
+		bucket.setVolume(volume);
+		bucket.setCount(bucket.getCount() + item.getCount());
+		bucket.setLastUpdateDate(item.getLastUpdateDate());
+	}
+
+	/**
+	 * Method getBucketSize.
+	 * 
+	 * @param bars
+	 *            int the number of visible source candles.
+	 * @return int
+	 */
+	private int getBucketSize(int bars) {
+		/*
+		 * Daily bars cannot be merged as a candle period is within a day.
+		 */
+		if (this.maxBars < 1 || this.source.getBarSize() <= BarSize.DAY
+				|| bars <= this.maxBars) {
+			return 1;
+		}
+		return (int) Math.ceil(bars / (double) this.maxBars);
+	}
+
+	/**
+	 * Method getBucketMillis.
+	 * 
+	 * @return long
+	 */
+	private long getBucketMillis() {
+		return this.bucketSize * this.source.getBarSize() * 1000L;
+	}
+
+	/**
+	 * Method getBucketStart. Buckets are aligned from midnight so a bucket
+	 * never spans two days.
+	 * 
+	 * @param item
+	 *            CandleItem
+	 * @return long
+	 */
+	private long getBucketStart(CandleItem item) {
+		long start = item.getPeriod().getFirstMillisecond();
+		long midnight = TradingCalendar.getSpecificTime(
+				item.getPeriod().getStart(), 0, 0).getTime();
+		return midnight + ((start - midnight) / getBucketMillis())
+				* getBucketMillis();
+	}
+
+	/**
+	 * Method findIndex. Binary search for the first source candle that ends
+	 * at or after the time.
+	 * 
+	 * @param millis
+	 *            long
+	 * @return int the item count if all candles end before the time.
+	 */
+	private int findIndex(long millis) {
+		int low = 0;
+		int high = this.source.getItemCount();
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (((CandleItem) this.source.getDataItem(mid)).getPeriod()
+					.getLastMillisecond() < millis) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+}
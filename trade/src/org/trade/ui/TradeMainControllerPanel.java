@@ -63,8 +63,10 @@ import org.trade.broker.BrokerChangeListener;
 import org.trade.broker.BrokerDataRequestMonitor;
 import org.trade.broker.BrokerModel;
 import org.trade.broker.BrokerModelException;
+import org.trade.broker.client.BackTestCandleCache;
 import org.trade.core.factory.ClassFactory;
 import org.trade.core.lookup.DBTableLookupServiceProvider;
+import org.trade.core.metrics.MetricReporter;
 import org.trade.core.properties.ConfigProperties;
 import org.trade.core.util.DynamicCode;
 import org.trade.core.util.TradingCalendar;
@@ -99,6 +101,7 @@ import org.trade.ui.base.TabbedAppPanel;
 import org.trade.ui.base.TextDialog;
 import org.trade.ui.configuration.ConfigurationPanel;
 import org.trade.ui.contract.ContractPanel;
+import org.trade.ui.diagnostics.DiagnosticsPane;
 import org.trade.ui.portfolio.PortfolioPanel;
 import org.trade.ui.strategy.StrategyPanel;
 import org.trade.ui.tradingday.ConnectionPane;
@@ -312,12 +315,18 @@ public class TradeMainControllerPanel extends TabbedAppPanel implements
 	 */
 
 	public void doData() {
-		if (m_tradingdays.isDirty()) {
-			this.setStatusBarMessage(
-					"Please save before running strategy ...\n",
-					BasePanel.WARNING);
-		} else {
-			runStrategy(m_tradingdays, true);
+		try {
+			if (m_tradingdays.isDirty()) {
+				this.setStatusBarMessage(
+						"Please save before running strategy ...\n",
+						BasePanel.WARNING);
+			} else {
+				tradingdayPanel.loadTradingdayDetails();
+				runStrategy(m_tradingdays, true);
+			}
+		} catch (Exception ex) {
+			this.setErrorMessage("Error running Trade Strategies.",
+					ex.getMessage(), ex);
 		}
 	}
 
@@ -403,6 +412,7 @@ public class TradeMainControllerPanel extends TabbedAppPanel implements
 						"Please save or refresh before running strategy ...\n",
 						BasePanel.WARNING);
 			} else {
+				tradingdayPanel.loadTradingdayDetails();
 				runStrategy(m_tradingdays, false);
 			}
 		} catch (Exception ex) {
@@ -499,6 +509,7 @@ public class TradeMainControllerPanel extends TabbedAppPanel implements
 					List<Contract> contracts = filterTradestrategyPane
 							.getSelectedContracts();
 
+					tradingdayPanel.loadTradingdayDetails();
 					Tradingdays tradingdays = new Tradingdays();
 					for (Tradingday itemTradingday : m_tradingdays
 							.getTradingdays()) {
@@ -1006,6 +1017,28 @@ public class TradeMainControllerPanel extends TabbedAppPanel implements
 		}
 	}
 
+	/**
+	 * This method is fired from the main menu. It displays the bar latency
+	 * histograms.
+	 * 
+	 */
+	public void doDiagnostics() {
+		try {
+			DiagnosticsPane diagnosticsPane = new DiagnosticsPane();
+			TextDialog diagnostics = new TextDialog(this.getFrame(),
+					"Diagnostics", false, diagnosticsPane);
+			diagnostics.pack();
+			diagnostics.setSize(new Dimension((int) (this.getFrame().getSize()
+					.getWidth() * 2 / 3), (int) (this.getFrame().getSize()
+					.getHeight() * 2 / 3)));
+			diagnostics.setLocationRelativeTo(this);
+			diagnostics.setVisible(true);
+		} catch (Exception ex) {
+			this.setErrorMessage("Could not load diagnostics.",
+					ex.getMessage(), ex);
+		}
+	}
+
 	/**
 	 * This method is fired from the main menu. It displays the application
 	 * version.
@@ -1171,9 +1204,24 @@ public class TradeMainControllerPanel extends TabbedAppPanel implements
 	 */
 
 	public void doWindowOpen() {
+		startMetricReporter();
 		doConnect();
 	}
 
+	/**
+	 * Method startMetricReporter. Start reporting the metrics if a report
+	 * period is set in the config.
+	 */
+	private void startMetricReporter() {
+		try {
+			MetricReporter.start(ConfigProperties
+					.getPropAsInt("trade.metrics.report.seconds"),
+					ConfigProperties.getPropAsString("trade.metrics.report.file"));
+		} catch (Exception ex) {
+			_log.warn("Metrics reporter not started Msg: " + ex.getMessage());
+		}
+	}
+
 	/**
 	 * This method is fired when the tab closes.
 	 * 
@@ -1182,6 +1230,7 @@ public class TradeMainControllerPanel extends TabbedAppPanel implements
 	public void doWindowClose() {
 		tradingdayPanel.killAllStrategyWorker();
 		doDisconnect();
+		MetricReporter.stop();
 		doExit();
 	}
 
@@ -1946,6 +1995,8 @@ public class TradeMainControllerPanel extends TabbedAppPanel implements
 			 * Now run a thread that gets and saves historical data from IB TWS.
 			 */
 			getProgressBar().setMaximum(100);
+			final boolean backTest = !brokerDataOnly
+					&& !m_brokerModel.isConnected();
 			brokerDataRequestProgressMonitor = new BrokerDataRequestMonitor(
 					m_brokerModel, m_tradePersistentModel, tradingdays);
 			brokerDataRequestProgressMonitor
@@ -1974,11 +2025,24 @@ public class TradeMainControllerPanel extends TabbedAppPanel implements
 												((Exception) evt.getNewValue())
 														.getMessage(),
 												(Exception) evt.getNewValue());
+									} else if ("state".equals(evt
+											.getPropertyName())
+											&& SwingWorker.StateValue.DONE == evt
+													.getNewValue()) {
+										if (backTest)
+											BackTestCandleCache.close();
 									}
 								}
 							});
 						}
 					});
+			/*
+			 * For a back test each contracts candles are read once for all the
+			 * tradingdays. The monitor is done when all the candles have been
+			 * replayed.
+			 */
+			if (backTest)
+				BackTestCandleCache.open(tradingdays);
 			brokerDataRequestProgressMonitor.execute();
 
 		} catch (Exception ex) {
@@ -40,6 +40,7 @@ import java.awt.event.ActionListener;
 
 import javax.swing.JMenu;
 
+import org.trade.dictionary.valuetype.UIPropertyCodes;
 import org.trade.ui.base.BaseButton;
 import org.trade.ui.base.BaseMenuItem;
 import org.trade.ui.base.BasePanel;
@@ -94,6 +95,8 @@ public class TradeMainPanelMenu extends BasePanelMenu {
 			BaseUIPropertyCodes.DISCONNECT);
 	private final BaseMenuItem disclaimer = new BaseMenuItem(null,
 			BaseUIPropertyCodes.DISCLAIMER);
+	private final BaseMenuItem diagnostics = new BaseMenuItem(null,
+			UIPropertyCodes.newInstance(UIPropertyCodes.DIAGNOSTICS));
 
 	/**
 	 * Constructor for TradeMainPanelMenu.
@@ -218,6 +221,11 @@ public class TradeMainPanelMenu extends BasePanelMenu {
 				messageEvent(disclaimer.getMethod());
 			}
 		});
+		diagnostics.addActionListener(new java.awt.event.ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				messageEvent(diagnostics.getMethod());
+			}
+		});
 
 		final BaseMenuItem close = new BaseMenuItem(null,
 				BaseUIPropertyCodes.CLOSE);
@@ -285,6 +293,7 @@ public class TradeMainPanelMenu extends BasePanelMenu {
 		actionMenu.add(propertiesMenu, 8);
 
 		helpMenu.add(disclaimer, 1);
+		helpMenu.add(diagnostics, 2);
 
 		// windowMenu.add(close, 0);
 		// windowMenu.add(closeAll, 1);
@@ -63,6 +63,8 @@ import org.jfree.chart.block.BorderArrangement;
 import org.jfree.chart.block.EmptyBlock;
 import org.jfree.chart.entity.PlotEntity;
 import org.jfree.chart.entity.XYItemEntity;
+import org.jfree.chart.event.AxisChangeEvent;
+import org.jfree.chart.event.AxisChangeListener;
 import org.jfree.chart.plot.CombinedDomainXYPlot;
 import org.jfree.chart.plot.PlotOrientation;
 import org.jfree.chart.plot.ValueMarker;
@@ -77,6 +79,8 @@ import org.jfree.data.general.SeriesChangeListener;
 import org.jfree.data.xy.XYDataset;
 import org.jfree.ui.RectangleEdge;
 import org.jfree.ui.TextAnchor;
+import org.trade.core.properties.ConfigProperties;
+import org.trade.core.util.PriceTicks;
 import org.trade.core.util.TradingCalendar;
 import org.trade.core.valuetype.Money;
 import org.trade.core.valuetype.ValueTypeException;
@@ -86,6 +90,7 @@ import org.trade.strategy.data.CandleSeries;
 import org.trade.strategy.data.IndicatorDataset;
 import org.trade.strategy.data.IndicatorSeries;
 import org.trade.strategy.data.StrategyData;
+import org.trade.strategy.data.WindowedCandleDataset;
 import org.trade.strategy.data.candle.CandleItem;
 
 /**
@@ -108,6 +113,7 @@ public class CandlestickChart extends JPanel implements SeriesChangeListener {
 	private XYTextAnnotation closePriceLine = null;
 	private XYTextAnnotation clickCrossHairs = null;
 	private StrategyData strategyData = null;
+	private WindowedCandleDataset windowedDataset = null;
 
 	/**
 	 * A demonstration application showing a candlestick chart.
@@ -127,6 +133,15 @@ public class CandlestickChart extends JPanel implements SeriesChangeListener {
 				BasicStroke.JOIN_BEVEL, 0, new float[] { 10, 3 }, 0);
 		valueMarker = new ValueMarker(0.00, Color.black, stroke);
 
+		int maxBars = 0;
+		try {
+			maxBars = ConfigProperties.getPropAsInt("trade.chart.maxBars");
+		} catch (Exception ex) {
+			// Do nothing draw all the bars.
+		}
+		this.windowedDataset = new WindowedCandleDataset(this.strategyData
+				.getCandleDataset().getSeries(0), maxBars);
+
 		this.chart = createChart(this.strategyData, title, tradingday);
 
 		BlockContainer container = new BlockContainer(new BorderArrangement());
@@ -257,6 +272,7 @@ public class CandlestickChart extends JPanel implements SeriesChangeListener {
 	public void removeChart() {
 		this.strategyData.getCandleDataset().getSeries(0)
 				.removeChangeListener(this);
+		this.windowedDataset.removeSource();
 		this.chart.getXYPlot().clearAnnotations();
 		this.chart.getXYPlot().clearDomainAxes();
 		this.chart.getXYPlot().clearDomainMarkers();
@@ -285,16 +301,30 @@ public class CandlestickChart extends JPanel implements SeriesChangeListener {
 	private JFreeChart createChart(StrategyData strategyData, String title,
 			Tradingday tradingday) {
 
-		DateAxis dateAxis = new DateAxis("Date");
+		final DateAxis dateAxis = new DateAxis("Date");
 		dateAxis.setVerticalTickLabels(true);
 		dateAxis.setDateFormatOverride(new SimpleDateFormat("dd/MM hh:mm"));
 		dateAxis.setTickMarkPosition(DateTickMarkPosition.START);
 		NumberAxis priceAxis = new NumberAxis("Price");
 		priceAxis.setAutoRange(true);
 		priceAxis.setAutoRangeIncludesZero(false);
-		XYPlot pricePlot = new XYPlot(strategyData.getCandleDataset(),
-				dateAxis, priceAxis, strategyData.getCandleDataset()
-						.getRenderer());
+		/*
+		 * The price plot draws from a window on the candle series so that
+		 * only the visible bars (merged when zoomed out) are drawn.
+		 */
+		XYPlot pricePlot = new XYPlot(this.windowedDataset, dateAxis,
+				priceAxis, strategyData.getCandleDataset().getRenderer());
+		dateAxis.addChangeListener(new AxisChangeListener() {
+			public void axisChanged(AxisChangeEvent event) {
+				if (dateAxis.isAutoRange()) {
+					windowedDataset.setDomainRange(Long.MIN_VALUE,
+							Long.MAX_VALUE);
+				} else {
+					windowedDataset.setDomainRange((long) dateAxis
+							.getLowerBound(), (long) dateAxis.getUpperBound());
+				}
+			}
+		});
 		pricePlot.setOrientation(PlotOrientation.VERTICAL);
 		pricePlot.setDomainPannable(true);
 		pricePlot.setRangePannable(true);
@@ -470,11 +500,11 @@ public class CandlestickChart extends JPanel implements SeriesChangeListener {
 						.getDataItem(candleSeries.getItemCount() - 1);
 				String msg = "Time: "
 						+ dateFormat.format(candleItem.getLastUpdateDate())
-						+ " Open: " + new Money(candleItem.getOpen())
-						+ " High: " + new Money(candleItem.getHigh())
-						+ " Low: " + new Money(candleItem.getLow())
-						+ " Close: " + new Money(candleItem.getClose())
-						+ " Vwap: " + new Money(candleItem.getVwap());
+						+ " Open: " + formatPrice(candleItem.getOpen())
+						+ " High: " + formatPrice(candleItem.getHigh())
+						+ " Low: " + formatPrice(candleItem.getLow())
+						+ " Close: " + formatPrice(candleItem.getClose())
+						+ " Vwap: " + formatPrice(candleItem.getVwap());
 				titleLegend2.setText(msg);
 				valueMarker.setValue(candleItem.getClose());
 
@@ -483,7 +513,7 @@ public class CandlestickChart extends JPanel implements SeriesChangeListener {
 						candleItem.getPeriod().getStart()).getTime();
 				String annotationText = "("
 						+ dateFormat.format(candleItem.getLastUpdateDate())
-						+ ", " + new Money(candleItem.getClose()) + ")";
+						+ ", " + formatPrice(candleItem.getClose()) + ")";
 				if (null == closePriceLine) {
 					closePriceLine = new XYTextAnnotation(annotationText, x,
 							candleItem.getY());
@@ -501,6 +531,18 @@ public class CandlestickChart extends JPanel implements SeriesChangeListener {
 		}
 	}
 
+	/**
+	 * Method formatPrice. The legend is updated on every candle so the price
+	 * is formatted from ticks rather than via Money.
+	 * 
+	 * @param price
+	 *            double
+	 * @return String the price to 2 decimal places.
+	 */
+	private static String formatPrice(double price) {
+		return PriceTicks.format(PriceTicks.valueOf(price), 2);
+	}
+
 	/**
 	 * Method addBuySellTradeArrow.
 	 * 
@@ -52,6 +52,8 @@ import java.math.BigDecimal;
 import java.text.NumberFormat;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 
 import javax.swing.BorderFactory;
 import javax.swing.JEditorPane;
@@ -66,6 +68,7 @@ import javax.swing.ListSelectionModel;
 import javax.swing.RowSorter;
 import javax.swing.SwingConstants;
 import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 import javax.swing.ToolTipManager;
 import javax.swing.border.BevelBorder;
 import javax.swing.event.ChangeEvent;
@@ -81,6 +84,7 @@ import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.TreePath;
 
 import org.trade.core.dao.Aspects;
+import org.trade.core.dao.DataAccessExecutor;
 import org.trade.core.properties.ConfigProperties;
 import org.trade.core.util.CoreUtils;
 import org.trade.core.util.TradingCalendar;
@@ -154,6 +158,8 @@ public class ContractPanel extends BasePanel implements TreeSelectionListener,
 	private DecodeComboBoxEditor periodEditorComboBox = null;
 	private Integer backfillOffsetDays = 0;
 	private Boolean connected = new Boolean(false);
+	private TabRefreshWorker m_tabRefreshWorker = null;
+	private boolean m_tabRefreshPending = false;
 	private static final NumberFormat currencyFormater = NumberFormat
 			.getCurrencyInstance();
 	private static final SimpleAttributeSet bold = new SimpleAttributeSet();
@@ -876,18 +882,44 @@ public class ContractPanel extends BasePanel implements TreeSelectionListener,
 		}
 	}
 
+	/**
+	 * Method reFreshTab. The selected tabs Tradestrategy, orders and position
+	 * are read off the EDT and the tab is updated when they arrive. Refreshes
+	 * asked for while one is loading i.e. a burst of fills are done as one
+	 * more refresh when it completes.
+	 */
+	private void reFreshTab() {
+		ChartPanel currentTab = (ChartPanel) m_jTabbedPaneContract
+				.getSelectedComponent();
+		if (null == currentTab) {
+			reFreshTab(null, null, null, null);
+			return;
+		}
+		if (null != m_tabRefreshWorker && !m_tabRefreshWorker.isDone()) {
+			m_tabRefreshPending = true;
+			return;
+		}
+		m_tabRefreshPending = false;
+		m_tabRefreshWorker = new TabRefreshWorker(currentTab.getTradestrategy());
+		m_tabRefreshWorker.execute();
+	}
+
 	/**
 	 * Method reFreshTab.
 	 * 
-	 * @throws BadLocationException
+	 * @param currentTab
+	 *            ChartPanel
+	 * @param tradestrategy
+	 *            Tradestrategy
+	 * @param tradestrategyOrders
+	 *            TradestrategyOrders
+	 * @param tradePosition
+	 *            TradePosition the position of the last filled order.
 	 */
-	private void reFreshTab() {
+	private void reFreshTab(ChartPanel currentTab, Tradestrategy tradestrategy,
+			TradestrategyOrders tradestrategyOrders, TradePosition tradePosition) {
 		try {
 			this.clearStatusBarMessage();
-			Tradestrategy tradestrategy = null;
-			TradestrategyOrders tradestrategyOrders = null;
-			ChartPanel currentTab = (ChartPanel) m_jTabbedPaneContract
-					.getSelectedComponent();
 			if (null == currentTab) {
 				m_tradeOrderModel.setData(new Tradestrategy());
 				closeAllPositionsButton.setTransferObject(new Tradestrategy());
@@ -895,11 +927,6 @@ public class ContractPanel extends BasePanel implements TreeSelectionListener,
 				/*
 				 * Refresh the Tradestrategy this will get the latest orders.
 				 */
-				tradestrategy = m_tradePersistentModel
-						.findTradestrategyById(currentTab.getTradestrategy());
-				tradestrategyOrders = m_tradePersistentModel
-						.findPositionOrdersByTradestrategyId(currentTab
-								.getTradestrategy().getIdTradeStrategy());
 				currentTab.setTradestrategy(tradestrategy);
 				m_tradeOrderModel.setData(tradestrategy);
 				RowSorter<?> rsDetail = m_tradeOrderTable.getRowSorter();
@@ -949,19 +976,10 @@ public class ContractPanel extends BasePanel implements TreeSelectionListener,
 				 */
 
 				TradeOrder prevTradeOrder = null;
-				Integer prevIdTradePosition = null;
 				for (TradeOrder order : tradestrategyOrders.getTradeOrders()) {
 
 					if (order.getIsFilled()) {
 						Integer quantity = order.getFilledQuantity();
-						if (null == prevIdTradePosition
-								|| prevIdTradePosition != order
-										.getTradePosition()
-										.getIdTradePosition()) {
-							prevIdTradePosition = order.getTradePosition()
-									.getIdTradePosition();
-						}
-
 						if (null != prevTradeOrder) {
 							if (prevTradeOrder.getIsFilled()
 									&& prevTradeOrder.getFilledDate().equals(
@@ -981,9 +999,7 @@ public class ContractPanel extends BasePanel implements TreeSelectionListener,
 					}
 					prevTradeOrder = order;
 				}
-				if (null != prevIdTradePosition) {
-					TradePosition tradePosition = m_tradePersistentModel
-							.findTradePositionById(prevIdTradePosition);
+				if (null != tradePosition) {
 
 					unRealizedPL = tradePosition.getUnRealizedProfit(
 							tradestrategy.getStrategyData()
@@ -1125,6 +1141,88 @@ public class ContractPanel extends BasePanel implements TreeSelectionListener,
 		}
 	}
 
+	/**
+	 * Reads a tabs Tradestrategy, its orders and the position of its last
+	 * filled order on the data access threads.
+	 */
+	private class TabRefreshWorker extends SwingWorker<Void, Void> {
+
+		private final Tradestrategy transientInstance;
+		private Tradestrategy tradestrategy = null;
+		private TradestrategyOrders tradestrategyOrders = null;
+		private TradePosition tradePosition = null;
+
+		/**
+		 * Constructor for TabRefreshWorker.
+		 * 
+		 * @param transientInstance
+		 *            Tradestrategy
+		 */
+		TabRefreshWorker(Tradestrategy transientInstance) {
+			this.transientInstance = transientInstance;
+		}
+
+		/**
+		 * Method doInBackground.
+		 * 
+		 * @return Void
+		 * @throws Exception
+		 */
+		protected Void doInBackground() throws Exception {
+			return DataAccessExecutor.getInstance()
+					.submit(DataAccessExecutor.QUERY, new Callable<Void>() {
+						public Void call() throws Exception {
+							tradestrategy = m_tradePersistentModel
+									.findTradestrategyById(transientInstance);
+							tradestrategyOrders = m_tradePersistentModel
+									.findPositionOrdersByTradestrategyId(transientInstance
+											.getIdTradeStrategy());
+							Integer idTradePosition = null;
+							for (TradeOrder order : tradestrategyOrders
+									.getTradeOrders()) {
+								if (order.getIsFilled()) {
+									idTradePosition = order.getTradePosition()
+											.getIdTradePosition();
+								}
+							}
+							if (null != idTradePosition) {
+								tradePosition = m_tradePersistentModel
+										.findTradePositionById(idTradePosition);
+							}
+							return null;
+						}
+					}).get();
+		}
+
+		protected void done() {
+			try {
+				this.get();
+				/*
+				 * Only show the result if its tab is still the selected one.
+				 */
+				ChartPanel currentTab = (ChartPanel) m_jTabbedPaneContract
+						.getSelectedComponent();
+				if (null != currentTab
+						&& transientInstance.getIdTradeStrategy().equals(
+								currentTab.getTradestrategy()
+										.getIdTradeStrategy())) {
+					reFreshTab(currentTab, tradestrategy, tradestrategyOrders,
+							tradePosition);
+				}
+			} catch (ExecutionException ex) {
+				Exception cause = (ex.getCause() instanceof Exception ? (Exception) ex
+						.getCause() : ex);
+				setErrorMessage("Error refreshing Tab.", cause.getMessage(),
+						cause);
+			} catch (InterruptedException ex) {
+				setErrorMessage("Error refreshing Tab.", ex.getMessage(), ex);
+			}
+			if (m_tabRefreshPending) {
+				reFreshTab();
+			}
+		}
+	}
+
 	/**
 	 */
 	class ChartPanel extends JPanel {
@@ -0,0 +1,227 @@
+/* ===========================================================
+ * TradeManager : a application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.ui.diagnostics;
+
+import java.awt.BorderLayout;
+import java.awt.FlowLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.File;
+import java.io.FileWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.JButton;
+import javax.swing.JFileChooser;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.Timer;
+import javax.swing.table.AbstractTableModel;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.trade.strategy.data.LatencyTracer;
+
+/**
+ * Shows the bar latency histograms for each strategy and contract. The table
+ * is refreshed every two seconds while the pane is showing and can be saved
+ * to a CSV file.
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+public class DiagnosticsPane extends JPanel {
+
+	private static final long serialVersionUID = -3511370813460186637L;
+	private final static Logger _log = LoggerFactory
+			.getLogger(DiagnosticsPane.class);
+
+	private static final int REFRESH_MILLIS = 2000;
+
+	private final LatencyTableModel latencyModel = new LatencyTableModel();
+	private final JLabel statusLabel = new JLabel(" ");
+	private final Timer refreshTimer;
+
+	public DiagnosticsPane() {
+
+		JTable latencyTable = new JTable(latencyModel);
+		latencyTable.setAutoCreateRowSorter(true);
+		JButton refreshButton = new JButton("Refresh");
+		refreshButton.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				refresh();
+			}
+		});
+		JButton resetButton = new JButton("Reset");
+		resetButton.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				LatencyTracer.reset();
+				refresh();
+			}
+		});
+		JButton saveButton = new JButton("Save CSV");
+		saveButton.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				doSaveCSV();
+			}
+		});
+
+		JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+		buttonPanel.add(refreshButton);
+		buttonPanel.add(resetButton);
+		buttonPanel.add(saveButton);
+		buttonPanel.add(statusLabel);
+
+		this.setLayout(new BorderLayout());
+		this.add(buttonPanel, BorderLayout.NORTH);
+		this.add(new JScrollPane(latencyTable), BorderLayout.CENTER);
+
+		refreshTimer = new Timer(REFRESH_MILLIS, new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				refresh();
+			}
+		});
+		refresh();
+	}
+
+	/**
+	 * Method addNotify. Start refreshing when the pane is shown.
+	 * 
+	 * @see java.awt.Component#addNotify()
+	 */
+	public void addNotify() {
+		super.addNotify();
+		refreshTimer.start();
+	}
+
+	/**
+	 * Method removeNotify. Stop refreshing when the pane is closed.
+	 * 
+	 * @see java.awt.Component#removeNotify()
+	 */
+	public void removeNotify() {
+		refreshTimer.stop();
+		super.removeNotify();
+	}
+
+	/**
+	 * Method refresh. Reload the table from the histograms.
+	 */
+	public void refresh() {
+		latencyModel.setRows(LatencyTracer.getRows());
+		statusLabel.setText(LatencyTracer.isEnabled() ? "Tracing on"
+				: "Tracing off");
+	}
+
+	/**
+	 * Method doSaveCSV. Write the current histograms to a CSV file.
+	 */
+	private void doSaveCSV() {
+		JFileChooser fileView = new JFileChooser();
+		fileView.setCurrentDirectory(new File(System.getProperty("user.dir")));
+		fileView.setSelectedFile(new File("latency.csv"));
+		if (fileView.showSaveDialog(this) != JFileChooser.APPROVE_OPTION)
+			return;
+
+		FileWriter writer = null;
+		try {
+			writer = new FileWriter(fileView.getSelectedFile());
+			LatencyTracer.writeCSV(writer);
+			statusLabel.setText("Saved "
+					+ fileView.getSelectedFile().getName());
+		} catch (Exception ex) {
+			_log.error("Could not save latency CSV Msg: " + ex.getMessage(),
+					ex);
+			JOptionPane.showMessageDialog(this, "Could not save file: "
+					+ ex.getMessage(), "Diagnostics",
+					JOptionPane.ERROR_MESSAGE);
+		} finally {
+			try {
+				if (null != writer)
+					writer.close();
+			} catch (Exception ex) {
+				// Do nothing.
+			}
+		}
+	}
+
+	/**
+	 */
+	private static class LatencyTableModel extends AbstractTableModel {
+
+		private static final long serialVersionUID = 2047917461382218447L;
+
+		private List<Object[]> rows = new ArrayList<Object[]>();
+
+		/**
+		 * Method setRows.
+		 * 
+		 * @param rows
+		 *            List<Object[]>
+		 */
+		public void setRows(List<Object[]> rows) {
+			this.rows = rows;
+			fireTableDataChanged();
+		}
+
+		public int getRowCount() {
+			return rows.size();
+		}
+
+		public int getColumnCount() {
+			return LatencyTracer.COLUMNS.length;
+		}
+
+		public String getColumnName(int column) {
+			return LatencyTracer.COLUMNS[column];
+		}
+
+		public Class<?> getColumnClass(int column) {
+			if (column < 3)
+				return String.class;
+			if (column == 3)
+				return Long.class;
+			return Double.class;
+		}
+
+		public Object getValueAt(int row, int column) {
+			return rows.get(row)[column];
+		}
+	}
+}
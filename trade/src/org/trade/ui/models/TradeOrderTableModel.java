@@ -35,6 +35,7 @@
  */
 package org.trade.ui.models;
 
+import java.util.ArrayList;
 import java.util.Vector;
 
 import javax.swing.event.TableModelEvent;
@@ -250,15 +251,13 @@ public class TradeOrderTableModel extends TableModel {
 	 */
 	public void setData(Tradestrategy data) {
 		this.m_data = data;
-		this.clearAll();
-		if (!getData().getTradeOrders().isEmpty()) {
-			for (final TradeOrder tradeOrder : getData().getTradeOrders()) {
-				final Vector<Object> newRow = new Vector<Object>();
-				getNewRow(newRow, tradeOrder);
-				rows.add(newRow);
-			}
-			fireTableDataChanged();
+		ArrayList<Vector<Object>> newRows = new ArrayList<Vector<Object>>();
+		for (final TradeOrder tradeOrder : getData().getTradeOrders()) {
+			final Vector<Object> newRow = new Vector<Object>();
+			getNewRow(newRow, tradeOrder);
+			newRows.add(newRow);
 		}
+		this.replaceRows(newRows);
 	}
 
 	/**
@@ -35,6 +35,7 @@
  */
 package org.trade.ui.models;
 
+import java.util.ArrayList;
 import java.util.Vector;
 
 import javax.swing.event.TableModelEvent;
@@ -135,15 +136,13 @@ public class TradelogSummaryTableModel extends TableModel {
 	public void setData(TradelogReport data) {
 
 		this.m_data = data;
-		this.clearAll();
-		if (!getData().getTradelogSummary().isEmpty()) {
-			for (final TradelogSummary element : getData().getTradelogSummary()) {
-				final Vector<Object> newRow = new Vector<Object>();
-				getNewRow(newRow, element);
-				rows.add(newRow);
-			}
-			fireTableDataChanged();
+		ArrayList<Vector<Object>> newRows = new ArrayList<Vector<Object>>();
+		for (final TradelogSummary element : getData().getTradelogSummary()) {
+			final Vector<Object> newRow = new Vector<Object>();
+			getNewRow(newRow, element);
+			newRows.add(newRow);
 		}
+		this.replaceRows(newRows);
 	}
 
 	/**
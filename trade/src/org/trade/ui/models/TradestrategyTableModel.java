@@ -35,13 +35,10 @@
  */
 package org.trade.ui.models;
 
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Vector;
 
-import javax.swing.Timer;
-
 import org.trade.core.properties.ConfigProperties;
 import org.trade.core.util.CoreUtils;
 import org.trade.core.util.TradingCalendar;
@@ -128,8 +125,13 @@ public class TradestrategyTableModel extends TableModel {
 			"<html>Expiry date for future contracts<br>"
 					+ "Format MM/YYYY</html>" };
 
+	/*
+	 * The % chg, strategy and status fields are updated in place so the table
+	 * repaints them periodically.
+	 */
+	private static final int[] REFRESH_COLUMNS = { 5, 6, 11, 12, 13 };
+
 	private Tradingday m_data = null;
-	private Timer timer = null;
 
 	public TradestrategyTableModel() {
 		super(columnHeaderToolTip);
@@ -152,22 +154,6 @@ public class TradestrategyTableModel extends TableModel {
 		columnNames[15] = EXCHANGE;
 		columnNames[16] = SEC_TYPE;
 		columnNames[17] = EXPIRY;
-
-		/*
-		 * Create a 5sec timer to refresh the data this is used for the % chg,
-		 * strategy and status fields.
-		 */
-		timer = new Timer(5000, new ActionListener() {
-			public void actionPerformed(ActionEvent e) {
-				for (int i = 0; i < getRowCount(); i++) {
-					fireTableCellUpdated(i, 5);
-					fireTableCellUpdated(i, 6);
-					fireTableCellUpdated(i, 11);
-					fireTableCellUpdated(i, 12);
-					fireTableCellUpdated(i, 13);
-				}
-			}
-		});
 	}
 
 	/**
@@ -235,20 +221,27 @@ public class TradestrategyTableModel extends TableModel {
 	 *            Tradingday
 	 */
 	public void setData(Tradingday data) {
-		if (timer.isRunning())
-			timer.stop();
 		this.m_data = data;
-		this.clearAll();
+		ArrayList<Vector<Object>> newRows = new ArrayList<Vector<Object>>();
 		if (null != getData() && null != getData().getTradestrategies()
 				&& !getData().getTradestrategies().isEmpty()) {
 			for (final Tradestrategy element : getData().getTradestrategies()) {
 				final Vector<Object> newRow = new Vector<Object>();
 				getNewRow(newRow, element);
-				rows.add(newRow);
+				newRows.add(newRow);
 			}
-			fireTableDataChanged();
 		}
-		timer.start();
+		this.replaceRows(newRows);
+	}
+
+	/**
+	 * Method getRefreshColumns.
+	 * 
+	 * @return int[]
+	 * @see org.trade.ui.base.TableModel#getRefreshColumns()
+	 */
+	public int[] getRefreshColumns() {
+		return REFRESH_COLUMNS;
 	}
 
 	/**
@@ -123,7 +123,12 @@ public class TradingdayTableModel extends TableModel {
 		Date closeDate = (Date) this.getValueAt(row, 1);
 		Tradingday tradingday = getData().getTradingday(openDate.getDate(),
 				closeDate.getDate());
-		if (null != tradingday && Tradingdays.hasTradeOrders(tradingday)) {
+		/*
+		 * A tradingday read with the list fetch plan may have trade orders.
+		 */
+		if (null != tradingday
+				&& (!Tradingdays.isDetailsLoaded(tradingday) || Tradingdays
+						.hasTradeOrders(tradingday))) {
 			if ((columnNames[column] == OPEN) || (columnNames[column] == CLOSE)) {
 				return false;
 			}
@@ -44,8 +44,11 @@ import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.io.FileWriter;
 import java.io.PrintWriter;
+import java.math.BigDecimal;
 import java.util.Date;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 
 import javax.swing.DefaultComboBoxModel;
 import javax.swing.JCheckBox;
@@ -60,6 +63,7 @@ import javax.swing.JToolBar;
 import javax.swing.ListSelectionModel;
 import javax.swing.RowSorter;
 import javax.swing.SpinnerDateModel;
+import javax.swing.SwingWorker;
 import javax.swing.border.BevelBorder;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
@@ -67,6 +71,7 @@ import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
 import javax.swing.text.MaskFormatter;
 
+import org.trade.core.dao.DataAccessExecutor;
 import org.trade.core.properties.ConfigProperties;
 import org.trade.core.util.TradingCalendar;
 import org.trade.core.valuetype.Decode;
@@ -118,6 +123,7 @@ public class PortfolioPanel extends BasePanel implements ChangeListener,
 	private TradelogDetail selectedTradelogDetail = null;
 	private Portfolio portfolio = null;
 	private MoneyField m_lossGainAmt = new MoneyField();
+	private TradelogReportWorker m_tradelogReportWorker = null;
 
 	private static final String MASK = "**********";
 	private static final String VALID_CHARS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz123456789. ";
@@ -266,22 +272,18 @@ public class PortfolioPanel extends BasePanel implements ChangeListener,
 			if (symbol.length() == 0)
 				symbol = null;
 
-			m_tradelogReport = m_tradePersistentModel.findTradelogReport(
-					this.portfolio, startDate, endDate, filterButton
-							.isSelected(), symbol, m_lossGainAmt.getMoney()
-							.getBigDecimalValue());
-			this.clearStatusBarMessage();
-			if (m_tradelogReport.getTradelogDetail().isEmpty()) {
-				this.setStatusBarMessage("No data found for selected criteria",
-						INFORMATION);
+			/*
+			 * Load the report off the EDT. A new search replaces one that is
+			 * still running.
+			 */
+			if (null != m_tradelogReportWorker) {
+				m_tradelogReportWorker.cancel(true);
 			}
-
-			m_tradelogDetailModel.setData(m_tradelogReport);
-			m_tradelogSummaryModel.setData(m_tradelogReport);
-			RowSorter<?> rsDetail = m_tableTradelogDetail.getRowSorter();
-			rsDetail.setSortKeys(null);
-			RowSorter<?> rsSummary = m_tableTradelogSummary.getRowSorter();
-			rsSummary.setSortKeys(null);
+			this.setStatusBarMessage("Loading trade log ...", INFORMATION);
+			m_tradelogReportWorker = new TradelogReportWorker(this.portfolio,
+					startDate, endDate, filterButton.isSelected(), symbol,
+					m_lossGainAmt.getMoney().getBigDecimalValue());
+			m_tradelogReportWorker.execute();
 
 		} catch (Exception ex) {
 			this.setErrorMessage("Error finding Tradingday.", ex.getMessage(),
@@ -289,6 +291,29 @@ public class PortfolioPanel extends BasePanel implements ChangeListener,
 		}
 	}
 
+	/**
+	 * Method setTradelogReport. Show a report that has been loaded, called on
+	 * the EDT.
+	 * 
+	 * @param tradelogReport
+	 *            TradelogReport
+	 */
+	private void setTradelogReport(TradelogReport tradelogReport) {
+		m_tradelogReport = tradelogReport;
+		this.clearStatusBarMessage();
+		if (m_tradelogReport.getTradelogDetail().isEmpty()) {
+			this.setStatusBarMessage("No data found for selected criteria",
+					INFORMATION);
+		}
+
+		m_tradelogDetailModel.setData(m_tradelogReport);
+		m_tradelogSummaryModel.setData(m_tradelogReport);
+		RowSorter<?> rsDetail = m_tableTradelogDetail.getRowSorter();
+		rsDetail.setSortKeys(null);
+		RowSorter<?> rsSummary = m_tableTradelogSummary.getRowSorter();
+		rsSummary.setSortKeys(null);
+	}
+
 	/**
 	 * Method itemStateChanged.
 	 * 
@@ -349,7 +374,9 @@ public class PortfolioPanel extends BasePanel implements ChangeListener,
 
 		try {
 			resetPortfolioComboBox(portfolioEditorComboBox);
-			if (m_tradelogReport.getTradelogDetail().isEmpty()) {
+			if (m_tradelogReport.getTradelogDetail().isEmpty()
+					&& (null == m_tradelogReportWorker || m_tradelogReportWorker
+							.isDone())) {
 				doSearch();
 			}
 		} catch (Exception ex) {
@@ -386,6 +413,83 @@ public class PortfolioPanel extends BasePanel implements ChangeListener,
 		editorComboBox.setRenderer(new DecodeComboBoxRenderer());
 	}
 
+	/**
+	 * Loads the trade log report on the data access threads at report
+	 * priority so it waits behind any order or candle writes, then shows it
+	 * on the EDT.
+	 */
+	private class TradelogReportWorker extends SwingWorker<TradelogReport, Void> {
+
+		private final Portfolio portfolio;
+		private final Date startDate;
+		private final Date endDate;
+		private final boolean filter;
+		private final String symbol;
+		private final BigDecimal winLossAmount;
+
+		/**
+		 * Constructor for TradelogReportWorker.
+		 * 
+		 * @param portfolio
+		 *            Portfolio
+		 * @param startDate
+		 *            Date
+		 * @param endDate
+		 *            Date
+		 * @param filter
+		 *            boolean
+		 * @param symbol
+		 *            String
+		 * @param winLossAmount
+		 *            BigDecimal
+		 */
+		TradelogReportWorker(Portfolio portfolio, Date startDate,
+				Date endDate, boolean filter, String symbol,
+				BigDecimal winLossAmount) {
+			this.portfolio = portfolio;
+			this.startDate = startDate;
+			this.endDate = endDate;
+			this.filter = filter;
+			this.symbol = symbol;
+			this.winLossAmount = winLossAmount;
+		}
+
+		/**
+		 * Method doInBackground.
+		 * 
+		 * @return TradelogReport
+		 * @throws Exception
+		 */
+		protected TradelogReport doInBackground() throws Exception {
+			return DataAccessExecutor.getInstance()
+					.submit(DataAccessExecutor.REPORT,
+							new Callable<TradelogReport>() {
+								public TradelogReport call() throws Exception {
+									return m_tradePersistentModel
+											.findTradelogReport(portfolio,
+													startDate, endDate, filter,
+													symbol, winLossAmount);
+								}
+							}).get();
+		}
+
+		protected void done() {
+			if (this.isCancelled()) {
+				return;
+			}
+			try {
+				setTradelogReport(this.get());
+			} catch (ExecutionException ex) {
+				Exception cause = (ex.getCause() instanceof Exception ? (Exception) ex
+						.getCause() : ex);
+				setErrorMessage("Error finding Tradingday.",
+						cause.getMessage(), cause);
+			} catch (InterruptedException ex) {
+				// Replaced by a newer search.
+			}
+		}
+	}
+
 	/**
 	 */
 	private class TradelogDetailTableRowListener implements
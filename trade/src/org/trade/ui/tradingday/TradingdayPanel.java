@@ -48,6 +48,7 @@ import java.io.File;
 import java.math.BigDecimal;
 import java.text.NumberFormat;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
@@ -396,6 +397,16 @@ public class TradingdayPanel extends BasePanel {
 			if (!deleteProgressMonitor.isDone())
 				return false;
 		}
+		/*
+		 * The other tabs use the trade orders of all the tradingdays.
+		 */
+		try {
+			loadTradingdayDetails();
+		} catch (Exception ex) {
+			this.setErrorMessage("Error finding Tradingday.", ex.getMessage(),
+					ex);
+			return false;
+		}
 		return true;
 	}
 
@@ -418,6 +429,7 @@ public class TradingdayPanel extends BasePanel {
 					"Are you sure you want to delete all Trade Orders?",
 					"Warning", JOptionPane.YES_NO_OPTION);
 			if (result == JOptionPane.YES_OPTION) {
+				loadTradingdayDetails();
 				deleteTradeOrders(m_tradingdays);
 			}
 		} catch (Exception ex) {
@@ -478,6 +490,11 @@ public class TradingdayPanel extends BasePanel {
 						getFrame().setCursor(
 								Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
 						boolean dirty = false;
+						/*
+						 * New tradingdays e.g. from a file import are saved in
+						 * one bulk save.
+						 */
+						List<Tradingday> newTradingdays = new ArrayList<Tradingday>();
 						for (Tradingday tradingday : m_tradingdays
 								.getTradingdays()) {
 							if (tradingday.getClose().before(
@@ -493,10 +510,17 @@ public class TradingdayPanel extends BasePanel {
 							}
 							if (tradingday.isDirty()) {
 								dirty = true;
-								m_tradePersistentModel
-										.persistTradingday(tradingday);
+								if (null == tradingday.getIdTradingDay()) {
+									newTradingdays.add(tradingday);
+								} else {
+									m_tradePersistentModel
+											.persistTradingday(tradingday);
+								}
 							}
 						}
+						if (!newTradingdays.isEmpty())
+							m_tradePersistentModel
+									.persistTradingdays(newTradingdays);
 						if (dirty)
 							doRefresh();
 						clearStatusBarMessage();
@@ -538,10 +562,12 @@ public class TradingdayPanel extends BasePanel {
 			 * Check to see if in the new search criteria do we have todays
 			 * trading day if we do and todays tradingday is in the previous
 			 * search hand over the DatasetContainers. We do this as these
-			 * Datasets may have live data running into them.
+			 * Datasets may have live data running into them. The tradingdays are
+			 * read with the list fetch plan, the details are read when a
+			 * tradingday is selected or by loadTradingdayDetails().
 			 */
 			Tradingdays tradingdays = m_tradePersistentModel
-					.findTradingdaysByDateRange(startDate, endDate);
+					.findTradingdayListByDateRange(startDate, endDate);
 			Tradingday todayTradingday = tradingdays.getTradingday(
 					TradingCalendar.getTodayBusinessDayStart(),
 					TradingCalendar.getTodayBusinessDayEnd());
@@ -615,6 +641,7 @@ public class TradingdayPanel extends BasePanel {
 			 * positions. If they do kill the strategy worker before deleting
 			 * trades.
 			 */
+			loadTradingdayDetails();
 			for (Tradingday tradingday : m_tradingdays.getTradingdays()) {
 				if (Tradingdays.hasTradeOrders(tradingday)) {
 					JOptionPane
@@ -664,6 +691,48 @@ public class TradingdayPanel extends BasePanel {
 		}
 	}
 
+	/**
+	 * Method loadTradingdayDetails. Read the trade orders and indicator series
+	 * for the tradingdays that were read with the list fetch plan. This must be
+	 * called before anything that uses them across all the tradingdays. The
+	 * tradingdays are read in one date range so this is the same number of
+	 * queries however many tradingdays are missing their details.
+	 * 
+	 * @throws PersistentModelException
+	 */
+	public void loadTradingdayDetails() throws PersistentModelException {
+		Date startDate = null;
+		Date endDate = null;
+		for (Tradingday tradingday : m_tradingdays.getTradingdays()) {
+			if (tradingday.isDirty() || Tradingdays.isDetailsLoaded(tradingday))
+				continue;
+			if (null == startDate || tradingday.getOpen().before(startDate))
+				startDate = tradingday.getOpen();
+			if (null == endDate || tradingday.getOpen().after(endDate))
+				endDate = tradingday.getOpen();
+		}
+		if (null == startDate)
+			return;
+		Tradingdays tradingdays = m_tradePersistentModel
+				.findTradingdaysByDateRange(startDate, endDate);
+		for (Tradingday instance : tradingdays.getTradingdays()) {
+			Tradingday tradingday = m_tradingdays.getTradingday(
+					instance.getOpen(), instance.getClose());
+			if (null == tradingday || tradingday.isDirty()
+					|| Tradingdays.isDetailsLoaded(tradingday))
+				continue;
+			instance.populateStrategyData(tradingday);
+			m_tradingdays.replaceTradingday(instance);
+		}
+		Tradingday selected = m_tradestrategyModel.getData();
+		if (null != selected && null != selected.getOpen()) {
+			Tradingday tradingday = m_tradingdays.getTradingday(
+					selected.getOpen(), selected.getClose());
+			if (null != tradingday && tradingday != selected)
+				m_tradestrategyModel.setData(tradingday);
+		}
+	}
+
 	/**
 	 * Method doRefresh. Refresh the tradingday from the database.
 	 * 
@@ -813,29 +882,20 @@ public class TradingdayPanel extends BasePanel {
 							openDate.getDate(), closeDate.getDate());
 				}
 
-				m_tradingdays.populateDataFromFile(fileName, tradingday);
-				m_tradingdayModel.setData(m_tradingdays);
-				if (m_tradingdays.getTradingdays().size() > 0) {
-					m_tradingdayTable.setRowSelectionInterval(selectedRow,
-							selectedRow);
-					spinnerEnd
-							.setValue(((org.trade.core.valuetype.Date) m_tradingdayModel
-									.getValueAt(m_tradingdayTable
-											.convertRowIndexToModel(0), 0))
-									.getDate());
-
-					spinnerStart
-							.setValue(((org.trade.core.valuetype.Date) m_tradingdayModel.getValueAt(
-									m_tradingdayTable
-											.convertRowIndexToModel(m_tradingdayModel
-													.getRowCount() - 1), 1))
-									.getDate());
-				}
+				final ImportProgressMonitor importProgressMonitor = new ImportProgressMonitor(
+						m_tradingdays, fileName, tradingday, selectedRow);
+				importProgressMonitor
+						.addPropertyChangeListener(new java.beans.PropertyChangeListener() {
+							public void propertyChange(PropertyChangeEvent evt) {
+								if ("progress".equals(evt.getPropertyName())) {
+									int progress = (Integer) evt.getNewValue();
+									setProgressBarProgress(progress,
+											importProgressMonitor);
+								}
+							}
+						});
+				importProgressMonitor.execute();
 			}
-			this.clearStatusBarMessage();
-		} catch (PersistentModelException ex1) {
-			this.setErrorMessage("Exception while reading csv file.",
-					ex1.getMessage(), ex1);
 		} catch (Exception ex) {
 			this.setErrorMessage("Exception while reading csv file.",
 					ex.getMessage(), ex);
@@ -1339,6 +1399,17 @@ public class TradingdayPanel extends BasePanel {
 						Tradingday transferObject = m_tradingdayModel.getData()
 								.getTradingday(openDate.getDate(),
 										closeDate.getDate());
+						/*
+						 * The search reads the tradingdays with the list fetch
+						 * plan, read the details for the selected one.
+						 */
+						if (null != transferObject
+								&& !transferObject.isDirty()
+								&& !Tradingdays.isDetailsLoaded(transferObject)) {
+							doRefresh(transferObject);
+							transferObject = m_tradingdays.getTradingday(
+									openDate.getDate(), closeDate.getDate());
+						}
 
 						m_tradestrategyModel.setData(transferObject);
 						m_tradestrategyTable.enablePopupMenu(true);
@@ -1500,6 +1571,126 @@ public class TradingdayPanel extends BasePanel {
 		}
 	}
 
+	/**
+	 */
+	private class ImportProgressMonitor extends SwingWorker<Void, String> {
+
+		private Tradingdays tradingdays = null;
+		private Tradingdays imported = new Tradingdays();
+		private String fileName = null;
+		private Tradingday tradingday = null;
+		private int selectedRow = 0;
+		private int grandtotal = 0;
+		private long startTime = 0;
+		private boolean failed = false;
+
+		/**
+		 * Constructor for ImportProgressMonitor.
+		 * 
+		 * @param tradingdays
+		 *            Tradingdays the file is read into a new Tradingdays
+		 *            that is merged into these when done.
+		 * @param fileName
+		 *            String
+		 * @param tradingday
+		 *            Tradingday
+		 * @param selectedRow
+		 *            int
+		 */
+		public ImportProgressMonitor(Tradingdays tradingdays,
+				String fileName, Tradingday tradingday, int selectedRow) {
+			this.tradingdays = tradingdays;
+			this.fileName = fileName;
+			/*
+			 * The selected tradingday is shown so lines with no date are
+			 * read into a copy of it.
+			 */
+			if (null != tradingday)
+				this.tradingday = new Tradingday(tradingday.getOpen(),
+						tradingday.getClose());
+			this.selectedRow = selectedRow;
+		}
+
+		/**
+		 * Method doInBackground.
+		 * 
+		 * @return Void
+		 */
+		public Void doInBackground() {
+
+			try {
+				this.startTime = System.currentTimeMillis();
+				// Initialize the progress bar
+				getProgressBar().setMaximum(100);
+				setProgress(0);
+				this.grandtotal = imported.populateDataFromFile(
+						this.fileName, this.tradingday,
+						new java.beans.PropertyChangeListener() {
+							public void propertyChange(PropertyChangeEvent evt) {
+								setProgress((Integer) evt.getNewValue());
+							}
+						});
+				setProgress(100);
+				publish(getMessage());
+			} catch (Exception ex) {
+				this.failed = true;
+				setErrorMessage("Exception while reading csv file.",
+						ex.getMessage(), ex);
+			}
+			return null;
+		}
+
+		/**
+		 * Method process. This method process the publish method from
+		 * doInBackground().
+		 * 
+		 * @param messages
+		 *            List<String>
+		 */
+		protected void process(List<String> messages) {
+			setStatusBarMessage(messages.get(messages.size() - 1),
+					BasePanel.INFORMATION);
+		}
+
+		public void done() {
+			if (this.failed)
+				return;
+			tradingdays.merge(imported);
+			m_tradingdayModel.setData(tradingdays);
+			if (tradingdays.getTradingdays().size() > 0) {
+				m_tradingdayTable.setRowSelectionInterval(selectedRow,
+						selectedRow);
+				spinnerEnd
+						.setValue(((org.trade.core.valuetype.Date) m_tradingdayModel
+								.getValueAt(m_tradingdayTable
+										.convertRowIndexToModel(0), 0))
+								.getDate());
+
+				spinnerStart
+						.setValue(((org.trade.core.valuetype.Date) m_tradingdayModel.getValueAt(
+								m_tradingdayTable
+										.convertRowIndexToModel(m_tradingdayModel
+												.getRowCount() - 1), 1))
+								.getDate());
+			}
+			setStatusBarMessage(getMessage(), BasePanel.INFORMATION);
+		}
+
+		/**
+		 * Method getMessage.
+		 * 
+		 * @return String
+		 */
+		private String getMessage() {
+			long elapsed = Math.max(1,
+					System.currentTimeMillis() - this.startTime);
+			return "Completed import of " + this.grandtotal
+					+ " Tradestrategies in : " + (elapsed / 1000)
+					+ " Seconds. " + ((this.grandtotal * 1000L) / elapsed)
+					+ " per Second.";
+		}
+	}
+
 	/**
 	 */
 	private class ReAssignProgressMonitor extends SwingWorker<Void, String> {
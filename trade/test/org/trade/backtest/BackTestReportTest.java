@@ -0,0 +1,168 @@
+/* ===========================================================
+ * TradeManager : a application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.backtest;
+
+import static org.junit.Assert.*;
+
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.trade.core.util.TradingCalendar;
+import org.trade.persistent.dao.TradelogDetail;
+import org.trade.persistent.dao.TradelogReport;
+import org.trade.persistent.dao.TradelogSummary;
+
+/**
+ * Some tests for the {@link BackTestReport} class.
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+public class BackTestReportTest {
+
+	private BackTestReport report = null;
+
+	/**
+	 * Method setUp.
+	 * 
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		Date day = TradingCalendar.getMostRecentTradingDay(new Date());
+		Date open = TradingCalendar.getSpecificTime(day, 9, 30);
+		report = new BackTestReport(TradingCalendar.addDays(open, -1), open);
+		report.addResult(new BackTestResult(1, "IBM", "5minBarGap", open));
+		report.addResult(new BackTestResult(2, "IBM", "5minBarGap",
+				TradingCalendar.addDays(open, -1)));
+		report.addResult(new BackTestResult(3, "A,\"B\"", "5minBarGap", open));
+	}
+
+	@Test
+	public void testTradelogDetail() {
+		TradelogReport tradelogReport = new TradelogReport();
+		tradelogReport.setTradelogDetail(new ArrayList<TradelogDetail>());
+		tradelogReport.setTradelogSummary(new ArrayList<TradelogSummary>());
+		TradelogDetail order = new TradelogDetail();
+		order.setIdTradestrategy(1);
+		order.setOpen("2014/03/05");
+		order.setStatus("CLOSED");
+		order.setOrderStatus("FILLED");
+		tradelogReport.getTradelogDetail().add(order);
+		tradelogReport.getTradelogDetail().add(order);
+		TradelogDetail total = new TradelogDetail();
+		total.setIdTradestrategy(1);
+		total.setOpen(BackTestReport.TOTAL);
+		total.setCommission(new BigDecimal("2.00"));
+		total.setProfitLoss(new BigDecimal("98.00"));
+		tradelogReport.getTradelogDetail().add(total);
+		report.setTradelogReport(tradelogReport);
+
+		BackTestResult result = report.getResult(1);
+		assertEquals("CLOSED", result.getStatus());
+		assertEquals(2, result.getOrderCount());
+		assertEquals(1, result.getPositionCount());
+		assertEquals(new BigDecimal("100.00"), result.getGrossProfitLoss());
+		assertEquals(new BigDecimal("98.00"), result.getNetProfitLoss());
+		assertEquals(0, report.getResult(2).getPositionCount());
+	}
+
+	@Test
+	public void testSymbolTiming() {
+		report.getResult(1).started(1000);
+		report.getResult(1).completed(1500);
+		report.getResult(2).started(1000);
+		report.getResult(2).completed(3000);
+		report.getResult(3).started(1000);
+		Map<String, long[]> timing = report.getSymbolTiming();
+		assertEquals(1, timing.size());
+		assertEquals(2, timing.get("IBM")[0]);
+		assertEquals(2500, timing.get("IBM")[1]);
+		assertEquals(2000, timing.get("IBM")[2]);
+		assertEquals(0, report.getResult(3).getElapsedTime());
+	}
+
+	@Test
+	public void testWriteTimingCSV() throws Exception {
+		report.runStarted(1000);
+		report.getResult(1).started(1000);
+		report.getResult(1).completed(1500);
+		report.getResult(2).started(1000);
+		report.getResult(2).completed(3000);
+		report.getResult(3).started(1000);
+		report.getResult(3).completed(1200);
+		report.runCompleted(5000);
+		StringWriter writer = new StringWriter();
+		report.writeTimingCSV(writer);
+		String[] lines = writer.toString().split("\n");
+		assertEquals(4, lines.length);
+		assertEquals(BackTestReport.TOTAL + ",3,4000,2000", lines[3]);
+	}
+
+	@Test
+	public void testResultsOrder() {
+		assertEquals(new Integer(2), report.getResults().get(0)
+				.getIdTradestrategy());
+	}
+
+	@Test
+	public void testWriteJSON() throws Exception {
+		report.getResult(3).setError("Line1\nSaid \"no\"\\");
+		StringWriter writer = new StringWriter();
+		report.writeJSON(writer);
+		String json = writer.toString();
+		assertTrue(json.contains("\"symbol\": \"A,\\\"B\\\"\""));
+		assertTrue(json.contains("\"error\": \"Line1\\nSaid \\\"no\\\"\\\\\""));
+		assertTrue(json.contains("\"error\": null"));
+		assertTrue(json.contains("\"summary\": [\n  ]"));
+	}
+
+	@Test
+	public void testWriteCSV() throws Exception {
+		StringWriter writer = new StringWriter();
+		report.writeResultsCSV(writer);
+		String[] lines = writer.toString().split("\n");
+		assertEquals(4, lines.length);
+		assertTrue(lines[2].startsWith("3,"));
+		assertTrue(lines[2].contains(",\"A,\"\"B\"\"\",5minBarGap,"));
+		assertEquals(12, lines[0].split(",").length);
+	}
+}
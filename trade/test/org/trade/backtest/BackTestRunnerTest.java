@@ -0,0 +1,123 @@
+/* ===========================================================
+ * TradeManager : a application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.backtest;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.trade.broker.BrokerModel;
+import org.trade.persistent.dao.Contract;
+import org.trade.persistent.dao.Tradestrategy;
+
+/**
+ * Some tests for the request order of the {@link BackTestRunner}. The
+ * BrokerModel is a proxy with a list of the contracts that are running.
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+public class BackTestRunnerTest {
+
+	private final List<Contract> running = new ArrayList<Contract>();
+	private BrokerModel brokerModel = null;
+	private Contract aapl = null;
+	private Contract msft = null;
+
+	/**
+	 * Method setUp.
+	 * 
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		aapl = new Contract("STK", "AAPL", "SMART", "USD", null,
+				new BigDecimal(1));
+		msft = new Contract("STK", "MSFT", "SMART", "USD", null,
+				new BigDecimal(1));
+		brokerModel = (BrokerModel) Proxy.newProxyInstance(
+				BrokerModel.class.getClassLoader(),
+				new Class<?>[] { BrokerModel.class }, new InvocationHandler() {
+					public Object invoke(Object proxy, Method method,
+							Object[] args) {
+						if ("isHistoricalDataRunning".equals(method.getName())
+								&& args[0] instanceof Contract) {
+							return running.contains(args[0]);
+						}
+						throw new UnsupportedOperationException(method
+								.getName());
+					}
+				});
+	}
+
+	@Test
+	public void testNextRequest() throws Exception {
+		List<Tradestrategy> pending = new ArrayList<Tradestrategy>();
+		pending.add(new Tradestrategy(aapl));
+		pending.add(new Tradestrategy(aapl));
+		pending.add(new Tradestrategy(msft));
+		assertEquals(0, BackTestRunner.getNextRequest(pending, brokerModel));
+
+		/*
+		 * A running contract does not hold up the other contracts.
+		 */
+		running.add(aapl);
+		assertEquals(2, BackTestRunner.getNextRequest(pending, brokerModel));
+
+		running.add(msft);
+		assertEquals(-1, BackTestRunner.getNextRequest(pending, brokerModel));
+
+		/*
+		 * The second AAPL request waits for the first even when AAPL is not
+		 * running.
+		 */
+		running.clear();
+		pending.remove(2);
+		pending.add(0, new Tradestrategy(msft));
+		running.add(msft);
+		assertEquals(1, BackTestRunner.getNextRequest(pending, brokerModel));
+		pending.remove(1);
+		running.add(aapl);
+		assertEquals(-1, BackTestRunner.getNextRequest(pending, brokerModel));
+	}
+}
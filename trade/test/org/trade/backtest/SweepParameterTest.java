@@ -0,0 +1,130 @@
+/* ===========================================================
+ * TradeManager : a application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.backtest;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Some tests for the {@link SweepParameter} class.
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+public class SweepParameterTest {
+
+	@Test
+	public void testParseList() {
+		SweepParameter parameter = SweepParameter
+				.parse("SMA-20.Length=10, 15,20");
+		assertEquals("SMA-20", parameter.getIndicatorName());
+		assertEquals("Length", parameter.getAttributeName());
+		assertFalse(parameter.isRange());
+		assertEquals(3, parameter.getValues().size());
+		assertEquals("15", parameter.getValues().get(1));
+	}
+
+	@Test
+	public void testParseRange() {
+		SweepParameter parameter = SweepParameter
+				.parse("Vostro.Vostro Range=4.0:6.0:0.5");
+		assertEquals("Vostro Range", parameter.getAttributeName());
+		assertEquals(5, parameter.getValues().size());
+		assertEquals("6.0", parameter.getValues().get(4));
+
+		parameter = SweepParameter.parse("BB.NumberOfSTD=1.5:2.5");
+		assertTrue(parameter.isRange());
+		Random random = new Random(1);
+		for (int i = 0; i < 100; i++) {
+			BigDecimal value = new BigDecimal(parameter.getRandomValue(random));
+			assertEquals(1, value.scale());
+			assertTrue(value.compareTo(new BigDecimal("1.5")) >= 0);
+			assertTrue(value.compareTo(new BigDecimal("2.5")) <= 0);
+		}
+	}
+
+	@Test
+	public void testParseInvalid() {
+		String[] invalid = { "Length=10", "SMA-20.Length=", "SMA-20.=10",
+				"SMA-20.Length=30:10", "SMA-20.Length=10:30:0",
+				"SMA-20.Length=a:b" };
+		for (String value : invalid) {
+			try {
+				SweepParameter.parse(value);
+				fail("Expected IllegalArgumentException for: " + value);
+			} catch (IllegalArgumentException ex) {
+				// Expected
+			}
+		}
+	}
+
+	@Test
+	public void testCreateGrid() {
+		List<SweepParameter> parameters = new ArrayList<SweepParameter>();
+		parameters.add(SweepParameter.parse("SMA-20.Length=10,20,30"));
+		parameters.add(SweepParameter.parse("Pivot.Bars=5:7:2"));
+		List<Map<String, String>> grid = SweepParameter.createGrid(parameters);
+		assertEquals(6, grid.size());
+		assertEquals("10", grid.get(0).get("SMA-20.Length"));
+		assertEquals("5", grid.get(0).get("Pivot.Bars"));
+		assertEquals("7", grid.get(1).get("Pivot.Bars"));
+		assertEquals("30", grid.get(5).get("SMA-20.Length"));
+	}
+
+	@Test
+	public void testCreateRandom() {
+		List<SweepParameter> parameters = new ArrayList<SweepParameter>();
+		parameters.add(SweepParameter.parse("SMA-20.Length=10:30"));
+		parameters.add(SweepParameter.parse("Pivot.Bars=5,7"));
+		List<Map<String, String>> first = SweepParameter.createRandom(
+				parameters, 20, new Random(42));
+		List<Map<String, String>> second = SweepParameter.createRandom(
+				parameters, 20, new Random(42));
+		assertEquals(first, second);
+		assertTrue(first.size() <= 20);
+		for (Map<String, String> values : first) {
+			int length = Integer.parseInt(values.get("SMA-20.Length"));
+			assertTrue(length >= 10 && length <= 30);
+		}
+	}
+}
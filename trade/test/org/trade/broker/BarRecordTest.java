@@ -0,0 +1,282 @@
+/* ===========================================================
+ * TradeManager : a application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.broker;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.Date;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.trade.core.util.TradingCalendar;
+import org.trade.persistent.dao.Contract;
+import org.trade.persistent.dao.Portfolio;
+import org.trade.persistent.dao.Strategy;
+import org.trade.persistent.dao.Tradestrategy;
+import org.trade.persistent.dao.Tradingday;
+import org.trade.ui.TradeAppLoadConfig;
+
+/**
+ * Some tests for the {@link BarRecord} class and the historical bars it
+ * decodes in {@link TWSBrokerModel}. The allocation tests use the per thread
+ * allocation counter of the JVM and are skipped if it is not supported.
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+public class BarRecordTest {
+
+	private static final int BARS = 390;
+
+	private Tradingday tradingday = null;
+	private Contract contract = null;
+	private String[] dateStrings = null;
+	private int reqId = -1;
+
+	/**
+	 * Method setUp.
+	 * 
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		TradeAppLoadConfig.loadAppProperties();
+		/*
+		 * A day in a year that has its holidays set so the candle series does
+		 * not log a missing property for every bar.
+		 */
+		Date day = TradingCalendar.getFormattedDate("20150302", "yyyyMMdd");
+		tradingday = new Tradingday(TradingCalendar.getSpecificTime(day, 9, 30),
+				TradingCalendar.getSpecificTime(day, 16, 0));
+		contract = new Contract("STK", "SPY", "SMART", "USD", null,
+				new BigDecimal(1));
+		contract.setIdContract(1);
+		/*
+		 * The one minute bars of the session as TWS sends them in epoch
+		 * seconds.
+		 */
+		dateStrings = new String[BARS];
+		long open = tradingday.getOpen().getTime() / 1000;
+		for (int i = 0; i < BARS; i++) {
+			dateStrings[i] = String.valueOf(open + (i * 60));
+		}
+	}
+
+	/**
+	 * Method tearDown.
+	 * 
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception {
+		if (reqId > -1)
+			new TWSBrokerModel().getHistoricalData().remove(reqId);
+	}
+
+	@Test
+	public void testParseTime() throws Exception {
+		BarRecord bar = new BarRecord();
+		bar.reset(1, createTradestrategy(1, 300));
+		bar.set(dateStrings[1], 101.5d);
+		assertEquals(tradingday.getOpen().getTime() + 60000, bar.getTime());
+		assertEquals(bar.getTime(), bar.getDate().getTime());
+		assertTrue(bar.isMarketHours());
+		bar.candleBuilt();
+		assertEquals(1, bar.getCount());
+		assertEquals(101.5d, bar.getLastClose(), 0);
+
+		/*
+		 * Daily bars come through as yyyyMMdd and are set to the open.
+		 */
+		bar.reset(2, createTradestrategy(2, 86400));
+		bar.set(TradingCalendar.getFormattedDate(tradingday.getOpen(),
+				"yyyyMMdd"), 101.5d);
+		assertEquals(tradingday.getOpen().getTime(), bar.getTime());
+		assertEquals(0, bar.getCount());
+	}
+
+	@Test
+	public void testSetAllocation() throws Exception {
+		com.sun.management.ThreadMXBean threadBean = getThreadBean();
+		BarRecord bar = new BarRecord();
+		bar.reset(1, createTradestrategy(1, 300));
+		/*
+		 * Warm up so the set is compiled before it is measured.
+		 */
+		long time = 0;
+		for (int pass = 0; pass < 200; pass++) {
+			for (int i = 0; i < BARS; i++) {
+				bar.set(dateStrings[i], i);
+				time += bar.getTime();
+			}
+		}
+		int passes = 200;
+		long threadId = Thread.currentThread().getId();
+		long allocated = threadBean.getThreadAllocatedBytes(threadId);
+		for (int pass = 0; pass < passes; pass++) {
+			for (int i = 0; i < BARS; i++) {
+				bar.set(dateStrings[i], i);
+				time += bar.getTime();
+				if (!bar.isMarketHours())
+					fail("Bar should be in market hours: " + dateStrings[i]);
+			}
+		}
+		allocated = threadBean.getThreadAllocatedBytes(threadId) - allocated;
+		assertTrue(time > 0);
+		/*
+		 * Decoding a bar creates nothing, allow for a few objects created by
+		 * the JVM while measuring.
+		 */
+		assertTrue("Bytes allocated: " + allocated,
+				allocated < (passes * BARS));
+	}
+
+	@Test
+	public void testHistoricalDataAllocation() throws Exception {
+		com.sun.management.ThreadMXBean threadBean = getThreadBean();
+		TWSBrokerModel brokerModel = new TWSBrokerModel();
+		/*
+		 * Warm up then measure a day of one minute bars into five minute
+		 * candles, once built straight into the candle series and once
+		 * decoded by historicalData. The difference is the cost of decoding.
+		 */
+		for (int pass = 0; pass < 20; pass++) {
+			buildCandles(createTradestrategy(pass + 100, 300));
+			Tradestrategy warmUp = createTradestrategy(pass + 200, 300);
+			reqId = brokerModel.getHistoricalData().register(
+					warmUp.getIdTradeStrategy(), warmUp);
+			loadBars(brokerModel, reqId);
+			brokerModel.getHistoricalData().remove(reqId);
+			reqId = -1;
+		}
+		long threadId = Thread.currentThread().getId();
+		Tradestrategy built = createTradestrategy(2, 300);
+		long buildAllocated = threadBean.getThreadAllocatedBytes(threadId);
+		buildCandles(built);
+		buildAllocated = threadBean.getThreadAllocatedBytes(threadId)
+				- buildAllocated;
+
+		Tradestrategy tradestrategy = createTradestrategy(1, 300);
+		reqId = brokerModel.getHistoricalData().register(
+				tradestrategy.getIdTradeStrategy(), tradestrategy);
+		long allocated = threadBean.getThreadAllocatedBytes(threadId);
+		loadBars(brokerModel, reqId);
+		allocated = threadBean.getThreadAllocatedBytes(threadId) - allocated;
+		assertEquals(BARS / 5, tradestrategy.getStrategyData()
+				.getBaseCandleSeries().getItemCount());
+		assertEquals(built.getStrategyData().getBaseCandleSeries()
+				.getItemCount(), tradestrategy.getStrategyData()
+				.getBaseCandleSeries().getItemCount());
+		/*
+		 * Decoding with a date formatter and a price per bar cost over a
+		 * thousand bytes a bar.
+		 */
+		long perBar = (allocated - buildAllocated) / BARS;
+		assertTrue("Decode bytes allocated per bar: " + perBar, perBar < 256);
+	}
+
+	/**
+	 * Method buildCandles. Build the bars straight into the candle series as
+	 * historicalData does.
+	 * 
+	 * @param tradestrategy
+	 *            Tradestrategy
+	 */
+	private void buildCandles(Tradestrategy tradestrategy) {
+		tradestrategy.getStrategyData().beginBulkLoad();
+		for (int i = 0; i < BARS; i++) {
+			double price = 100d + (i % 10) / 10d;
+			tradestrategy.getStrategyData().buildCandle(
+					new Date(Long.parseLong(dateStrings[i]) * 1000), price,
+					price + 0.2d, price - 0.2d, price + 0.1d, 10000, price,
+					10, 1, null);
+		}
+	}
+
+	/**
+	 * Method loadBars.
+	 * 
+	 * @param brokerModel
+	 *            TWSBrokerModel
+	 * @param reqId
+	 *            int
+	 */
+	private void loadBars(TWSBrokerModel brokerModel, int reqId) {
+		for (int i = 0; i < BARS; i++) {
+			double price = 100d + (i % 10) / 10d;
+			brokerModel.historicalData(reqId, dateStrings[i], price,
+					price + 0.2d, price - 0.2d, price + 0.1d, 100, 10,
+					price, false);
+		}
+	}
+
+	/**
+	 * Method createTradestrategy.
+	 * 
+	 * @param idTradestrategy
+	 *            int
+	 * @param barSize
+	 *            int
+	 * @return Tradestrategy
+	 */
+	private Tradestrategy createTradestrategy(int idTradestrategy, int barSize) {
+		Tradestrategy tradestrategy = new Tradestrategy(contract, tradingday,
+				new Strategy("Test"), new Portfolio("Test", "Test"),
+				new BigDecimal(100), "BOT", "1", true, 2, barSize);
+		tradestrategy.setIdTradeStrategy(idTradestrategy);
+		return tradestrategy;
+	}
+
+	/**
+	 * Method getThreadBean.
+	 * 
+	 * @return com.sun.management.ThreadMXBean the thread bean with the
+	 *         allocation counter turned on.
+	 */
+	private static com.sun.management.ThreadMXBean getThreadBean() {
+		java.lang.management.ThreadMXBean threadBean = ManagementFactory
+				.getThreadMXBean();
+		Assume.assumeTrue(threadBean instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+		Assume.assumeTrue(allocationBean.isThreadAllocatedMemorySupported());
+		allocationBean.setThreadAllocatedMemoryEnabled(true);
+		return allocationBean;
+	}
+}
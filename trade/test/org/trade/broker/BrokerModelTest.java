@@ -700,7 +700,7 @@ public class BrokerModelTest implements BrokerChangeListener {
 	public void testGetHistoricalData() {
 
 		try {
-			ConcurrentHashMap<Integer, Tradestrategy> historicalDataList = backTestbrokerModel
+			RequestRegistry<Integer, Tradestrategy> historicalDataList = backTestbrokerModel
 					.getHistoricalData();
 			assertNotNull(historicalDataList);
 		} catch (Exception ex) {
@@ -0,0 +1,271 @@
+/* ===========================================================
+ * TradeManager : a application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.broker;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.trade.core.util.TradingCalendar;
+import org.trade.persistent.dao.Contract;
+import org.trade.persistent.dao.Portfolio;
+import org.trade.persistent.dao.Strategy;
+import org.trade.persistent.dao.Tradestrategy;
+import org.trade.persistent.dao.Tradingday;
+import org.trade.strategy.data.candle.CandleItem;
+
+/**
+ * Some tests for the {@link RealtimeBarActor} class. The actor is run on the
+ * calling thread so the results can be checked as soon as a bar is posted,
+ * except in testConcurrentContracts which uses a thread pool.
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+public class RealtimeBarActorTest {
+
+	private final List<CandleItem> completed = new ArrayList<CandleItem>();
+	private final List<Exception> errors = new ArrayList<Exception>();
+	private Contract contract = null;
+	private Tradingday tradingday = null;
+	private Tradestrategy fiveMin = null;
+	private Tradestrategy oneMin = null;
+	private RealtimeBarActor actor = null;
+
+	/**
+	 * Method setUp.
+	 * 
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		Date day = TradingCalendar.getMostRecentTradingDay(new Date());
+		tradingday = new Tradingday(TradingCalendar.getSpecificTime(day, 9, 30),
+				TradingCalendar.getSpecificTime(day, 16, 0));
+		contract = new Contract("STK", "SPY", "SMART", "USD", null,
+				new BigDecimal(1));
+		contract.setIdContract(1);
+		Portfolio portfolio = new Portfolio("Test", "Test");
+		fiveMin = new Tradestrategy(contract, tradingday, new Strategy(
+				"Test"), portfolio, new BigDecimal(100), "BOT", "1",
+				true, 2, 300);
+		oneMin = new Tradestrategy(contract, tradingday,
+				new Strategy("Test"), portfolio, new BigDecimal(100),
+				"BOT", "1", true, 2, 60);
+
+		List<Tradestrategy> tradestrategies = new ArrayList<Tradestrategy>();
+		tradestrategies.add(fiveMin);
+		tradestrategies.add(oneMin);
+		actor = new RealtimeBarActor(contract, tradestrategies,
+				new Executor() {
+					public void execute(Runnable command) {
+						command.run();
+					}
+				}) {
+			protected boolean isMarketDataRunning(Contract contract) {
+				return false;
+			}
+
+			protected void candleCompleted(CandleItem candleItem) {
+				completed.add(candleItem);
+			}
+
+			protected void error(Exception ex) {
+				errors.add(ex);
+			}
+		};
+	}
+
+	@Test
+	public void testTradestrategyOrder() throws Exception {
+		postBar(0);
+		assertTrue(errors.isEmpty());
+		assertEquals(2, actor.getTradestrategyCount());
+		/*
+		 * The one minute tradestrategy sorts first so the saved candle comes
+		 * from its series.
+		 */
+		assertEquals(1, completed.size());
+		CandleItem candleItem = completed.get(0);
+		assertEquals(60000, candleItem.getPeriod().getLastMillisecond()
+				- candleItem.getPeriod().getFirstMillisecond() + 1);
+	}
+
+	@Test
+	public void testCandleSavedOncePerBar() throws Exception {
+		for (int i = 0; i < 3; i++) {
+			postBar(i * 5);
+		}
+		assertTrue(errors.isEmpty());
+		assertEquals(3, completed.size());
+		assertEquals(1, fiveMin.getStrategyData().getBaseCandleSeries()
+				.getItemCount());
+		assertEquals(1, oneMin.getStrategyData().getBaseCandleSeries()
+				.getItemCount());
+		assertEquals(new BigDecimal("100.00000"), contract.getLastPrice());
+	}
+
+	@Test
+	public void testAddAndRemoveTradestrategy() throws Exception {
+		actor.removeTradestrategy(oneMin);
+		assertEquals(1, actor.getTradestrategyCount());
+		postBar(0);
+		assertEquals(0, oneMin.getStrategyData().getBaseCandleSeries()
+				.getItemCount());
+		assertEquals(1, fiveMin.getStrategyData().getBaseCandleSeries()
+				.getItemCount());
+
+		actor.addTradestrategy(oneMin);
+		actor.addTradestrategy(oneMin);
+		assertEquals(2, actor.getTradestrategyCount());
+		postBar(60);
+		assertEquals(1, oneMin.getStrategyData().getBaseCandleSeries()
+				.getItemCount());
+		assertEquals(2, completed.size());
+	}
+
+	@Test
+	public void testConcurrentContracts() throws Exception {
+		final int contracts = 8;
+		final int barCount = 500;
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		final List<Exception> poolErrors = Collections
+				.synchronizedList(new ArrayList<Exception>());
+		final List<List<Double>> closes = new ArrayList<List<Double>>();
+		final List<RealtimeBarActor> actors = new ArrayList<RealtimeBarActor>();
+		final AtomicInteger overlaps = new AtomicInteger(0);
+		final CountDownLatch saved = new CountDownLatch(contracts * barCount);
+		try {
+			for (int c = 0; c < contracts; c++) {
+				Contract item = new Contract("STK", "SYM" + c, "SMART", "USD",
+						null, new BigDecimal(1));
+				item.setIdContract(c + 1);
+				List<Tradestrategy> tradestrategies = new ArrayList<Tradestrategy>();
+				tradestrategies.add(new Tradestrategy(item, tradingday,
+						new Strategy("Test"), new Portfolio("Test", "Test"),
+						new BigDecimal(100), "BOT", "1", true, 2, 60));
+				final List<Double> contractCloses = new ArrayList<Double>();
+				final AtomicInteger running = new AtomicInteger(0);
+				closes.add(contractCloses);
+				actors.add(new RealtimeBarActor(item, tradestrategies,
+						executor) {
+					protected boolean isMarketDataRunning(Contract contract) {
+						return false;
+					}
+
+					protected void candleCompleted(CandleItem candleItem) {
+						if (running.incrementAndGet() > 1)
+							overlaps.incrementAndGet();
+						contractCloses.add(candleItem.getClose());
+						running.decrementAndGet();
+						saved.countDown();
+					}
+
+					protected void error(Exception ex) {
+						poolErrors.add(ex);
+					}
+				});
+			}
+
+			/*
+			 * One thread per contract posts its bars, all the threads start
+			 * together.
+			 */
+			final CountDownLatch start = new CountDownLatch(1);
+			final CountDownLatch posted = new CountDownLatch(contracts);
+			for (int c = 0; c < contracts; c++) {
+				final RealtimeBarActor contractActor = actors.get(c);
+				new Thread(new Runnable() {
+					public void run() {
+						try {
+							start.await();
+							long open = tradingday.getOpen().getTime();
+							for (int i = 0; i < barCount; i++) {
+								double price = 100 + i;
+								contractActor.realtimeBar(open + (i * 5000),
+										price, price, price, price, 1000,
+										price, 10);
+							}
+						} catch (InterruptedException ex) {
+							poolErrors.add(ex);
+						} finally {
+							posted.countDown();
+						}
+					}
+				}).start();
+			}
+			start.countDown();
+			assertTrue(posted.await(30, TimeUnit.SECONDS));
+			// The actors keep rescheduling until every bar is processed.
+			assertTrue(saved.await(30, TimeUnit.SECONDS));
+		} finally {
+			executor.shutdown();
+			assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+		}
+
+		assertTrue(poolErrors.isEmpty());
+		assertEquals(0, overlaps.get());
+		for (List<Double> contractCloses : closes) {
+			assertEquals(barCount, contractCloses.size());
+			for (int i = 0; i < barCount; i++) {
+				assertEquals(100 + i, contractCloses.get(i), 0);
+			}
+		}
+	}
+
+	/**
+	 * Method postBar.
+	 * 
+	 * @param seconds
+	 *            int seconds after the open.
+	 */
+	private void postBar(int seconds) {
+		long time = tradingday.getOpen().getTime() + (seconds * 1000);
+		actor.realtimeBar(time, 100, 101, 99, 100, 1000, 100.2, 10);
+	}
+}
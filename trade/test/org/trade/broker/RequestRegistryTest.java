@@ -0,0 +1,141 @@
+/* ===========================================================
+ * TradeManager : a application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.broker;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Some tests for the {@link RequestRegistry} class.
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+public class RequestRegistryTest {
+
+	@Test
+	public void testRegisterDenseIds() {
+		RequestRegistry<Integer, String> registry = new RequestRegistry<Integer, String>(
+				RequestRegistry.HISTORICAL_DATA);
+		for (int i = 0; i < 10; i++) {
+			int reqId = registry.register(i + 100, "Request" + i);
+			assertEquals(RequestRegistry.HISTORICAL_DATA + i, reqId);
+			assertEquals("Request" + i, registry.get(reqId));
+			assertEquals(new Integer(reqId), registry.getRequestId(i + 100));
+		}
+		assertEquals(10, registry.size());
+		assertNull(registry.get(RequestRegistry.HISTORICAL_DATA + 10));
+		assertNull(registry.get(RequestRegistry.HISTORICAL_DATA - 1));
+	}
+
+	@Test
+	public void testRemove() {
+		RequestRegistry<Integer, String> registry = new RequestRegistry<Integer, String>(
+				RequestRegistry.MARKET_DATA);
+		int reqId = registry.register(1, "Request1");
+		assertEquals("Request1", registry.remove(reqId));
+		assertNull(registry.get(reqId));
+		assertFalse(registry.contains(reqId));
+		assertFalse(registry.containsRequest(1));
+		assertNull(registry.remove(reqId));
+		assertNull(registry.removeRequest(1));
+		assertTrue(registry.isEmpty());
+	}
+
+	@Test
+	public void testReuseOldestIdFirst() {
+		RequestRegistry<Integer, String> registry = new RequestRegistry<Integer, String>(
+				RequestRegistry.REALTIME_BARS);
+		int reqId1 = registry.register(1, "Request1");
+		int reqId2 = registry.register(2, "Request2");
+		int reqId3 = registry.register(3, "Request3");
+		registry.remove(reqId2);
+		registry.remove(reqId1);
+		assertEquals(reqId2, registry.register(4, "Request4"));
+		assertEquals(reqId1, registry.register(5, "Request5"));
+		assertEquals(reqId3 + 1, registry.register(6, "Request6"));
+	}
+
+	@Test
+	public void testRegisterTwice() {
+		RequestRegistry<Integer, String> registry = new RequestRegistry<Integer, String>(
+				RequestRegistry.CONTRACT_DETAILS);
+		registry.register(1, "Request1");
+		try {
+			registry.register(1, "Request1");
+			fail("Registering the same key twice should fail.");
+		} catch (IllegalStateException ex) {
+			assertEquals(1, registry.size());
+		}
+	}
+
+	@Test
+	public void testGrow() {
+		RequestRegistry<Integer, String> registry = new RequestRegistry<Integer, String>(
+				RequestRegistry.HISTORICAL_DATA, 2);
+		registry.register(0, "Request0");
+		registry.remove(registry.register(1, "Request1"));
+		for (int i = 2; i < 100; i++) {
+			registry.register(i, "Request" + i);
+		}
+		assertEquals(99, registry.size());
+		assertEquals("Request0", registry.getRequest(0));
+		assertEquals("Request2",
+				registry.get(RequestRegistry.HISTORICAL_DATA + 1));
+		for (int i = 2; i < 100; i++) {
+			assertEquals("Request" + i, registry.getRequest(i));
+		}
+		List<Integer> reqIds = registry.requestIds();
+		assertEquals(99, reqIds.size());
+		registry.clear();
+		assertTrue(registry.isEmpty());
+		assertTrue(registry.values().isEmpty());
+	}
+
+	@Test
+	public void testIsRequestId() {
+		RequestRegistry<Integer, String> registry = new RequestRegistry<Integer, String>(
+				RequestRegistry.HISTORICAL_DATA);
+		assertTrue(registry.isRequestId(RequestRegistry.HISTORICAL_DATA));
+		assertTrue(registry.isRequestId(RequestRegistry.REALTIME_BARS - 1));
+		assertFalse(registry.isRequestId(RequestRegistry.REALTIME_BARS));
+		assertFalse(registry.isRequestId(RequestRegistry.HISTORICAL_DATA - 1));
+		assertFalse(registry.isRequestId(100000));
+	}
+}
@@ -0,0 +1,315 @@
+/* ===========================================================
+ * TradeManager : a application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.broker.client;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.trade.core.util.TradingCalendar;
+import org.trade.persistent.PersistentModel;
+import org.trade.persistent.dao.Candle;
+import org.trade.persistent.dao.Contract;
+import org.trade.persistent.dao.Tradestrategy;
+import org.trade.persistent.dao.Tradingday;
+import org.trade.persistent.dao.Tradingdays;
+import org.trade.strategy.data.candle.CandlePeriod;
+
+/**
+ * Some tests for the {@link BackTestCandleCache} class. The PersistentModel is
+ * a proxy that filters the candles by tradingday open like the database and
+ * counts the reads.
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+public class BackTestCandleCacheTest {
+
+	private final AtomicInteger candleReads = new AtomicInteger(0);
+	private final List<Candle> candles = new ArrayList<Candle>();
+	private final List<Tradingday> tradingdays = new ArrayList<Tradingday>();
+	private final List<Tradestrategy> tradestrategies = new ArrayList<Tradestrategy>();
+	private Date lastStartOpen = null;
+	private Date lastEndOpen = null;
+	private PersistentModel tradePersistentModel = null;
+
+	/**
+	 * Method setUp. Five tradingdays with three candles each and a
+	 * tradestrategy with two chart days for each tradingday.
+	 * 
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		Contract contract = new Contract("STK", "SPY", "SMART", "USD", null,
+				new BigDecimal(1));
+		contract.setIdContract(1);
+		Date day = TradingCalendar.getFormattedDate("20150302", "yyyyMMdd");
+		for (int d = 0; d < 5; d++) {
+			Tradingday tradingday = new Tradingday(
+					TradingCalendar.getSpecificTime(day, 9, 30),
+					TradingCalendar.getSpecificTime(day, 16, 0));
+			tradingdays.add(tradingday);
+			tradestrategies.add(new Tradestrategy(contract, tradingday, null,
+					null, new BigDecimal(100), null, null, true, 2, 300));
+			Date startPeriod = tradingday.getOpen();
+			for (int i = 0; i < 3; i++) {
+				candles.add(new Candle(contract, tradingday, new CandlePeriod(
+						startPeriod, 299), 100 + i, 101 + i, 99 + i, 100.5 + i,
+						1000, 100.2 + i, 10, new Date()));
+				startPeriod = TradingCalendar.addMinutes(startPeriod, 5);
+			}
+			day = TradingCalendar.addBusinessDays(day, 1);
+		}
+		tradePersistentModel = (PersistentModel) Proxy.newProxyInstance(
+				PersistentModel.class.getClassLoader(),
+				new Class<?>[] { PersistentModel.class },
+				new InvocationHandler() {
+					public Object invoke(Object proxy, Method method,
+							Object[] args) {
+						if ("findCandlesByContractDateRangeBarSize"
+								.equals(method.getName())) {
+							candleReads.incrementAndGet();
+							lastStartOpen = (Date) args[1];
+							lastEndOpen = (Date) args[2];
+							return filter((Date) args[1], (Date) args[2]);
+						}
+						throw new UnsupportedOperationException(method
+								.getName());
+					}
+				});
+	}
+
+	/**
+	 * Method tearDown.
+	 * 
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception {
+		while (BackTestCandleCache.isOpen()) {
+			BackTestCandleCache.close();
+		}
+	}
+
+	@Test
+	public void testRollingWindow() throws Exception {
+		BackTestCandleCache.open(getTradingdays(0, 4));
+
+		for (int d = 0; d < 5; d++) {
+			/*
+			 * The chart history then the tradingday as the DBBroker reads
+			 * them.
+			 */
+			Tradestrategy tradestrategy = tradestrategies.get(d);
+			Date startOpen = BackTestCandleCache
+					.getHistoryStartDate(tradestrategy);
+			Date endOpen = TradingCalendar.addBusinessDays(tradestrategy
+					.getTradingday().getClose(), -1);
+			assertCandles(filter(startOpen, endOpen), BackTestCandleCache
+					.findCandlesByContractDateRangeBarSize(
+							tradePersistentModel, 1, startOpen, endOpen, 300));
+			Date open = tradestrategy.getTradingday().getOpen();
+			List<Candle> day = BackTestCandleCache
+					.findCandlesByContractDateRangeBarSize(
+							tradePersistentModel, 1, open, open, 300);
+			assertEquals(3, day.size());
+			assertCandles(filter(open, open), day);
+
+			/*
+			 * Only the days from the chart history of the next tradestrategy
+			 * are held i.e. this tradingday onwards.
+			 */
+			BackTestCandleCache.release(tradestrategy);
+			assertEquals((d < 4 ? 5 - d : 0),
+					BackTestCandleCache.getDayCount(1, 300));
+		}
+		assertEquals(1, candleReads.get());
+		assertEquals(0, BackTestCandleCache.size());
+
+		BackTestCandleCache.close();
+		assertFalse(BackTestCandleCache.isOpen());
+	}
+
+	@Test
+	public void testWiden() throws Exception {
+		BackTestCandleCache.open(getTradingdays(2, 4));
+		Date open = tradingdays.get(4).getOpen();
+		BackTestCandleCache.findCandlesByContractDateRangeBarSize(
+				tradePersistentModel, 1, open, open, 300);
+		assertEquals(1, candleReads.get());
+
+		/*
+		 * Widening the window only reads the days that are not held.
+		 */
+		BackTestCandleCache.open(getTradingdays(0, 1));
+		open = tradingdays.get(0).getOpen();
+		assertCandles(filter(open, open), BackTestCandleCache
+				.findCandlesByContractDateRangeBarSize(tradePersistentModel, 1,
+						open, open, 300));
+		assertEquals(2, candleReads.get());
+		assertEquals(
+				BackTestCandleCache.getHistoryStartDate(tradestrategies.get(0)),
+				lastStartOpen);
+		assertEquals(tradingdays.get(1).getOpen().getTime() - 1,
+				lastEndOpen.getTime());
+		open = tradingdays.get(3).getOpen();
+		assertCandles(filter(open, open), BackTestCandleCache
+				.findCandlesByContractDateRangeBarSize(tradePersistentModel, 1,
+						open, open, 300));
+		assertEquals(2, candleReads.get());
+		assertEquals(5, BackTestCandleCache.getDayCount(1, 300));
+
+		BackTestCandleCache.close();
+		assertTrue(BackTestCandleCache.isOpen());
+		BackTestCandleCache.close();
+		assertEquals(0, BackTestCandleCache.size());
+	}
+
+	@Test
+	public void testOutsideWindow() throws Exception {
+		Date open = tradingdays.get(0).getOpen();
+		BackTestCandleCache.open(getTradingdays(2, 4));
+		for (int i = 0; i < 2; i++) {
+			assertCandles(filter(open, open), BackTestCandleCache
+					.findCandlesByContractDateRangeBarSize(
+							tradePersistentModel, 1, open, open, 300));
+		}
+		assertEquals(1, candleReads.get());
+		assertEquals(1, BackTestCandleCache.size());
+		assertEquals(0, BackTestCandleCache.getDayCount(1, 300));
+	}
+
+	@Test
+	public void testNoWindow() throws Exception {
+		Date startOpen = tradingdays.get(0).getOpen();
+		Date endOpen = tradingdays.get(1).getOpen();
+		BackTestCandleCache.findCandlesByContractDateRangeBarSize(
+				tradePersistentModel, 1, startOpen, endOpen, 300);
+		assertEquals(1, candleReads.get());
+
+		BackTestCandleCache.open();
+		for (int i = 0; i < 3; i++) {
+			assertCandles(filter(startOpen, endOpen), BackTestCandleCache
+					.findCandlesByContractDateRangeBarSize(
+							tradePersistentModel, 1, startOpen, endOpen, 300));
+		}
+		assertEquals(2, candleReads.get());
+		assertEquals(1, BackTestCandleCache.size());
+		BackTestCandleCache.close();
+		assertFalse(BackTestCandleCache.isOpen());
+		assertEquals(0, BackTestCandleCache.size());
+	}
+
+	@Test
+	public void testChangesDoNotAffectCache() throws Exception {
+		Date open = tradingdays.get(2).getOpen();
+		BackTestCandleCache.open(getTradingdays(0, 4));
+		List<Candle> day = BackTestCandleCache
+				.findCandlesByContractDateRangeBarSize(tradePersistentModel, 1,
+						open, open, 300);
+		day.clear();
+		assertEquals(3, BackTestCandleCache
+				.findCandlesByContractDateRangeBarSize(tradePersistentModel, 1,
+						open, open, 300).size());
+	}
+
+	/**
+	 * Method getTradingdays.
+	 * 
+	 * @param from
+	 *            int
+	 * @param to
+	 *            int
+	 * @return Tradingdays the tradingdays from to to with their
+	 *         tradestrategy.
+	 */
+	private Tradingdays getTradingdays(int from, int to) {
+		Tradingdays items = new Tradingdays();
+		for (int d = from; d <= to; d++) {
+			Tradingday tradingday = new Tradingday(tradingdays.get(d)
+					.getOpen(), tradingdays.get(d).getClose());
+			tradingday.addTradestrategy(tradestrategies.get(d));
+			items.add(tradingday);
+		}
+		return items;
+	}
+
+	/**
+	 * Method filter.
+	 * 
+	 * @param startOpen
+	 *            Date
+	 * @param endOpen
+	 *            Date
+	 * @return List<Candle> the candles whose tradingday open is from
+	 *         startOpen to endOpen.
+	 */
+	private List<Candle> filter(Date startOpen, Date endOpen) {
+		List<Candle> items = new ArrayList<Candle>();
+		for (Candle candle : candles) {
+			Date open = candle.getTradingday().getOpen();
+			if (!open.before(startOpen) && !open.after(endOpen))
+				items.add(candle);
+		}
+		return items;
+	}
+
+	/**
+	 * Method assertCandles.
+	 * 
+	 * @param expected
+	 *            List<Candle>
+	 * @param actual
+	 *            List<Candle>
+	 */
+	private void assertCandles(List<Candle> expected, List<Candle> actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertSame(expected.get(i), actual.get(i));
+		}
+	}
+}
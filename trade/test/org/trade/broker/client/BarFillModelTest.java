@@ -0,0 +1,229 @@
+/* ===========================================================
+ * TradeManager : a application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.broker.client;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.trade.core.util.TradingCalendar;
+import org.trade.dictionary.valuetype.Action;
+import org.trade.dictionary.valuetype.OrderType;
+import org.trade.persistent.dao.Candle;
+import org.trade.persistent.dao.Contract;
+import org.trade.persistent.dao.TradeOrder;
+import org.trade.strategy.data.candle.CandlePeriod;
+
+/**
+ * Some tests for the {@link BarFillModel} class.
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+public class BarFillModelTest {
+
+	private Contract contract = null;
+	private Date open = null;
+
+	/**
+	 * Method setUp.
+	 * 
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		contract = new Contract("STK", "TEST", "SMART", "USD", null, null);
+		open = TradingCalendar.getSpecificTime(
+				TradingCalendar.getMostRecentTradingDay(new Date()), 9, 30);
+	}
+
+	@Test
+	public void testFilledPrice() {
+		BarFillModel fillModel = new BarFillModel(1, 1, BigDecimal.ZERO,
+				false, 0.005, 1);
+		Candle candle = createCandle(100, 101, 99, 100.5, 1000);
+
+		assertEquals(0, new BigDecimal("99.5").compareTo(fillModel
+				.getFilledPrice(createOrder(Action.BUY, OrderType.LMT, null,
+						99.5), candle)));
+		assertNull(fillModel.getFilledPrice(
+				createOrder(Action.BUY, OrderType.LMT, null, 98.5), candle));
+		/*
+		 * Gapped through the price so filled at the open.
+		 */
+		assertEquals(0, new BigDecimal("100").compareTo(fillModel
+				.getFilledPrice(createOrder(Action.SELL, OrderType.LMT, null,
+						99.5), candle)));
+		assertEquals(0, new BigDecimal("99.5").compareTo(fillModel
+				.getFilledPrice(createOrder(Action.SELL, OrderType.STP, 99.5,
+						null), candle)));
+		assertEquals(0, new BigDecimal("100.5").compareTo(fillModel
+				.getFilledPrice(createOrder(Action.BUY, OrderType.MKT, null,
+						null), candle)));
+	}
+
+	@Test
+	public void testPartialFills() {
+		BarFillModel fillModel = new BarFillModel(0.25, 0.5, BigDecimal.ZERO,
+				false, 0.005, 1);
+		TradeOrder order = createOrder(Action.BUY, OrderType.LMT, null, 99.5);
+
+		/*
+		 * Traded through the limit so a quarter of the volume.
+		 */
+		Candle candle = createCandle(100, 101, 99, 100.5, 1000);
+		BigDecimal filledPrice = fillModel.getFilledPrice(order, candle);
+		assertEquals(250,
+				fillModel.getFilledQuantity(order, candle, filledPrice, 1000));
+		assertEquals(100,
+				fillModel.getFilledQuantity(order, candle, filledPrice, 100));
+
+		/*
+		 * Only touched the limit so half of that.
+		 */
+		candle = createCandle(100, 101, 99.5, 100.5, 1000);
+		filledPrice = fillModel.getFilledPrice(order, candle);
+		assertEquals(125,
+				fillModel.getFilledQuantity(order, candle, filledPrice, 750));
+	}
+
+	@Test
+	public void testMarketOrderParticipation() {
+		TradeOrder order = createOrder(Action.BUY, OrderType.MKT, null, null);
+		Candle candle = createCandle(100, 101, 99, 100.5, 1000);
+		BarFillModel fillModel = new BarFillModel(0.25, 0.5, BigDecimal.ZERO,
+				false, 0.005, 1);
+		assertEquals(1000, fillModel.getFilledQuantity(order, candle,
+				fillModel.getFilledPrice(order, candle), 1000));
+
+		fillModel = new BarFillModel(0.25, true, 0.5, BigDecimal.ZERO, false,
+				0.005, 1);
+		assertEquals(250, fillModel.getFilledQuantity(order, candle,
+				fillModel.getFilledPrice(order, candle), 1000));
+	}
+
+	@Test
+	public void testSlippageAndCommission() {
+		BarFillModel fillModel = new BarFillModel(1, 1,
+				new BigDecimal("0.02"), false, 0.005, 1);
+		Candle candle = createCandle(100, 101, 99, 100.5, 1000);
+
+		assertEquals(0, new BigDecimal("100.52").compareTo(fillModel
+				.getFilledPrice(createOrder(Action.BUY, OrderType.MKT, null,
+						null), candle)));
+		assertEquals(0, new BigDecimal("99.48").compareTo(fillModel
+				.getFilledPrice(createOrder(Action.SELL, OrderType.STP, 99.5,
+						null), candle)));
+		/*
+		 * No slippage on limit orders.
+		 */
+		assertEquals(0, new BigDecimal("99.5").compareTo(fillModel
+				.getFilledPrice(createOrder(Action.BUY, OrderType.LMT, null,
+						99.5), candle)));
+
+		TradeOrder order = createOrder(Action.BUY, OrderType.MKT, null, null);
+		assertEquals(1, fillModel.getCommission(order, 100), 0);
+		assertEquals(5, fillModel.getCommission(order, 1000), 0);
+	}
+
+	@Test
+	public void testIsLowBeforeHigh() {
+		BarFillModel barDirection = new BarFillModel(1, 1, BigDecimal.ZERO,
+				false, 0.005, 1);
+		BarFillModel nearestExtreme = new BarFillModel(1, 1,
+				BigDecimal.ZERO, true, 0.005, 1);
+		/*
+		 * Green bar that opened near the high.
+		 */
+		Candle candle = createCandle(100.75, 101, 99, 100.9, 1000);
+		assertTrue(barDirection.isLowBeforeHigh(candle));
+		assertFalse(nearestExtreme.isLowBeforeHigh(candle));
+		candle = createCandle(99.25, 101, 99, 99, 1000);
+		assertFalse(barDirection.isLowBeforeHigh(candle));
+		assertTrue(nearestExtreme.isLowBeforeHigh(candle));
+	}
+
+	/**
+	 * Method createCandle.
+	 * 
+	 * @param open
+	 *            double
+	 * @param high
+	 *            double
+	 * @param low
+	 *            double
+	 * @param close
+	 *            double
+	 * @param volume
+	 *            long
+	 * @return Candle
+	 */
+	private Candle createCandle(double open, double high, double low,
+			double close, long volume) {
+		return new Candle(contract, new CandlePeriod(this.open, 60), open,
+				high, low, close, volume, close, 1, this.open);
+	}
+
+	/**
+	 * Method createOrder.
+	 * 
+	 * @param action
+	 *            String
+	 * @param orderType
+	 *            String
+	 * @param auxPrice
+	 *            Double
+	 * @param limitPrice
+	 *            Double
+	 * @return TradeOrder
+	 */
+	private TradeOrder createOrder(String action, String orderType,
+			Double auxPrice, Double limitPrice) {
+		TradeOrder order = new TradeOrder();
+		order.setAction(action);
+		order.setOrderType(orderType);
+		order.setQuantity(1000);
+		if (null != auxPrice)
+			order.setAuxPrice(new BigDecimal(auxPrice));
+		if (null != limitPrice)
+			order.setLimitPrice(new BigDecimal(limitPrice));
+		order.setCreateDate(this.open);
+		return order;
+	}
+}
@@ -0,0 +1,197 @@
+/* ===========================================================
+ * TradeManager : a application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.broker.client;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jfree.data.general.DatasetChangeEvent;
+import org.jfree.data.general.DatasetChangeListener;
+import org.junit.Before;
+import org.junit.Test;
+import org.trade.core.util.TradingCalendar;
+import org.trade.persistent.PersistentModel;
+import org.trade.persistent.dao.Candle;
+import org.trade.persistent.dao.Contract;
+import org.trade.persistent.dao.Portfolio;
+import org.trade.persistent.dao.Tradingday;
+import org.trade.strategy.data.CandleDataset;
+import org.trade.strategy.data.CandleSeries;
+import org.trade.strategy.data.candle.CandlePeriod;
+
+/**
+ * Some tests for the {@link CandleSnapshotStore} class. The PersistentModel is
+ * a proxy that counts the candle reads so no database is needed.
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+public class CandleSnapshotStoreTest {
+
+	private final AtomicInteger candleReads = new AtomicInteger(0);
+	private PersistentModel tradePersistentModel = null;
+	private Contract contract = null;
+	private Tradingday tradingday = null;
+	private CandleSeries template = null;
+
+	/**
+	 * Method setUp.
+	 * 
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		Date day = TradingCalendar.getMostRecentTradingDay(new Date());
+		tradingday = new Tradingday(TradingCalendar.getSpecificTime(day, 9, 30),
+				TradingCalendar.getSpecificTime(day, 16, 0));
+		contract = new Contract("STK", "SPY", "SMART", "USD", null,
+				new BigDecimal(1));
+		contract.setIdContract(1);
+		template = new CandleSeries("SPY", contract, 300, tradingday.getOpen(),
+				tradingday.getClose());
+		template.setSymbol("SPY");
+		template.setSecType("STK");
+		template.setExchange("SMART");
+		template.setCurrency("USD");
+
+		final List<Candle> candles = new ArrayList<Candle>();
+		Date startPeriod = tradingday.getOpen();
+		for (int i = 0; i < 3; i++) {
+			candles.add(new Candle(contract, tradingday, new CandlePeriod(
+					startPeriod, 299), 100 + i, 101 + i, 99 + i, 100.5 + i,
+					1000, 100.2 + i, 10, new Date()));
+			startPeriod = TradingCalendar.addMinutes(startPeriod, 5);
+		}
+		tradePersistentModel = (PersistentModel) Proxy.newProxyInstance(
+				PersistentModel.class.getClassLoader(),
+				new Class<?>[] { PersistentModel.class },
+				new InvocationHandler() {
+					public Object invoke(Object proxy, Method method,
+							Object[] args) {
+						if ("findCandlesByContractDateRangeBarSize"
+								.equals(method.getName())) {
+							candleReads.incrementAndGet();
+							return new ArrayList<Candle>(candles);
+						}
+						throw new UnsupportedOperationException(method
+								.getName());
+					}
+				});
+	}
+
+	@Test
+	public void testLoadedOnceAndShared() throws Exception {
+		CandleSnapshot first = CandleSnapshotStore.acquire(
+				tradePersistentModel, contract, tradingday, 300, 2,
+				new Portfolio(), template);
+		CandleSnapshot second = CandleSnapshotStore.acquire(
+				tradePersistentModel, contract, tradingday, 300, 2,
+				new Portfolio(), template);
+
+		assertSame(first, second);
+		assertSame(first.getCandleSeries(), second.getCandleSeries());
+		assertEquals(1, candleReads.get());
+		assertEquals(3, first.getCandleSeries().getItemCount());
+		assertEquals("SPY", first.getCandleSeries().getSymbol());
+		assertEquals(2, first.getReferences());
+
+		CandleSnapshotStore.release(first);
+		assertEquals(1, CandleSnapshotStore.size());
+		CandleSnapshotStore.release(second);
+		assertEquals(0, CandleSnapshotStore.size());
+	}
+
+	@Test
+	public void testReloadAfterRelease() throws Exception {
+		CandleSnapshot first = CandleSnapshotStore.acquire(
+				tradePersistentModel, contract, tradingday, 300, 2,
+				new Portfolio(), template);
+		CandleSnapshotStore.release(first);
+
+		CandleSnapshot second = CandleSnapshotStore.acquire(
+				tradePersistentModel, contract, tradingday, 300, 2,
+				new Portfolio(), template);
+		assertNotSame(first, second);
+		assertEquals(2, candleReads.get());
+		CandleSnapshotStore.release(second);
+		assertEquals(0, CandleSnapshotStore.size());
+	}
+
+	@Test
+	public void testReleaseRemovesDatasetListener() throws Exception {
+		CandleSnapshot snapshot = CandleSnapshotStore.acquire(
+				tradePersistentModel, contract, tradingday, 300, 2,
+				new Portfolio(), template);
+		CandleDataset candleDataset = new CandleDataset();
+		candleDataset.addSeries(snapshot.getCandleSeries());
+		final AtomicInteger changes = new AtomicInteger(0);
+		candleDataset.addChangeListener(new DatasetChangeListener() {
+			public void datasetChanged(DatasetChangeEvent event) {
+				changes.incrementAndGet();
+			}
+		});
+		snapshot.getCandleSeries().fireSeriesChanged();
+		assertEquals(1, changes.get());
+
+		CandleSnapshotStore.release(snapshot, candleDataset);
+		snapshot.getCandleSeries().fireSeriesChanged();
+		assertEquals(1, changes.get());
+		assertEquals(0, CandleSnapshotStore.size());
+	}
+
+	@Test
+	public void testKeyedByBarSize() throws Exception {
+		CandleSnapshot fiveMin = CandleSnapshotStore.acquire(
+				tradePersistentModel, contract, tradingday, 300, 2,
+				new Portfolio(), template);
+		CandleSnapshot oneMin = CandleSnapshotStore.acquire(
+				tradePersistentModel, contract, tradingday, 60, 2,
+				new Portfolio(), template);
+		assertNotSame(fiveMin, oneMin);
+		assertEquals(2, CandleSnapshotStore.size());
+		CandleSnapshotStore.release(fiveMin);
+		CandleSnapshotStore.release(oneMin);
+		assertEquals(0, CandleSnapshotStore.size());
+	}
+}
@@ -0,0 +1,226 @@
+/* ===========================================================
+ * TradeManager : a application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.broker.client;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.trade.core.util.TradingCalendar;
+import org.trade.dictionary.valuetype.Action;
+import org.trade.dictionary.valuetype.OrderStatus;
+import org.trade.dictionary.valuetype.OrderType;
+import org.trade.persistent.dao.Candle;
+import org.trade.persistent.dao.Contract;
+import org.trade.persistent.dao.TradeOrder;
+import org.trade.persistent.dao.TradeOrderfill;
+import org.trade.persistent.dao.TradestrategyOrders;
+import org.trade.strategy.data.candle.CandlePeriod;
+import org.trade.ui.TradeAppLoadConfig;
+
+/**
+ * Some tests for the order fills in the {@link DBBroker} class. The broker
+ * model only records the order states and fills it is sent.
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+public class DBBrokerTest {
+
+	private Contract contract = null;
+	private Date open = null;
+	private ClientWrapper brokerModel = null;
+	private final HashMap<Integer, String> orderStatus = new HashMap<Integer, String>();
+	private final List<TradeOrderfill> fills = new ArrayList<TradeOrderfill>();
+	private TradestrategyOrders positionOrders = null;
+	private TradeOrder target = null;
+	private TradeOrder stop = null;
+
+	/**
+	 * Method setUp.
+	 * 
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		TradeAppLoadConfig.loadAppProperties();
+		contract = new Contract("STK", "TEST", "SMART", "USD", null, null);
+		open = TradingCalendar.getSpecificTime(
+				TradingCalendar.getMostRecentTradingDay(new Date()), 9, 30);
+		brokerModel = (ClientWrapper) Proxy.newProxyInstance(
+				ClientWrapper.class.getClassLoader(),
+				new Class<?>[] { ClientWrapper.class },
+				new InvocationHandler() {
+					public Object invoke(Object proxy, Method method,
+							Object[] args) {
+						if ("openOrder".equals(method.getName())) {
+							orderStatus.put((Integer) args[0],
+									((OrderState) args[3]).m_status);
+						} else if ("execDetails".equals(method.getName())) {
+							fills.add((TradeOrderfill) args[2]);
+						}
+						return null;
+					}
+				});
+
+		/*
+		 * A long position of 1000 with a target and stop in an OCA group.
+		 */
+		target = createOrder(1, OrderType.LMT, null, 101d);
+		stop = createOrder(2, OrderType.STP, 99d, null);
+		positionOrders = new TradestrategyOrders();
+		positionOrders.setTradeOrders(new ArrayList<TradeOrder>());
+		positionOrders.addTradeOrder(target);
+		positionOrders.addTradeOrder(stop);
+	}
+
+	@Test
+	public void testPartialFillReducesOCAOrder() throws Exception {
+		DBBroker broker = new DBBroker(brokerModel, new BarFillModel(0.25, 1,
+				BigDecimal.ZERO, false, 0.005, 1));
+		assertTrue(broker.filledOrders(contract, positionOrders,
+				createCandle(100.5, 101.5, 100, 101.2, 1000)));
+
+		assertEquals(1, fills.size());
+		assertSame(target, fills.get(0).getTradeOrder());
+		assertEquals(250, fills.get(0).getQuantity().intValue());
+		assertEquals(OrderStatus.PARTIALFILLED, orderStatus.get(1));
+
+		/*
+		 * The stop is still working for the rest of the position.
+		 */
+		assertEquals(OrderStatus.SUBMITTED, orderStatus.get(2));
+		assertEquals(OrderStatus.SUBMITTED, stop.getStatus());
+		assertEquals(750, stop.getQuantity().intValue());
+	}
+
+	@Test
+	public void testFillCancelsOCAOrder() throws Exception {
+		DBBroker broker = new DBBroker(brokerModel, new BarFillModel(1, 1,
+				BigDecimal.ZERO, false, 0.005, 1));
+		assertTrue(broker.filledOrders(contract, positionOrders,
+				createCandle(100.5, 101.5, 100, 101.2, 10000)));
+
+		assertEquals(1, fills.size());
+		assertEquals(1000, fills.get(0).getQuantity().intValue());
+		assertEquals(OrderStatus.FILLED, orderStatus.get(1));
+		assertEquals(OrderStatus.CANCELLED, orderStatus.get(2));
+		assertEquals(1000, stop.getQuantity().intValue());
+	}
+
+	@Test
+	public void testPartialFillOfRemainingQuantity() throws Exception {
+		DBBroker broker = new DBBroker(brokerModel, new BarFillModel(0.25, 1,
+				BigDecimal.ZERO, false, 0.005, 1));
+		/*
+		 * The target was partially filled on an earlier candle and the stop
+		 * reduced, this candle fills the rest of the target.
+		 */
+		target.setStatus(OrderStatus.PARTIALFILLED);
+		target.setFilledQuantity(750);
+		target.setAverageFilledPrice(new BigDecimal(101));
+		stop.setQuantity(250);
+		assertTrue(broker.filledOrders(contract, positionOrders,
+				createCandle(100.5, 101.5, 100, 101.2, 1000)));
+
+		assertEquals(1, fills.size());
+		assertEquals(250, fills.get(0).getQuantity().intValue());
+		assertEquals(OrderStatus.FILLED, orderStatus.get(1));
+		assertEquals(OrderStatus.CANCELLED, orderStatus.get(2));
+	}
+
+	/**
+	 * Method createCandle.
+	 * 
+	 * @param open
+	 *            double
+	 * @param high
+	 *            double
+	 * @param low
+	 *            double
+	 * @param close
+	 *            double
+	 * @param volume
+	 *            long
+	 * @return Candle
+	 */
+	private Candle createCandle(double open, double high, double low,
+			double close, long volume) {
+		return new Candle(contract, new CandlePeriod(this.open, 60), open,
+				high, low, close, volume, close, 1, this.open);
+	}
+
+	/**
+	 * Method createOrder. A working sell order in the OCA group.
+	 * 
+	 * @param orderKey
+	 *            int
+	 * @param orderType
+	 *            String
+	 * @param auxPrice
+	 *            Double
+	 * @param limitPrice
+	 *            Double
+	 * @return TradeOrder
+	 */
+	private TradeOrder createOrder(int orderKey, String orderType,
+			Double auxPrice, Double limitPrice) {
+		TradeOrder order = new TradeOrder();
+		order.setOrderKey(orderKey);
+		order.setAction(Action.SELL);
+		order.setOrderType(orderType);
+		order.setQuantity(1000);
+		if (null != auxPrice)
+			order.setAuxPrice(new BigDecimal(auxPrice));
+		if (null != limitPrice)
+			order.setLimitPrice(new BigDecimal(limitPrice));
+		order.setOcaGroupName("OCA1");
+		order.setStatus(OrderStatus.SUBMITTED);
+		order.setTransmit(true);
+		order.setIsFilled(false);
+		order.setCreateDate(this.open);
+		return order;
+	}
+}
@@ -0,0 +1,140 @@
+/* ===========================================================
+ * TradeManager : a application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.dictionary.valuetype;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.trade.core.valuetype.Money;
+import org.trade.persistent.dao.Entrylimit;
+
+/**
+ * Some tests for the {@link EntryLimitIndex} class.
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+public class EntryLimitIndexTest {
+
+	private Entrylimit low = null;
+	private Entrylimit middle = null;
+	private Entrylimit high = null;
+	private EntryLimitIndex index = null;
+
+	/**
+	 * Method setUp.
+	 * 
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		low = new Entrylimit(new BigDecimal("0.00"), new BigDecimal("9.99"),
+				new BigDecimal("0.02"));
+		middle = new Entrylimit(new BigDecimal("10.00"),
+				new BigDecimal("20.00"), new BigDecimal("0.04"));
+		high = new Entrylimit(new BigDecimal("20.00"), new BigDecimal(
+				"99.995"), new BigDecimal("0.06"));
+		List<Entrylimit> entryLimits = new ArrayList<Entrylimit>();
+		// Out of order to check they are sorted.
+		entryLimits.add(high);
+		entryLimits.add(low);
+		entryLimits.add(middle);
+		entryLimits.add(new Entrylimit(null, null, null));
+		index = new EntryLimitIndex(entryLimits);
+	}
+
+	@Test
+	public void testGetValue() {
+		assertEquals(3, index.size());
+		assertSame(low, index.getValue(0d));
+		assertSame(low, index.getValue(5.5d));
+		assertSame(low, index.getValue(9.99d));
+		assertSame(middle, index.getValue(10d));
+		assertSame(middle, index.getValue(15.25d));
+		assertSame(high, index.getValue(20.01d));
+		assertSame(high, index.getValue(99.99d));
+		assertNull(index.getValue(100d));
+		assertNull(index.getValue(-1d));
+	}
+
+	@Test
+	public void testSharedBoundaryUsesLowerBand() {
+		assertSame(middle, index.getValue(20d));
+		assertSame(middle, index.getValue(new Money(20.00)));
+	}
+
+	@Test
+	public void testGetValueMoney() {
+		assertSame(low, index.getValue(new Money(9.99)));
+		assertSame(middle, index.getValue(new Money(9.999)));
+		assertSame(high, index.getValue(new Money(45.75)));
+		assertNull(index.getValue(new Money(100.00)));
+	}
+
+	@Test
+	public void testMatchesLinearScan() {
+		List<Entrylimit> entryLimits = new ArrayList<Entrylimit>();
+		entryLimits.add(low);
+		entryLimits.add(middle);
+		entryLimits.add(high);
+		for (int cents = -100; cents < 11000; cents++) {
+			BigDecimal price = new BigDecimal(cents).movePointLeft(2);
+			Entrylimit expected = null;
+			for (Entrylimit entryLimit : entryLimits) {
+				if (entryLimit.getStartPrice().compareTo(price) <= 0
+						&& entryLimit.getEndPrice().compareTo(price) >= 0) {
+					expected = entryLimit;
+					break;
+				}
+			}
+			assertSame("Price: " + price, expected,
+					index.getValue(cents / 100d));
+		}
+	}
+
+	@Test
+	public void testEmpty() {
+		EntryLimitIndex empty = new EntryLimitIndex(
+				new ArrayList<Entrylimit>());
+		assertEquals(0, empty.size());
+		assertNull(empty.getValue(20d));
+	}
+}
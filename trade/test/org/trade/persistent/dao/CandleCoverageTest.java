@@ -0,0 +1,178 @@
+/* ===========================================================
+ * TradeManager : a application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.persistent.dao;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.trade.core.util.TradingCalendar;
+
+/**
+ * Some tests for the {@link CandleCoverage} class.
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+public class CandleCoverageTest {
+
+	private Date open = null;
+	private Date close = null;
+
+	/**
+	 * Method setUp.
+	 * 
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		Date day = TradingCalendar.getMostRecentTradingDay(new Date());
+		open = TradingCalendar.getSpecificTime(day, 9, 30);
+		close = TradingCalendar.getSpecificTime(day, 16, 0);
+	}
+
+	@Test
+	public void testFiveMinuteCoverage() {
+		CandleCoverage coverage = new CandleCoverage(1, 300, open, close);
+		assertEquals(78, coverage.getSlotCount());
+		assertTrue(coverage.isEmpty());
+
+		Date startPeriod = open;
+		while (startPeriod.before(close)) {
+			assertTrue(coverage.addCandle(startPeriod));
+			startPeriod = TradingCalendar.addMinutes(startPeriod, 5);
+		}
+		assertTrue(coverage.isComplete());
+		assertFalse(coverage.addCandle(close));
+		assertFalse(coverage.addCandle(TradingCalendar.addMinutes(open, -5)));
+		assertEquals(78, coverage.getCandleCount());
+	}
+
+	@Test
+	public void testHourCoverage() {
+		/*
+		 * 60min bars start at 9:00am.
+		 */
+		CandleCoverage coverage = new CandleCoverage(1, 3600, open, close);
+		assertEquals(7, coverage.getSlotCount());
+		assertEquals(0,
+				coverage.getSlot(TradingCalendar.addMinutes(open, -30)));
+		assertEquals(6, coverage.getSlot(TradingCalendar.addMinutes(close,
+				-60)));
+	}
+
+	@Test
+	public void testMissingRange() {
+		List<CandleCoverage> coverages = new ArrayList<CandleCoverage>();
+		for (int i = 4; i >= 0; i--) {
+			Date dayOpen = TradingCalendar.addDays(open, -i);
+			CandleCoverage coverage = new CandleCoverage(1, 1, dayOpen,
+					TradingCalendar.getSpecificTime(close, dayOpen));
+			if (i != 3 && i != 1)
+				coverage.addCandle(dayOpen);
+			coverages.add(coverage);
+		}
+		List<CandleCoverage> missing = CandleCoverage
+				.getMissingRange(coverages);
+		assertEquals(3, missing.size());
+		assertSame(coverages.get(1), missing.get(0));
+		assertSame(coverages.get(3), missing.get(2));
+
+		coverages.get(1).addCandle(coverages.get(1).getOpen());
+		coverages.get(3).addCandle(coverages.get(3).getOpen());
+		assertTrue(CandleCoverage.getMissingRange(coverages).isEmpty());
+	}
+
+	@Test
+	public void testQuietBarsCovered() {
+		/*
+		 * Bars with no trades are not sent so a fetched day with gaps is
+		 * covered.
+		 */
+		CandleCoverage coverage = new CandleCoverage(1, 300, open, close);
+		coverage.addCandle(open);
+		coverage.addCandle(TradingCalendar.addMinutes(open, 10));
+		assertFalse(coverage.isComplete());
+		assertFalse(coverage.isCovered());
+		coverage.setFetched(true);
+		assertTrue(coverage.isCovered());
+
+		/*
+		 * Loaded from the DB, the last bar is stored so the day was saved
+		 * through to the close.
+		 */
+		coverage = new CandleCoverage(1, 300, open, close);
+		coverage.addCandle(open);
+		coverage.addCandle(TradingCalendar.addMinutes(close, -5));
+		assertFalse(coverage.isComplete());
+		assertTrue(coverage.isCovered());
+	}
+
+	@Test
+	public void testSetFetched() {
+		/*
+		 * A fetched range covers the days with no candles.
+		 */
+		Date firstOpen = TradingCalendar.getMostRecentTradingDay(TradingCalendar
+				.addDays(open, -7));
+		firstOpen = TradingCalendar.getSpecificTime(firstOpen, 9, 30);
+		Date lastOpen = TradingCalendar.getMostRecentTradingDay(TradingCalendar
+				.addDays(open, -1));
+		lastOpen = TradingCalendar.getSpecificTime(lastOpen, 9, 30);
+		Integer idContract = Integer.valueOf(Integer.MAX_VALUE);
+		try {
+			CandleCoverageIndex.setFetched(idContract, 300, firstOpen,
+					TradingCalendar.getSpecificTime(lastOpen, 16, 0));
+			Date day = firstOpen;
+			while (!day.after(lastOpen)) {
+				if (TradingCalendar.isTradingDay(day)) {
+					CandleCoverage coverage = CandleCoverageIndex
+							.get(CandleCoverage.getKey(idContract, 300, day));
+					assertNotNull(coverage);
+					assertTrue(coverage.isEmpty());
+					assertTrue(coverage.isCovered());
+				}
+				day = TradingCalendar.addDays(day, 1);
+			}
+		} finally {
+			CandleCoverageIndex.remove(idContract);
+		}
+	}
+}
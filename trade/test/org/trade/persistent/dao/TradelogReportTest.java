@@ -160,4 +160,35 @@ public class TradelogReportTest {
 			fail("Error adding row " + e.getMessage());
 		}
 	}
+
+	@Test
+	public void testRefreshTradelogPosition() {
+
+		try {
+			TradelogHome tradelogHome = new TradelogHome();
+			Portfolio portfolio = (Portfolio) DAOPortfolio.newInstance()
+					.getObject();
+			int rows = tradelogHome.refreshTradelogPosition(null);
+			_log.info("testRefreshTradelogPosition rows: " + rows);
+			TradelogReport tradelogReport = tradelogHome.findByTradelogSummary(
+					portfolio, TradingCalendar.getYearStart(),
+					TradingCalendar.getTodayBusinessDayEnd(), null,
+					new BigDecimal(0));
+			assertFalse(tradelogReport.getTradelogSummary().isEmpty());
+			TradelogSummary total = tradelogReport.getTradelogSummary()
+					.get(0);
+			assertEquals("Total", total.getPeriod());
+			int positionCount = 0;
+			for (TradelogSummary tradelogSummary : tradelogReport
+					.getTradelogSummary()) {
+				if (!"Total".equals(tradelogSummary.getPeriod()))
+					positionCount = positionCount
+							+ tradelogSummary.getPositionCount();
+			}
+			assertEquals(total.getPositionCount().intValue(), positionCount);
+
+		} catch (Exception e) {
+			fail("Error refreshing tradelog positions " + e.getMessage());
+		}
+	}
 }
@@ -38,9 +38,14 @@ package org.trade.persistent.dao;
 import static org.junit.Assert.*;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.Hashtable;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.After;
 import org.junit.AfterClass;
@@ -185,6 +190,121 @@ public class TradestrategyTest {
 		}
 	}
 
+	@Test
+	public void testConcurrentFindById() {
+		try {
+			final Tradestrategy tradestrategy = TradestrategyTest
+					.getTestTradestrategy(symbol);
+			assertNotNull(tradestrategy);
+			final Integer version = tradestrategyHome
+					.findVersionById(tradestrategy.getIdTradeStrategy());
+			assertNotNull(version);
+			final int finds = 200;
+			/*
+			 * Every find must return the same tradestrategy and version, each
+			 * thread has its own EntityManager.
+			 */
+			Callable<Integer> task = new Callable<Integer>() {
+				public Integer call() throws Exception {
+					int found = 0;
+					for (int i = 0; i < finds; i++) {
+						Tradestrategy instance = tradestrategyHome
+								.findById(tradestrategy.getIdTradeStrategy());
+						assertEquals(tradestrategy.getIdTradeStrategy(),
+								instance.getIdTradeStrategy());
+						assertEquals(tradestrategy.getContract().getSymbol(),
+								instance.getContract().getSymbol());
+						assertEquals(version, tradestrategyHome
+								.findVersionById(tradestrategy
+										.getIdTradeStrategy()));
+						found++;
+					}
+					return found;
+				}
+			};
+			int threads = 8;
+			ExecutorService executor = Executors.newFixedThreadPool(threads);
+			/*
+			 * Warm up then run the same finds one thread at a time as the DAO
+			 * monitor did and then on all the threads at once. The DAO is not
+			 * synchronized so the threads should not queue on it.
+			 */
+			assertEquals(finds, executor.submit(task).get().intValue());
+			long start = System.nanoTime();
+			for (int i = 0; i < threads; i++) {
+				assertEquals(finds, executor.submit(task).get().intValue());
+			}
+			long serialized = System.nanoTime() - start;
+
+			List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+			start = System.nanoTime();
+			for (int i = 0; i < threads; i++) {
+				futures.add(executor.submit(task));
+			}
+			for (Future<Integer> future : futures) {
+				assertEquals(finds, future.get().intValue());
+			}
+			long concurrent = System.nanoTime() - start;
+			executor.shutdown();
+			_log.info("testConcurrentFindById finds/sec serialized: "
+					+ (int) ((finds * threads) / (serialized / 1e9)) + " "
+					+ threads + " threads: "
+					+ (int) ((finds * threads) / (concurrent / 1e9)));
+			assertTrue("Concurrent finds took: " + concurrent
+					+ "ns serialized: " + serialized + "ns",
+					concurrent < serialized);
+
+		} catch (Exception e) {
+			fail("Error testConcurrentFindById Msg: " + e.getMessage());
+		}
+	}
+
+	@Test
+	public void testConcurrentPersistOverrideVersion() {
+		try {
+			final Tradestrategy tradestrategy = TradestrategyTest
+					.getTestTradestrategy(symbol);
+			assertNotNull(tradestrategy);
+			final AspectHome aspectHome = new AspectHome();
+			int threads = 8;
+			ExecutorService executor = Executors.newFixedThreadPool(threads);
+			List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+			for (int i = 0; i < threads; i++) {
+				final boolean lite = (i % 2 == 0);
+				futures.add(executor.submit(new Callable<Integer>() {
+					public Integer call() throws Exception {
+						/*
+						 * Every thread has the same version, overriding the
+						 * version locks the row so none of these fail. The
+						 * Tradestrategy and TradestrategyLite are the same row
+						 * so they share the lock.
+						 */
+						if (lite) {
+							TradestrategyLite instance = tradestrategyHome
+									.findTradestrategyLiteById(tradestrategy
+											.getIdTradeStrategy());
+							instance.setStatus(TradestrategyStatus.OPEN);
+							return aspectHome.persist(instance, true)
+									.getVersion();
+						}
+						Tradestrategy instance = tradestrategyHome
+								.findById(tradestrategy.getIdTradeStrategy());
+						instance.setStatus(TradestrategyStatus.OPEN);
+						return aspectHome.persist(instance, true).getVersion();
+					}
+				}));
+			}
+			for (Future<Integer> future : futures) {
+				assertNotNull(future.get());
+			}
+			executor.shutdown();
+
+		} catch (Exception e) {
+			fail("Error testConcurrentPersistOverrideVersion Msg: "
+					+ e.getMessage());
+		}
+	}
+
 	@Test
 	public void testUpdateTradeStrategy() {
 
@@ -36,9 +36,13 @@
 package org.trade.persistent.dao;
 
 import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.*;
 
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Level;
+import org.apache.log4j.spi.LoggingEvent;
 import org.jfree.data.DataUtilities;
 import org.junit.After;
 import org.junit.AfterClass;
@@ -158,4 +162,124 @@ public class TradingdayTest {
 			fail("Error adding row " + e.getMessage());
 		}
 	}
+
+	@Test
+	public void testFindTradingdaysByDateRange() {
+
+		try {
+			TradingdayHome tradingdayHome = new TradingdayHome();
+			Date open = TradingCalendar.getBusinessDayStart(TradingCalendar
+					.getMostRecentTradingDay(new Date()));
+			Date start = TradingCalendar.addBusinessDays(open, -20);
+			/*
+			 * Every statement the provider sends is logged to the SQL logger,
+			 * so counting those events counts the queries including any
+			 * collection read with its own select.
+			 */
+			StatementCounter statements = new StatementCounter();
+			org.apache.log4j.Logger sqlLogger = org.apache.log4j.Logger
+					.getLogger("org.hibernate.SQL");
+			Level level = sqlLogger.getLevel();
+			boolean additivity = sqlLogger.getAdditivity();
+			sqlLogger.setLevel(Level.DEBUG);
+			sqlLogger.setAdditivity(false);
+			sqlLogger.addAppender(statements);
+			try {
+				Tradingdays tradingdays = tradingdayHome
+						.findTradingdaysByDateRange(start, open);
+				/*
+				 * One query for the tradingdays and trade orders, then one for
+				 * the portfolio accounts and two for the indicator series when
+				 * there are tradestrategies. No collection is read with its own
+				 * select.
+				 */
+				int tradestrategyCount = 0;
+				for (Tradingday tradingday : tradingdays.getTradingdays()) {
+					tradestrategyCount += tradingday.getTradestrategies()
+							.size();
+				}
+				long queryCount = 1;
+				if (!tradingdays.getTradingdays().isEmpty())
+					queryCount = (tradestrategyCount == 0 ? 2 : 5);
+				assertEquals(queryCount, statements.getCount());
+				/*
+				 * The entity manager is closed so the details must have been
+				 * read by the fetch plan.
+				 */
+				for (Tradingday tradingday : tradingdays.getTradingdays()) {
+					for (Tradestrategy tradestrategy : tradingday
+							.getTradestrategies()) {
+						assertNotNull(tradestrategy.getContract().getSymbol());
+						tradestrategy.getTradeOrders().size();
+						tradestrategy.getPortfolio().getPortfolioAccounts()
+								.size();
+						tradestrategy.getStrategy().getIndicatorSeries().size();
+					}
+				}
+				statements.reset();
+				Tradingdays tradingdayList = tradingdayHome
+						.findTradingdayListByDateRange(start, open);
+				assertEquals(1, statements.getCount());
+				assertEquals(tradingdays.getTradingdays().size(),
+						tradingdayList.getTradingdays().size());
+				for (Tradingday tradingday : tradingdayList.getTradingdays()) {
+					Tradingday item = tradingdays.getTradingday(
+							tradingday.getOpen(), tradingday.getClose());
+					assertNotNull(item);
+					assertEquals(item.getTradestrategies().size(), tradingday
+							.getTradestrategies().size());
+				}
+			} finally {
+				sqlLogger.removeAppender(statements);
+				sqlLogger.setAdditivity(additivity);
+				sqlLogger.setLevel(level);
+			}
+		} catch (Exception e) {
+			fail("Error finding tradingdays " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Appender that counts the SQL statements logged by the persistence
+	 * provider.
+	 */
+	private static class StatementCounter extends AppenderSkeleton {
+
+		private final AtomicInteger count = new AtomicInteger(0);
+
+		/**
+		 * Method append.
+		 * 
+		 * @param event
+		 *            LoggingEvent
+		 */
+		protected void append(LoggingEvent event) {
+			count.incrementAndGet();
+		}
+
+		/**
+		 * Method getCount.
+		 * 
+		 * @return int
+		 */
+		public int getCount() {
+			return count.get();
+		}
+
+		public void reset() {
+			count.set(0);
+		}
+
+		public void close() {
+		}
+
+		/**
+		 * Method requiresLayout.
+		 * 
+		 * @return boolean
+		 */
+		public boolean requiresLayout() {
+			return false;
+		}
+	}
 }
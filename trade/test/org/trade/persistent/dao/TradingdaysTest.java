@@ -0,0 +1,287 @@
+/* ===========================================================
+ * TradeManager : a application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.persistent.dao;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.trade.core.util.TradingCalendar;
+
+/**
+ * Some tests for the indexes in the {@link Tradingdays} class.
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+public class TradingdaysTest {
+
+	private Tradingdays tradingdays = null;
+	private Tradingday today = null;
+	private Tradingday yesterday = null;
+	private int idTradestrategy = 0;
+
+	/**
+	 * Method setUp.
+	 * 
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		Date day = TradingCalendar.getMostRecentTradingDay(new Date());
+		today = new Tradingday(TradingCalendar.getSpecificTime(day, 9, 30),
+				TradingCalendar.getSpecificTime(day, 16, 0));
+		Date prevDay = TradingCalendar.getPrevTradingDay(day);
+		yesterday = new Tradingday(TradingCalendar.getSpecificTime(prevDay, 9,
+				30), TradingCalendar.getSpecificTime(prevDay, 16, 0));
+		addTradestrategy(today, "IBM");
+		addTradestrategy(yesterday, "IBM");
+		addTradestrategy(yesterday, "MSFT");
+		tradingdays = new Tradingdays();
+		tradingdays.add(today);
+		tradingdays.add(yesterday);
+	}
+
+	@Test
+	public void testLookups() {
+		assertSame(today,
+				tradingdays.getTradingday(today.getOpen(), today.getClose()));
+		assertTrue(tradingdays.containsTradingday(new Tradingday(yesterday
+				.getOpen(), yesterday.getClose())));
+		assertSame(yesterday.getTradestrategies().get(1),
+				tradingdays.getTradestrategy(3));
+		assertEquals("MSFT", tradingdays.getContract("MSFT").getSymbol());
+		assertNotNull(tradingdays.getContract("STK", "IBM", "SMART", "USD"));
+		assertNull(tradingdays.getContract("STK", "IBM", "NYSE", "USD"));
+		assertNull(tradingdays.getContract("AAPL"));
+	}
+
+	@Test
+	public void testRemoveAndClear() {
+		tradingdays.remove(yesterday.getOpen(), yesterday.getClose());
+		assertNull(tradingdays.getTradingday(yesterday.getOpen(),
+				yesterday.getClose()));
+		assertNull(tradingdays.getTradestrategy(3));
+		assertNotNull(tradingdays.getTradestrategy(1));
+
+		tradingdays.getTradingdays().clear();
+		assertFalse(tradingdays.containsTradingday(today));
+		assertNull(tradingdays.getTradestrategy(1));
+	}
+
+	@Test
+	public void testSubListAndIteratorRemove() {
+		tradingdays.getTradingdays().subList(1, 2).clear();
+		assertNull(tradingdays.getTradingday(yesterday.getOpen(),
+				yesterday.getClose()));
+		assertNull(tradingdays.getTradestrategy(3));
+		assertNotNull(tradingdays.getTradestrategy(1));
+
+		Iterator<Tradingday> iter = tradingdays.getTradingdays().iterator();
+		iter.next();
+		iter.remove();
+		assertFalse(tradingdays.containsTradingday(today));
+		assertNull(tradingdays.getTradestrategy(1));
+	}
+
+	@Test
+	public void testReorderKeepsIndex() {
+		Collections.reverse(tradingdays.getTradingdays());
+		assertSame(yesterday, tradingdays.getTradingdays().get(0));
+		assertSame(today,
+				tradingdays.getTradingday(today.getOpen(), today.getClose()));
+		assertSame(yesterday.getTradestrategies().get(1),
+				tradingdays.getTradestrategy(3));
+
+		Collections.sort(tradingdays.getTradingdays(), Tradingday.DATE_ORDER_ASC);
+		assertSame(today,
+				tradingdays.getTradingday(today.getOpen(), today.getClose()));
+		assertSame(yesterday,
+				tradingdays.getTradingday(yesterday.getOpen(),
+						yesterday.getClose()));
+		assertSame(today.getTradestrategies().get(0),
+				tradingdays.getTradestrategy(1));
+	}
+
+	@Test
+	public void testReplaceTradestrategyContract() {
+		Tradestrategy tradestrategy = yesterday.getTradestrategies().get(1);
+		Tradestrategy newTradestrategy = new Tradestrategy(new Contract(
+				"STK", "MSFT", "SMART", "USD", null, new BigDecimal(1)),
+				yesterday, tradestrategy.getStrategy(),
+				tradestrategy.getPortfolio(), new BigDecimal(100), null, null,
+				true, 2, 300);
+		newTradestrategy.setIdTradeStrategy(tradestrategy.getIdTradeStrategy());
+		tradingdays.replaceTradestrategy(newTradestrategy);
+		assertSame(newTradestrategy,
+				tradingdays.getTradestrategy(tradestrategy.getIdTradeStrategy()));
+		assertSame(newTradestrategy.getContract(),
+				tradingdays.getContract("MSFT"));
+	}
+
+	@Test
+	public void testMerge() {
+		Tradingdays imported = new Tradingdays();
+		Tradingday importedToday = new Tradingday(today.getOpen(),
+				today.getClose());
+		Tradestrategy msft = addTradestrategy(importedToday, "MSFT");
+		Tradestrategy ibm = addTradestrategy(importedToday, "IBM");
+		imported.add(importedToday);
+		Tradingday tomorrow = new Tradingday(new Date(today.getOpen()
+				.getTime() + 86400000L), new Date(today.getClose().getTime()
+				+ 86400000L));
+		Tradestrategy aapl = addTradestrategy(tomorrow, "AAPL");
+		imported.add(tomorrow);
+
+		tradingdays.merge(imported);
+		assertEquals(3, tradingdays.getTradingdays().size());
+		assertSame(tomorrow,
+				tradingdays.getTradingday(tomorrow.getOpen(),
+						tomorrow.getClose()));
+		assertSame(aapl,
+				tradingdays.getTradestrategy(aapl.getIdTradeStrategy()));
+		assertSame(today, msft.getTradingday());
+		assertSame(msft,
+				tradingdays.getTradestrategy(msft.getIdTradeStrategy()));
+		assertSame(yesterday.getTradestrategies().get(1).getContract(),
+				msft.getContract());
+		// IBM was already on today
+		assertEquals(2, today.getTradestrategies().size());
+		assertNull(tradingdays.getTradestrategy(ibm.getIdTradeStrategy()));
+	}
+
+	@Test
+	public void testTradestrategyChangedOnTradingday() {
+		/*
+		 * Tradestrategies added or removed on the Tradingday directly are
+		 * still found.
+		 */
+		Tradestrategy tradestrategy = addTradestrategy(today, "AAPL");
+		assertSame(tradestrategy,
+				tradingdays.getTradestrategy(tradestrategy.getIdTradeStrategy()));
+		assertNotNull(tradingdays.getContract("AAPL"));
+
+		today.getTradestrategies().remove(tradestrategy);
+		assertNull(tradingdays.getTradestrategy(tradestrategy
+				.getIdTradeStrategy()));
+	}
+
+	@Test
+	public void testContractNotInView() {
+		Contract msft = tradingdays.getContract("MSFT");
+		assertNotNull(msft);
+		assertSame(yesterday.getTradestrategies().get(0).getContract(),
+				tradingdays.getContract("IBM"));
+		tradingdays.remove(yesterday.getOpen(), yesterday.getClose());
+		assertNull(tradingdays.getContract("MSFT"));
+		assertNull(tradingdays.getContract("STK", "MSFT", "SMART", "USD"));
+		/*
+		 * IBM is still on today so the scan finds that contract.
+		 */
+		assertSame(today.getTradestrategies().get(0).getContract(),
+				tradingdays.getContract("IBM"));
+		assertSame(today.getTradestrategies().get(0).getContract(),
+				tradingdays.getContract("STK", "IBM", "SMART", "USD"));
+
+		Tradestrategy aapl = addTradestrategy(today, "AAPL");
+		assertSame(aapl.getContract(), tradingdays.getContract("AAPL"));
+		today.getTradestrategies().remove(aapl);
+		assertNull(tradingdays.getContract("AAPL"));
+
+		/*
+		 * An import does not pick up the contract that has gone.
+		 */
+		Tradingdays imported = new Tradingdays();
+		Tradingday importedToday = new Tradingday(today.getOpen(),
+				today.getClose());
+		Tradestrategy importedMsft = addTradestrategy(importedToday, "MSFT");
+		Contract contract = importedMsft.getContract();
+		imported.add(importedToday);
+		tradingdays.merge(imported);
+		assertSame(contract, importedMsft.getContract());
+		assertNotSame(msft, tradingdays.getContract("MSFT"));
+	}
+
+	@Test
+	public void testReplace() {
+		Tradingday newToday = new Tradingday(today.getOpen(), today.getClose());
+		Tradestrategy tradestrategy = addTradestrategy(newToday, "IBM");
+		tradingdays.replaceTradingday(newToday);
+		assertSame(newToday,
+				tradingdays.getTradingday(today.getOpen(), today.getClose()));
+		assertSame(tradestrategy,
+				tradingdays.getTradestrategy(tradestrategy.getIdTradeStrategy()));
+		assertEquals(2, tradingdays.getTradingdays().size());
+
+		List<Tradingday> items = new ArrayList<Tradingday>();
+		items.add(yesterday);
+		tradingdays.setTradingdays(items);
+		assertNull(tradingdays.getTradingday(today.getOpen(), today.getClose()));
+		assertSame(yesterday.getTradestrategies().get(0),
+				tradingdays.getTradestrategy(2));
+	}
+
+	/**
+	 * Method addTradestrategy.
+	 * 
+	 * @param tradingday
+	 *            Tradingday
+	 * @param symbol
+	 *            String
+	 * @return Tradestrategy
+	 */
+	private Tradestrategy addTradestrategy(Tradingday tradingday, String symbol) {
+		Contract contract = new Contract("STK", symbol, "SMART", "USD", null,
+				new BigDecimal(1));
+		Strategy strategy = new Strategy();
+		strategy.setName("Test");
+		Portfolio portfolio = new Portfolio();
+		portfolio.setName("Test");
+		Tradestrategy tradestrategy = new Tradestrategy(contract, tradingday,
+				strategy, portfolio, new BigDecimal(100), null, null, true, 2,
+				300);
+		tradestrategy.setIdTradeStrategy(++idTradestrategy);
+		tradingday.addTradestrategy(tradestrategy);
+		return tradestrategy;
+	}
+}
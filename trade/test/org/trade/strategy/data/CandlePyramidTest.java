@@ -0,0 +1,320 @@
+/* ===========================================================
+ * TradeManager : a application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.strategy.data;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.jfree.data.xy.XYDataset;
+import org.junit.Before;
+import org.junit.Test;
+import org.trade.core.util.TradingCalendar;
+import org.trade.dictionary.valuetype.CalculationType;
+import org.trade.persistent.dao.Candle;
+import org.trade.persistent.dao.Contract;
+import org.trade.persistent.dao.Strategy;
+import org.trade.persistent.dao.Tradingday;
+import org.trade.strategy.data.candle.CandleItem;
+import org.trade.strategy.data.candle.CandlePeriod;
+
+/**
+ * Some tests for the {@link CandlePyramid} used by
+ * {@link StrategyData#changeCandleSeriesPeriod(int)}.
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+public class CandlePyramidTest {
+
+	private Contract contract = null;
+	private Tradingday tradingday = null;
+	private Strategy strategy = null;
+	private List<Candle> candles = null;
+
+	/**
+	 * Method setUp.
+	 * 
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		Date day = TradingCalendar.getMostRecentTradingDay(new Date());
+		tradingday = new Tradingday(TradingCalendar.getSpecificTime(day, 9,
+				30), TradingCalendar.getSpecificTime(day, 16, 0));
+		contract = new Contract("STK", "TEST", "SMART", "USD", null, null);
+
+		strategy = new Strategy("Test");
+		List<IndicatorSeries> indicators = new ArrayList<IndicatorSeries>();
+		MovingAverageSeries movingAverage = new MovingAverageSeries(strategy,
+				"20-EMA", IndicatorSeries.MovingAverageSeries, "20-EMA", true,
+				0, false, CalculationType.EXPONENTIAL, 20);
+		movingAverage.setPriceSource(1);
+		indicators.add(movingAverage);
+		RelativeStrengthIndexSeries relativeStrengthIndex = new RelativeStrengthIndexSeries(
+				strategy, "RSI", IndicatorSeries.RelativeStrengthIndexSeries,
+				"RSI", true, 0, true, 14);
+		relativeStrengthIndex.setRollingCandle(false);
+		indicators.add(relativeStrengthIndex);
+		AverageTrueRangeSeries averageTrueRange = new AverageTrueRangeSeries(
+				strategy, "ATR", IndicatorSeries.AverageTrueRangeSeries,
+				"ATR", true, 0, true, 14);
+		averageTrueRange.setRollingCandle(true);
+		indicators.add(averageTrueRange);
+		strategy.setIndicatorSeries(indicators);
+
+		Random random = new Random(39);
+		candles = new ArrayList<Candle>();
+		double close = 100;
+		for (int minute = 0; minute < 390; minute++) {
+			double open = close;
+			close = Math.max(1, close + random.nextGaussian());
+			CandlePeriod period = new CandlePeriod(TradingCalendar.addMinutes(
+					tradingday.getOpen(), minute), 60);
+			candles.add(new Candle(contract, tradingday, period, open, Math
+					.max(open, close) + 0.25, Math.min(open, close) - 0.25,
+					close, 100L + minute, close, 1, new Date()));
+		}
+	}
+
+	@Test
+	public void testChangePeriodReusesLevel() throws Exception {
+		StrategyData strategyData = createStrategyData(60);
+		CandleDataset.populateSeries(strategyData, candles);
+		IndicatorSeries baseSeries = getIndicatorSeries(strategyData);
+
+		strategyData.changeCandleSeriesPeriod(300);
+		IndicatorSeries levelSeries = getIndicatorSeries(strategyData);
+		assertNotSame(baseSeries, levelSeries);
+		assertSameChart(createReference(300, candles.size()), strategyData);
+
+		strategyData.changeCandleSeriesPeriod(60);
+		assertSame(baseSeries, getIndicatorSeries(strategyData));
+		assertEquals(390, strategyData.getCandleDataset().getSeries(0)
+				.getItemCount());
+
+		strategyData.changeCandleSeriesPeriod(300);
+		assertSame(levelSeries, getIndicatorSeries(strategyData));
+		assertSameChart(createReference(300, candles.size()), strategyData);
+	}
+
+	@Test
+	public void testLevelUpdatedByNewCandles() throws Exception {
+		StrategyData strategyData = createStrategyData(60);
+		CandleDataset.populateSeries(strategyData, candles.subList(0, 300));
+		strategyData.changeCandleSeriesPeriod(300);
+		for (Candle candle : candles.subList(300, candles.size())) {
+			buildCandle(strategyData, candle, 1);
+		}
+		assertEquals(390, strategyData.getBaseCandleSeries().getItemCount());
+		assertSameChart(createReference(300, 300), strategyData);
+
+		/*
+		 * The base bar size indicators were kept up to date while the chart
+		 * showed the larger bar size.
+		 */
+		strategyData.changeCandleSeriesPeriod(60);
+		assertSameChart(createReference(60, 300), strategyData);
+	}
+
+	@Test
+	public void testChangePeriodWhileCandlesArrive() throws Exception {
+		final StrategyData strategyData = createStrategyData(60);
+		CandleDataset.populateSeries(strategyData, candles.subList(0, 200));
+		final List<Throwable> errors = new ArrayList<Throwable>();
+		Thread builder = new Thread(new Runnable() {
+			public void run() {
+				try {
+					for (Candle candle : candles.subList(200, candles.size())) {
+						buildCandle(strategyData, candle, 1);
+					}
+				} catch (Throwable ex) {
+					errors.add(ex);
+				}
+			}
+		});
+		builder.start();
+		int[] periods = { 300, 120, 600, 900, 1800, 60 };
+		for (int period : periods) {
+			strategyData.changeCandleSeriesPeriod(period);
+		}
+		builder.join();
+		assertTrue(errors.toString(), errors.isEmpty());
+
+		/*
+		 * Each base candle was built on each level once. The indicators
+		 * depend on how many candles there were when the level was added so
+		 * only the candles are compared.
+		 */
+		for (int period : periods) {
+			strategyData.changeCandleSeriesPeriod(period);
+			assertSameCandles(createReference(period, candles.size()),
+					strategyData);
+		}
+	}
+
+	/**
+	 * Method assertSameCandles.
+	 * 
+	 * @param expected
+	 *            StrategyData
+	 * @param actual
+	 *            StrategyData
+	 */
+	private void assertSameCandles(StrategyData expected, StrategyData actual) {
+		CandleSeries expectedSeries = expected.getCandleDataset().getSeries(0);
+		CandleSeries actualSeries = actual.getCandleDataset().getSeries(0);
+		assertEquals(expectedSeries.getItemCount(),
+				actualSeries.getItemCount());
+		for (int i = 0; i < expectedSeries.getItemCount(); i++) {
+			CandleItem expectedItem = (CandleItem) expectedSeries
+					.getDataItem(i);
+			CandleItem actualItem = (CandleItem) actualSeries.getDataItem(i);
+			assertEquals(expectedItem.getPeriod(), actualItem.getPeriod());
+			assertEquals(expectedItem.getOpen(), actualItem.getOpen(), 0);
+			assertEquals(expectedItem.getHigh(), actualItem.getHigh(), 0);
+			assertEquals(expectedItem.getLow(), actualItem.getLow(), 0);
+			assertEquals(expectedItem.getClose(), actualItem.getClose(), 0);
+			assertEquals(expectedItem.getVolume(), actualItem.getVolume());
+		}
+	}
+
+	/**
+	 * Method assertSameChart.
+	 * 
+	 * @param expected
+	 *            StrategyData
+	 * @param actual
+	 *            StrategyData
+	 */
+	private void assertSameChart(StrategyData expected, StrategyData actual) {
+		String[] types = { IndicatorSeries.MovingAverageSeries,
+				IndicatorSeries.RelativeStrengthIndexSeries,
+				IndicatorSeries.AverageTrueRangeSeries };
+		List<XYDataset> expectedDatasets = new ArrayList<XYDataset>();
+		List<XYDataset> actualDatasets = new ArrayList<XYDataset>();
+		expectedDatasets.add(expected.getCandleDataset());
+		actualDatasets.add(actual.getCandleDataset());
+		for (String type : types) {
+			expectedDatasets.add((XYDataset) expected.getIndicatorByType(type));
+			actualDatasets.add((XYDataset) actual.getIndicatorByType(type));
+		}
+		for (int x = 0; x < expectedDatasets.size(); x++) {
+			XYDataset expectedDataset = expectedDatasets.get(x);
+			XYDataset actualDataset = actualDatasets.get(x);
+			assertTrue(expectedDataset.getItemCount(0) > 0);
+			assertEquals(expectedDataset.getItemCount(0),
+					actualDataset.getItemCount(0));
+			for (int i = 0; i < expectedDataset.getItemCount(0); i++) {
+				assertEquals(expectedDataset.getXValue(0, i),
+						actualDataset.getXValue(0, i), 0);
+				assertEquals(expectedDataset.getYValue(0, i),
+						actualDataset.getYValue(0, i), 0);
+			}
+		}
+	}
+
+	/**
+	 * Method createReference. Bulk load the first candles into a base series
+	 * of the bar size then build the rest one by one.
+	 * 
+	 * @param barSize
+	 *            int
+	 * @param bulkLoadCount
+	 *            int
+	 * @return StrategyData
+	 */
+	private StrategyData createReference(int barSize, int bulkLoadCount) {
+		StrategyData strategyData = createStrategyData(barSize);
+		strategyData.beginBulkLoad();
+		for (Candle candle : candles.subList(0, bulkLoadCount)) {
+			buildCandle(strategyData, candle, barSize / 60);
+		}
+		strategyData.endBulkLoad();
+		for (Candle candle : candles.subList(bulkLoadCount, candles.size())) {
+			buildCandle(strategyData, candle, barSize / 60);
+		}
+		return strategyData;
+	}
+
+	/**
+	 * Method getIndicatorSeries.
+	 * 
+	 * @param strategyData
+	 *            StrategyData
+	 * @return IndicatorSeries
+	 */
+	private IndicatorSeries getIndicatorSeries(StrategyData strategyData) {
+		return strategyData.getIndicatorByType(
+				IndicatorSeries.MovingAverageSeries).getSeries(0);
+	}
+
+	/**
+	 * Method createStrategyData.
+	 * 
+	 * @param barSize
+	 *            int
+	 * @return StrategyData
+	 */
+	private StrategyData createStrategyData(int barSize) {
+		CandleDataset candleDataset = new CandleDataset();
+		candleDataset.addSeries(new CandleSeries("TEST", contract, barSize,
+				tradingday.getOpen(), tradingday.getClose()));
+		return new StrategyData(strategy, candleDataset);
+	}
+
+	/**
+	 * Method buildCandle.
+	 * 
+	 * @param strategyData
+	 *            StrategyData
+	 * @param candle
+	 *            Candle
+	 * @param rollupInterval
+	 *            int
+	 */
+	private void buildCandle(StrategyData strategyData, Candle candle,
+			int rollupInterval) {
+		strategyData.buildCandle(candle.getStartPeriod(), candle.getOpen()
+				.doubleValue(), candle.getHigh().doubleValue(), candle
+				.getLow().doubleValue(), candle.getClose().doubleValue(),
+				candle.getVolume(), candle.getVwap().doubleValue(), candle
+						.getTradeCount(), rollupInterval, null);
+	}
+}
@@ -0,0 +1,247 @@
+/* ===========================================================
+ * TradeManager : a application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.strategy.data;
+
+import static org.junit.Assert.*;
+
+import java.util.Date;
+import java.util.Random;
+
+import org.jfree.data.general.SeriesChangeEvent;
+import org.jfree.data.general.SeriesChangeListener;
+import org.junit.Before;
+import org.junit.Test;
+import org.trade.core.util.TradingCalendar;
+import org.trade.dictionary.valuetype.CalculationType;
+import org.trade.persistent.dao.Contract;
+import org.trade.persistent.dao.Tradingday;
+import org.trade.strategy.data.atr.AverageTrueRangeItem;
+import org.trade.strategy.data.candle.CandlePeriod;
+import org.trade.strategy.data.macd.MACDItem;
+import org.trade.strategy.data.movingaverage.MovingAverageItem;
+import org.trade.strategy.data.rsi.RelativeStrengthIndexItem;
+
+/**
+ * Checks the batch createSeries of the indicator series gives the same values
+ * as the streaming updateSeries and leaves the same state for the bars that
+ * follow.
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+public class IndicatorSeriesBatchTest {
+
+	private Contract contract = null;
+	private Tradingday tradingday = null;
+	private double[] prices = null;
+
+	/**
+	 * Method setUp.
+	 * 
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		Date day = TradingCalendar.getMostRecentTradingDay(new Date());
+		tradingday = new Tradingday(TradingCalendar.getSpecificTime(day, 9,
+				30), TradingCalendar.getSpecificTime(day, 16, 0));
+		contract = new Contract("STK", "TEST", "SMART", "USD", null, null);
+		Random random = new Random(20);
+		prices = new double[391];
+		prices[0] = 100;
+		for (int i = 1; i < prices.length; i++) {
+			prices[i] = Math.max(1, prices[i - 1] + random.nextGaussian());
+		}
+	}
+
+	@Test
+	public void testMovingAverageSeries() throws Exception {
+		String[] calcTypes = { CalculationType.LINEAR,
+				CalculationType.EXPONENTIAL, CalculationType.WEIGHTED,
+				CalculationType.WEIGHTED_VOLUME, CalculationType.TRIANGULAR };
+		for (String calcType : calcTypes) {
+			for (int priceSource = 1; priceSource < 8; priceSource++) {
+				MovingAverageSeries series = new MovingAverageSeries();
+				series.setMAType(calcType);
+				series.setLength(9);
+				series.setPriceSource(priceSource);
+				assertBatchMatchesStreaming(series);
+			}
+		}
+	}
+
+	@Test
+	public void testMACDSeries() throws Exception {
+		for (int i = 0; i < 2; i++) {
+			MACDSeries series = new MACDSeries();
+			series.setFastLength(12);
+			series.setSlowLength(26);
+			series.setSignalSmoothing(9);
+			series.setSimpleMAType(i == 0);
+			assertBatchMatchesStreaming(series);
+		}
+	}
+
+	@Test
+	public void testRelativeStrengthIndexSeries() throws Exception {
+		RelativeStrengthIndexSeries series = new RelativeStrengthIndexSeries();
+		series.setLength(14);
+		series.setRollingCandle(false);
+		assertBatchMatchesStreaming(series);
+	}
+
+	@Test
+	public void testAverageTrueRangeSeries() throws Exception {
+		AverageTrueRangeSeries series = new AverageTrueRangeSeries();
+		series.setLength(14);
+		series.setRollingCandle(false);
+		assertBatchMatchesStreaming(series);
+	}
+
+	/**
+	 * Method assertBatchMatchesStreaming. Builds one copy of the series bar by
+	 * bar with updateSeries and one with createSeries over all but the last
+	 * bar, then adds the last bar to both with updateSeries.
+	 * 
+	 * @param indicator
+	 *            IndicatorSeries
+	 */
+	private void assertBatchMatchesStreaming(IndicatorSeries indicator)
+			throws Exception {
+
+		IndicatorSeries streaming = (IndicatorSeries) indicator.clone();
+		CandleSeries streamingSource = createCandleSeries();
+		for (int i = 0; i < prices.length - 1; i++) {
+			addCandle(streamingSource, i);
+			streaming.updateSeries(streamingSource, i, true);
+		}
+
+		IndicatorSeries batch = (IndicatorSeries) indicator.clone();
+		final int[] events = { 0 };
+		batch.addChangeListener(new SeriesChangeListener() {
+			public void seriesChanged(SeriesChangeEvent event) {
+				events[0]++;
+			}
+		});
+		CandleSeries batchSource = createCandleSeries();
+		for (int i = 0; i < prices.length - 1; i++) {
+			addCandle(batchSource, i);
+		}
+		CandleDataset dataset = new CandleDataset();
+		dataset.addSeries(batchSource);
+		batch.createSeries(dataset, 0);
+		assertEquals(1, events[0]);
+		assertSameValues(streaming, batch);
+
+		int last = prices.length - 1;
+		addCandle(streamingSource, last);
+		streaming.updateSeries(streamingSource, last, true);
+		addCandle(batchSource, last);
+		batch.updateSeries(batchSource, last, true);
+		assertSameValues(streaming, batch);
+	}
+
+	/**
+	 * Method assertSameValues.
+	 * 
+	 * @param expected
+	 *            IndicatorSeries
+	 * @param actual
+	 *            IndicatorSeries
+	 */
+	private void assertSameValues(IndicatorSeries expected,
+			IndicatorSeries actual) {
+		assertTrue(expected.getItemCount() > 0);
+		assertEquals(expected.getItemCount(), actual.getItemCount());
+		for (int i = 0; i < expected.getItemCount(); i++) {
+			assertEquals(0,
+					expected.getDataItem(i).compareTo(actual.getDataItem(i)));
+			double[] expectedValues = getValues(expected.getDataItem(i));
+			double[] actualValues = getValues(actual.getDataItem(i));
+			for (int x = 0; x < expectedValues.length; x++) {
+				assertEquals(expectedValues[x], actualValues[x], 0);
+			}
+		}
+	}
+
+	/**
+	 * Method getValues.
+	 * 
+	 * @param item
+	 *            Object
+	 * @return double[]
+	 */
+	private double[] getValues(Object item) {
+		if (item instanceof MACDItem) {
+			MACDItem macdItem = (MACDItem) item;
+			return new double[] { macdItem.getMACD(),
+					macdItem.getSignalLine(), macdItem.getMACDHistogram() };
+		} else if (item instanceof MovingAverageItem) {
+			return new double[] { ((MovingAverageItem) item).getY() };
+		} else if (item instanceof RelativeStrengthIndexItem) {
+			return new double[] { ((RelativeStrengthIndexItem) item).getY() };
+		}
+		return new double[] { ((AverageTrueRangeItem) item).getY() };
+	}
+
+	/**
+	 * Method createCandleSeries.
+	 * 
+	 * @return CandleSeries
+	 */
+	private CandleSeries createCandleSeries() {
+		return new CandleSeries("TEST", contract, 60, tradingday.getOpen(),
+				tradingday.getClose());
+	}
+
+	/**
+	 * Method addCandle.
+	 * 
+	 * @param candleSeries
+	 *            CandleSeries
+	 * @param minute
+	 *            int
+	 */
+	private void addCandle(CandleSeries candleSeries, int minute) {
+		double price = prices[minute];
+		double open = minute == 0 ? price : prices[minute - 1];
+		candleSeries.add(contract, tradingday, new CandlePeriod(
+				TradingCalendar.addMinutes(tradingday.getOpen(), minute), 60),
+				open, Math.max(open, price) + 0.25,
+				Math.min(open, price) - 0.25, price, 100 + (minute % 7) * 10,
+				price, 1, new Date());
+	}
+}
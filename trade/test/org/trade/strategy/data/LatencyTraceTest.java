@@ -0,0 +1,156 @@
+/* ===========================================================
+ * TradeManager : a application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.strategy.data;
+
+import static org.junit.Assert.*;
+
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.util.Date;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.trade.core.util.LatencyHistogram;
+import org.trade.core.util.TradingCalendar;
+import org.trade.persistent.dao.Contract;
+import org.trade.persistent.dao.Portfolio;
+import org.trade.persistent.dao.Strategy;
+import org.trade.persistent.dao.Tradestrategy;
+import org.trade.persistent.dao.Tradingday;
+
+/**
+ * Some tests for the {@link LatencyTrace} and {@link LatencyTracer} classes.
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+public class LatencyTraceTest {
+
+	private Tradestrategy tradestrategy = null;
+
+	/**
+	 * Method setUp.
+	 * 
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		Date day = TradingCalendar.getMostRecentTradingDay(new Date());
+		Tradingday tradingday = new Tradingday(
+				TradingCalendar.getSpecificTime(day, 9, 30),
+				TradingCalendar.getSpecificTime(day, 16, 0));
+		Contract contract = new Contract("STK", "LATENCY", "SMART", "USD",
+				null, new BigDecimal(1));
+		tradestrategy = new Tradestrategy(contract, tradingday, new Strategy(
+				"Test"), new Portfolio("Test", "Test"), new BigDecimal(100),
+				"BOT", "1", true, 2, 300);
+		LatencyTracer.reset();
+	}
+
+	@Test
+	public void testStagesRecorded() throws Exception {
+		StrategyData strategyData = tradestrategy.getStrategyData();
+		LatencyTrace trace = strategyData.getLatencyTrace();
+		trace.setStrategy("LatencyTestStrategy");
+
+		Date time = tradestrategy.getTradingday().getOpen();
+		trace.barReceived(System.nanoTime());
+		strategyData.buildCandle(time, 100, 101, 99, 100, 1000, 100, 10, 60,
+				null);
+		trace.strategyStarted();
+		trace.strategyCompleted();
+		long start = System.nanoTime();
+		trace.orderPlaced(start, start + 5000);
+
+		LatencyHistogram[] contract = LatencyTracer.getHistograms(
+				LatencyTracer.CONTRACT, "LATENCY");
+		LatencyHistogram[] strategy = LatencyTracer.getHistograms(
+				LatencyTracer.STRATEGY, "LatencyTestStrategy");
+		for (int stage = 0; stage < LatencyTracer.STAGES.length; stage++) {
+			assertEquals(LatencyTracer.STAGES[stage], 1,
+					contract[stage].getCount());
+			assertEquals(LatencyTracer.STAGES[stage], 1,
+					strategy[stage].getCount());
+		}
+		assertEquals(5000, contract[LatencyTracer.PLACE_ORDER].getMax());
+
+		/*
+		 * A candle built without a bar from the broker has no queue time.
+		 */
+		strategyData.buildCandle(time, 100, 101, 99, 100, 1000, 100, 10, 60,
+				null);
+		assertEquals(1, contract[LatencyTracer.QUEUE].getCount());
+		assertEquals(2, contract[LatencyTracer.BUILD_CANDLE].getCount());
+	}
+
+	@Test
+	public void testWriteCSV() throws Exception {
+		StrategyData strategyData = tradestrategy.getStrategyData();
+		strategyData.buildCandle(tradestrategy.getTradingday().getOpen(),
+				100, 101, 99, 100, 1000, 100, 10, 60, null);
+
+		StringWriter writer = new StringWriter();
+		LatencyTracer.writeCSV(writer);
+		String[] lines = writer.toString().split(
+				System.getProperty("line.separator"));
+		assertTrue(lines[0].startsWith("Group,Name,Stage,Count"));
+		boolean found = false;
+		for (String line : lines) {
+			if (line.startsWith("Contract,LATENCY,Build Candle,1,"))
+				found = true;
+			if (line.length() > 0)
+				assertEquals(line, LatencyTracer.COLUMNS.length,
+						line.split(",").length);
+		}
+		assertTrue(found);
+	}
+
+	@Test
+	public void testDisabled() throws Exception {
+		LatencyTracer.setEnabled(false);
+		try {
+			StrategyData strategyData = tradestrategy.getStrategyData();
+			strategyData.buildCandle(tradestrategy.getTradingday().getOpen(),
+					100, 101, 99, 100, 1000, 100, 10, 60, null);
+			assertEquals(
+					0,
+					LatencyTracer.getHistograms(LatencyTracer.CONTRACT,
+							"LATENCY")[LatencyTracer.BUILD_CANDLE].getCount());
+		} finally {
+			LatencyTracer.setEnabled(true);
+		}
+	}
+}
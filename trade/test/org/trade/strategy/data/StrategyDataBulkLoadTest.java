@@ -0,0 +1,270 @@
+/* ===========================================================
+ * TradeManager : a application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.strategy.data;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.jfree.data.general.SeriesChangeEvent;
+import org.jfree.data.general.SeriesChangeListener;
+import org.jfree.data.xy.XYDataset;
+import org.junit.Before;
+import org.junit.Test;
+import org.trade.core.util.TradingCalendar;
+import org.trade.dictionary.valuetype.CalculationType;
+import org.trade.persistent.dao.Candle;
+import org.trade.persistent.dao.Contract;
+import org.trade.persistent.dao.Strategy;
+import org.trade.persistent.dao.Tradingday;
+import org.trade.strategy.data.candle.CandlePeriod;
+
+/**
+ * Some tests for the bulk load of candles into {@link StrategyData}.
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+public class StrategyDataBulkLoadTest {
+
+	private Contract contract = null;
+	private Tradingday tradingday = null;
+	private Strategy strategy = null;
+	private List<Candle> candles = null;
+
+	/**
+	 * Method setUp.
+	 * 
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		Date day = TradingCalendar.getMostRecentTradingDay(new Date());
+		tradingday = new Tradingday(TradingCalendar.getSpecificTime(day, 9,
+				30), TradingCalendar.getSpecificTime(day, 16, 0));
+		contract = new Contract("STK", "TEST", "SMART", "USD", null, null);
+
+		strategy = new Strategy("Test");
+		List<IndicatorSeries> indicators = new ArrayList<IndicatorSeries>();
+		MovingAverageSeries movingAverage = new MovingAverageSeries(strategy,
+				"20-EMA", IndicatorSeries.MovingAverageSeries, "20-EMA", true,
+				0, false, CalculationType.EXPONENTIAL, 20);
+		movingAverage.setPriceSource(1);
+		indicators.add(movingAverage);
+		RelativeStrengthIndexSeries relativeStrengthIndex = new RelativeStrengthIndexSeries(
+				strategy, "RSI", IndicatorSeries.RelativeStrengthIndexSeries,
+				"RSI", true, 0, true, 14);
+		relativeStrengthIndex.setRollingCandle(false);
+		indicators.add(relativeStrengthIndex);
+		AverageTrueRangeSeries averageTrueRange = new AverageTrueRangeSeries(
+				strategy, "ATR", IndicatorSeries.AverageTrueRangeSeries,
+				"ATR", true, 0, true, 14);
+		averageTrueRange.setRollingCandle(true);
+		indicators.add(averageTrueRange);
+		strategy.setIndicatorSeries(indicators);
+
+		Random random = new Random(38);
+		candles = new ArrayList<Candle>();
+		double close = 100;
+		for (int minute = 0; minute < 390; minute++) {
+			double open = close;
+			close = Math.max(1, close + random.nextGaussian());
+			CandlePeriod period = new CandlePeriod(TradingCalendar.addMinutes(
+					tradingday.getOpen(), minute), 60);
+			candles.add(new Candle(contract, tradingday, period, open, Math
+					.max(open, close) + 0.25, Math.min(open, close) - 0.25,
+					close, 100L + minute, close, 1, new Date()));
+		}
+	}
+
+	@Test
+	public void testPopulateSeriesNotifiesOnce() throws Exception {
+		StrategyData strategyData = createStrategyData();
+		final int[] events = { 0, 0, 0 };
+		strategyData.getBaseCandleSeries().addChangeListener(
+				new SeriesChangeListener() {
+					public void seriesChanged(SeriesChangeEvent event) {
+						events[0]++;
+					}
+				});
+		strategyData.getCandleDataset().getSeries(0)
+				.addChangeListener(new SeriesChangeListener() {
+					public void seriesChanged(SeriesChangeEvent event) {
+						events[1]++;
+					}
+				});
+		getIndicatorSeries(strategyData,
+				IndicatorSeries.MovingAverageSeries).addChangeListener(
+				new SeriesChangeListener() {
+					public void seriesChanged(SeriesChangeEvent event) {
+						events[2]++;
+					}
+				});
+
+		CandleDataset.populateSeries(strategyData, candles);
+		assertFalse(strategyData.isBulkLoading());
+		assertEquals(390, strategyData.getBaseCandleSeries().getItemCount());
+		assertEquals(390, strategyData.getCandleDataset().getSeries(0)
+				.getItemCount());
+		assertEquals(1, events[0]);
+		assertEquals(1, events[1]);
+		assertEquals(1, events[2]);
+	}
+
+	@Test
+	public void testBulkLoadMatchesBarByBar() throws Exception {
+		StrategyData barByBar = createStrategyData();
+		for (Candle candle : candles) {
+			buildCandle(barByBar, candle);
+		}
+		StrategyData bulkLoad = createStrategyData();
+		bulkLoad.beginBulkLoad();
+		for (Candle candle : candles) {
+			buildCandle(bulkLoad, candle);
+		}
+		bulkLoad.endBulkLoad();
+		assertSameIndicators(barByBar, bulkLoad);
+
+		/*
+		 * Bars that follow the bulk load carry on from the same state.
+		 */
+		Candle next = new Candle(contract, tradingday, new CandlePeriod(
+				tradingday.getClose(), 60), 90, 91, 89, 90.5, 100L, 90.5, 1,
+				new Date());
+		buildCandle(barByBar, next);
+		buildCandle(bulkLoad, next);
+		assertSameIndicators(barByBar, bulkLoad);
+	}
+
+	@Test
+	public void testChangeCandleSeriesPeriod() throws Exception {
+		StrategyData strategyData = createStrategyData();
+		CandleDataset.populateSeries(strategyData, candles);
+		final int[] events = { 0 };
+		strategyData.getCandleDataset().getSeries(0)
+				.addChangeListener(new SeriesChangeListener() {
+					public void seriesChanged(SeriesChangeEvent event) {
+						events[0]++;
+					}
+				});
+		strategyData.changeCandleSeriesPeriod(300);
+		assertFalse(strategyData.isBulkLoading());
+		assertEquals(1, events[0]);
+		assertEquals(78, strategyData.getCandleDataset().getSeries(0)
+				.getItemCount());
+		assertEquals(
+				78 - 19,
+				getIndicatorSeries(strategyData,
+						IndicatorSeries.MovingAverageSeries).getItemCount());
+	}
+
+	/**
+	 * Method assertSameIndicators.
+	 * 
+	 * @param expected
+	 *            StrategyData
+	 * @param actual
+	 *            StrategyData
+	 */
+	private void assertSameIndicators(StrategyData expected,
+			StrategyData actual) {
+		assertEquals(expected.getBaseCandleSeries().getItemCount(), actual
+				.getBaseCandleSeries().getItemCount());
+		String[] types = { IndicatorSeries.MovingAverageSeries,
+				IndicatorSeries.RelativeStrengthIndexSeries,
+				IndicatorSeries.AverageTrueRangeSeries };
+		for (String type : types) {
+			XYDataset expectedDataset = (XYDataset) expected
+					.getIndicatorByType(type);
+			XYDataset actualDataset = (XYDataset) actual
+					.getIndicatorByType(type);
+			assertTrue(expectedDataset.getItemCount(0) > 0);
+			assertEquals(type, expectedDataset.getItemCount(0),
+					actualDataset.getItemCount(0));
+			for (int i = 0; i < expectedDataset.getItemCount(0); i++) {
+				assertEquals(type, expectedDataset.getXValue(0, i),
+						actualDataset.getXValue(0, i), 0);
+				assertEquals(type, expectedDataset.getYValue(0, i),
+						actualDataset.getYValue(0, i), 0);
+			}
+		}
+	}
+
+	/**
+	 * Method getIndicatorSeries.
+	 * 
+	 * @param strategyData
+	 *            StrategyData
+	 * @param type
+	 *            String
+	 * @return IndicatorSeries
+	 */
+	private IndicatorSeries getIndicatorSeries(StrategyData strategyData,
+			String type) {
+		return strategyData.getIndicatorByType(type).getSeries(0);
+	}
+
+	/**
+	 * Method createStrategyData.
+	 * 
+	 * @return StrategyData
+	 */
+	private StrategyData createStrategyData() {
+		CandleDataset candleDataset = new CandleDataset();
+		candleDataset.addSeries(new CandleSeries("TEST", contract, 60,
+				tradingday.getOpen(), tradingday.getClose()));
+		return new StrategyData(strategy, candleDataset);
+	}
+
+	/**
+	 * Method buildCandle.
+	 * 
+	 * @param strategyData
+	 *            StrategyData
+	 * @param candle
+	 *            Candle
+	 */
+	private void buildCandle(StrategyData strategyData, Candle candle) {
+		strategyData.buildCandle(candle.getStartPeriod(), candle.getOpen()
+				.doubleValue(), candle.getHigh().doubleValue(), candle
+				.getLow().doubleValue(), candle.getClose().doubleValue(),
+				candle.getVolume(), candle.getVwap().doubleValue(), candle
+						.getTradeCount(), 1, null);
+	}
+}
@@ -0,0 +1,176 @@
+/* ===========================================================
+ * TradeManager : a application to trade strategies for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Project Info:  org.trade
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Java is a trademark or registered trademark of Oracle, Inc.
+ * in the United States and other countries.]
+ *
+ * (C) Copyright 2011-2011, by Simon Allen and Contributors.
+ *
+ * Original Author:  Simon Allen;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ *
+ */
+package org.trade.strategy.data;
+
+import static org.junit.Assert.*;
+
+import java.util.Date;
+
+import org.jfree.data.general.DatasetChangeEvent;
+import org.jfree.data.general.DatasetChangeListener;
+import org.junit.Before;
+import org.junit.Test;
+import org.trade.core.util.TradingCalendar;
+import org.trade.persistent.dao.Contract;
+import org.trade.persistent.dao.Tradingday;
+import org.trade.strategy.data.candle.CandleItem;
+import org.trade.strategy.data.candle.CandlePeriod;
+
+/**
+ * Some tests for the {@link WindowedCandleDataset} class.
+ * 
+ * @author Simon Allen
+ * @version $Revision: 1.0 $
+ */
+public class WindowedCandleDatasetTest {
+
+	private Contract contract = null;
+	private Tradingday tradingday = null;
+	private CandleSeries candleSeries = null;
+
+	/**
+	 * Method setUp.
+	 * 
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		Date day = TradingCalendar.getMostRecentTradingDay(new Date());
+		tradingday = new Tradingday(TradingCalendar.getSpecificTime(day, 9,
+				30), TradingCalendar.getSpecificTime(day, 16, 0));
+		contract = new Contract("STK", "TEST", "SMART", "USD", null, null);
+		candleSeries = new CandleSeries("TEST", contract, 60,
+				tradingday.getOpen(), tradingday.getClose());
+		for (int i = 0; i < 390; i++) {
+			addCandle(i);
+		}
+	}
+
+	@Test
+	public void testAllBarsDownsampled() {
+		WindowedCandleDataset dataset = new WindowedCandleDataset(
+				candleSeries, 100);
+		CandleSeries window = dataset.getSeries(0);
+		assertEquals(4, dataset.getBucketSize());
+		assertTrue(window.getItemCount() <= 100);
+
+		long volume = 0;
+		double high = 0;
+		double low = Double.MAX_VALUE;
+		for (int i = 0; i < window.getItemCount(); i++) {
+			CandleItem item = (CandleItem) window.getDataItem(i);
+			volume = volume + item.getVolume();
+			high = Math.max(high, item.getHigh());
+			low = Math.min(low, item.getLow());
+		}
+		assertEquals(390 * 100, volume);
+		assertEquals(100d + 389 + 1, high, 0.0001);
+		assertEquals(100d - 1, low, 0.0001);
+		CandleItem last = (CandleItem) window.getDataItem(window
+				.getItemCount() - 1);
+		assertEquals(100d + 389, last.getClose(), 0.0001);
+	}
+
+	@Test
+	public void testZoomedWindow() {
+		WindowedCandleDataset dataset = new WindowedCandleDataset(
+				candleSeries, 100);
+		Date lower = TradingCalendar.addMinutes(tradingday.getOpen(), 120);
+		Date upper = TradingCalendar.addMinutes(lower, 30);
+		dataset.setDomainRange(lower.getTime(), upper.getTime());
+		assertEquals(1, dataset.getBucketSize());
+
+		CandleSeries window = dataset.getSeries(0);
+		assertTrue(window.getItemCount() < 100);
+		assertTrue(((CandleItem) window.getDataItem(0)).getPeriod()
+				.getFirstMillisecond() < lower.getTime());
+		assertTrue(((CandleItem) window.getDataItem(window.getItemCount() - 1))
+				.getPeriod().getLastMillisecond() > upper.getTime());
+	}
+
+	@Test
+	public void testNewBarAdded() {
+		WindowedCandleDataset dataset = new WindowedCandleDataset(
+				candleSeries, 1000);
+		assertEquals(390, dataset.getSeries(0).getItemCount());
+		candleSeries.add(contract, tradingday, new CandlePeriod(
+				TradingCalendar.addMinutes(tradingday.getClose(), 1), 60),
+				200, 201, 199, 200, 100, 200, 1, new Date());
+		assertEquals(391, dataset.getSeries(0).getItemCount());
+	}
+
+	@Test
+	public void testViewsSourceWhenNotDownsampled() {
+		WindowedCandleDataset dataset = new WindowedCandleDataset(
+				candleSeries, 1000);
+		assertSame(candleSeries, dataset.getSeries(0));
+
+		/*
+		 * Zooming in does not copy the source.
+		 */
+		Date lower = TradingCalendar.addMinutes(tradingday.getOpen(), 120);
+		dataset.setDomainRange(lower.getTime(),
+				TradingCalendar.addMinutes(lower, 30).getTime());
+		assertSame(candleSeries, dataset.getSeries(0));
+
+		/*
+		 * The source is listened to once.
+		 */
+		final int[] changes = new int[1];
+		dataset.addChangeListener(new DatasetChangeListener() {
+			public void datasetChanged(
+					DatasetChangeEvent event) {
+				changes[0]++;
+			}
+		});
+		addCandle(390);
+		assertEquals(1, changes[0]);
+		assertEquals(391, dataset.getSeries(0).getItemCount());
+	}
+
+	/**
+	 * Method addCandle.
+	 * 
+	 * @param minute
+	 *            int
+	 */
+	private void addCandle(int minute) {
+		double price = 100d + minute;
+		candleSeries.add(contract, tradingday, new CandlePeriod(
+				TradingCalendar.addMinutes(tradingday.getOpen(), minute), 60),
+				price, price + 1, price - 1, price, 100, price, 1, new Date());
+	}
+}